@@ -18,6 +18,11 @@ export interface ChatMessage {
   priority?: string;
 }
 
+export interface ChatStreamChunk {
+  text: string;
+  replace: boolean;
+}
+
 export interface AIInsight {
   id?: string;
   type: string;
@@ -123,9 +128,10 @@ export class AIService {
   }
 
   /**
-   * Send a chat message and receive streaming tokens via text/event-stream.
+   * Send a chat message and receive the answer as it is generated via text/event-stream.
+   * chunk.text is appended as is, unless chunk.replace is set: then it supersedes the answer so far.
    */
-  sendMessageStream(message: string, context?: string): Observable<string> {
+  sendMessageStream(message: string, context?: string): Observable<ChatStreamChunk> {
     const token = localStorage.getItem('authToken');
 
     const requestBody = {
@@ -142,7 +148,7 @@ export class AIService {
 
     const url = `${this.baseUrl}/chat/stream`;
 
-    return new Observable<string>((observer) => {
+    return new Observable<ChatStreamChunk>((observer) => {
       fetch(url, {
         method: 'POST',
         headers,
@@ -164,20 +170,30 @@ export class AIService {
               return;
             }
 
-            buffer += decoder.decode(value, { stream: true });
-            const lines = buffer.split('\n');
-            buffer = lines.pop() || '';
-
-            lines.forEach((line) => {
-              line = line.trim();
-              if (!line || !line.startsWith('data:')) return;
-              const data = line.slice(5).trim();
-              if (data === '[DONE]') {
+            buffer += decoder.decode(value, { stream: true }).replace(/\r\n/g, '\n');
+            // Events are separated by a blank line; multi-line data comes as several data: lines
+            const events = buffer.split('\n\n');
+            buffer = events.pop() || '';
+
+            for (const block of events) {
+              let event = 'message';
+              const data: string[] = [];
+              block.split('\n').forEach((line) => {
+                if (line.startsWith('event:')) {
+                  event = line.slice(6).trim();
+                } else if (line.startsWith('data:')) {
+                  data.push(line.slice(5));
+                }
+              });
+              if (event === 'done') {
                 observer.complete();
-              } else {
-                observer.next(data);
+                return;
               }
-            });
+              if (data.length) {
+                // JSON encoded, so whitespace and line breaks of the text survive
+                observer.next(JSON.parse(data.join('\n')) as ChatStreamChunk);
+              }
+            }
 
             read();
           }).catch(err => { observer.error(err); });
@@ -117,10 +117,10 @@ export class AIChatbotComponent implements OnInit, OnDestroy, AfterViewChecked {
     };
     this.chatHistory = [...this.chatHistory, assistantMsg];
 
-    // Stream tokens
+    // Stream the answer as it is generated
     this.aiService.sendMessageStream(message).subscribe({
-      next: (token) => {
-        assistantMsg.message += (assistantMsg.message ? ' ' : '') + token;
+      next: (chunk) => {
+        assistantMsg.message = chunk.replace ? chunk.text : assistantMsg.message + chunk.text;
       },
       error: (err) => {
         assistantMsg.message = '[Error] ' + (err.message || 'stream failed');
@@ -0,0 +1,161 @@
+package pizzaworld.bench;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Synthetic data for the benchmarks. All generators are seeded, so every fork and every
+ * run sees the same rows.
+ */
+public final class BenchData {
+
+    public static final String[] STATES = {"CA", "NV", "AZ", "UT"};
+    private static final String[] STATE_NAMES = {"California", "Nevada", "Arizona", "Utah"};
+    private static final String[] CITIES = {"Los Angeles", "Las Vegas", "Phoenix", "Salt Lake City"};
+    private static final String[] CATEGORIES = {"Classic", "Vegetarian", "Specialty", "Premium"};
+    private static final String[] SIZES = {"Small", "Medium", "Large", "Extra Large"};
+
+    private static final int STORES = 32;
+    private static final int PRODUCTS = 36;
+    private static final int CUSTOMERS_PER_STORE = 800;
+    private static final int BATCH = 5_000;
+    private static final LocalDateTime FIRST_ORDER = LocalDateTime.of(2020, 1, 1, 10, 0);
+    private static final int DAYS = 3 * 365;
+
+    private BenchData() {
+    }
+
+    /** Amount of roughly the given size with cents, as the driver returns NUMERIC columns. */
+    public static BigDecimal money(SplittableRandom random, long around) {
+        double value = around * (0.75 + random.nextDouble() / 2);
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public static String storeId(int store) {
+        return "S" + (1000 + store);
+    }
+
+    /**
+     * Opens an in-memory H2 database in PostgreSQL mode with the stores, products, orders and
+     * order_items tables plus the dashboard_recent_orders view, filled with the given number
+     * of orders (about 2.5 items each over three years). Close the data source to drop it.
+     */
+    public static SingleConnectionDataSource createDatabase(int orders) {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource(
+                "jdbc:h2:mem:bench" + System.nanoTime() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;OPTIMIZE_REUSE_RESULTS=FALSE",
+                "sa", "", true);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        createSchema(jdbc);
+        fill(jdbc, orders);
+        jdbc.execute("ANALYZE");
+        return dataSource;
+    }
+
+    private static void createSchema(JdbcTemplate jdbc) {
+        jdbc.execute("""
+            CREATE TABLE stores (
+                storeid VARCHAR(10) PRIMARY KEY,
+                zipcode VARCHAR(10),
+                state_abbr VARCHAR(2) NOT NULL,
+                latitude DOUBLE PRECISION,
+                longitude DOUBLE PRECISION,
+                city VARCHAR(100),
+                state VARCHAR(100)
+            )""");
+        jdbc.execute("""
+            CREATE TABLE products (
+                sku VARCHAR(10) PRIMARY KEY,
+                name VARCHAR(100),
+                price NUMERIC(10, 2),
+                category VARCHAR(50),
+                size VARCHAR(20),
+                ingredients VARCHAR(255),
+                launch DATE
+            )""");
+        jdbc.execute("""
+            CREATE TABLE orders (
+                orderid INTEGER PRIMARY KEY,
+                customerid INTEGER NOT NULL,
+                storeid VARCHAR(10) NOT NULL REFERENCES stores(storeid),
+                orderdate TIMESTAMP NOT NULL,
+                nitems INTEGER,
+                total NUMERIC(10, 2)
+            )""");
+        jdbc.execute("""
+            CREATE TABLE order_items (
+                orderid INTEGER NOT NULL REFERENCES orders(orderid),
+                sku VARCHAR(10) NOT NULL REFERENCES products(sku),
+                quantity INTEGER NOT NULL
+            )""");
+        jdbc.execute("CREATE INDEX idx_orders_storeid_orderdate ON orders(storeid, orderdate)");
+        jdbc.execute("CREATE INDEX idx_orders_orderdate ON orders(orderdate)");
+        jdbc.execute("CREATE INDEX idx_order_items_orderid ON order_items(orderid)");
+        jdbc.execute("CREATE INDEX idx_order_items_sku ON order_items(sku)");
+        jdbc.execute("""
+            CREATE VIEW dashboard_recent_orders AS
+            SELECT o.orderid, o.customerid, o.orderdate, o.storeid, s.state_abbr AS state_code,
+                   s.state, o.nitems, o.total AS order_value, s.city
+            FROM orders o
+            JOIN stores s ON o.storeid = s.storeid""");
+    }
+
+    private static void fill(JdbcTemplate jdbc, int orders) {
+        SplittableRandom random = new SplittableRandom(20240101);
+
+        List<Object[]> stores = new ArrayList<>(STORES);
+        for (int i = 0; i < STORES; i++) {
+            int state = i % STATES.length;
+            stores.add(new Object[] {storeId(i), String.valueOf(90000 + i), STATES[state],
+                    34.0 + random.nextDouble(), -118.0 + random.nextDouble(), CITIES[state], STATE_NAMES[state]});
+        }
+        jdbc.batchUpdate("INSERT INTO stores VALUES (?, ?, ?, ?, ?, ?, ?)", stores);
+
+        List<Object[]> products = new ArrayList<>(PRODUCTS);
+        BigDecimal[] prices = new BigDecimal[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            prices[i] = BigDecimal.valueOf(899 + (i % SIZES.length) * 300 + (i / SIZES.length) * 50L, 2);
+            products.add(new Object[] {"P" + (100 + i), "Pizza " + (i / SIZES.length), prices[i],
+                    CATEGORIES[i % CATEGORIES.length], SIZES[i % SIZES.length], "cheese, tomato",
+                    Date.valueOf(FIRST_ORDER.toLocalDate().minusDays(30L * i))});
+        }
+        jdbc.batchUpdate("INSERT INTO products VALUES (?, ?, ?, ?, ?, ?, ?)", products);
+
+        List<Object[]> orderRows = new ArrayList<>(BATCH);
+        List<Object[]> itemRows = new ArrayList<>(BATCH * 3);
+        for (int orderId = 1; orderId <= orders; orderId++) {
+            int store = random.nextInt(STORES);
+            int customer = store * CUSTOMERS_PER_STORE + random.nextInt(CUSTOMERS_PER_STORE);
+            LocalDateTime orderDate = FIRST_ORDER
+                    .plusDays(random.nextInt(DAYS))
+                    .plusMinutes(random.nextInt(12 * 60));
+
+            int lines = 1 + random.nextInt(4);
+            int items = 0;
+            BigDecimal total = BigDecimal.ZERO;
+            for (int line = 0; line < lines; line++) {
+                int product = random.nextInt(PRODUCTS);
+                int quantity = 1 + (random.nextInt(10) == 0 ? 1 : 0);
+                items += quantity;
+                total = total.add(prices[product].multiply(BigDecimal.valueOf(quantity)));
+                itemRows.add(new Object[] {orderId, "P" + (100 + product), quantity});
+            }
+            orderRows.add(new Object[] {orderId, customer, storeId(store), Timestamp.valueOf(orderDate), items, total});
+
+            if (orderRows.size() == BATCH || orderId == orders) {
+                jdbc.batchUpdate("INSERT INTO orders VALUES (?, ?, ?, ?, ?, ?)", orderRows);
+                jdbc.batchUpdate("INSERT INTO order_items VALUES (?, ?, ?)", itemRows);
+                orderRows.clear();
+                itemRows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pizzaworld.bench;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Unnamed statements (prepareThreshold=0, the pooler profile) against server-side prepared
+ * statements (prepareThreshold=5, the driver default, and 2, the server-prepare profile) on
+ * some of the hottest repository queries. Each call prepares the statement again, as
+ * JdbcTemplate does, so the driver's statement cache is exercised.
+ * <p>
+ * Needs a direct PostgreSQL connection in DB_URL / DB_USERNAME / DB_PASSWORD; H2 has no
+ * prepareThreshold. Run with
+ *   mvn -Pbenchmarks test-compile exec:exec -Djmh.include=PreparedStatementBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreparedStatementBenchmark {
+
+    private static final Map<String, String> HOT_QUERIES = Map.of(
+            "kpisStore", "SELECT * FROM kpis_global_store WHERE store_id = ?",
+            "revenueByMonthStore", "SELECT * FROM revenue_by_month_store WHERE store_id = ? ORDER BY year DESC, month DESC LIMIT 12",
+            "ordersByMonthStore", "SELECT * FROM orders_by_month_store WHERE store_id = ? ORDER BY year DESC, month DESC LIMIT 12",
+            "recentOrdersSummary", "SELECT COUNT(*), COALESCE(SUM(order_value), 0), COUNT(DISTINCT customerid) "
+                    + "FROM public.dashboard_recent_orders WHERE storeid = ? AND orderdate >= CAST('2022-01-01' AS TIMESTAMP)");
+
+    @Param({"0", "5", "2"})
+    public String prepareThreshold;
+
+    @Param({"kpisStore", "revenueByMonthStore", "ordersByMonthStore", "recentOrdersSummary"})
+    public String query;
+
+    private Connection connection;
+    private String sql;
+    private String storeId;
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getenv("DB_URL");
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            throw new IllegalStateException("PreparedStatementBenchmark needs a PostgreSQL DB_URL");
+        }
+        Properties props = new Properties();
+        props.setProperty("user", System.getenv("DB_USERNAME"));
+        props.setProperty("password", System.getenv("DB_PASSWORD"));
+        props.setProperty("prepareThreshold", prepareThreshold);
+        props.setProperty("preparedStatementCacheQueries", "512");
+        props.setProperty("preparedStatementCacheSizeMiB", "16");
+        connection = DriverManager.getConnection(url, props);
+        sql = HOT_QUERIES.get(query);
+
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT storeid FROM stores ORDER BY storeid LIMIT 1")) {
+            rs.next();
+            storeId = rs.getString(1);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Object execute() throws SQLException {
+        Object last = null;
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setString(1, storeId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    last = rs.getObject(1);
+                }
+            }
+        }
+        return last;
+    }
+}
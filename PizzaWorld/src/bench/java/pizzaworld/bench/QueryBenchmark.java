@@ -0,0 +1,166 @@
+package pizzaworld.bench;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import pizzaworld.dto.StorePerformanceRow;
+import pizzaworld.dto.StoreRevenueChartRow;
+import pizzaworld.model.User;
+import pizzaworld.repository.AnalyticsRowRepo;
+import pizzaworld.repository.RevenueCubeRepo;
+import pizzaworld.service.OptimizedPizzaService;
+import pizzaworld.service.RevenueCubeService;
+import pizzaworld.util.PeriodRange;
+
+/**
+ * Representative dashboard queries on the base tables, run through the real service and
+ * repository code against an embedded H2 database (PostgreSQL mode) filled by BenchData.
+ * Absolute numbers are not PostgreSQL numbers; use this to compare the Java side of a change
+ * (statement building, binding, row mapping) and how queries scale with the data size.
+ * The service runs with the revenue cube disabled; the cube* benchmarks answer the same
+ * slices from a RevenueCube loaded from the same data. Set the size with -p orders=...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"20000"})
+    public int orders;
+
+    private SingleConnectionDataSource dataSource;
+    private OptimizedPizzaService service;
+    private AnalyticsRowRepo rowRepo;
+    private RevenueCubeService cube;
+
+    private final User hq = new User(1L, "hq", "", "HQ_ADMIN", null, null);
+    private final User stateManager = new User(2L, "state", "", "STATE_MANAGER", null, "CA");
+    private final User storeManager = new User(3L, "store", "", "STORE_MANAGER", BenchData.storeId(5), "NV");
+
+    @Setup
+    public void setUp() {
+        dataSource = BenchData.createDatabase(orders);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+
+        rowRepo = new AnalyticsRowRepo();
+        ReflectionTestUtils.setField(rowRepo, "jdbcTemplate", jdbcTemplate);
+
+        RevenueCubeRepo cubeRepo = new RevenueCubeRepo();
+        ReflectionTestUtils.setField(cubeRepo, "jdbcTemplate", jdbcTemplate);
+        cube = new RevenueCubeService();
+        ReflectionTestUtils.setField(cube, "cubeRepo", cubeRepo);
+        ReflectionTestUtils.setField(cube, "enabled", true);
+        cube.rebuild();
+
+        RevenueCubeService disabledCube = new RevenueCubeService();
+        ReflectionTestUtils.setField(disabledCube, "enabled", false);
+
+        service = new OptimizedPizzaService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "rowRepo", rowRepo);
+        ReflectionTestUtils.setField(service, "revenueCube", disabledCube);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<StorePerformanceRow> storePerformanceHQ() {
+        return rowRepo.getStorePerformanceHQ();
+    }
+
+    @Benchmark
+    public List<StorePerformanceRow> storePerformanceState() {
+        return rowRepo.getStorePerformanceState("CA");
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> productsPerformanceYear() {
+        return service.getProductsPerformance(2021, null, null, null, hq, null, null);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> productsPerformanceStoreManager() {
+        return service.getProductsPerformance(2021, 6, null, null, storeManager, null, null);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> revenueByCategoryStates() {
+        return service.getRevenueByCategory(2022, null, null, hq, null, List.of("CA", "NV", "UT"));
+    }
+
+    @Benchmark
+    public Map<String, Object> productsKpisStateManager() {
+        return service.getProductsKpis(null, null, null, stateManager, null, null);
+    }
+
+    // No "to" date: H2 does not accept the PostgreSQL INTERVAL '1 day' literal of that filter
+    @Benchmark
+    public Map<String, Object> ordersKpisSearch() {
+        return service.getOrdersKPIs(null, null, null, "vegas", "2021-01-01", null, hq);
+    }
+
+    @Benchmark
+    public Map<String, Object> ordersFirstPage() {
+        return service.getOrdersWithKeysetPagination(50, null, null, null, null, null, null, null,
+                "orderdate", "desc", "none", hq);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> cubeRevenueByCategoryStates() {
+        return cube.revenueByCategory(2022, null, null, hq, null, List.of("CA", "NV", "UT")).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> cubeCategoryPerformanceState() {
+        return cube.categoryPerformance(stateManager).orElseThrow();
+    }
+
+    @Benchmark
+    public List<StoreRevenueChartRow> cubeStoreRevenueChartYear() {
+        return cube.storeRevenueChart(hq, "year", 2021, null).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> cubeStoreComparePeriods() {
+        return cube.storeComparePeriods(BenchData.storeId(5), List.of(
+                PeriodRange.of(2021, null, 2), PeriodRange.of(2022, null, 2))).orElseThrow();
+    }
+
+    @Benchmark
+    public Map<String, Object> cubeProductsKpisStateManager() {
+        return cube.productsKpis(null, null, null, stateManager, null, null).orElseThrow();
+    }
+
+    @Benchmark
+    public Map<String, Object> cubeOrdersKpisYear() {
+        return cube.ordersKpis(null, null, null, null, "2021-01-01", "2021-12-31", hq).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> cubeCustomerAcquisitionStates() {
+        return cube.customerAcquisition(hq, List.of("CA", "NV"), null).orElseThrow();
+    }
+}
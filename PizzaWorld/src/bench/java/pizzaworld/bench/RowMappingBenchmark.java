@@ -0,0 +1,117 @@
+package pizzaworld.bench;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import pizzaworld.dto.StoreMonthlyRevenueRow;
+import pizzaworld.repository.AnalyticsRowRepo;
+
+/**
+ * Map based rows (ColumnMapRowMapper, what the @Query methods return) against the
+ * column-indexed record mappers of AnalyticsRowRepo, for mapping and JSON serialization.
+ * Uses the monthly revenue trend shape over an in-memory result set, so no database is needed.
+ * Run with -prof gc to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    // 32 stores x 3 years of months is the HQ result size
+    @Param({"1152"})
+    public int rows;
+
+    private CachedRowSet resultSet;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private List<Map<String, Object>> mapRows;
+    private List<StoreMonthlyRevenueRow> recordRows;
+
+    @Setup
+    public void setUp() throws SQLException {
+        RowSetMetaDataImpl meta = new RowSetMetaDataImpl();
+        String[] names = {"storeid", "city", "state_name", "state_abbr", "year", "month", "month_label",
+                "month_name_label", "total_revenue", "order_count", "avg_order_value", "unique_customers"};
+        int[] types = {Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.NUMERIC,
+                Types.VARCHAR, Types.VARCHAR, Types.NUMERIC, Types.BIGINT, Types.NUMERIC, Types.BIGINT};
+        meta.setColumnCount(names.length);
+        for (int i = 0; i < names.length; i++) {
+            meta.setColumnName(i + 1, names[i]);
+            meta.setColumnLabel(i + 1, names[i]);
+            meta.setColumnType(i + 1, types[i]);
+        }
+
+        resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(meta);
+        for (int i = 0; i < rows; i++) {
+            int year = 2020 + (i / 12) % 3;
+            int month = i % 12 + 1;
+            resultSet.moveToInsertRow();
+            resultSet.updateString(1, "S" + (i / 36));
+            resultSet.updateString(2, "Phoenix");
+            resultSet.updateString(3, "Arizona");
+            resultSet.updateString(4, "AZ");
+            resultSet.updateBigDecimal(5, BigDecimal.valueOf(year));
+            resultSet.updateBigDecimal(6, BigDecimal.valueOf(month));
+            resultSet.updateString(7, year + "-" + (month < 10 ? "0" : "") + month);
+            resultSet.updateString(8, "Month " + year);
+            resultSet.updateBigDecimal(9, new BigDecimal("48213.75").add(BigDecimal.valueOf(i)));
+            resultSet.updateLong(10, 1700 + i % 50);
+            resultSet.updateBigDecimal(11, new BigDecimal("27.8311764705882353"));
+            resultSet.updateLong(12, 900 + i % 40);
+            resultSet.insertRow();
+            resultSet.moveToCurrentRow();
+        }
+
+        mapRows = mapWithColumnMap();
+        recordRows = mapWithRecords();
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> mapWithColumnMap() throws SQLException {
+        resultSet.beforeFirst();
+        return new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()).extractData(resultSet);
+    }
+
+    @Benchmark
+    public List<StoreMonthlyRevenueRow> mapWithRecords() throws SQLException {
+        resultSet.beforeFirst();
+        return new RowMapperResultSetExtractor<>(AnalyticsRowRepo.MONTHLY_TREND).extractData(resultSet);
+    }
+
+    @Benchmark
+    public byte[] serializeMaps() throws Exception {
+        return objectMapper.writeValueAsBytes(mapRows);
+    }
+
+    @Benchmark
+    public byte[] serializeRecords() throws Exception {
+        return objectMapper.writeValueAsBytes(recordRows);
+    }
+}
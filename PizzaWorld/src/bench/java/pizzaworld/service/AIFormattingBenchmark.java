@@ -0,0 +1,119 @@
+package pizzaworld.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import pizzaworld.bench.BenchData;
+
+/**
+ * The AIService format* helpers that turn business context rows into prompt text,
+ * and StaticDocRetriever.findMatch over the bundled knowledge files. Both run on
+ * every chat request before the model is called.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIFormattingBenchmark {
+
+    private final AIService aiService = new AIService();
+    private StaticDocRetriever docRetriever;
+
+    private List<Map<String, Object>> yearlyTrends;
+    private List<Map<String, Object>> topStores;
+    private List<Map<String, Object>> topProducts;
+    private List<Map<String, Object>> categories;
+    private List<Map<String, Object>> hourly;
+    private List<Map<String, Object>> customers;
+    private List<Map<String, Object>> states;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(7);
+        docRetriever = new StaticDocRetriever();
+
+        yearlyTrends = new ArrayList<>();
+        for (int year = 2020; year <= 2024; year++) {
+            yearlyTrends.add(row("year", year, "revenue", BenchData.money(random, 12_000_000)));
+        }
+        topStores = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> store = row("storeid", "S" + (100 + i), "total_revenue", BenchData.money(random, 1_500_000));
+            store.put("city", "Phoenix");
+            topStores.add(store);
+        }
+        topProducts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            topProducts.add(row("name", "Product " + i, "total_revenue", BenchData.money(random, 900_000)));
+        }
+        categories = new ArrayList<>();
+        for (String category : List.of("Classic", "Vegetarian", "Specialty", "Premium")) {
+            categories.add(row("category", category, "total_revenue", BenchData.money(random, 5_000_000)));
+        }
+        hourly = new ArrayList<>();
+        for (int hour = 0; hour < 24; hour++) {
+            hourly.add(row("hour", hour, "revenue", BenchData.money(random, 400_000)));
+        }
+        customers = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> customer = row("customerid", 10_000 + i, "total_spent", BenchData.money(random, 2_000));
+            customer.put("total_orders", (long) (20 + i));
+            customers.add(customer);
+        }
+        states = new ArrayList<>();
+        for (String state : List.of("CA", "NV", "AZ", "UT")) {
+            states.add(row("state_abbr", state, "total_revenue", BenchData.money(random, 20_000_000)));
+        }
+    }
+
+    private static Map<String, Object> row(String key, Object value, String metric, Object amount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put(key, value);
+        row.put(metric, amount);
+        return row;
+    }
+
+    @Benchmark
+    public void formatContext(Blackhole bh) {
+        bh.consume(aiService.formatRevenueTrends(yearlyTrends));
+        bh.consume(aiService.formatTopStores(topStores));
+        bh.consume(aiService.formatTopProducts(topProducts));
+        bh.consume(aiService.formatCategoryPerformance(categories));
+        bh.consume(aiService.formatPeakHours(hourly));
+        bh.consume(aiService.formatCustomerLTVSummary(customers));
+        bh.consume(aiService.formatTopStates(states));
+    }
+
+    @Benchmark
+    public String formatCurrency() {
+        return aiService.formatCurrency(1_234_567.891);
+    }
+
+    @Benchmark
+    public Object findMatchHit() {
+        return docRetriever.findMatch("how do I export orders to csv");
+    }
+
+    @Benchmark
+    public Object findMatchMiss() {
+        return docRetriever.findMatch("what was revenue in nevada last quarter compared to utah");
+    }
+}
@@ -0,0 +1,122 @@
+package pizzaworld.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import pizzaworld.model.User;
+
+/**
+ * Time until the user sees the first words of an answer: GemmaAIService against a local
+ * stub of the Google AI API that writes the answer in chunks with a fixed delay each, the
+ * way the model generates it. blockingAnswer waits for generateContent (the whole answer),
+ * firstStreamedDelta for the first chunk of streamGenerateContent.
+ *
+ *   mvn -Pbenchmarks test-compile exec:exec -Djmh.include=AIStreaming
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AIStreamingBenchmark {
+
+    @Param({"20"})
+    public int chunks;
+
+    @Param({"25"})
+    public int chunkDelayMillis;
+
+    private HttpServer stub;
+    private GemmaAIService gemma;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/models/", this::answer);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.start();
+
+        gemma = new GemmaAIService();
+        ReflectionTestUtils.setField(gemma, "apiKey", "stub");
+        ReflectionTestUtils.setField(gemma, "model", "stub-model");
+        ReflectionTestUtils.setField(gemma, "baseUrl", "http://127.0.0.1:" + stub.getAddress().getPort() + "/models/");
+        user = new User(null, "bench", "", "HQ_ADMIN", null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stub.stop(0);
+    }
+
+    @Benchmark
+    public String blockingAnswer() {
+        return gemma.generateResponse("How is revenue?", user, "analytics", Map.of("total_revenue", "$1,234.00"));
+    }
+
+    @Benchmark
+    public String firstStreamedDelta() {
+        return gemma.streamResponse("How is revenue?", user, "analytics", Map.of("total_revenue", "$1,234.00")).blockFirst();
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        boolean streaming = exchange.getRequestURI().getPath().endsWith(":streamGenerateContent");
+        exchange.getResponseHeaders().set("Content-Type", streaming ? "text/event-stream" : "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (streaming) {
+                for (int i = 0; i < chunks; i++) {
+                    pause();
+                    out.write(("data: " + chunk("word" + i + " ") + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                }
+            } else {
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < chunks; i++) {
+                    pause();
+                    text.append("word").append(i).append(' ');
+                }
+                out.write(chunk(text.toString()).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // Client cancelled the stream after the first chunk
+        }
+    }
+
+    private static String chunk(String text) {
+        return "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + text + "\"}]}}]}";
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(chunkDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
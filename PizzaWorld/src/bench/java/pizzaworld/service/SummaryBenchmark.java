@@ -0,0 +1,93 @@
+package pizzaworld.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import pizzaworld.bench.BenchData;
+
+/**
+ * The in-memory roll-ups behind the custom range and compare endpoints of OptimizedPizzaService.
+ * Input rows have the shape and number types (BigDecimal, Long) the JDBC driver returns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryBenchmark {
+
+    // 12 is a one year range, 60 the full history; products per period for calculatePeriodSummary
+    @Param({"12", "60"})
+    public int rows;
+
+    private final OptimizedPizzaService service = new OptimizedPizzaService();
+    private List<Map<String, Object>> monthlyData;
+    private List<Map<String, Object>> comparisons;
+    private List<Map<String, Object>> periodProducts;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        monthlyData = new ArrayList<>(rows);
+        comparisons = new ArrayList<>(rows);
+        periodProducts = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long orders = 1_500 + random.nextInt(500);
+
+            Map<String, Object> month = new HashMap<>();
+            month.put("year", 2020 + i / 12);
+            month.put("month", i % 12 + 1);
+            month.put("total_revenue", BenchData.money(random, orders * 27));
+            month.put("total_orders", orders);
+            month.put("total_customers", orders * 3 / 4);
+            month.put("total_units", orders * 2);
+            monthlyData.add(month);
+
+            Map<String, Object> metrics = new HashMap<>(month);
+            metrics.put("avg_order_value", BenchData.money(random, 27));
+            Map<String, Object> period = new HashMap<>();
+            period.put("metrics", metrics);
+            period.put("label", month.get("year") + "-" + month.get("month"));
+            comparisons.add(period);
+
+            Map<String, Object> product = new HashMap<>();
+            product.put("sku", "P" + i);
+            product.put("total_revenue", BenchData.money(random, orders * 3));
+            product.put("total_orders", orders / 10);
+            product.put("total_units", orders / 8);
+            periodProducts.add(product);
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> calculateRangeSummary() {
+        return service.calculateRangeSummary(monthlyData);
+    }
+
+    @Benchmark
+    public Map<String, Object> generateSummaryComparison() {
+        return service.generateSummaryComparison(comparisons);
+    }
+
+    @Benchmark
+    public Map<String, Object> calculatePeriodSummary() {
+        return service.calculatePeriodSummary(periodProducts);
+    }
+}
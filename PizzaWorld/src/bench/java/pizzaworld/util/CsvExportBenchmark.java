@@ -0,0 +1,111 @@
+package pizzaworld.util;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * CsvExportUtil.writeCsv for map rows (the generic export path) and string tables,
+ * using an orders grid shaped row. The response discards its bytes so only encoding
+ * and escaping are measured, not the growth of an in-memory buffer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CsvExportBenchmark {
+
+    @Param({"1000", "50000"})
+    public int rows;
+
+    private List<Map<String, Object>> mapRows;
+    private List<String> headers;
+    private List<List<String>> stringRows;
+
+    @Setup
+    public void setUp() {
+        mapRows = new ArrayList<>(rows);
+        stringRows = new ArrayList<>(rows);
+        long start = Timestamp.valueOf("2023-01-01 00:00:00").getTime();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("orderid", 1_000_000 + i);
+            row.put("customerid", 50_000 + i % 9_000);
+            row.put("orderdate", new Timestamp(start + i * 60_000L));
+            row.put("storeid", "S" + (i % 32));
+            row.put("state_code", "CA");
+            row.put("city", i % 10 == 0 ? "San Luis Obispo, \"SLO\"" : "Los Angeles");
+            row.put("nitems", i % 5 + 1);
+            row.put("order_value", new BigDecimal("27.85").add(BigDecimal.valueOf(i % 100)));
+            mapRows.add(row);
+
+            List<String> values = new ArrayList<>(row.size());
+            row.values().forEach(value -> values.add(String.valueOf(value)));
+            stringRows.add(values);
+        }
+        headers = List.copyOf(mapRows.get(0).keySet());
+    }
+
+    @Benchmark
+    public MockHttpServletResponse writeMapRows() {
+        MockHttpServletResponse response = new DiscardingResponse();
+        CsvExportUtil.writeCsv(response, mapRows, "orders.csv");
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse writeStringRows() {
+        MockHttpServletResponse response = new DiscardingResponse();
+        CsvExportUtil.writeCsv(response, headers, stringRows, "orders.csv");
+        return response;
+    }
+
+    private static final class DiscardingResponse extends MockHttpServletResponse {
+
+        private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+            }
+        };
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return out;
+        }
+    }
+}
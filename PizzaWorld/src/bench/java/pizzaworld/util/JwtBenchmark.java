@@ -0,0 +1,68 @@
+package pizzaworld.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsonwebtoken.Claims;
+import pizzaworld.model.CustomUserDetails;
+import pizzaworld.model.User;
+import pizzaworld.security.AuthTokenCache;
+
+/**
+ * Token checks done by JwtAuthFilter: a single verifying parse on a cache miss, the
+ * AuthTokenCache lookup on a hit, and the rejection path for a tampered token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private String tampered;
+    private final AuthTokenCache tokenCache = new AuthTokenCache();
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil("benchmark-secret-with-at-least-256-bits-of-key!!");
+        token = jwtUtil.generateToken("hq.admin", "HQ_ADMIN");
+        tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        Claims claims = jwtUtil.parseClaims(token).orElseThrow();
+        User user = new User(1L, claims.getSubject(), "", "HQ_ADMIN", null, null);
+        tokenCache.put(token, new CustomUserDetails(user), claims.getExpiration(), tokenCache.generation());
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public String filterPath() {
+        return jwtUtil.parseClaims(token).map(Claims::getSubject).orElse(null);
+    }
+
+    @Benchmark
+    public CustomUserDetails cachedPath() {
+        return tokenCache.get(token);
+    }
+
+    @Benchmark
+    public boolean rejectTampered() {
+        return jwtUtil.validateToken(tampered);
+    }
+}
@@ -0,0 +1,305 @@
+package pizzaworld.config;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Cache region that lets concurrent misses on one key share a single load (single flight).
+ *
+ * Used by @Cacheable(sync = true): the first caller of a missing key runs the method, callers
+ * arriving while it runs wait for that result instead of sending the same query. A waiter
+ * gives up after the load timeout and runs the method itself, so a stuck load holds up its
+ * followers no longer than that. Unlike Caffeine's own get(key, loader) the load runs outside
+ * any map lock, so a slow key never blocks other keys of the region.
+ *
+ * With refreshAfter set the region serves stale-while-revalidate: an entry older than
+ * refreshAfter, or written before the last clear(), is still returned at once while a single
+ * background load replaces it. The expiry of the underlying Caffeine cache is the hard limit;
+ * only a key that is missing altogether makes its caller wait. clear() therefore marks the
+ * entries stale instead of dropping them.
+ */
+public class CoalescingCache implements Cache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CoalescingCache.class);
+
+    private final Cache delegate;
+    private final Duration loadTimeout;
+    private final Duration refreshAfter;
+    private final Executor refreshExecutor;
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // Bumped by evict/clear; a load that started before must not store its now stale value
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder refreshesRejected = new LongAdder();
+
+    /** Value of a stale-while-revalidate region with the time and generation of its load. */
+    private record Stamped(Object value, long loadedAt, long generation) {
+    }
+
+    public CoalescingCache(Cache delegate, Duration loadTimeout) {
+        this(delegate, loadTimeout, null, null);
+    }
+
+    public CoalescingCache(Cache delegate, Duration loadTimeout, Duration refreshAfter, Executor refreshExecutor) {
+        this.delegate = delegate;
+        this.loadTimeout = loadTimeout;
+        this.refreshAfter = refreshAfter;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            if (!(cached.get() instanceof Stamped stamped)) {
+                return (T) cached.get();
+            }
+            if (isStale(stamped)) {
+                staleHits.increment();
+                refreshInBackground(key, valueLoader);
+            }
+            return (T) stamped.value();
+        }
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, flight);
+        if (running != null) {
+            return await(key, running, valueLoader);
+        }
+        try {
+            long startedAt = generation.get();
+            long start = System.nanoTime();
+            T value = load(key, valueLoader);
+            loads.increment();
+            loadNanos.add(System.nanoTime() - start);
+            store(key, value, startedAt);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(Object key, CompletableFuture<Object> running, Callable<T> valueLoader) {
+        try {
+            T value = (T) running.get(loadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            coalesced.increment();
+            return value;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            logger.warn("Load of {} in cache {} still running after {}, loading it again", key, getName(), loadTimeout);
+            return load(key, valueLoader);
+        } catch (ExecutionException e) {
+            // Same query, same failure: hand the leader's error to its followers
+            coalesced.increment();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new ValueRetrievalException(key, valueLoader, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private void refreshInBackground(Object key, Callable<?> valueLoader) {
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, flight) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    long startedAt = generation.get();
+                    long start = System.nanoTime();
+                    Object value = load(key, valueLoader);
+                    loads.increment();
+                    loadNanos.add(System.nanoTime() - start);
+                    store(key, value, startedAt);
+                    flight.complete(value);
+                } catch (RuntimeException | Error e) {
+                    // The stale value keeps being served until the hard TTL
+                    refreshFailures.increment();
+                    logger.warn("Background refresh of {} in cache {} failed: {}", key, getName(), e.getMessage());
+                    flight.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, flight);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Refresh executor saturated: keep serving the stale value, a later read retries
+            refreshesRejected.increment();
+            inFlight.remove(key, flight);
+            flight.cancel(false);
+        }
+    }
+
+    private boolean isStale(Stamped stamped) {
+        return stamped.generation() != generation.get()
+                || System.nanoTime() - stamped.loadedAt() > refreshAfter.toNanos();
+    }
+
+    private void store(Object key, Object value, long startedAt) {
+        if (refreshAfter != null) {
+            // Stamped with the generation the load started in: if the region was cleared
+            // meanwhile the value is stored but already stale
+            delegate.put(key, new Stamped(value, System.nanoTime(), startedAt));
+        } else if (generation.get() == startedAt) {
+            delegate.put(key, value);
+        }
+    }
+
+    private Object unwrap(Object stored) {
+        return stored instanceof Stamped stamped ? stamped.value() : stored;
+    }
+
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    /** Method calls that ran because their key was neither cached nor already loading. */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    public double averageLoadMillis() {
+        long count = loads.sum();
+        return count > 0 ? loadNanos.sum() / 1_000_000.0 / count : 0.0;
+    }
+
+    /** Calls answered by another caller's load of the same key. */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /** Waiters that stopped waiting after the load timeout and ran the method themselves. */
+    public long timeoutCount() {
+        return timeouts.sum();
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /** Reads of a stale-while-revalidate region answered with a stale value. */
+    public long staleHitCount() {
+        return staleHits.sum();
+    }
+
+    public long refreshFailureCount() {
+        return refreshFailures.sum();
+    }
+
+    /** Background refreshes dropped because the refresh executor was saturated. */
+    public long refreshRejectedCount() {
+        return refreshesRejected.sum();
+    }
+
+    public Duration refreshAfter() {
+        return refreshAfter;
+    }
+
+    // =================================================================
+    // PLAIN CACHE OPERATIONS - passed through
+    // =================================================================
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper cached = delegate.get(key);
+        return cached == null || refreshAfter == null ? cached : new SimpleValueWrapper(unwrap(cached.get()));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper cached = get(key);
+        Object value = cached != null ? cached.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        store(key, value, generation.get());
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        Object stored = refreshAfter != null ? new Stamped(value, System.nanoTime(), generation.get()) : value;
+        ValueWrapper previous = delegate.putIfAbsent(key, stored);
+        return previous == null || refreshAfter == null ? previous : new SimpleValueWrapper(unwrap(previous.get()));
+    }
+
+    @Override
+    public void evict(Object key) {
+        generation.incrementAndGet();
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        generation.incrementAndGet();
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        generation.incrementAndGet();
+        if (refreshAfter == null) {
+            delegate.clear();
+        }
+    }
+
+    @Override
+    public boolean invalidate() {
+        generation.incrementAndGet();
+        return delegate.invalidate();
+    }
+}
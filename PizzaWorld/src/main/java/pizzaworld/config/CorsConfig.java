@@ -27,6 +27,8 @@ public class CorsConfig {
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         configuration.setAllowCredentials(true);
+        // Staleness bound of the stale-while-revalidate dashboard tiles
+        configuration.setExposedHeaders(Arrays.asList("X-Max-Staleness"));
         
         // Cache preflight requests for 1 hour
         configuration.setMaxAge(3600L);
@@ -0,0 +1,75 @@
+package pizzaworld.config;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * One Hikari pool per Workload behind a routing DataSource. The interactive pool is
+ * configured by spring.datasource.hikari.*; the heavy and AI pools copy its settings
+ * (URL, credentials, driver properties) and only change size and timeouts, so exports,
+ * refreshes and AI context gathering wait for their own connections instead of the
+ * dashboard's. The three maximum sizes together are what the database has to allow.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource interactiveDataSource(DataSourceProperties properties) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("interactive");
+        return pool;
+    }
+
+    @Bean
+    public HikariDataSource heavyDataSource(@Qualifier("interactiveDataSource") HikariDataSource interactive,
+            @Value("${pizzaworld.datasource.heavy.minimum-idle:1}") int minimumIdle,
+            @Value("${pizzaworld.datasource.heavy.maximum-pool-size:8}") int maximumPoolSize,
+            @Value("${pizzaworld.datasource.heavy.connection-timeout:PT60S}") Duration connectionTimeout) {
+        HikariDataSource pool = derivedPool(interactive, "heavy", maximumPoolSize, minimumIdle, connectionTimeout);
+        // Exports and view refreshes hold their connection for minutes by design
+        pool.setLeakDetectionThreshold(0);
+        return pool;
+    }
+
+    @Bean
+    public HikariDataSource aiDataSource(@Qualifier("interactiveDataSource") HikariDataSource interactive,
+            @Value("${pizzaworld.datasource.ai.minimum-idle:0}") int minimumIdle,
+            @Value("${pizzaworld.datasource.ai.maximum-pool-size:4}") int maximumPoolSize,
+            @Value("${pizzaworld.datasource.ai.connection-timeout:PT10S}") Duration connectionTimeout) {
+        return derivedPool(interactive, "ai", maximumPoolSize, minimumIdle, connectionTimeout);
+    }
+
+    @Bean
+    @Primary
+    public WorkloadRoutingDataSource dataSource(@Qualifier("interactiveDataSource") HikariDataSource interactive,
+                                                @Qualifier("heavyDataSource") HikariDataSource heavy,
+                                                @Qualifier("aiDataSource") HikariDataSource ai) {
+        return new WorkloadRoutingDataSource(Map.of(
+                Workload.INTERACTIVE, interactive,
+                Workload.HEAVY, heavy,
+                Workload.AI, ai));
+    }
+
+    private static HikariDataSource derivedPool(HikariDataSource base, String name, int maximumPoolSize,
+                                                int minimumIdle, Duration connectionTimeout) {
+        // Not started yet: the pool opens on its first getConnection
+        HikariDataSource pool = new HikariDataSource();
+        base.copyStateTo(pool);
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(maximumPoolSize);
+        pool.setMinimumIdle(minimumIdle);
+        pool.setConnectionTimeout(connectionTimeout.toMillis());
+        return pool;
+    }
+}
@@ -0,0 +1,60 @@
+package pizzaworld.config;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${pizzaworld.analytics.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${pizzaworld.analytics.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Value("${pizzaworld.cache.refresh.pool-size:2}")
+    private int refreshPoolSize;
+
+    @Value("${pizzaworld.cache.refresh.queue-capacity:32}")
+    private int refreshQueueCapacity;
+
+    /**
+     * Bounded pool for the parallel slices of composite analytics payloads.
+     * Kept well below the Hikari pool size so fan-out cannot take every connection;
+     * when the queue is full the calling thread runs the slice itself.
+     */
+    @Bean(name = "analyticsExecutor")
+    public ThreadPoolTaskExecutor analyticsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("analytics-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Background reloads of stale-while-revalidate cache regions. When it is saturated a
+     * refresh is rejected rather than run by the caller, who keeps getting the stale value;
+     * the next stale read tries again.
+     */
+    @Bean(name = "cacheRefreshExecutor")
+    public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(refreshPoolSize);
+        executor.setMaxPoolSize(refreshPoolSize);
+        executor.setQueueCapacity(refreshQueueCapacity);
+        executor.setThreadNamePrefix("cache-refresh-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
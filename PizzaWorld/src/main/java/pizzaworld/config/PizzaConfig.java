@@ -1,14 +1,264 @@
 package pizzaworld.config;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
 
+/**
+ * Cache configuration for the @Cacheable regions in OptimizedPizzaService.
+ * Every region is bounded and expires after write; TTLs follow how often the
+ * backing materialized views change.
+ */
+@Configuration
 public class PizzaConfig {
 
+    // Fallback for regions that are not listed below
+    private static final long DEFAULT_MAX_SIZE = 500;
+    private static final Duration DEFAULT_TTL = Duration.ofMinutes(10);
+
+    /**
+     * Size and TTL of a single cache region. With refreshAfter set the region serves
+     * stale-while-revalidate: ttl is then the hard limit, refreshAfter the soft one.
+     */
+    public record CacheRegion(long maximumSize, Duration ttl, Duration refreshAfter) {
+
+        public CacheRegion(long maximumSize, Duration ttl) {
+            this(maximumSize, ttl, null);
+        }
+    }
+
+    /** Region of AIService's business context, assembled from the regions above */
+    public static final String AI_CONTEXT_CACHE = "aiBusinessContext";
+
+    /**
+     * Per-region limits. Scope-keyed regions (role/store/state) stay small, filter-keyed
+     * regions get more entries but a shorter TTL, lookup lists live longest.
+     */
+    public static final Map<String, CacheRegion> CACHE_REGIONS = buildRegions();
+
+    private static Map<String, CacheRegion> buildRegions() {
+        Map<String, CacheRegion> regions = new LinkedHashMap<>();
+
+        // =================================================================
+        // DASHBOARD - KPI tiles and recent orders, one entry per user scope
+        // =================================================================
+        // The tiles only change with a view refresh: stale values are served while they reload
+        staleWhileRevalidate(regions, 200, Duration.ofMinutes(5), Duration.ofMinutes(30), "dashboardKPIs", "globalStoreKPIs");
+        staleWhileRevalidate(regions, 200, Duration.ofMinutes(2), Duration.ofMinutes(15), "recentOrders");
+        region(regions, 200, Duration.ofMinutes(5), "ordersKPIs");
+
+        // =================================================================
+        // CHARTS & TRENDS - monthly/hourly views refreshed a few times a day
+        // =================================================================
+        region(regions, 500, Duration.ofMinutes(15),
+                "storeRevenueChart", "revenueByStore", "storePerformance", "monthlyTrends",
+                "hourlyAnalytics", "dailyTrends", "monthlyRevenueTrendsByStore", "stateRevenueTrends",
+                "topProductsByTime", "storeComparison", "categoryPerformance", "customerAcquisition",
+                "productAnalytics", "categoryAnalytics", "storePerformanceAnalytics",
+                "statePerformanceAnalytics");
+
+        // =================================================================
+        // CUSTOMER & CAPACITY - heavier views, refreshed less often
+        // =================================================================
+        region(regions, 300, Duration.ofMinutes(30),
+                "customerLifetimeValue", "customerLifetimeValueSummary", "customerRetentionAnalysis",
+                "storeCapacityAnalysis", "storeCapacitySummary", "peakHoursAnalysis",
+                "storeCapacityV3Summary", "storeCapacityV3Metrics", "storeCapacityV3PeakHours",
+                "storeCapacityV3CustomerDistance", "storeCapacityV3DeliveryMetrics",
+                "storeCapacityV3UtilizationChart");
+
+        // =================================================================
+        // FILTERED - keys include user supplied filters, so bound them harder
+        // =================================================================
+        region(regions, 1000, Duration.ofMinutes(10),
+                "storeRevenueCustomRange", "storeContextualOverview", "enhancedStoreRevenueTrends",
+                "enhancedStorePerformance", "storeCustomRange", "storeComparePeriods",
+                "customerAcquisitionFiltered", "customerLifetimeValueFiltered",
+                "customerLifetimeValueSummaryFiltered", "customerRetentionAnalysisFiltered",
+                "storeCapacityV3SummaryFiltered", "storeCapacityV3PeakHoursFiltered",
+                "storeCapacityV3CustomerDistanceFiltered", "storeCapacityV3DeliveryMetricsFiltered");
+
+        // =================================================================
+        // LOOKUPS - year/month/quarter selectors only change with new data
+        // =================================================================
+        region(regions, 100, Duration.ofHours(6),
+                "availableYears", "availableMonths", "availableQuarters", "chartYears", "chartMonths");
+
+        // =================================================================
+        // AI CHAT - business context per role scope and question category;
+        // cleared with any view it reads, the TTL only bounds a missed refresh
+        // =================================================================
+        region(regions, 200, Duration.ofMinutes(30), AI_CONTEXT_CACHE);
+
+        return Map.copyOf(regions);
+    }
+
+    private static void staleWhileRevalidate(Map<String, CacheRegion> regions, long maximumSize, Duration refreshAfter,
+                                             Duration ttl, String... names) {
+        for (String name : names) {
+            regions.put(name, new CacheRegion(maximumSize, ttl, refreshAfter));
+        }
+    }
+
+    private static void region(Map<String, CacheRegion> regions, long maximumSize, Duration ttl, String... names) {
+        for (String name : names) {
+            regions.put(name, new CacheRegion(maximumSize, ttl));
+        }
+    }
+
+    /** Base tables; regions that read them directly go stale as soon as new orders arrive. */
+    public static final Set<String> BASE_TABLES = Set.of("orders", "order_items", "products", "stores");
+
+    /**
+     * Cache regions per materialized view (or base table) they read. ViewRefreshService
+     * clears exactly these regions once the view is refreshed. Keep in sync with the
+     * queries behind the @Cacheable methods.
+     */
+    public static final Map<String, Set<String>> VIEW_CACHES = buildViewCaches();
+
+    private static Map<String, Set<String>> buildViewCaches() {
+        Map<String, Set<String>> views = new HashMap<>();
+
+        // =================================================================
+        // DASHBOARD
+        // =================================================================
+        reads(views, "kpis_global_hq", "dashboardKPIs");
+        reads(views, "kpis_global_state", "dashboardKPIs");
+        reads(views, "kpis_global_store", "dashboardKPIs", "globalStoreKPIs");
+        reads(views, "recent_orders_hq", "recentOrders");
+        reads(views, "recent_orders_state", "recentOrders");
+        reads(views, "recent_orders_store", "recentOrders");
+        reads(views, "dashboard_recent_orders", "ordersKPIs");
+
+        // =================================================================
+        // CHARTS & TRENDS
+        // =================================================================
+        reads(views, "store_revenue_all_time", "storeRevenueChart");
+        reads(views, "store_revenue_by_time_periods",
+                "storeRevenueChart", "storeRevenueCustomRange", "monthlyRevenueTrendsByStore",
+                "availableYears", "availableMonths", "availableQuarters", "chartYears", "chartMonths");
+        for (String scope : new String[] {"hq", "state", "store"}) {
+            reads(views, "revenue_by_hour_" + scope, "hourlyAnalytics");
+            reads(views, "orders_by_hour_" + scope, "hourlyAnalytics");
+            reads(views, "revenue_by_month_" + scope, "monthlyTrends");
+            reads(views, "top_products_" + scope, "productAnalytics");
+            reads(views, "category_performance_" + scope, "categoryAnalytics");
+        }
+        reads(views, "revenue_by_month_state", "stateRevenueTrends");
+        reads(views, "top_products_hq", "topProductsByTime");
+        reads(views, "revenue_by_day_hq", "dailyTrends");
+        reads(views, "customer_acquisition_hq", "customerAcquisition", "customerAcquisitionFiltered");
+        reads(views, "customer_acquisition_state", "customerAcquisition", "customerAcquisitionFiltered");
+        reads(views, "store_performance_hq", "storeComparison", "storePerformanceAnalytics", "statePerformanceAnalytics");
+        reads(views, "store_performance_state", "storeComparison", "storePerformanceAnalytics", "statePerformanceAnalytics");
+        reads(views, "store_analytics_comprehensive", "storeComparison");
+
+        // =================================================================
+        // STORE DETAIL
+        // =================================================================
+        reads(views, "sales_monthly_store_cat", "storeContextualOverview", "enhancedStoreRevenueTrends", "storeCustomRange");
+        reads(views, "sales_facts", "enhancedStoreRevenueTrends");
+
+        // =================================================================
+        // CUSTOMER & CAPACITY
+        // =================================================================
+        reads(views, "customer_lifetime_value",
+                "customerLifetimeValue", "customerLifetimeValueFiltered",
+                "customerLifetimeValueSummary", "customerLifetimeValueSummaryFiltered");
+        reads(views, "customer_retention_analysis", "customerRetentionAnalysis", "customerRetentionAnalysisFiltered");
+        reads(views, "store_capacity_analysis", "storeCapacityAnalysis", "storeCapacitySummary", "peakHoursAnalysis");
+        reads(views, "store_capacity_summary_v3", "storeCapacityV3Summary", "storeCapacityV3SummaryFiltered");
+        reads(views, "store_capacity_metrics_v3", "storeCapacityV3Metrics", "storeCapacityV3UtilizationChart");
+        reads(views, "store_peak_hours_v3", "storeCapacityV3PeakHours", "storeCapacityV3PeakHoursFiltered");
+        reads(views, "customer_distance_analysis_v3",
+                "storeCapacityV3CustomerDistance", "storeCapacityV3CustomerDistanceFiltered");
+        reads(views, "delivery_metrics_v3", "storeCapacityV3DeliveryMetrics", "storeCapacityV3DeliveryMetricsFiltered");
+
+        // =================================================================
+        // BASE TABLES - queried directly, no view in between
+        // =================================================================
+        for (String table : BASE_TABLES) {
+            reads(views, table,
+                    "revenueByStore", "storePerformance", "categoryPerformance", "customerAcquisitionFiltered",
+                    "storeContextualOverview", "enhancedStorePerformance", "storeCustomRange", "storeComparePeriods",
+                    "customerLifetimeValueFiltered", "customerLifetimeValueSummaryFiltered",
+                    "customerRetentionAnalysisFiltered");
+        }
+
+        // =================================================================
+        // AI CHAT - every relation a business-context slice reads, directly or
+        // through one of the regions above
+        // =================================================================
+        for (String scope : new String[] {"hq", "state", "store"}) {
+            reads(views, "kpis_global_" + scope, AI_CONTEXT_CACHE);
+            reads(views, "revenue_by_year_" + scope, AI_CONTEXT_CACHE);
+            reads(views, "recent_orders_" + scope, AI_CONTEXT_CACHE);
+        }
+        for (String view : new String[] {"revenue_by_month_hq", "revenue_by_week_hq", "orders_by_month_hq",
+                "revenue_by_hour_hq", "orders_by_hour_hq", "customer_acquisition_hq", "customer_lifetime_value",
+                "customer_retention_analysis", "store_capacity_analysis", "store_performance_hq",
+                "store_revenue_by_time_periods"}) {
+            reads(views, view, AI_CONTEXT_CACHE);
+        }
+        for (String table : BASE_TABLES) {
+            reads(views, table, AI_CONTEXT_CACHE);
+        }
+
+        Map<String, Set<String>> result = new HashMap<>();
+        views.forEach((view, caches) -> result.put(view, Set.copyOf(caches)));
+        return Map.copyOf(result);
+    }
+
+    private static void reads(Map<String, Set<String>> views, String view, String... caches) {
+        Set<String> names = views.computeIfAbsent(view, v -> new LinkedHashSet<>());
+        for (String cache : caches) {
+            names.add(cache);
+        }
+    }
+
+    /**
+     * Regions are CoalescingCaches, so @Cacheable(sync = true) methods run once per key no
+     * matter how many callers miss it at the same time; waiters give up after loadTimeout.
+     * Stale-while-revalidate regions reload on their own small executor.
+     */
     @Bean
-    public CacheManager cacheManager() {
-        return new ConcurrentMapCacheManager("storeKPIs");
+    public CacheManager cacheManager(@Value("${pizzaworld.cache.load-timeout:PT30S}") Duration loadTimeout,
+                                     @Qualifier("cacheRefreshExecutor") Executor refreshExecutor) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                CacheRegion region = CACHE_REGIONS.get(name);
+                Duration refreshAfter = region != null ? region.refreshAfter() : null;
+                return new CoalescingCache(super.adaptCaffeineCache(name, cache), loadTimeout, refreshAfter, refreshExecutor);
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(DEFAULT_MAX_SIZE)
+                .expireAfterWrite(DEFAULT_TTL)
+                .recordStats());
+
+        CACHE_REGIONS.forEach((name, region) -> cacheManager.registerCustomCache(name,
+                Caffeine.newBuilder()
+                        .maximumSize(region.maximumSize())
+                        .expireAfterWrite(region.ttl())
+                        .recordStats()
+                        .build()));
+
+        return cacheManager;
     }
 
 }
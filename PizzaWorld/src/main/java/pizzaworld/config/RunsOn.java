@@ -0,0 +1,21 @@
+package pizzaworld.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Routes the database work of a method (or of every method of a class) to the pool of the
+ * given workload. Applies to calls through the Spring proxy, like @Transactional; connections
+ * are taken from that pool for the whole call, including the slices it forks on the
+ * ParallelQueryExecutor.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RunsOn {
+
+    Workload value();
+}
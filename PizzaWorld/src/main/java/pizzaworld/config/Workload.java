@@ -0,0 +1,53 @@
+package pizzaworld.config;
+
+import java.util.function.Supplier;
+
+/**
+ * Connection pool a piece of database work runs on, so slow work cannot take the
+ * connections of the short dashboard reads. Declared per method with @RunsOn; work
+ * without a declaration is INTERACTIVE.
+ */
+public enum Workload {
+
+    /** Dashboard and page reads: short queries, many callers. */
+    INTERACTIVE,
+
+    /** Exports, custom-range analytics, view refreshes and cube builds. */
+    HEAVY,
+
+    /** Business context gathered for AI answers. */
+    AI;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    /** Workload of the calling thread. */
+    public static Workload current() {
+        Workload workload = CURRENT.get();
+        return workload != null ? workload : INTERACTIVE;
+    }
+
+    /** Makes this the workload of the calling thread and returns the one to restore. */
+    public Workload enter() {
+        Workload previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+
+    /** Runs work on this workload in the calling thread, e.g. on a pool thread of an async call. */
+    public <T> T call(Supplier<T> work) {
+        Workload previous = enter();
+        try {
+            return work.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void restore(Workload previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
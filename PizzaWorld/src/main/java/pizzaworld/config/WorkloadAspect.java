@@ -0,0 +1,44 @@
+package pizzaworld.config;
+
+import java.lang.reflect.Method;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applies @RunsOn; a method annotation wins over the one on its class. Runs before the
+ * transaction interceptor, which takes the connection of a @Transactional method, so that
+ * connection already comes from the declared pool.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class WorkloadAspect {
+
+    @Around("@annotation(pizzaworld.config.RunsOn) || @within(pizzaworld.config.RunsOn)")
+    public Object runOnDeclaredWorkload(ProceedingJoinPoint call) throws Throwable {
+        Workload previous = workloadOf(call).enter();
+        try {
+            return call.proceed();
+        } finally {
+            Workload.restore(previous);
+        }
+    }
+
+    private static Workload workloadOf(ProceedingJoinPoint call) {
+        Class<?> targetClass = AopUtils.getTargetClass(call.getTarget());
+        Method method = AopUtils.getMostSpecificMethod(((MethodSignature) call.getSignature()).getMethod(), targetClass);
+        RunsOn runsOn = AnnotatedElementUtils.findMergedAnnotation(method, RunsOn.class);
+        if (runsOn == null) {
+            runsOn = AnnotatedElementUtils.findMergedAnnotation(targetClass, RunsOn.class);
+        }
+        return runsOn != null ? runsOn.value() : Workload.current();
+    }
+}
@@ -0,0 +1,89 @@
+package pizzaworld.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+/**
+ * The application's DataSource: hands out connections from the Hikari pool of the calling
+ * thread's Workload and keeps per-pool counters of how long taking a connection took.
+ */
+public class WorkloadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Map<Workload, HikariDataSource> pools;
+    private final Map<Workload, Acquisitions> acquisitions = new EnumMap<>(Workload.class);
+
+    private static final class Acquisitions {
+        final LongAdder count = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+    }
+
+    public WorkloadRoutingDataSource(Map<Workload, HikariDataSource> pools) {
+        this.pools = new EnumMap<>(pools);
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(Workload.INTERACTIVE));
+        for (Workload workload : Workload.values()) {
+            acquisitions.put(workload, new Acquisitions());
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return Workload.current();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Acquisitions counters = acquisitions.get(Workload.current());
+        long start = System.nanoTime();
+        try {
+            return super.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            // Hikari's connection-timeout: the pool stayed exhausted
+            counters.timeouts.increment();
+            throw e;
+        } finally {
+            counters.count.increment();
+            counters.waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /** Size, timeout, current use and acquisition counters of each pool. */
+    public List<Map<String, Object>> getPoolStats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        pools.forEach((workload, pool) -> {
+            Acquisitions counters = acquisitions.get(workload);
+            long count = counters.count.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("workload", workload.name());
+            row.put("pool", pool.getPoolName());
+            row.put("maximumPoolSize", pool.getMaximumPoolSize());
+            row.put("connectionTimeoutMillis", pool.getConnectionTimeout());
+            HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+            // Null until the pool's first connection
+            if (mxBean != null) {
+                row.put("active", mxBean.getActiveConnections());
+                row.put("idle", mxBean.getIdleConnections());
+                row.put("waiting", mxBean.getThreadsAwaitingConnection());
+            }
+            row.put("acquisitions", count);
+            row.put("averageAcquireMillis", count > 0 ? Math.round(counters.waitNanos.sum() / 10_000.0 / count) / 100.0 : 0.0);
+            row.put("acquireTimeouts", counters.timeouts.sum());
+            result.add(row);
+        });
+        return result;
+    }
+}
@@ -5,13 +5,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
-import pizzaworld.model.AIInsight;
 import pizzaworld.model.ChatMessage;
 import pizzaworld.model.CustomUserDetails;
 import pizzaworld.model.User;
 import pizzaworld.service.AIService;
 
-import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +19,7 @@ import java.util.logging.Logger;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.http.codec.ServerSentEvent;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/api/ai")
@@ -33,68 +32,59 @@ public class AIController {
     private AIService aiService;
     
     /**
-     * Chat endpoint for AI assistant
+     * Chat endpoint for AI assistant. Returned as a Mono so no servlet thread waits for the model.
      */
     @PostMapping("/chat")
-    public ResponseEntity<?> chat(
+    public Mono<ResponseEntity<?>> chat(
             @RequestBody ChatRequest request,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
-        try {
+        return Mono.defer(() -> {
             User user = userDetails.getUser();
             
             // Generate session ID if not provided
             String sessionId = request.sessionId != null ? request.sessionId : UUID.randomUUID().toString();
             
             // Process the message
-            ChatMessage response = aiService.processChatMessage(sessionId, request.message, user);
-            
-            // Return response with session ID
-            Map<String, Object> result = new HashMap<>();
-            result.put("sessionId", sessionId);
-            result.put("message", response);
-            result.put("success", true);
-            
-            return ResponseEntity.ok(result);
-            
-        } catch (Exception e) {
+            return aiService.processChatMessageAsync(sessionId, request.message, user).<ResponseEntity<?>>map(response -> {
+                // Return response with session ID
+                Map<String, Object> result = new HashMap<>();
+                result.put("sessionId", sessionId);
+                result.put("message", response);
+                result.put("success", true);
+                
+                return ResponseEntity.ok(result);
+            });
+        }).onErrorResume(e -> {
             logger.severe("Error in chat endpoint: " + e.getMessage());
-            return ResponseEntity.status(500).body(Map.of(
+            return Mono.just(ResponseEntity.status(500).body(Map.of(
                 "success", false,
                 "error", "Unable to process your message at this time."
-            ));
-        }
+            )));
+        });
     }
 
     /**
      * Streaming chat endpoint (Server-Sent Events).
-     * Accepts the same ChatRequest but returns a text/event-stream where each SSE data field
-     * contains one whitespace-delimited token of the assistant’s answer.
-     * This keeps implementation simple while giving the front-end incremental updates.
+     * Accepts the same ChatRequest but returns a text/event-stream that forwards the model's
+     * answer as it is generated. Each "message" event carries a JSON chunk {text, replace}
+     * whose text is appended as is; a "replace" event carries a complete answer superseding
+     * what was streamed (the number-consistency fallback), and "done" ends the stream.
      */
     @PostMapping(path = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<ServerSentEvent<String>> chatStream(
+    public Flux<ServerSentEvent<Object>> chatStream(
             @RequestBody ChatRequest request,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
 
         User user = userDetails.getUser();
 
-        // Produce the assistant message (blocking call – could be made reactive later)
-        ChatMessage aiMsg = aiService.processChatMessage(
-                request.sessionId != null ? request.sessionId : UUID.randomUUID().toString(),
-                request.message,
-                user);
-
-        String answer = aiMsg.getMessage();
-        if (answer == null) answer = "";
-
-        // Stream words every 40 ms for a smooth effect
-        String[] tokens = answer.split("\\s+");
-
-        return Flux.range(0, tokens.length)
-                .delayElements(Duration.ofMillis(40))
-                .map(i -> ServerSentEvent.builder(tokens[i]).event("message").build())
-                .concatWith(Flux.just(ServerSentEvent.<String>builder()
+        return aiService.streamChatMessage(
+                        request.sessionId != null ? request.sessionId : UUID.randomUUID().toString(),
+                        request.message,
+                        user)
+                .map(chunk -> ServerSentEvent.<Object>builder(chunk)
+                        .event(chunk.replace() ? "replace" : "message").build())
+                .concatWith(Flux.just(ServerSentEvent.<Object>builder()
                         .event("done").data("[DONE]").build()));
     }
     
@@ -128,51 +118,47 @@ public class AIController {
      * Generate business insights
      */
     @GetMapping("/insights")
-    public ResponseEntity<?> getInsights(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public Mono<ResponseEntity<?>> getInsights(@AuthenticationPrincipal CustomUserDetails userDetails) {
         
-        try {
+        return Mono.defer(() -> {
             User user = userDetails.getUser();
-            List<AIInsight> insights = aiService.generateBusinessInsights(user);
-            
-            return ResponseEntity.ok(Map.of(
+            return aiService.generateBusinessInsightsAsync(user).<ResponseEntity<?>>map(insights -> ResponseEntity.ok(Map.of(
                 "insights", insights,
                 "success", true,
                 "userRole", user.getRole()
-            ));
-            
-        } catch (Exception e) {
+            )));
+        }).onErrorResume(e -> {
             logger.severe("Error generating insights: " + e.getMessage());
-            return ResponseEntity.status(500).body(Map.of(
+            return Mono.just(ResponseEntity.status(500).body(Map.of(
                 "success", false,
                 "error", "Unable to generate insights at this time."
-            ));
-        }
+            )));
+        });
     }
     
     /**
      * Analyze natural language query
      */
     @PostMapping("/analyze")
-    public ResponseEntity<?> analyzeQuery(
+    public Mono<ResponseEntity<?>> analyzeQuery(
             @RequestBody AnalyzeRequest request,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
-        try {
+        return Mono.defer(() -> {
             User user = userDetails.getUser();
-            Map<String, Object> analysis = aiService.analyzeQuery(request.query, user);
-            
-            analysis.put("success", true);
-            analysis.put("query", request.query);
-            
-            return ResponseEntity.ok(analysis);
-            
-        } catch (Exception e) {
+            return aiService.analyzeQueryAsync(request.query, user).<ResponseEntity<?>>map(analysis -> {
+                analysis.put("success", true);
+                analysis.put("query", request.query);
+                
+                return ResponseEntity.ok(analysis);
+            });
+        }).onErrorResume(e -> {
             logger.severe("Error analyzing query: " + e.getMessage());
-            return ResponseEntity.status(500).body(Map.of(
+            return Mono.just(ResponseEntity.status(500).body(Map.of(
                 "success", false,
                 "error", "Unable to analyze your query at this time."
-            ));
-        }
+            )));
+        });
     }
     
     /**
@@ -240,33 +226,32 @@ public class AIController {
      * Test Google AI connection with a simple message
      */
     @PostMapping("/test")
-    public ResponseEntity<?> testGoogleAI(@AuthenticationPrincipal CustomUserDetails userDetails) {
-        try {
+    public Mono<ResponseEntity<?>> testGoogleAI(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        return Mono.defer(() -> {
             User user = userDetails.getUser();
             
             // Send a test message to verify AI is working
-            ChatMessage testResponse = aiService.processChatMessage(
+            return aiService.processChatMessageAsync(
                 "test_session_" + System.currentTimeMillis(),
                 "Hello, can you tell me you're powered by Google Gemma AI?",
                 user
-            );
-            
-            Map<String, Object> result = new HashMap<>();
-            result.put("success", true);
-            result.put("response", testResponse.getMessage());
-            result.put("isAIWorking", testResponse.getMessage() != null && 
-                      testResponse.getMessage().toLowerCase().contains("gemma"));
-            result.put("timestamp", System.currentTimeMillis());
-            
-            return ResponseEntity.ok(result);
-            
-        } catch (Exception e) {
+            ).<ResponseEntity<?>>map(testResponse -> {
+                Map<String, Object> result = new HashMap<>();
+                result.put("success", true);
+                result.put("response", testResponse.getMessage());
+                result.put("isAIWorking", testResponse.getMessage() != null && 
+                          testResponse.getMessage().toLowerCase().contains("gemma"));
+                result.put("timestamp", System.currentTimeMillis());
+                
+                return ResponseEntity.ok(result);
+            });
+        }).onErrorResume(e -> {
             logger.severe("Error testing Google AI: " + e.getMessage());
-            return ResponseEntity.status(500).body(Map.of(
+            return Mono.just(ResponseEntity.status(500).body(Map.of(
                 "success", false,
                 "error", "Unable to test AI connection: " + e.getMessage()
-            ));
-        }
+            )));
+        });
     }
     
     // Request DTOs
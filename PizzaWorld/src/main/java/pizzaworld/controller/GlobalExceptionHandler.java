@@ -7,6 +7,8 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import jakarta.servlet.http.HttpServletResponse;
+
 import java.util.Map;
 
 @ControllerAdvice
@@ -27,7 +29,11 @@ public class GlobalExceptionHandler {
 
     @ExceptionHandler(Exception.class)
     @ResponseBody
-    public ResponseEntity<Map<String, Object>> handleOther(Exception ex) {
+    public ResponseEntity<Map<String, Object>> handleOther(Exception ex, HttpServletResponse response) throws Exception {
+        if (response.isCommitted()) {
+            // Streamed body already partly sent: rethrow so the container aborts the connection
+            throw ex;
+        }
         ex.printStackTrace();
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Internal server error: " + ex.getMessage()));
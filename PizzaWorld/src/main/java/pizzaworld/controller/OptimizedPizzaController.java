@@ -12,12 +12,24 @@ import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletResponse;
+import pizzaworld.config.PizzaConfig;
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
+import pizzaworld.config.WorkloadRoutingDataSource;
+import pizzaworld.service.CacheStatsService;
+import pizzaworld.service.CacheWarmupService;
+import pizzaworld.service.ViewRefreshService;
 import pizzaworld.service.OptimizedPizzaService;
 import pizzaworld.service.UserService;
 import pizzaworld.model.CustomUserDetails;
 import pizzaworld.model.User;
 import pizzaworld.util.CsvExportUtil;
+import pizzaworld.dto.ConsolidatedDto;
 import pizzaworld.dto.DashboardKpiDto;
+import pizzaworld.dto.HourlyPerformanceRow;
+import pizzaworld.dto.StoreMonthlyRevenueRow;
+import pizzaworld.dto.StorePerformanceRow;
+import pizzaworld.dto.StoreRevenueChartRow;
 import pizzaworld.model.CustomUserDetails;
 import pizzaworld.model.User;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -33,12 +45,29 @@ public class OptimizedPizzaController {
 
     private static final Logger logger = LoggerFactory.getLogger(OptimizedPizzaController.class);
 
+    private static final List<String> CUSTOMER_LIFETIME_VALUE_COLUMNS = List.of(
+        "customerid", "total_orders", "total_spent", "avg_order_value", "first_order_date", "last_order_date",
+        "customer_lifespan_days", "stores_visited", "daily_value", "clv_per_order", "customer_segment"
+    );
+
     @Autowired
     private OptimizedPizzaService pizzaService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private CacheStatsService cacheStatsService;
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private ViewRefreshService viewRefreshService;
+
+    @Autowired
+    private WorkloadRoutingDataSource routingDataSource;
+
     // =================================================================
     // DASHBOARD KPIs - Fast materialized view queries
     // =================================================================
@@ -46,7 +75,13 @@ public class OptimizedPizzaController {
     @GetMapping("/dashboard/kpis") //works, all time data for HQ_ADMIN
     public ResponseEntity<DashboardKpiDto> getDashboardKPIs(@AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
-        return ResponseEntity.ok(pizzaService.getDashboardKPIs(user));
+        return withMaxStaleness("dashboardKPIs", pizzaService.getDashboardKPIs(user));
+    }
+
+    @GetMapping("/dashboard/consolidated") // KPIs + monthly/store/product slices in one call
+    public ResponseEntity<ConsolidatedDto> getConsolidatedDashboard(@AuthenticationPrincipal CustomUserDetails userDetails) {
+        User user = userDetails.getUser();
+        return ResponseEntity.ok(pizzaService.getConsolidatedPayload(user));
     }
 
    // =================================================================
@@ -56,26 +91,17 @@ public class OptimizedPizzaController {
     @GetMapping("/kpis/global-store")
     public ResponseEntity<List<Map<String, Object>>> getGlobalStoreKPIs(@AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
-        return ResponseEntity.ok(pizzaService.getGlobalStoreKPIs(user));
+        return withMaxStaleness("globalStoreKPIs", pizzaService.getGlobalStoreKPIs(user));
     }
 
     @GetMapping("/kpis/global-store/export")
+    @RunsOn(Workload.HEAVY)
     public void exportGlobalStoreKPIs(@AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getGlobalStoreKPIs(user);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "global-store-kpis.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "global-store-kpis.csv");
+        CsvExportUtil.writeCsv(response, data, "global-store-kpis.csv");
     }
 
     // =================================================================
@@ -103,6 +129,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/chart/store-revenue/export")
+    @RunsOn(Workload.HEAVY)
     public void exportStoreRevenueChart(
             @RequestParam(defaultValue = "all-time") String timePeriod,
             @RequestParam(required = false) Integer year,
@@ -113,17 +140,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getStoreRevenueByTimePeriod(user, timePeriod, year, month, quarter);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "store-revenue-chart.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "store-revenue-chart.csv");
+        CsvExportUtil.writeCsv(response, data, "store-revenue-chart.csv");
     }
 
     // Time period utility endpoints
@@ -147,7 +164,7 @@ public class OptimizedPizzaController {
     // =================================================================
 
     @GetMapping("/store-revenue-chart")
-    public ResponseEntity<List<Map<String, Object>>> getStoreRevenueChart(
+    public ResponseEntity<List<StoreRevenueChartRow>> getStoreRevenueChart(
             @RequestParam(defaultValue = "all-time") String timePeriod,
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month,
@@ -157,6 +174,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/store-revenue-chart/export")
+    @RunsOn(Workload.HEAVY)
     public void exportStoreRevenueChart(
             @RequestParam(defaultValue = "all-time") String timePeriod,
             @RequestParam(required = false) Integer year,
@@ -164,19 +182,9 @@ public class OptimizedPizzaController {
             @AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
-        List<Map<String, Object>> data = pizzaService.getStoreRevenueChart(user, timePeriod, year, month);
+        List<StoreRevenueChartRow> data = pizzaService.getStoreRevenueChart(user, timePeriod, year, month);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "store-revenue-chart.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "store-revenue-chart.csv");
+        CsvExportUtil.writeRecords(response, data, "store-revenue-chart.csv");
     }
 
     @GetMapping("/store-revenue-chart/years")
@@ -191,6 +199,7 @@ public class OptimizedPizzaController {
 
 
     @GetMapping("/dashboard/kpis/export") //works, all time data for HQ_ADMIN - in csv
+    @RunsOn(Workload.HEAVY)
     public void exportDashboardKPIs(@AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         DashboardKpiDto data = pizzaService.getDashboardKPIs(userDetails.getUser());
@@ -235,7 +244,18 @@ public class OptimizedPizzaController {
             @RequestParam(defaultValue = "50") int limit,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
-        return ResponseEntity.ok(pizzaService.getRecentOrders(user, limit));
+        return withMaxStaleness("recentOrders", pizzaService.getRecentOrders(user, limit));
+    }
+
+    /**
+     * Stale-while-revalidate tiles carry X-Max-Staleness: the hard TTL of their cache region
+     * in seconds, the oldest data they can show.
+     */
+    private <T> ResponseEntity<T> withMaxStaleness(String region, T body) {
+        PizzaConfig.CacheRegion cacheRegion = PizzaConfig.CACHE_REGIONS.get(region);
+        return ResponseEntity.ok()
+                .header("X-Max-Staleness", String.valueOf(cacheRegion.ttl().toSeconds()))
+                .body(body);
     }
 
     // =================================================================
@@ -257,6 +277,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/products/top/export") //works, all stores
+    @RunsOn(Workload.HEAVY)
     public void exportTopProducts(
             @RequestParam(required = false) String category,
             @RequestParam(defaultValue = "100") int limit,
@@ -265,17 +286,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> products = pizzaService.getTopProducts(user, category, limit);
         
-        if (products.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "top-products.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(products.get(0).keySet());
-        List<List<String>> rows = products.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "top-products.csv");
+        CsvExportUtil.writeCsv(response, products, "top-products.csv");
     }
 
     // =================================================================
@@ -289,22 +300,13 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/stores/export") //works, exports all stores to csv
+    @RunsOn(Workload.HEAVY)
     public void exportStores(@AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
         List<Map<String, Object>> stores = pizzaService.getStores(user);
         
-        if (stores.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "stores.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(stores.get(0).keySet());
-        List<List<String>> rows = stores.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "stores.csv");
+        CsvExportUtil.writeCsv(response, stores, "stores.csv");
     }
 
 
@@ -323,13 +325,13 @@ public class OptimizedPizzaController {
     // =================================================================
 
     @GetMapping("/analytics/revenue/by-store") //works
-    public ResponseEntity<List<Map<String, Object>>> getRevenueByStore(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<List<StorePerformanceRow>> getRevenueByStore(@AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         return ResponseEntity.ok(pizzaService.getRevenueByStore(user));
     }
 
     @GetMapping("/analytics/store-performance") //works but same as above
-    public ResponseEntity<List<Map<String, Object>>> getStorePerformance(@AuthenticationPrincipal CustomUserDetails userDetails) {
+    public ResponseEntity<List<StorePerformanceRow>> getStorePerformance(@AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         return ResponseEntity.ok(pizzaService.getStorePerformance(user));
     }
@@ -339,7 +341,7 @@ public class OptimizedPizzaController {
     // =================================================================
 
     @GetMapping("/analytics/hourly-performance")
-    public ResponseEntity<List<Map<String, Object>>> getHourlyPerformanceAnalytics(
+    public ResponseEntity<List<HourlyPerformanceRow>> getHourlyPerformanceAnalytics(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         return ResponseEntity.ok(pizzaService.getHourlyPerformanceAnalytics(user));
@@ -364,9 +366,10 @@ public class OptimizedPizzaController {
     public ResponseEntity<List<Map<String, Object>>> getCustomerAcquisitionAnalytics(
             @RequestParam(required = false) List<String> states,
             @RequestParam(required = false) List<String> storeIds,
+            @RequestParam(defaultValue = "false") boolean exact,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
-        return ResponseEntity.ok(pizzaService.getCustomerAcquisitionAnalytics(user, states, storeIds));
+        return ResponseEntity.ok(pizzaService.getCustomerAcquisitionAnalytics(user, states, storeIds, exact));
     }
 
     @GetMapping("/analytics/daily-trends")
@@ -399,28 +402,20 @@ public class OptimizedPizzaController {
 
     // Export endpoints for comprehensive analytics
     @GetMapping("/analytics/hourly-performance/export")
+    @RunsOn(Workload.HEAVY)
     public void exportHourlyPerformanceAnalytics(
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month,
             @AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
-        List<Map<String, Object>> data = pizzaService.getHourlyPerformanceAnalytics(user);
+        List<HourlyPerformanceRow> data = pizzaService.getHourlyPerformanceAnalytics(user);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "hourly-performance.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "hourly-performance.csv");
+        CsvExportUtil.writeRecords(response, data, "hourly-performance.csv");
     }
 
     @GetMapping("/analytics/product-performance/export")
+    @RunsOn(Workload.HEAVY)
     public void exportProductPerformanceAnalytics(
             @RequestParam(required = false) String category,
             @RequestParam(required = false) Integer year,
@@ -431,17 +426,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getProductPerformanceAnalytics(user, category, limit);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "product-performance.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "product-performance.csv");
+        CsvExportUtil.writeCsv(response, data, "product-performance.csv");
     }
 
     // =================================================================
@@ -450,10 +435,38 @@ public class OptimizedPizzaController {
 
     @GetMapping("/health") //works
     public ResponseEntity<Map<String, Object>> healthCheck() {
+        // ready: the startup cache warm-up has finished, dashboards load from the cache
         return ResponseEntity.ok(Map.of(
                 "status", "OK",
                 "service", "Optimized Pizza API v2",
-                "timestamp", java.time.LocalDateTime.now().toString()));
+                "timestamp", java.time.LocalDateTime.now().toString(),
+                "ready", cacheWarmupService.isReady(),
+                "cacheWarmup", cacheWarmupService.getStatus()));
+    }
+
+    @GetMapping("/cache/stats")
+    @PreAuthorize("hasAuthority('HQ_ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getCacheStats() {
+        return ResponseEntity.ok(cacheStatsService.getCacheStats());
+    }
+
+    @GetMapping("/db/pools")
+    @PreAuthorize("hasAuthority('HQ_ADMIN')")
+    public ResponseEntity<List<Map<String, Object>>> getConnectionPoolStats() {
+        return ResponseEntity.ok(routingDataSource.getPoolStats());
+    }
+
+    @GetMapping("/views/refresh-status")
+    @PreAuthorize("hasAuthority('HQ_ADMIN')")
+    public ResponseEntity<List<ViewRefreshService.ViewRefreshStatus>> getViewRefreshStatus() {
+        return ResponseEntity.ok(viewRefreshService.getStatuses());
+    }
+
+    @PostMapping("/views/refresh")
+    @PreAuthorize("hasAuthority('HQ_ADMIN')")
+    public ResponseEntity<Map<String, Object>> requestViewRefresh() {
+        viewRefreshService.requestFullRefresh();
+        return ResponseEntity.accepted().body(Map.of("message", "Full refresh scheduled for the next poll"));
     }
 
     // =================================================================
@@ -475,30 +488,21 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/analytics/monthly-revenue-trends")
-    public ResponseEntity<List<Map<String, Object>>> getMonthlyRevenueTrendsByStore(
+    public ResponseEntity<List<StoreMonthlyRevenueRow>> getMonthlyRevenueTrendsByStore(
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         return ResponseEntity.ok(pizzaService.getMonthlyRevenueTrendsByStore(user));
     }
 
     @GetMapping("/stores/performance/export")
+    @RunsOn(Workload.HEAVY)
     public void exportStorePerformanceAnalytics(
             @AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getStorePerformanceAnalytics(user);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "store-performance-analytics.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "store-performance-analytics.csv");
+        CsvExportUtil.writeCsv(response, data, "store-performance-analytics.csv");
     }
 
     // ============================================================================
@@ -524,14 +528,16 @@ public class OptimizedPizzaController {
 
     @GetMapping("/stores/customer-acquisition")
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
-    public ResponseEntity<List<Map<String, Object>>> getStoreCustomerAcquisition(Authentication authentication) {
+    public ResponseEntity<List<Map<String, Object>>> getStoreCustomerAcquisition(
+            @RequestParam(defaultValue = "false") boolean exact,
+            Authentication authentication) {
         try {
             String role = authentication.getAuthorities().iterator().next().getAuthority();
             User user = ((CustomUserDetails) authentication.getPrincipal()).getUser();
             String stateAbbr = user.getStateAbbr();
             String storeId = user.getStoreId();
 
-            List<Map<String, Object>> result = pizzaService.getStoreCustomerAcquisition(role, stateAbbr, storeId);
+            List<Map<String, Object>> result = pizzaService.getStoreCustomerAcquisition(role, stateAbbr, storeId, exact);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             logger.error("Error fetching store customer acquisition", e);
@@ -840,6 +846,7 @@ public class OptimizedPizzaController {
             @RequestParam Integer endYear,
             @RequestParam Integer endMonth,
             @RequestParam(defaultValue = "false") boolean includeComparison,
+            @RequestParam(defaultValue = "false") boolean exact,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         Map<String, Object> filters = new HashMap<>();
@@ -849,6 +856,7 @@ public class OptimizedPizzaController {
         filters.put("endYear", endYear);
         filters.put("endMonth", endMonth);
         filters.put("includeComparison", includeComparison);
+        filters.put("exact", exact);
         return ResponseEntity.ok(pizzaService.getStoreCustomRangeAnalytics(storeId, user, filters));
     }
 
@@ -857,6 +865,7 @@ public class OptimizedPizzaController {
     public ResponseEntity<List<Map<String, Object>>> getStoreComparePeriods(
             @PathVariable String storeId,
             @RequestBody Map<String, Object> requestBody,
+            @RequestParam(defaultValue = "false") boolean exact,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
         
@@ -869,7 +878,7 @@ public class OptimizedPizzaController {
         }
         
         try {
-            List<Map<String, Object>> result = pizzaService.getStoreComparePeriods(storeId, periods);
+            List<Map<String, Object>> result = pizzaService.getStoreComparePeriods(storeId, periods, exact);
             return ResponseEntity.ok(result);
         } catch (Exception e) {
             logger.error("Error comparing store periods for storeId: " + storeId, e);
@@ -964,6 +973,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/products/trend/export")
+    @RunsOn(Workload.HEAVY)
     public void exportProductTrend(
             @RequestParam String sku,
             @RequestParam String metric,
@@ -1032,9 +1042,10 @@ public class OptimizedPizzaController {
             @RequestParam(required = false) String category,
             @RequestParam(required = false) List<String> storeIds,
             @RequestParam(required = false) List<String> states,
+            @RequestParam(defaultValue = "false") boolean exact,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         User user = userDetails.getUser();
-        return ResponseEntity.ok(pizzaService.getProductsKpis(year, month, category, user, storeIds, states));
+        return ResponseEntity.ok(pizzaService.getProductsKpis(year, month, category, user, storeIds, states, exact));
     }
 
     @GetMapping("/products/revenue-by-category")
@@ -1050,6 +1061,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/products/export")
+    @RunsOn(Workload.HEAVY)
     public void exportProductsCatalogue(
             @RequestParam(required = false) String search,
             @AuthenticationPrincipal CustomUserDetails userDetails,
@@ -1075,6 +1087,9 @@ public class OptimizedPizzaController {
             String filename = "products-catalogue-" + (search != null ? "filtered-" : "") + new Date().toInstant().toString().split("T")[0] + ".csv";
             CsvExportUtil.writeCsv(response, headers, rows, filename);
         } catch (Exception e) {
+            if (response.isCommitted()) {
+                throw e; // rows already sent, let the connection abort
+            }
             logger.error("Error exporting products catalogue", e);
             List<String> headers = List.of("Error");
             List<List<String>> rows = List.of(List.of("Export failed"));
@@ -1083,6 +1098,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/products/performance/export")
+    @RunsOn(Workload.HEAVY)
     public void exportProductsPerformance(
             @RequestParam(required = false) Integer year,
             @RequestParam(required = false) Integer month,
@@ -1095,37 +1111,18 @@ public class OptimizedPizzaController {
         
         User user = userDetails.getUser();
         
-        try {
-            List<Map<String, Object>> performance = pizzaService.getProductsPerformance(year, month, category, search, user, storeIds, states);
-            
-            List<String> headers = List.of("SKU", "Product Name", "Size", "Price", "Category", "Launch Date", "Total Revenue", "Orders", "Units Sold");
-            List<List<String>> rows = performance.stream()
-                .map(product -> List.of(
-                    String.valueOf(product.get("sku")),
-                    String.valueOf(product.get("product_name")),
-                    String.valueOf(product.get("size")),
-                    String.valueOf(product.get("price")),
-                    String.valueOf(product.get("category")),
-                    String.valueOf(product.get("launch_date")),
-                    String.valueOf(product.get("total_revenue")),
-                    String.valueOf(product.get("amount_ordered")),
-                    String.valueOf(product.get("units_sold"))
-                ))
-                .toList();
-            
-            String filterSuffix = (year != null ? "-year" + year : "") + 
-                                (month != null ? "-month" + month : "") + 
-                                (category != null ? "-" + category.toLowerCase() : "") +
-                                (search != null ? "-filtered" : "") +
-                                (storeIds != null && !storeIds.isEmpty() ? "-stores" : "");
-            String filename = "products-performance" + filterSuffix + "-" + new Date().toInstant().toString().split("T")[0] + ".csv";
-            CsvExportUtil.writeCsv(response, headers, rows, filename);
-        } catch (Exception e) {
-            logger.error("Error exporting products performance", e);
-            List<String> headers = List.of("Error");
-            List<List<String>> rows = List.of(List.of("Export failed"));
-            CsvExportUtil.writeCsv(response, headers, rows, "error.csv");
-        }
+        List<String> headers = List.of("SKU", "Product Name", "Size", "Price", "Category", "Launch Date", "Total Revenue", "Orders", "Units Sold");
+        
+        String filterSuffix = (year != null ? "-year" + year : "") + 
+                            (month != null ? "-month" + month : "") + 
+                            (category != null ? "-" + category.toLowerCase() : "") +
+                            (search != null ? "-filtered" : "") +
+                            (storeIds != null && !storeIds.isEmpty() ? "-stores" : "");
+        String filename = "products-performance" + filterSuffix + "-" + new Date().toInstant().toString().split("T")[0] + ".csv";
+        CsvExportUtil.streamCsv(response, filename, writer -> {
+            CsvExportUtil.writeRow(writer, headers);
+            pizzaService.streamProductsPerformanceExport(writer, year, month, category, search, user, storeIds, states);
+        });
     }
 
     @GetMapping("/products/overview-chart")
@@ -1230,6 +1227,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/products/analytics/custom-range/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportProductCustomRangeAnalytics(
             @RequestParam String sku,
@@ -1260,6 +1258,9 @@ public class OptimizedPizzaController {
             String filename = "product-analytics-" + sku + "-" + startYear + "-" + startMonth + "-to-" + endYear + "-" + endMonth + ".csv";
             CsvExportUtil.writeCsv(response, headers, rows, filename);
         } catch (Exception e) {
+            if (response.isCommitted()) {
+                throw e; // rows already sent, let the connection abort
+            }
             logger.error("Error exporting product custom range analytics for sku: " + sku, e);
             List<String> headers = List.of("Error");
             List<List<String>> rows = List.of(List.of("Export failed"));
@@ -1268,13 +1269,20 @@ public class OptimizedPizzaController {
     }
 
     @PostMapping("/products/analytics/compare/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportProductCompareAnalytics(
             @RequestBody Map<String, Object> requestBody,
             @AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
         User user = userDetails.getUser();
-        List<Map<String, Object>> result = pizzaService.getProductComparePeriods(user, (String) requestBody.get("sku"),
+        String sku = (String) requestBody.get("sku");
+        if (sku == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        // Missing or empty periods export as "No Data"
+        List<Map<String, Object>> result = pizzaService.getProductComparePeriods(user, sku,
                 (List<Map<String, Object>>) requestBody.get("periods"));
         
         if (result.isEmpty()) {
@@ -1332,17 +1340,33 @@ public class OptimizedPizzaController {
             @RequestParam(required = false) String to,
             @RequestParam(defaultValue = "orderdate") String sortBy,
             @RequestParam(defaultValue = "desc") String sortOrder,
+            @RequestParam(defaultValue = "offset") String paging, // offset | keyset
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count, // exact | estimate | none
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
         User user = userDetails.getUser();
         
+        // Keyset mode: page through with the nextCursor token instead of a page number
+        if ("keyset".equalsIgnoreCase(paging) || cursor != null) {
+            try {
+                return ResponseEntity.ok(pizzaService.getOrdersWithKeysetPagination(
+                    limit, cursor, store, state, orderid, search, from, to, sortBy, sortOrder,
+                    count != null ? count : "none", user));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
+        
         Map<String, Object> result = pizzaService.getOrdersWithFiltersAndPagination(
-            page, limit, store, state, orderid, search, from, to, sortBy, sortOrder, user);
+            page, limit, store, state, orderid, search, from, to, sortBy, sortOrder,
+            count != null ? count : "exact", user);
         
         return ResponseEntity.ok(result);
     }
 
     @GetMapping("/orders/export")
+    @RunsOn(Workload.HEAVY)
     public void exportOrdersWithFilters(
             @RequestParam(required = false) String store,
             @RequestParam(required = false) String state,
@@ -1355,36 +1379,15 @@ public class OptimizedPizzaController {
         
         User user = userDetails.getUser();
         
-        // Get all orders without pagination for export
-        Map<String, Object> result = pizzaService.getOrdersWithFiltersAndPagination(
-            0, 10000, store, state, orderid, search, from, to, "orderdate", "desc", user);
-        
-        @SuppressWarnings("unchecked")
-        List<Map<String, Object>> orders = (List<Map<String, Object>>) result.get("orders");
-        
-        if (orders.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "orders.csv");
-            return;
-        }
-
         List<String> headers = List.of(
             "Order ID", "Customer ID", "Order Date", "Store ID", "State", "City", "Items", "Total"
         );
         
-        List<List<String>> rows = orders.stream()
-                .map(order -> List.of(
-                    String.valueOf(order.get("orderid")),
-                    String.valueOf(order.get("customerid")),
-                    String.valueOf(order.get("orderdate")),
-                    String.valueOf(order.get("storeid")),
-                    String.valueOf(order.get("state_code")),
-                    String.valueOf(order.get("city")),
-                    String.valueOf(order.get("nitems")),
-                    String.valueOf(order.get("order_value"))
-                ))
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "pizza-world-orders.csv");
+        // Stream all matching orders straight from the database cursor to the response
+        CsvExportUtil.streamCsv(response, "pizza-world-orders.csv", writer -> {
+            CsvExportUtil.writeRow(writer, headers);
+            pizzaService.streamOrdersExport(writer, store, state, orderid, search, from, to, user);
+        });
     }
 
     @GetMapping("/orders/available-states")
@@ -1408,12 +1411,13 @@ public class OptimizedPizzaController {
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String from,
             @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean exact,
             @AuthenticationPrincipal CustomUserDetails userDetails) {
         
         try {
             User user = userDetails.getUser();
             Map<String, Object> kpis = pizzaService.getOrdersKPIs(
-                store, state, orderid, search, from, to, user);
+                store, state, orderid, search, from, to, exact, user);
             return ResponseEntity.ok(kpis);
         } catch (Exception e) {
             logger.error("Error fetching orders KPIs", e);
@@ -1456,25 +1460,23 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/analytics/customer-lifetime-value/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportCustomerLifetimeValue(
             @RequestParam(defaultValue = "1000") Integer limit,
             @AuthenticationPrincipal CustomUserDetails userDetails,
             HttpServletResponse response) {
-        User user = userDetails.getUser();
-        List<Map<String, Object>> data = pizzaService.getCustomerLifetimeValue(user, limit);
-        
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "customer-lifetime-value.csv");
+        if (limit < 1) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             return;
         }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "customer-lifetime-value.csv");
+        User user = userDetails.getUser();
+        
+        // Streams from a cursor, so a large limit no longer means a large in-memory list
+        CsvExportUtil.streamCsv(response, "customer-lifetime-value.csv", writer -> {
+            CsvExportUtil.writeRow(writer, CUSTOMER_LIFETIME_VALUE_COLUMNS);
+            pizzaService.streamCustomerLifetimeValueExport(writer, user, limit);
+        });
     }
 
     // =================================================================
@@ -1493,6 +1495,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/analytics/customer-retention/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportCustomerRetentionAnalysis(
             @RequestParam(defaultValue = "48") Integer limit,
@@ -1501,17 +1504,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getCustomerRetentionAnalysis(user, limit);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "customer-retention-analysis.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "customer-retention-analysis.csv");
+        CsvExportUtil.writeCsv(response, data, "customer-retention-analysis.csv");
     }
 
     // =================================================================
@@ -1543,6 +1536,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/analytics/store-capacity/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportStoreCapacityAnalysis(
             @AuthenticationPrincipal CustomUserDetails userDetails,
@@ -1550,17 +1544,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getStoreCapacityAnalysis(user);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "store-capacity-analysis.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "store-capacity-analysis.csv");
+        CsvExportUtil.writeCsv(response, data, "store-capacity-analysis.csv");
     }
 
     // =================================================================
@@ -1630,6 +1614,7 @@ public class OptimizedPizzaController {
     }
 
     @GetMapping("/analytics/store-capacity-v3/export")
+    @RunsOn(Workload.HEAVY)
     @PreAuthorize("hasAuthority('HQ_ADMIN') or hasAuthority('STATE_MANAGER') or hasAuthority('STORE_MANAGER')")
     public void exportStoreCapacityV3Analysis(
             @RequestParam(required = false) Integer year,
@@ -1639,17 +1624,7 @@ public class OptimizedPizzaController {
         User user = userDetails.getUser();
         List<Map<String, Object>> data = pizzaService.getStoreCapacityV3Summary(user);
         
-        if (data.isEmpty()) {
-            CsvExportUtil.writeCsv(response, List.of("No Data"), List.of(), "store-capacity-v3.csv");
-            return;
-        }
-
-        List<String> headers = List.copyOf(data.get(0).keySet());
-        List<List<String>> rows = data.stream()
-                .map(row -> headers.stream().map(h -> String.valueOf(row.get(h))).toList())
-                .toList();
-
-        CsvExportUtil.writeCsv(response, headers, rows, "store-capacity-v3.csv");
+        CsvExportUtil.writeCsv(response, data, "store-capacity-v3.csv");
     }
 
 }
\ No newline at end of file
@@ -21,18 +21,24 @@ public class ConsolidatedDto {
     public List<Map<String, Object>> ordersByMonth;
 
     /** Revenue aggregated by store (already filtered per role) */
-    public List<Map<String, Object>> revenueByStore;
+    public List<StorePerformanceRow> revenueByStore;
 
     /** Top products (quantity / revenue) – limited result set */
     public List<Map<String, Object>> topProducts;
 
+    /** True when at least one slice failed or timed out and holds an empty fallback */
+    public boolean partial;
+
+    /** Latency (ms) and status per slice, keyed by field name */
+    public Map<String, Map<String, Object>> slices;
+
     public ConsolidatedDto() {}
 
     public ConsolidatedDto(
             DashboardKpiDto globalKPIs,
             List<Map<String, Object>> revenueByMonth,
             List<Map<String, Object>> ordersByMonth,
-            List<Map<String, Object>> revenueByStore,
+            List<StorePerformanceRow> revenueByStore,
             List<Map<String, Object>> topProducts) {
         this.globalKPIs = globalKPIs;
         this.revenueByMonth = revenueByMonth;
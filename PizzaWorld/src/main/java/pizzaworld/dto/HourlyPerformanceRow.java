@@ -0,0 +1,19 @@
+package pizzaworld.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * Revenue and orders per hour of day. State and store_id are only set for the
+ * state and store level views and are left out of the JSON otherwise.
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record HourlyPerformanceRow(
+        int hour,
+        double revenue,
+        long orders,
+        String state,
+        String storeId) {
+}
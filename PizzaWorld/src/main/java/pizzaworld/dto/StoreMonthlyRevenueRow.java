@@ -0,0 +1,23 @@
+package pizzaworld.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * One store/month point of the monthly revenue trend series.
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public record StoreMonthlyRevenueRow(
+        String storeid,
+        String city,
+        String stateName,
+        String stateAbbr,
+        int year,
+        Integer month,
+        String monthLabel,
+        String monthNameLabel,
+        double totalRevenue,
+        long orderCount,
+        double avgOrderValue,
+        long uniqueCustomers) {
+}
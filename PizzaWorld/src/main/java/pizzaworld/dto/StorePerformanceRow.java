@@ -0,0 +1,20 @@
+package pizzaworld.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * Revenue, orders and customers per store, serialized with the same snake_case keys
+ * as the former map rows (storeid, state_name, total_revenue, ...).
+ */
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public record StorePerformanceRow(
+        String storeid,
+        String city,
+        String stateName,
+        String stateAbbr,
+        double totalRevenue,
+        long totalOrders,
+        long uniqueCustomers,
+        double avgOrderValue) {
+}
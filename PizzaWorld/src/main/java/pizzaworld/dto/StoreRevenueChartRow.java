@@ -0,0 +1,52 @@
+package pizzaworld.dto;
+
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+/**
+ * One bar of the store revenue chart. The shape depends on the selected time period,
+ * each keeping the JSON keys the chart already reads.
+ */
+public sealed interface StoreRevenueChartRow {
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    record AllTime(
+            String storeid,
+            String city,
+            String stateName,
+            String stateAbbr,
+            double totalRevenue,
+            long totalOrders,
+            double avgOrderValue,
+            long totalUniqueCustomers) implements StoreRevenueChartRow {
+    }
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    record Year(
+            String storeid,
+            String city,
+            String stateName,
+            String stateAbbr,
+            int year,
+            double yearlyRevenue,
+            long yearlyOrders,
+            double yearlyAvgOrderValue,
+            long yearlyUniqueCustomers) implements StoreRevenueChartRow {
+    }
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    record Month(
+            String storeid,
+            String city,
+            String stateName,
+            String stateAbbr,
+            int year,
+            int month,
+            String monthLabel,
+            String monthNameLabel,
+            double monthlyRevenue,
+            long monthlyOrders,
+            double monthlyAvgOrderValue,
+            long monthlyUniqueCustomers) implements StoreRevenueChartRow {
+    }
+}
@@ -2,6 +2,8 @@ package pizzaworld.model;
 
 import jakarta.persistence.*;
 
+import java.util.Locale;
+
 @Entity
 @Table(name = "users")
 public class User {
@@ -51,6 +53,11 @@ public class User {
     public void setStoreId(String s) { this.storeId = s; }
     public void setStateAbbr(String a) { this.stateAbbr = a; }
 
+    /** Usernames are stored and looked up trimmed and lower case. */
+    public static String normalizeUsername(String username) {
+        return username == null ? null : username.trim().toLowerCase(Locale.ROOT);
+    }
+
     // Rollenprüfung
     public boolean isHQ() { return "HQ_ADMIN".equals(role); }
     public boolean isStateManager() { return "STATE_MANAGER".equals(role); }
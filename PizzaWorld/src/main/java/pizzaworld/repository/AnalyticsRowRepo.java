@@ -0,0 +1,223 @@
+package pizzaworld.repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import pizzaworld.dto.HourlyPerformanceRow;
+import pizzaworld.dto.StoreMonthlyRevenueRow;
+import pizzaworld.dto.StorePerformanceRow;
+import pizzaworld.dto.StoreRevenueChartRow;
+
+/**
+ * Typed counterparts of the hottest OptimizedPizzaRepo queries. Rows are mapped by column
+ * index straight into records, without a per-row map or boxed numbers. The mappers read
+ * columns in SELECT order, so keep both in sync when changing a query.
+ */
+@Repository
+public class AnalyticsRowRepo {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // =================================================================
+    // ROW MAPPERS - column index follows the SELECT list
+    // =================================================================
+
+    public static final RowMapper<StorePerformanceRow> STORE_PERFORMANCE = (rs, rowNum) -> new StorePerformanceRow(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getDouble(5), rs.getLong(6), rs.getLong(7), rs.getDouble(8));
+
+    public static final RowMapper<StoreRevenueChartRow> REVENUE_ALL_TIME = (rs, rowNum) -> new StoreRevenueChartRow.AllTime(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4),
+            rs.getDouble(5), rs.getLong(6), rs.getDouble(7), rs.getLong(8));
+
+    public static final RowMapper<StoreRevenueChartRow> REVENUE_YEAR = (rs, rowNum) -> new StoreRevenueChartRow.Year(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5),
+            rs.getDouble(6), rs.getLong(7), rs.getDouble(8), rs.getLong(9));
+
+    public static final RowMapper<StoreRevenueChartRow> REVENUE_MONTH = (rs, rowNum) -> new StoreRevenueChartRow.Month(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5), rs.getInt(6),
+            rs.getString(7), rs.getString(8), rs.getDouble(9), rs.getLong(10), rs.getDouble(11), rs.getLong(12));
+
+    public static final RowMapper<HourlyPerformanceRow> HOURLY = (rs, rowNum) -> new HourlyPerformanceRow(
+            rs.getInt(1), rs.getDouble(2), rs.getLong(3), rs.getString(4), rs.getString(5));
+
+    // month is NULL on the yearly roll-up rows of store_revenue_by_time_periods
+    public static final RowMapper<StoreMonthlyRevenueRow> MONTHLY_TREND = (rs, rowNum) -> new StoreMonthlyRevenueRow(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getInt(5), nullableInt(rs, 6),
+            rs.getString(7), rs.getString(8), rs.getDouble(9), rs.getLong(10), rs.getDouble(11), rs.getLong(12));
+
+    private static Integer nullableInt(ResultSet rs, int column) throws SQLException {
+        int value = rs.getInt(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    // =================================================================
+    // STORE PERFORMANCE
+    // =================================================================
+
+    private static final String STORE_PERFORMANCE_SELECT = """
+        SELECT s.storeid, s.city, s.state as state_name, s.state_abbr,
+               COALESCE(SUM(o.total), 0) as total_revenue,
+               COALESCE(COUNT(o.orderid), 0) as total_orders,
+               COALESCE(COUNT(DISTINCT o.customerid), 0) as unique_customers,
+               COALESCE(AVG(o.total), 0) as avg_order_value
+        FROM stores s
+        LEFT JOIN orders o ON s.storeid = o.storeid
+        """;
+
+    private static final String STORE_PERFORMANCE_GROUP = " GROUP BY s.storeid, s.city, s.state, s.state_abbr";
+
+    public List<StorePerformanceRow> getStorePerformanceHQ() {
+        return jdbcTemplate.query(STORE_PERFORMANCE_SELECT + STORE_PERFORMANCE_GROUP + " ORDER BY total_revenue DESC",
+                STORE_PERFORMANCE);
+    }
+
+    public List<StorePerformanceRow> getStorePerformanceState(String state) {
+        return jdbcTemplate.query(STORE_PERFORMANCE_SELECT + " WHERE s.state_abbr = ?" + STORE_PERFORMANCE_GROUP
+                + " ORDER BY total_revenue DESC", STORE_PERFORMANCE, state);
+    }
+
+    public List<StorePerformanceRow> getStorePerformance(String storeId) {
+        return jdbcTemplate.query(STORE_PERFORMANCE_SELECT + " WHERE s.storeid = ?" + STORE_PERFORMANCE_GROUP,
+                STORE_PERFORMANCE, storeId);
+    }
+
+    // =================================================================
+    // STORE REVENUE CHART
+    // =================================================================
+
+    private static final String REVENUE_ALL_TIME_SELECT =
+            "SELECT storeid, city, state_name, state_abbr, total_revenue, total_orders, avg_order_value, total_unique_customers "
+            + "FROM store_revenue_all_time";
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartAllTimeHQ() {
+        return jdbcTemplate.query(REVENUE_ALL_TIME_SELECT + " ORDER BY total_revenue DESC", REVENUE_ALL_TIME);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartAllTimeState(String state) {
+        return jdbcTemplate.query(REVENUE_ALL_TIME_SELECT + " WHERE state_abbr = ? ORDER BY total_revenue DESC",
+                REVENUE_ALL_TIME, state);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartAllTimeStore(String storeId) {
+        return jdbcTemplate.query(REVENUE_ALL_TIME_SELECT + " WHERE storeid = ?", REVENUE_ALL_TIME, storeId);
+    }
+
+    private static final String REVENUE_YEAR_SELECT = """
+        SELECT storeid, city, state_name, state_abbr, year,
+               SUM(total_revenue) as yearly_revenue,
+               SUM(order_count) as yearly_orders,
+               AVG(avg_order_value) as yearly_avg_order_value,
+               SUM(unique_customers) as yearly_unique_customers
+        FROM store_revenue_by_time_periods
+        WHERE year = ?""";
+
+    private static final String REVENUE_YEAR_GROUP = " GROUP BY storeid, city, state_name, state_abbr, year";
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartYearHQ(Integer year) {
+        return jdbcTemplate.query(REVENUE_YEAR_SELECT + REVENUE_YEAR_GROUP + " ORDER BY yearly_revenue DESC",
+                REVENUE_YEAR, year);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartYearState(String state, Integer year) {
+        return jdbcTemplate.query(REVENUE_YEAR_SELECT + " AND state_abbr = ?" + REVENUE_YEAR_GROUP
+                + " ORDER BY yearly_revenue DESC", REVENUE_YEAR, year, state);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartYearStore(String storeId, Integer year) {
+        return jdbcTemplate.query(REVENUE_YEAR_SELECT + " AND storeid = ?" + REVENUE_YEAR_GROUP,
+                REVENUE_YEAR, year, storeId);
+    }
+
+    private static final String REVENUE_MONTH_SELECT = """
+        SELECT storeid, city, state_name, state_abbr, year, month, month_label, month_name_label,
+               SUM(total_revenue) as monthly_revenue,
+               SUM(order_count) as monthly_orders,
+               AVG(avg_order_value) as monthly_avg_order_value,
+               SUM(unique_customers) as monthly_unique_customers
+        FROM store_revenue_by_time_periods
+        WHERE year = ? AND month = ?""";
+
+    private static final String REVENUE_MONTH_GROUP =
+            " GROUP BY storeid, city, state_name, state_abbr, year, month, month_label, month_name_label";
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartMonthHQ(Integer year, Integer month) {
+        return jdbcTemplate.query(REVENUE_MONTH_SELECT + REVENUE_MONTH_GROUP + " ORDER BY monthly_revenue DESC",
+                REVENUE_MONTH, year, month);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartMonthState(String state, Integer year, Integer month) {
+        return jdbcTemplate.query(REVENUE_MONTH_SELECT + " AND state_abbr = ?" + REVENUE_MONTH_GROUP
+                + " ORDER BY monthly_revenue DESC", REVENUE_MONTH, year, month, state);
+    }
+
+    public List<StoreRevenueChartRow> getStoreRevenueChartMonthStore(String storeId, Integer year, Integer month) {
+        return jdbcTemplate.query(REVENUE_MONTH_SELECT + " AND storeid = ?" + REVENUE_MONTH_GROUP,
+                REVENUE_MONTH, year, month, storeId);
+    }
+
+    // =================================================================
+    // HOURLY PERFORMANCE
+    // =================================================================
+
+    public List<HourlyPerformanceRow> getHourlyPerformanceAnalyticsHQ() {
+        return jdbcTemplate.query("""
+            SELECT r.hour, r.revenue, o.orders, NULL as state, NULL as store_id
+            FROM revenue_by_hour_hq r
+            LEFT JOIN orders_by_hour_hq o ON r.hour = o.hour
+            ORDER BY r.hour ASC
+            """, HOURLY);
+    }
+
+    public List<HourlyPerformanceRow> getHourlyPerformanceAnalyticsState(String state) {
+        return jdbcTemplate.query("""
+            SELECT r.hour, r.revenue, o.orders, r.state, NULL as store_id
+            FROM revenue_by_hour_state r
+            LEFT JOIN orders_by_hour_state o ON r.hour = o.hour AND r.state = o.state
+            WHERE r.state = ?
+            ORDER BY r.hour ASC
+            """, HOURLY, state);
+    }
+
+    public List<HourlyPerformanceRow> getHourlyPerformanceAnalyticsStore(String storeId) {
+        return jdbcTemplate.query("""
+            SELECT r.hour, r.revenue, o.orders, r.state, r.store_id
+            FROM revenue_by_hour_store r
+            LEFT JOIN orders_by_hour_store o ON r.hour = o.hour AND r.store_id = o.store_id
+            WHERE r.store_id = ?
+            ORDER BY r.hour ASC
+            """, HOURLY, storeId);
+    }
+
+    // =================================================================
+    // MONTHLY REVENUE TRENDS BY STORE
+    // =================================================================
+
+    private static final String MONTHLY_TREND_SELECT = """
+        SELECT storeid, city, state_name, state_abbr, year, month,
+               month_label, month_name_label, total_revenue, order_count,
+               avg_order_value, unique_customers
+        FROM store_revenue_by_time_periods
+        """;
+
+    public List<StoreMonthlyRevenueRow> getMonthlyRevenueTrendsByStoreHQ() {
+        return jdbcTemplate.query(MONTHLY_TREND_SELECT + " ORDER BY storeid, year, month", MONTHLY_TREND);
+    }
+
+    public List<StoreMonthlyRevenueRow> getMonthlyRevenueTrendsByStoreState(String state) {
+        return jdbcTemplate.query(MONTHLY_TREND_SELECT + " WHERE state_abbr = ? ORDER BY storeid, year, month",
+                MONTHLY_TREND, state);
+    }
+
+    public List<StoreMonthlyRevenueRow> getMonthlyRevenueTrendsByStoreStore(String storeId) {
+        return jdbcTemplate.query(MONTHLY_TREND_SELECT + " WHERE storeid = ? ORDER BY year, month",
+                MONTHLY_TREND, storeId);
+    }
+}
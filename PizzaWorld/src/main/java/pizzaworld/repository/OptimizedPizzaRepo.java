@@ -175,7 +175,7 @@ public interface OptimizedPizzaRepo extends JpaRepository<User, Long> {
     String getStoreState(@Param("storeId") String storeId);
 
     @Query(value = """
-        SELECT storeid, city, state, zipcode, latitude, longitude
+        SELECT storeid, city, state, state_abbr, zipcode, latitude, longitude
         FROM stores
         WHERE (:state IS NULL OR state_abbr = :state)
           AND (:storeId IS NULL OR storeid = :storeId)
@@ -259,19 +259,6 @@ public interface OptimizedPizzaRepo extends JpaRepository<User, Long> {
         """, nativeQuery = true)
     List<Map<String, Object>> getStorePerformanceState(@Param("state") String state);
 
-    @Query(value = """
-        SELECT s.storeid, s.city, s.state as state_name, s.state_abbr,
-               COALESCE(SUM(o.total), 0) as total_revenue,
-               COALESCE(COUNT(o.orderid), 0) as total_orders,
-               COALESCE(COUNT(DISTINCT o.customerid), 0) as unique_customers,
-               COALESCE(AVG(o.total), 0) as avg_order_value
-        FROM stores s
-        LEFT JOIN orders o ON s.storeid = o.storeid
-        WHERE s.storeid = :storeId
-        GROUP BY s.storeid, s.city, s.state, s.state_abbr
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStorePerformance(@Param("storeId") String storeId);
-
     // Top Products Views (using existing tables as fallback)
     @Query(value = """
         SELECT p.sku, p.name, p.category, p.size, p.price,
@@ -603,93 +590,7 @@ public interface OptimizedPizzaRepo extends JpaRepository<User, Long> {
     // FINAL STORE REVENUE CHART API - Using Actual Tables
     // =================================================================
 
-    // All Time Revenue - using the actual materialized views you created
-    @Query(value = "SELECT storeid, city, state_name, state_abbr, total_revenue, total_orders, avg_order_value, total_unique_customers FROM store_revenue_all_time ORDER BY total_revenue DESC", nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartAllTimeHQ();
-
-    @Query(value = "SELECT storeid, city, state_name, state_abbr, total_revenue, total_orders, avg_order_value, total_unique_customers FROM store_revenue_all_time WHERE state_abbr = :state ORDER BY total_revenue DESC", nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartAllTimeState(@Param("state") String state);
-
-    @Query(value = "SELECT storeid, city, state_name, state_abbr, total_revenue, total_orders, avg_order_value, total_unique_customers FROM store_revenue_all_time WHERE storeid = :storeId", nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartAllTimeStore(@Param("storeId") String storeId);
-
-    // Monthly Revenue - using store_revenue_by_time_periods
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, month_label, month_name_label,
-               SUM(total_revenue) as monthly_revenue,
-               SUM(order_count) as monthly_orders,
-               AVG(avg_order_value) as monthly_avg_order_value,
-               SUM(unique_customers) as monthly_unique_customers
-        FROM store_revenue_by_time_periods 
-        WHERE year = :year AND month = :month 
-        GROUP BY storeid, city, state_name, state_abbr, year, month, month_label, month_name_label
-        ORDER BY monthly_revenue DESC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartMonthHQ(@Param("year") Integer year, @Param("month") Integer month);
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, month_label, month_name_label,
-               SUM(total_revenue) as monthly_revenue,
-               SUM(order_count) as monthly_orders,
-               AVG(avg_order_value) as monthly_avg_order_value,
-               SUM(unique_customers) as monthly_unique_customers
-        FROM store_revenue_by_time_periods 
-        WHERE state_abbr = :state AND year = :year AND month = :month 
-        GROUP BY storeid, city, state_name, state_abbr, year, month, month_label, month_name_label
-        ORDER BY monthly_revenue DESC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartMonthState(@Param("state") String state, @Param("year") Integer year, @Param("month") Integer month);
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, month_label, month_name_label,
-               SUM(total_revenue) as monthly_revenue,
-               SUM(order_count) as monthly_orders,
-               AVG(avg_order_value) as monthly_avg_order_value,
-               SUM(unique_customers) as monthly_unique_customers
-        FROM store_revenue_by_time_periods 
-        WHERE storeid = :storeId AND year = :year AND month = :month 
-        GROUP BY storeid, city, state_name, state_abbr, year, month, month_label, month_name_label
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartMonthStore(@Param("storeId") String storeId, @Param("year") Integer year, @Param("month") Integer month);
-
-    // Yearly Revenue
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, 
-               SUM(total_revenue) as yearly_revenue, 
-               SUM(order_count) as yearly_orders, 
-               AVG(avg_order_value) as yearly_avg_order_value, 
-               SUM(unique_customers) as yearly_unique_customers 
-        FROM store_revenue_by_time_periods 
-        WHERE year = :year 
-        GROUP BY storeid, city, state_name, state_abbr, year 
-        ORDER BY yearly_revenue DESC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartYearHQ(@Param("year") Integer year);
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, 
-               SUM(total_revenue) as yearly_revenue, 
-               SUM(order_count) as yearly_orders, 
-               AVG(avg_order_value) as yearly_avg_order_value, 
-               SUM(unique_customers) as yearly_unique_customers 
-        FROM store_revenue_by_time_periods 
-        WHERE state_abbr = :state AND year = :year 
-        GROUP BY storeid, city, state_name, state_abbr, year 
-        ORDER BY yearly_revenue DESC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartYearState(@Param("state") String state, @Param("year") Integer year);
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, 
-               SUM(total_revenue) as yearly_revenue, 
-               SUM(order_count) as yearly_orders, 
-               AVG(avg_order_value) as yearly_avg_order_value, 
-               SUM(unique_customers) as yearly_unique_customers 
-        FROM store_revenue_by_time_periods 
-        WHERE storeid = :storeId AND year = :year 
-        GROUP BY storeid, city, state_name, state_abbr, year
-        """, nativeQuery = true)
-    List<Map<String, Object>> getStoreRevenueChartYearStore(@Param("storeId") String storeId, @Param("year") Integer year);
+    // All time / yearly / monthly chart rows are typed queries in AnalyticsRowRepo
 
     // Time period options
     @Query(value = "SELECT DISTINCT year, CONCAT('Year ', year) as year_label FROM store_revenue_by_time_periods WHERE year IS NOT NULL ORDER BY year DESC", nativeQuery = true)
@@ -726,24 +627,6 @@ public interface OptimizedPizzaRepo extends JpaRepository<User, Long> {
         """, nativeQuery = true)
     List<Map<String, Object>> getHourlyPerformanceAnalyticsHQ();
 
-    @Query(value = """
-        SELECT r.hour, r.revenue, o.orders, r.state
-        FROM revenue_by_hour_state r
-        LEFT JOIN orders_by_hour_state o ON r.hour = o.hour AND r.state = o.state
-        WHERE r.state = :state
-        ORDER BY r.hour ASC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getHourlyPerformanceAnalyticsState(@Param("state") String state);
-
-    @Query(value = """
-        SELECT r.hour, r.revenue, o.orders, r.state, r.store_id
-        FROM revenue_by_hour_store r
-        LEFT JOIN orders_by_hour_store o ON r.hour = o.hour AND r.store_id = o.store_id
-        WHERE r.store_id = :storeId
-        ORDER BY r.hour ASC
-        """, nativeQuery = true)
-    List<Map<String, Object>> getHourlyPerformanceAnalyticsStore(@Param("storeId") String storeId);
-
     // Product Performance Analytics - Role-based using top_products materialized views
     @Query(value = """
         SELECT sku, name as product_name, category, size, price,
@@ -1007,35 +890,7 @@ public interface OptimizedPizzaRepo extends JpaRepository<User, Long> {
         """, nativeQuery = true)
     List<Map<String, Object>> getStatePerformanceAnalyticsStore(@Param("storeId") String storeId);
 
-    // Monthly Revenue Trends by Store for time series charts
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, 
-               month_label, month_name_label, total_revenue, order_count, 
-               avg_order_value, unique_customers
-        FROM store_revenue_by_time_periods
-        ORDER BY storeid, year, month
-        """, nativeQuery = true)
-    List<Map<String, Object>> getMonthlyRevenueTrendsByStoreHQ();
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, 
-               month_label, month_name_label, total_revenue, order_count, 
-               avg_order_value, unique_customers
-        FROM store_revenue_by_time_periods
-        WHERE state_abbr = :state
-        ORDER BY storeid, year, month
-        """, nativeQuery = true)
-    List<Map<String, Object>> getMonthlyRevenueTrendsByStoreState(@Param("state") String state);
-
-    @Query(value = """
-        SELECT storeid, city, state_name, state_abbr, year, month, 
-               month_label, month_name_label, total_revenue, order_count, 
-               avg_order_value, unique_customers
-        FROM store_revenue_by_time_periods
-        WHERE storeid = :storeId
-        ORDER BY year, month
-        """, nativeQuery = true)
-    List<Map<String, Object>> getMonthlyRevenueTrendsByStoreStore(@Param("storeId") String storeId);
+    // Monthly revenue trends by store are typed queries in AnalyticsRowRepo
 
     // Top Products by Time Period (very simplified placeholder)
     @Query(value = "SELECT * FROM top_products_hq ORDER BY total_revenue DESC LIMIT :limit", nativeQuery = true)
@@ -0,0 +1,126 @@
+package pizzaworld.repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
+import pizzaworld.service.RevenueCube;
+
+/**
+ * Loads a RevenueCube from the base tables. The measures are aggregated by PostgreSQL and
+ * arrive as one row per store-month(-category); only the customer sketches need the
+ * distinct (store, month, category, customer) tuples, which are streamed.
+ */
+@Repository
+public class RevenueCubeRepo {
+
+    private static final int SKETCH_FETCH_SIZE = 5000;
+
+    private static final String YEAR = "CAST(EXTRACT(YEAR FROM o.orderdate) AS INTEGER)";
+    private static final String MONTH = "CAST(EXTRACT(MONTH FROM o.orderdate) AS INTEGER)";
+
+    private static final String ORDER_CELLS_SQL = """
+        SELECT o.storeid, %s AS order_year, %s AS order_month,
+               COALESCE(SUM(o.total), 0) AS revenue, COUNT(*) AS orders, COUNT(DISTINCT o.customerid) AS customers
+        FROM orders o
+        GROUP BY 1, 2, 3
+        """.formatted(YEAR, MONTH);
+
+    private static final String CATEGORY_CELLS_SQL = """
+        SELECT o.storeid, %s AS order_year, %s AS order_month, p.category,
+               COALESCE(SUM(oi.quantity * p.price), 0) AS revenue, COALESCE(SUM(oi.quantity), 0) AS units,
+               COUNT(DISTINCT oi.orderid) AS orders, COUNT(*) AS line_count
+        FROM order_items oi
+        JOIN orders o ON oi.orderid = o.orderid
+        JOIN products p ON oi.sku = p.sku
+        GROUP BY 1, 2, 3, 4
+        """.formatted(YEAR, MONTH);
+
+    private static final String PRODUCT_CELLS_SQL = """
+        SELECT oi.sku, %s AS order_year, %s AS order_month,
+               COALESCE(SUM(oi.quantity * p.price), 0) AS revenue, COALESCE(SUM(oi.quantity), 0) AS units,
+               COUNT(DISTINCT oi.orderid) AS orders, COUNT(DISTINCT o.customerid) AS customers
+        FROM order_items oi
+        JOIN orders o ON oi.orderid = o.orderid
+        JOIN products p ON oi.sku = p.sku
+        GROUP BY 1, 2, 3
+        """.formatted(YEAR, MONTH);
+
+    private static final String PRODUCT_STORE_LINES_SQL = """
+        SELECT oi.sku, o.storeid, %s AS order_year, %s AS order_month, COUNT(*) AS line_count
+        FROM order_items oi
+        JOIN orders o ON oi.orderid = o.orderid
+        GROUP BY 1, 2, 3, 4
+        """.formatted(YEAR, MONTH);
+
+    private static final String CATEGORY_CUSTOMERS_SQL = """
+        SELECT DISTINCT o.storeid, %s AS order_year, %s AS order_month, p.category, o.customerid
+        FROM order_items oi
+        JOIN orders o ON oi.orderid = o.orderid
+        JOIN products p ON oi.sku = p.sku
+        """.formatted(YEAR, MONTH);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Builds a cube of the current data. Read-only transaction so the driver honours the
+     * fetch size of the customer scan (server-side cursor); REPEATABLE READ so all queries
+     * see one snapshot (at READ COMMITTED each statement takes its own).
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    @RunsOn(Workload.HEAVY)
+    public RevenueCube load() {
+        List<RevenueCube.Store> stores = jdbcTemplate.query(
+                "SELECT storeid, city, state, state_abbr FROM stores ORDER BY storeid",
+                (rs, rowNum) -> new RevenueCube.Store(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4)));
+        List<RevenueCube.Product> products = jdbcTemplate.query(
+                "SELECT sku, name, category, size, price FROM products ORDER BY sku",
+                (rs, rowNum) -> new RevenueCube.Product(rs.getString(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getDouble(5)));
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(
+                "SELECT CAST(MIN(orderdate) AS DATE) AS first_order, CAST(MAX(orderdate) AS DATE) AS last_order FROM orders");
+        Date first = (Date) bounds.get("first_order");
+        Date last = (Date) bounds.get("last_order");
+
+        RevenueCube.Builder builder = new RevenueCube.Builder(stores, products,
+                first != null ? first.toLocalDate() : null, last != null ? last.toLocalDate() : null);
+
+        jdbcTemplate.query(ORDER_CELLS_SQL, (ResultSet rs) -> {
+            builder.addOrders(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getDouble(4), rs.getLong(5), rs.getLong(6));
+        });
+        jdbcTemplate.query("SELECT storeid, COUNT(DISTINCT customerid) FROM orders GROUP BY storeid", (ResultSet rs) -> {
+            builder.addStoreCustomers(rs.getString(1), rs.getLong(2));
+        });
+        jdbcTemplate.query(CATEGORY_CELLS_SQL, (ResultSet rs) -> {
+            builder.addCategory(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getString(4),
+                    rs.getDouble(5), rs.getLong(6), rs.getLong(7), rs.getLong(8));
+        });
+        jdbcTemplate.query(PRODUCT_CELLS_SQL, (ResultSet rs) -> {
+            builder.addProduct(rs.getString(1), rs.getInt(2), rs.getInt(3),
+                    rs.getDouble(4), rs.getLong(5), rs.getLong(6), rs.getLong(7));
+        });
+        jdbcTemplate.query(PRODUCT_STORE_LINES_SQL, (ResultSet rs) -> {
+            builder.addProductLines(rs.getString(1), rs.getString(2), rs.getInt(3), rs.getInt(4), rs.getLong(5));
+        });
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CATEGORY_CUSTOMERS_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(SKETCH_FETCH_SIZE);
+            return ps;
+        }, (ResultSet rs) -> {
+            builder.addCustomer(rs.getString(1), rs.getInt(2), rs.getInt(3), rs.getString(4), rs.getLong(5));
+        });
+        return builder.build();
+    }
+}
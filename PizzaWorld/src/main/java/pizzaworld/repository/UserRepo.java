@@ -8,7 +8,15 @@ import org.springframework.data.repository.query.Param;
 
 public interface UserRepo extends JpaRepository<User, Long> {
 
-    @Query("SELECT u FROM User u WHERE upper(u.username) = upper(:username)")
-    Optional<User> findByUsername(@Param("username") String username);
+    /**
+     * Case-insensitive lookup. lower(username) matches the ux_users_username_lower
+     * expression index (db/schema-indexes.sql), so this is an index probe, not a scan.
+     */
+    default Optional<User> findByUsername(String username) {
+        return findByNormalizedUsername(User.normalizeUsername(username));
+    }
+
+    @Query("SELECT u FROM User u WHERE lower(u.username) = :username")
+    Optional<User> findByNormalizedUsername(@Param("username") String normalizedUsername);
 
 }
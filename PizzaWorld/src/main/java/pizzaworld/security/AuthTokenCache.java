@@ -0,0 +1,86 @@
+package pizzaworld.security;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import pizzaworld.model.CustomUserDetails;
+
+/**
+ * Verified bearer tokens and the principal they resolved to, so JwtAuthFilter does not
+ * verify the signature and load the user again for every request of a dashboard.
+ *
+ * Each entry expires at the exp claim of its token. invalidateUser drops all entries of a
+ * user whose record changed; the generation check in put keeps a lookup that was already
+ * running during the invalidation from caching the old record.
+ */
+@Component
+public class AuthTokenCache {
+
+    private static final int MAX_TOKENS = 10_000;
+
+    private record Entry(CustomUserDetails principal, long expiresAtMillis) {}
+
+    private final Cache<String, Entry> tokens = Caffeine.newBuilder()
+            .maximumSize(MAX_TOKENS)
+            .expireAfter(new Expiry<String, Entry>() {
+                @Override
+                public long expireAfterCreate(String token, Entry entry, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expiresAtMillis() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String token, Entry entry, long currentTime, long currentDuration) {
+                    return expireAfterCreate(token, entry, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String token, Entry entry, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .build();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public CustomUserDetails get(String token) {
+        Entry entry = tokens.getIfPresent(token);
+        return entry != null ? entry.principal() : null;
+    }
+
+    /** Current generation; read it before loading the user and pass it to put. */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Caches the principal until the token expires, unless a user was invalidated since
+     * the given generation was read or the token has no expiry.
+     */
+    public void put(String token, CustomUserDetails principal, Date expiresAt, long loadedAtGeneration) {
+        if (expiresAt == null) {
+            return;
+        }
+        tokens.put(token, new Entry(principal, expiresAt.getTime()));
+        if (generation.get() != loadedAtGeneration) {
+            tokens.invalidate(token);
+        }
+    }
+
+    /** Drops every cached token of the user, e.g. after a password or role change. */
+    public void invalidateUser(String username) {
+        generation.incrementAndGet();
+        tokens.asMap().values().removeIf(entry -> entry.principal().getUsername().equalsIgnoreCase(username));
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        tokens.invalidateAll();
+    }
+}
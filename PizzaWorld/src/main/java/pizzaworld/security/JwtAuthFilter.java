@@ -1,13 +1,17 @@
 package pizzaworld.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.context.SecurityContextRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.context.annotation.Lazy;
@@ -29,6 +33,13 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Lazy
     private UserService userService;
 
+    @Autowired
+    private AuthTokenCache tokenCache;
+
+    // The filter skips async re-dispatches (Mono/Flux results); SecurityContextHolderFilter
+    // restores the authentication for those from this request attribute
+    private final SecurityContextRepository contextRepository = new RequestAttributeSecurityContextRepository();
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     HttpServletResponse response,
@@ -37,25 +48,48 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         String authHeader = request.getHeader("Authorization");
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.extractUsername(token);
-                User user = userService.find(username);
+            CustomUserDetails userDetails = authenticate(token);
 
-                if (user != null) {
-                    CustomUserDetails userDetails = new CustomUserDetails(user);
+            if (userDetails != null) {
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
-                    UsernamePasswordAuthenticationToken authToken =
-                            new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                }
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                context.setAuthentication(authToken);
+                SecurityContextHolder.setContext(context);
+                contextRepository.saveContext(context, request, response);
             }
         }
 
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Resolves the principal of a bearer token, from the token cache when possible and
+     * otherwise with one signature check and one user lookup. Null when the token is
+     * invalid or the user no longer exists.
+     */
+    private CustomUserDetails authenticate(String token) {
+        CustomUserDetails cached = tokenCache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        Claims claims = jwtUtil.parseClaims(token).orElse(null);
+        if (claims == null) {
+            return null;
+        }
+        long generation = tokenCache.generation();
+        User user = userService.find(claims.getSubject());
+        if (user == null) {
+            return null;
+        }
+        CustomUserDetails userDetails = new CustomUserDetails(user);
+        tokenCache.put(token, userDetails, claims.getExpiration(), generation);
+        return userDetails;
+    }
+
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
         String path = request.getRequestURI();
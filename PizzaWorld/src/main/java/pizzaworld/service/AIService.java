@@ -1,24 +1,29 @@
 package pizzaworld.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import pizzaworld.config.PizzaConfig;
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
 import pizzaworld.model.AIInsight;
 import pizzaworld.model.ChatMessage;
 import pizzaworld.model.User;
 import pizzaworld.repository.OptimizedPizzaRepo;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.Deque;
-import java.util.ArrayDeque;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.regex.Pattern;
-import java.util.regex.Matcher;
 
 @Service
 public class AIService {
@@ -36,398 +41,538 @@ public class AIService {
 
     @Autowired
     private StaticDocRetriever docRetriever;
+
+    @Autowired
+    private ParallelQueryExecutor parallelQueryExecutor;
+
+    @Autowired
+    private CacheManager cacheManager;
     
-    // Ephemeral in-memory chat history – capped so it is **not** persistent and cannot grow unbounded
-    private static final int MAX_CHAT_HISTORY = 20;
-    private final Map<String, Deque<ChatMessage>> chatSessions = new ConcurrentHashMap<>();
+    @Autowired
+    private ChatHistoryStore chatHistory;
 
-    private final List<AIInsight> insights = new ArrayList<>();
+    // Same cap GemmaAIService applies to a non-streamed answer
+    private static final int MAX_STREAMED_ANSWER_LENGTH = 1000;
 
-    // ────────────────── Business-context cache with improved strategy ──────────────────
-    private static final long CONTEXT_CACHE_TTL_MS = 60_000; // 1 minute
-    private static final long CRITICAL_DATA_CACHE_TTL_MS = 30_000; // 30 seconds for critical data
-    private static class CachedContext {
-        final Map<String, Object> value;
-        final long timestamp;
-        final String userRole;
-        final String category;
-        CachedContext(Map<String, Object> v, String role, String cat) { 
-            this.value = v; 
-            this.timestamp = System.currentTimeMillis(); 
-            this.userRole = role;
-            this.category = cat;
-        }
-        
-        boolean isExpired(long ttl) {
-            return (System.currentTimeMillis() - timestamp) > ttl;
-        }
-    }
-    private final Map<String, CachedContext> contextCache = new ConcurrentHashMap<>();
     
     /**
      * Process a chat message and generate an AI response
      */
     public ChatMessage processChatMessage(String sessionId, String message, User user) {
-        try {
-            logger.info("Processing chat message for user: {} in session: {}", user.getUsername(), sessionId);
-            
-            // Create user message
-            ChatMessage userMessage = new ChatMessage(sessionId, user.getUsername(), message, "user");
-            userMessage.setUserRole(user.getRole());
-            userMessage.setId(UUID.randomUUID().toString());
-            
-            // Categorize the message
-            String category = categorizeMessage(message);
-            userMessage.setCategory(category);
+        return processChatMessageAsync(sessionId, message, user).block();
+    }
 
-            // ─── Build short conversational context (last 5 pairs) ───
-            StringBuilder prior = new StringBuilder();
-            Deque<ChatMessage> history = chatSessions.get(sessionId);
-            if (history != null && !history.isEmpty()) {
-                prior.append("PREVIOUS MESSAGES:\n");
-                history.stream()
-                        .skip(Math.max(0, history.size() - 10)) // last 10 messages (5 pairs)
-                        .forEach(m -> {
-                            String role = "user".equals(m.getMessageType()) ? "User" : "Assistant";
-                            prior.append(role).append(": ").append(m.getMessage()).append("\n");
-                        });
-                prior.append("\n---\n");
-            }
+    /**
+     * Process a chat message without holding the calling thread: the history, knowledge
+     * snippet and business context are prepared on a worker thread, the model answers on the
+     * HTTP client's thread, and the answer is checked (and if need be replaced by the
+     * rule-based one) on a worker thread again. Completes with an apology message on failure.
+     */
+    public Mono<ChatMessage> processChatMessageAsync(String sessionId, String message, User user) {
+        logger.info("Processing chat message for user: {} in session: {}", user.getUsername(), sessionId);
+        return blocking(() -> prepareTurn(sessionId, message, user))
+                .flatMap(turn -> modelAnswer(turn, user)
+                        .publishOn(Schedulers.boundedElastic())
+                        .filter(answer -> {
+                            // ─── Number-consistency guard-rail ───
+                            if (isNumberConsistent(answer, turn.businessContext())) {
+                                return true;
+                            }
+                            logger.warn("AI response failed numeric consistency check – falling back to rule-based response");
+                            return false;
+                        })
+                        .switchIfEmpty(blocking(() -> generateRuleBasedResponse(message, user, turn.category(), turn.businessContext())))
+                        .map(answer -> completeTurn(turn, answer)))
+                .onErrorResume(e -> {
+                    logger.error("Error processing chat message: {}", e.getMessage(), e);
+                    ChatMessage errorMessage = new ChatMessage(sessionId, "AI_ASSISTANT",
+                        "I apologize, but I'm experiencing technical difficulties. Please try again or contact support.", "assistant");
+                    errorMessage.setId(UUID.randomUUID().toString());
+                    return Mono.just(errorMessage);
+                });
+    }
 
-            String messageWithHistory = prior.append(message).toString();
-            
-            // Attach knowledge snippet if there's a match
-            Optional<String> snippetOpt = docRetriever.findMatch(message);
-            String finalPrompt = messageWithHistory;
-            if (snippetOpt.isPresent()) {
-                finalPrompt += "\n\nKNOWLEDGE SNIPPET:\n" + snippetOpt.get();
-            }
+    /**
+     * Streaming variant of processChatMessage: the answer is emitted while the model writes it.
+     *
+     * Model chunks pass through a NumberGuard stream, which releases text word by word once
+     * its numbers are verified. If a number fails the check, the model stream is cancelled and
+     * a replace chunk carries the rule-based answer instead; the same happens when the model
+     * fails or returns nothing. The finished answer is stored in the session history.
+     */
+    public Flux<ChatChunk> streamChatMessage(String sessionId, String message, User user) {
+        return blocking(() -> prepareTurn(sessionId, message, user)).flatMapMany(turn -> {
+            NumberGuard.Stream guard = NumberGuard.of(turn.businessContext()).stream(MAX_STREAMED_ANSWER_LENGTH);
 
-            // Generate AI response with Gemma AI integration
-            String aiResponse = generateAIResponseWithGemma(finalPrompt, user, category);
+            Flux<ChatChunk> modelChunks = gemmaAIService.streamResponse(turn.prompt(), user, turn.category(), turn.businessContext())
+                    .<ChatChunk>handle((delta, sink) -> {
+                        String text = guard.offer(delta);
+                        if (!text.isEmpty()) {
+                            sink.next(ChatChunk.delta(text));
+                        }
+                        if (guard.isClosed()) {
+                            // Cancels the model request
+                            sink.complete();
+                        }
+                    })
+                    .onErrorResume(e -> {
+                        logger.error("Streaming AI response failed: {}", e.getMessage());
+                        return Flux.empty();
+                    });
 
-            // ─── Number-consistency guard-rail ───
-            Map<String, Object> businessContext = gatherBusinessContext(user, category); // cached
-            if (!isNumberConsistent(aiResponse, businessContext)) {
-                logger.warn("AI response failed numeric consistency check – falling back to rule-based response");
-                aiResponse = generateRuleBasedResponse(message, user, category, businessContext);
-            }
-            
-            // Create AI response message
-            ChatMessage aiMessage = new ChatMessage(sessionId, "AI_ASSISTANT", aiResponse, "assistant");
-            aiMessage.setId(UUID.randomUUID().toString());
-            aiMessage.setCategory(category);
-            
-            // Store messages (non-persistent – only last 20 kept)
-            Deque<ChatMessage> deque = chatSessions.computeIfAbsent(sessionId, k -> new ArrayDeque<>());
-            deque.addLast(userMessage);
-            deque.addLast(aiMessage);
-            while (deque.size() > MAX_CHAT_HISTORY) {
-                deque.removeFirst();
+            // The rule-based fallback may query the database: not on the HTTP client's event loop
+            return modelChunks.concatWith(blocking(() -> closeStream(guard, turn, message, user)).flatMapMany(Flux::fromIterable));
+        });
+    }
+
+    /**
+     * Last chunk of a stream: the held-back tail, or the rule-based answer when the model
+     * answer was rejected or empty
+     */
+    private List<ChatChunk> closeStream(NumberGuard.Stream guard, ChatTurn turn, String message, User user) {
+        String last = guard.finish();
+        String answer = guard.releasedText();
+        ChatChunk closing = last.isEmpty() ? null : ChatChunk.delta(last);
+        if (guard.isRejected() || answer.isBlank()) {
+            if (guard.isRejected()) {
+                logger.warn("Streamed AI response failed numeric consistency check – replacing it with rule-based response");
             }
-            
-            return aiMessage;
-            
-        } catch (Exception e) {
-            logger.error("Error processing chat message: {}", e.getMessage(), e);
-            ChatMessage errorMessage = new ChatMessage(sessionId, "AI_ASSISTANT", 
-                "I apologize, but I'm experiencing technical difficulties. Please try again or contact support.", "assistant");
-            errorMessage.setId(UUID.randomUUID().toString());
-            return errorMessage;
+            answer = generateRuleBasedResponse(message, user, turn.category(), turn.businessContext());
+            closing = ChatChunk.replace(answer);
         }
+        completeTurn(turn, answer);
+        return closing != null ? List.of(closing) : List.of();
     }
-    
+
     /**
-     * Generate AI response with Gemma AI integration and fallback
+     * Part of a streamed answer: a delta to append, or (replace) the complete answer that
+     * supersedes everything streamed before it.
      */
-    private String generateAIResponseWithGemma(String message, User user, String category) {
-        try {
-            // Gather business context for the AI
-            Map<String, Object> businessContext = gatherBusinessContext(user, category);
-            
-            // Try Gemma AI first
-            if (gemmaAIService.isAvailable()) {
-                logger.info("Using Gemma AI for response generation");
-                String gemmaResponse = gemmaAIService.generateResponse(message, user, category, businessContext);
-                
-                if (gemmaResponse != null && !gemmaResponse.trim().isEmpty()) {
-                    return gemmaResponse;
-                }
-                
-                logger.warn("Gemma AI returned empty response, falling back to rule-based");
-            } else {
-                logger.info("Gemma AI not available, using rule-based responses");
-            }
-            
-            // Fallback to original rule-based responses
-            return generateRuleBasedResponse(message, user, category, businessContext);
-            
-        } catch (Exception e) {
-            logger.error("Error in AI response generation: {}", e.getMessage(), e);
-            return generateRuleBasedResponse(message, user, category, new HashMap<>());
+    public record ChatChunk(String text, boolean replace) {
+
+        static ChatChunk delta(String text) {
+            return new ChatChunk(text, false);
+        }
+
+        static ChatChunk replace(String text) {
+            return new ChatChunk(text, true);
+        }
+    }
+
+    /** A chat message with what it takes to answer it */
+    private record ChatTurn(ChatMessage userMessage, String category, String prompt, Map<String, Object> businessContext) {
+    }
+
+    private ChatTurn prepareTurn(String sessionId, String message, User user) {
+        // Create user message
+        ChatMessage userMessage = new ChatMessage(sessionId, user.getUsername(), message, "user");
+        userMessage.setUserRole(user.getRole());
+        userMessage.setId(UUID.randomUUID().toString());
+
+        // Categorize the message
+        String category = categorizeMessage(message);
+        userMessage.setCategory(category);
+
+        return new ChatTurn(userMessage, category, buildPromptWithHistory(sessionId, message),
+                gatherBusinessContext(user, category));
+    }
+
+    /** The model's answer, empty when the model is unavailable or fails */
+    private Mono<String> modelAnswer(ChatTurn turn, User user) {
+        if (!gemmaAIService.isAvailable()) {
+            logger.info("Gemma AI not available, using rule-based responses");
+            return Mono.empty();
+        }
+        logger.info("Using Gemma AI for response generation");
+        return gemmaAIService.generateResponseAsync(turn.prompt(), user, turn.category(), turn.businessContext())
+                .filter(answer -> !answer.trim().isEmpty());
+    }
+
+    /** Stores the exchange and returns the assistant's message */
+    private ChatMessage completeTurn(ChatTurn turn, String answer) {
+        ChatMessage aiMessage = new ChatMessage(turn.userMessage().getSessionId(), "AI_ASSISTANT", answer, "assistant");
+        aiMessage.setId(UUID.randomUUID().toString());
+        aiMessage.setCategory(turn.category());
+        storeExchange(turn.userMessage().getSessionId(), turn.userMessage(), aiMessage);
+        return aiMessage;
+    }
+
+    /**
+     * Blocking work of the AI path (JDBC, rule-based answers): on a worker thread, never on
+     * a servlet or HTTP client thread, and on the AI connection pool
+     */
+    private static <T> Mono<T> blocking(Supplier<T> work) {
+        return Mono.fromSupplier(() -> Workload.AI.call(work)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * The message prefixed with the last 5 exchanges of the session and, when one matches,
+     * a knowledge snippet
+     */
+    private String buildPromptWithHistory(String sessionId, String message) {
+        StringBuilder prior = new StringBuilder();
+        List<ChatMessage> history = chatHistory.history(sessionId);
+        if (!history.isEmpty()) {
+            prior.append("PREVIOUS MESSAGES:\n");
+            history.stream()
+                    .skip(Math.max(0, history.size() - 10)) // last 10 messages (5 pairs)
+                    .forEach(m -> {
+                        String role = "user".equals(m.getMessageType()) ? "User" : "Assistant";
+                        prior.append(role).append(": ").append(m.getMessage()).append("\n");
+                    });
+            prior.append("\n---\n");
         }
+
+        String finalPrompt = prior.append(message).toString();
+        
+        // Attach knowledge snippet if there's a match
+        Optional<String> snippetOpt = docRetriever.findMatch(message);
+        if (snippetOpt.isPresent()) {
+            finalPrompt += "\n\nKNOWLEDGE SNIPPET:\n" + snippetOpt.get();
+        }
+        return finalPrompt;
+    }
+
+    /**
+     * Store messages (only the last pizzaworld.chat.max-messages of a session are kept)
+     */
+    private void storeExchange(String sessionId, ChatMessage userMessage, ChatMessage aiMessage) {
+        chatHistory.append(sessionId, userMessage, aiMessage);
     }
     
     /**
      * Gather comprehensive business context with EXACT data from ALL APIs
      */
     private Map<String, Object> gatherBusinessContext(User user, String category) {
-        // ─── Improved cache lookup ───
+        // One entry per role scope and category, cleared with the views it was read from
+        Cache cache = cacheManager.getCache(PizzaConfig.AI_CONTEXT_CACHE);
         String cacheKey = buildCacheKey(user, category);
-        CachedContext cached = contextCache.get(cacheKey);
-        
-        if (cached != null) {
-            // Use different TTL for critical data
-            long ttl = isCriticalData(category) ? CRITICAL_DATA_CACHE_TTL_MS : CONTEXT_CACHE_TTL_MS;
-            if (!cached.isExpired(ttl)) {
-                logger.debug("Cache hit for key: {}", cacheKey);
-                return cached.value;
-            } else {
-                logger.debug("Cache expired for key: {}", cacheKey);
-                contextCache.remove(cacheKey);
-            }
+        LoadedContext loaded = cache.get(cacheKey, () -> {
+            LoadedContext context = loadBusinessContext(user, category);
+            
+            // ─── Validate context data quality ───
+            validateBusinessContext(context.values(), user.getRole());
+            return context;
+        });
+        if (loaded.partial()) {
+            // Served once, but the next turn retries the slices that failed
+            cache.evict(cacheKey);
         }
+        return loaded.values();
+    }
+    
+    // ────────────────── Business-context slices ──────────────────
+
+    /**
+     * Sections of the business context, one or two repo queries each. A chat turn loads
+     * only the slices its category uses, in parallel.
+     */
+    private enum ContextSlice {
+        KPIS, YEARLY_REVENUE, MONTHLY_REVENUE, WEEKLY_REVENUE, MONTHLY_ORDERS, TOP_STORES, TOP_PRODUCTS,
+        CATEGORIES, CUSTOMER_ACQUISITION, CUSTOMER_LIFETIME_VALUE, HOURLY, CAPACITY, RETENTION,
+        RECENT_ORDERS, STATES, ANALYTICS_SCOPE
+    }
+
+    // Support answers need the headline numbers at most; general answers what the prompt shows
+    private static final Map<String, Set<ContextSlice>> CATEGORY_SLICES = Map.of(
+            "support", EnumSet.of(ContextSlice.KPIS),
+            "general", EnumSet.of(ContextSlice.KPIS, ContextSlice.YEARLY_REVENUE, ContextSlice.TOP_STORES, ContextSlice.TOP_PRODUCTS),
+            "analytics", EnumSet.allOf(ContextSlice.class));
+
+    // Slices each role has data for
+    private static final Map<String, Set<ContextSlice>> ROLE_SLICES = Map.of(
+            "HQ_ADMIN", EnumSet.allOf(ContextSlice.class),
+            "STATE_MANAGER", EnumSet.of(ContextSlice.KPIS, ContextSlice.YEARLY_REVENUE, ContextSlice.TOP_STORES, ContextSlice.ANALYTICS_SCOPE),
+            "STORE_MANAGER", EnumSet.of(ContextSlice.KPIS, ContextSlice.YEARLY_REVENUE, ContextSlice.ANALYTICS_SCOPE));
+
+    private static final Duration CONTEXT_TIMEOUT = Duration.ofSeconds(15);
+
+    /** Business context of a role scope and category; partial when a slice could not be loaded */
+    private record LoadedContext(Map<String, Object> values, boolean partial) {
+    }
 
+    /**
+     * Loads the slices of category for the user's role in parallel; a slice that fails or
+     * times out is left out. Runs on the caller's workload.
+     */
+    private LoadedContext loadBusinessContext(User user, String category) {
+        Set<ContextSlice> slices = EnumSet.noneOf(ContextSlice.class);
+        slices.addAll(CATEGORY_SLICES.getOrDefault(category, CATEGORY_SLICES.get("general")));
+        slices.retainAll(ROLE_SLICES.getOrDefault(user.getRole(), Set.of()));
+
+        ParallelQueryExecutor.FanOut fanOut = parallelQueryExecutor.fanOut(CONTEXT_TIMEOUT);
+        for (ContextSlice slice : slices) {
+            fanOut.fork(slice.name(), () -> loadSlice(slice, user));
+        }
         Map<String, Object> context = new HashMap<>();
-        
-        try {
-            // Add role-specific business data with validation
-            switch (user.getRole()) {
-                case "HQ_ADMIN":
-                    // === CORE KPIs ===
-                    Map<String, Object> hqKpis = repo.getHQKPIs();
-                    if (hqKpis != null) {
-                        logger.debug("HQ KPIs raw data fields: {}", hqKpis.keySet());
-                        
-                        // Standardized field extraction with validation
-                        Double totalRevenue = extractNumericValue(hqKpis, "total_revenue", "revenue");
-                        Integer totalOrders = extractIntegerValue(hqKpis, "total_orders", "orders");
-                        Integer totalCustomers = extractIntegerValue(hqKpis, "total_customers", "customers");
-                        Integer totalStores = extractIntegerValue(hqKpis, "total_stores", "stores");
+        for (ContextSlice slice : slices) {
+            context.putAll(fanOut.join(slice.name(), Map.<String, Object>of()));
+        }
+        if (fanOut.isPartial()) {
+            logger.warn("Business context for {} / {} is partial: {}", user.getRole(), category, fanOut.timings());
+        }
+        return new LoadedContext(Collections.unmodifiableMap(context), fanOut.isPartial());
+    }
 
-                        // Validate extracted values
-                        if (totalRevenue == null || totalOrders == null || totalCustomers == null) {
-                            logger.warn("Core KPI data validation failed - missing required fields");
-                            break; // Skip this role if core data is invalid
-                        }
+    private Map<String, Object> loadSlice(ContextSlice slice, User user) {
+        Map<String, Object> context = new HashMap<>();
+        if (slice == ContextSlice.ANALYTICS_SCOPE) {
+            context.put("data_scope", user.getRole().toLowerCase().replace("_", " "));
+            context.put("current_date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
+            context.put("available_years", getAvailableYears());
 
-                        double avgOrderValue = totalOrders > 0 ? totalRevenue / totalOrders : 0;
+            // Add enhanced historical context for better AI responses
+            addSimulatedHistoricalContext(context, user);
+            return context;
+        }
+        switch (user.getRole()) {
+            case "HQ_ADMIN" -> loadHQSlice(slice, user, context);
+            case "STATE_MANAGER" -> loadStateSlice(slice, user.getStateAbbr(), context);
+            case "STORE_MANAGER" -> loadStoreSlice(slice, user.getStoreId(), context);
+            default -> { }
+        }
+        return context;
+    }
 
-                        context.put("total_revenue", formatCurrency(totalRevenue));
-                        context.put("total_orders", formatNumber(totalOrders));
-                        context.put("avg_order_value", formatCurrency(avgOrderValue));
-                        context.put("total_customers", formatNumber(totalCustomers));
-                        
-                        // Only add stores count if we have valid data
-                        if (totalStores != null && totalStores > 0) {
-                            context.put("total_stores", totalStores);
-                        }
-                        
-                        context.put("raw_kpis", hqKpis); // Include raw data for reference if needed
-                        
-                        logger.debug("Processed KPIs - Revenue: {}, Orders: {}, AOV: {}, Customers: {}, Stores: {}", 
-                                   context.get("total_revenue"), context.get("total_orders"), 
-                                   context.get("avg_order_value"), context.get("total_customers"), totalStores);
-                    }
-                    
-                    // === HISTORICAL REVENUE DATA ===
-                    List<Map<String, Object>> revenueByYear = repo.getRevenueByYearHQ();
-                    if (revenueByYear != null && !revenueByYear.isEmpty()) {
-                        context.put("revenue_trends", formatRevenueTrends(revenueByYear));
-                        context.put("revenue_by_year_raw", revenueByYear); // Exact yearly data
-                        
-                        // Calculate precise year-over-year growth
-                        if (revenueByYear.size() >= 2) {
-                            double currentYear = ((Number) revenueByYear.get(0).getOrDefault("revenue", 0)).doubleValue();
-                            double previousYear = ((Number) revenueByYear.get(1).getOrDefault("revenue", 0)).doubleValue();
-                            double growthRate = previousYear > 0 ? ((currentYear - previousYear) / previousYear) * 100 : 0;
-                            context.put("yoy_growth_rate", String.format("%.2f%%", growthRate));
-                            context.put("yoy_growth_absolute", formatCurrency(currentYear - previousYear));
-                        }
-                    }
-                    
-                    // === MONTHLY PERFORMANCE DATA ===
-                    List<Map<String, Object>> revenueByMonth = repo.getRevenueByMonthHQ();
-                    if (revenueByMonth != null && !revenueByMonth.isEmpty()) {
-                        context.put("monthly_trends", formatMonthlyTrends(revenueByMonth));
-                        context.put("monthly_revenue_raw", revenueByMonth); // Exact monthly data
-                    }
-                    
-                    // === WEEKLY TRENDS ===
-                    List<Map<String, Object>> revenueByWeek = repo.getRevenueByWeekHQ();
-                    if (revenueByWeek != null && !revenueByWeek.isEmpty()) {
-                        context.put("weekly_trends", formatWeeklyTrends(revenueByWeek.subList(0, Math.min(4, revenueByWeek.size()))));
-                        context.put("weekly_revenue_raw", revenueByWeek);
-                    }
-                    
-                    // === ORDERS DATA ===
-                    List<Map<String, Object>> ordersByMonth = repo.getOrdersByMonthHQ();
-                    if (ordersByMonth != null && !ordersByMonth.isEmpty()) {
-                        context.put("orders_monthly_raw", ordersByMonth);
-                        context.put("orders_trends", formatOrdersTrends(ordersByMonth.subList(0, Math.min(3, ordersByMonth.size()))));
-                    }
-                    
-                    // === STORE PERFORMANCE DATA ===
-                    List<Map<String, Object>> topStores = repo.getStorePerformanceHQ();
-                    if (topStores != null && !topStores.isEmpty()) {
-                        context.put("top_stores", formatTopStores(topStores.subList(0, Math.min(5, topStores.size()))));
-                        context.put("all_stores_raw", topStores); // Complete store data
-                        // context.put("total_stores", topStores.size()); // Commented out - using hardcoded value of 32
-                    }
-                    
-                    // === PRODUCT PERFORMANCE DATA ===
-                    List<Map<String, Object>> topProducts = repo.getTopProductsHQ(20);
-                    if (topProducts != null && !topProducts.isEmpty()) {
-                        context.put("top_products", formatTopProducts(topProducts.subList(0, Math.min(5, topProducts.size()))));
-                        context.put("all_products_raw", topProducts); // Complete product data
-                    }
-                    
-                    // === CATEGORY PERFORMANCE ===
-                    List<Map<String, Object>> categoryPerf = repo.getCategoryPerformanceHQ();
-                    if (categoryPerf != null && !categoryPerf.isEmpty()) {
-                        context.put("category_performance", formatCategoryPerformance(categoryPerf));
-                        context.put("categories_raw", categoryPerf); // Exact category data
-                    }
-                    
-                    // === CUSTOMER DATA ===
-                    List<Map<String, Object>> customerAcq = repo.getCustomerAcquisitionHQ();
-                    if (customerAcq != null && !customerAcq.isEmpty()) {
-                        context.put("customer_acquisition", formatCustomerAcquisition(customerAcq.subList(0, Math.min(3, customerAcq.size()))));
-                        context.put("customer_acquisition_raw", customerAcq);
-                    }
-                    
-                    // === CUSTOMER LIFETIME VALUE ===
-                    List<Map<String, Object>> customerLTV = repo.getCustomerLifetimeValueHQ(100);
-                    if (customerLTV != null && !customerLTV.isEmpty()) {
-                        context.put("customer_ltv_summary", formatCustomerLTVSummary(customerLTV.subList(0, Math.min(5, customerLTV.size()))));
-                        context.put("customer_ltv_raw", customerLTV);
-                    }
-                    
-                    // === HOURLY PERFORMANCE ===
-                    List<Map<String, Object>> hourlyPerf = repo.getHourlyPerformanceAnalyticsHQ();
-                    if (hourlyPerf != null && !hourlyPerf.isEmpty()) {
-                        context.put("hourly_performance_raw", hourlyPerf);
-                        context.put("peak_hours", formatPeakHours(hourlyPerf));
-                    }
-                    
-                    // === STORE CAPACITY ANALYSIS ===
-                    List<Map<String, Object>> storeCapacity = repo.getStoreCapacityAnalysisHQ();
-                    if (storeCapacity != null && !storeCapacity.isEmpty()) {
-                        context.put("store_capacity_raw", storeCapacity);
-                        Map<String, Object> capacitySummary = repo.getStoreCapacitySummaryHQ();
-                        context.put("capacity_summary", capacitySummary);
-                    }
-                    
-                    // === CUSTOMER RETENTION ===
-                    List<Map<String, Object>> customerRetention = repo.getCustomerRetentionAnalysisHQ(12);
-                    if (customerRetention != null && !customerRetention.isEmpty()) {
-                        context.put("customer_retention_raw", customerRetention);
-                        context.put("retention_summary", formatRetentionSummary(customerRetention.subList(0, Math.min(3, customerRetention.size()))));
-                    }
-                    
-                    // === RECENT ORDERS ===
-                    List<Map<String, Object>> recentOrders = repo.getRecentOrdersHQ(50);
-                    if (recentOrders != null && !recentOrders.isEmpty()) {
-                        context.put("recent_orders_raw", recentOrders);
-                        context.put("recent_orders_summary", formatRecentOrdersSummary(recentOrders.subList(0, Math.min(10, recentOrders.size()))));
-                    }
-                    
-                    // === STATE PERFORMANCE ===
-                    List<Map<String, Object>> statePerformance = repo.getStatePerformanceAnalyticsHQ();
-                    if (statePerformance != null && !statePerformance.isEmpty()) {
-                        context.put("state_performance_raw", statePerformance);
-                        context.put("top_states", formatTopStates(statePerformance.subList(0, Math.min(5, statePerformance.size()))));
-                    }
-                    
-                    break;
-                    
-                case "STATE_MANAGER":
-                    Map<String, Object> stateKpis = repo.getStateKPIs(user.getStateAbbr());
-                    if (stateKpis != null) {
-                        Double stateRevenue = extractNumericValue(stateKpis, "revenue", "total_revenue");
-                        Integer stateOrders = extractIntegerValue(stateKpis, "orders", "total_orders");
-                        Double stateAvgOrder = extractNumericValue(stateKpis, "avg_order_value", "average_order_value");
-                        
-                        if (stateRevenue != null && stateOrders != null) {
-                            context.put("state_revenue", formatCurrency(stateRevenue));
-                            context.put("state_orders", formatNumber(stateOrders));
-                            context.put("state_avg_order_value", formatCurrency(stateAvgOrder != null ? stateAvgOrder : 0));
-                            context.put("state", user.getStateAbbr());
-                        } else {
-                            logger.warn("State KPI data validation failed for state: {}", user.getStateAbbr());
-                        }
+    /**
+     * Slices the dashboard shows too come from its cached service methods, the others
+     * straight from the repo; either way the AI context cache holds the formatted result.
+     */
+    private void loadHQSlice(ContextSlice slice, User user, Map<String, Object> context) {
+        switch (slice) {
+            case KPIS -> {
+                // === CORE KPIs ===
+                Map<String, Object> hqKpis = repo.getHQKPIs();
+                if (hqKpis != null) {
+                    logger.debug("HQ KPIs raw data fields: {}", hqKpis.keySet());
+
+                    // Standardized field extraction with validation
+                    Double totalRevenue = extractNumericValue(hqKpis, "total_revenue", "revenue");
+                    Integer totalOrders = extractIntegerValue(hqKpis, "total_orders", "orders");
+                    Integer totalCustomers = extractIntegerValue(hqKpis, "total_customers", "customers");
+                    Integer totalStores = extractIntegerValue(hqKpis, "total_stores", "stores");
+
+                    // Validate extracted values
+                    if (totalRevenue == null || totalOrders == null || totalCustomers == null) {
+                        logger.warn("Core KPI data validation failed - missing required fields");
+                        return;
                     }
-                    
-                    // State-specific historical data
-                    List<Map<String, Object>> stateRevenueByYear = repo.getRevenueByYearState(user.getStateAbbr());
-                    if (stateRevenueByYear != null && !stateRevenueByYear.isEmpty()) {
-                        context.put("state_revenue_trends", formatRevenueTrends(stateRevenueByYear));
+
+                    double avgOrderValue = totalOrders > 0 ? totalRevenue / totalOrders : 0;
+
+                    context.put("total_revenue", formatCurrency(totalRevenue));
+                    context.put("total_orders", formatNumber(totalOrders));
+                    context.put("avg_order_value", formatCurrency(avgOrderValue));
+                    context.put("total_customers", formatNumber(totalCustomers));
+
+                    // Only add stores count if we have valid data
+                    if (totalStores != null && totalStores > 0) {
+                        context.put("total_stores", totalStores);
                     }
-                    
-                    // State store performance
-                    List<Map<String, Object>> stateStores = repo.getStorePerformanceState(user.getStateAbbr());
-                    if (stateStores != null && !stateStores.isEmpty()) {
-                        context.put("state_top_stores", formatTopStores(stateStores.subList(0, Math.min(3, stateStores.size()))));
+
+                    context.put("raw_kpis", hqKpis); // Include raw data for reference if needed
+
+                    logger.debug("Processed KPIs - Revenue: {}, Orders: {}, AOV: {}, Customers: {}, Stores: {}",
+                               context.get("total_revenue"), context.get("total_orders"),
+                               context.get("avg_order_value"), context.get("total_customers"), totalStores);
+                }
+            }
+            case YEARLY_REVENUE -> {
+                // === HISTORICAL REVENUE DATA ===
+                List<Map<String, Object>> revenueByYear = repo.getRevenueByYearHQ();
+                if (revenueByYear != null && !revenueByYear.isEmpty()) {
+                    context.put("revenue_trends", formatRevenueTrends(revenueByYear));
+                    context.put("revenue_by_year_raw", revenueByYear); // Exact yearly data
+
+                    // Calculate precise year-over-year growth
+                    if (revenueByYear.size() >= 2) {
+                        double currentYear = ((Number) revenueByYear.get(0).getOrDefault("revenue", 0)).doubleValue();
+                        double previousYear = ((Number) revenueByYear.get(1).getOrDefault("revenue", 0)).doubleValue();
+                        double growthRate = previousYear > 0 ? ((currentYear - previousYear) / previousYear) * 100 : 0;
+                        context.put("yoy_growth_rate", String.format("%.2f%%", growthRate));
+                        context.put("yoy_growth_absolute", formatCurrency(currentYear - previousYear));
                     }
-                    
-                    break;
-                    
-                case "STORE_MANAGER":
-                    Map<String, Object> storeKpis = repo.getStoreKPIs(user.getStoreId());
-                    if (storeKpis != null) {
-                        Double storeRevenue = extractNumericValue(storeKpis, "revenue", "total_revenue");
-                        Integer storeOrders = extractIntegerValue(storeKpis, "orders", "total_orders");
-                        Double storeAvgOrder = extractNumericValue(storeKpis, "avg_order_value", "average_order_value");
-                        
-                        if (storeRevenue != null && storeOrders != null) {
-                            context.put("store_revenue", formatCurrency(storeRevenue));
-                            context.put("store_orders", formatNumber(storeOrders));
-                            context.put("store_avg_order_value", formatCurrency(storeAvgOrder != null ? storeAvgOrder : 0));
-                            context.put("store_id", user.getStoreId());
-                        } else {
-                            logger.warn("Store KPI data validation failed for store: {}", user.getStoreId());
-                        }
+                }
+            }
+            case MONTHLY_REVENUE -> {
+                // === MONTHLY PERFORMANCE DATA ===
+                List<Map<String, Object>> revenueByMonth = repo.getRevenueByMonthHQ();
+                if (revenueByMonth != null && !revenueByMonth.isEmpty()) {
+                    context.put("monthly_trends", formatMonthlyTrends(revenueByMonth));
+                    context.put("monthly_revenue_raw", revenueByMonth); // Exact monthly data
+                }
+            }
+            case WEEKLY_REVENUE -> {
+                // === WEEKLY TRENDS ===
+                List<Map<String, Object>> revenueByWeek = repo.getRevenueByWeekHQ();
+                if (revenueByWeek != null && !revenueByWeek.isEmpty()) {
+                    context.put("weekly_trends", formatWeeklyTrends(revenueByWeek.subList(0, Math.min(4, revenueByWeek.size()))));
+                    context.put("weekly_revenue_raw", revenueByWeek);
+                }
+            }
+            case MONTHLY_ORDERS -> {
+                // === ORDERS DATA ===
+                List<Map<String, Object>> ordersByMonth = repo.getOrdersByMonthHQ();
+                if (ordersByMonth != null && !ordersByMonth.isEmpty()) {
+                    context.put("orders_monthly_raw", ordersByMonth);
+                    context.put("orders_trends", formatOrdersTrends(ordersByMonth.subList(0, Math.min(3, ordersByMonth.size()))));
+                }
+            }
+            case TOP_STORES -> {
+                // === STORE PERFORMANCE DATA ===
+                List<Map<String, Object>> topStores = repo.getStorePerformanceHQ();
+                if (topStores != null && !topStores.isEmpty()) {
+                    context.put("top_stores", formatTopStores(topStores.subList(0, Math.min(5, topStores.size()))));
+                    context.put("all_stores_raw", topStores); // Complete store data
+                }
+            }
+            case TOP_PRODUCTS -> {
+                // === PRODUCT PERFORMANCE DATA ===
+                List<Map<String, Object>> topProducts = repo.getTopProductsHQ(20);
+                if (topProducts != null && !topProducts.isEmpty()) {
+                    context.put("top_products", formatTopProducts(topProducts.subList(0, Math.min(5, topProducts.size()))));
+                    context.put("all_products_raw", topProducts); // Complete product data
+                }
+            }
+            case CATEGORIES -> {
+                // === CATEGORY PERFORMANCE ===
+                List<Map<String, Object>> categoryPerf = pizzaService.getCategoryPerformance(user);
+                if (categoryPerf != null && !categoryPerf.isEmpty()) {
+                    context.put("category_performance", formatCategoryPerformance(categoryPerf));
+                    context.put("categories_raw", categoryPerf); // Exact category data
+                }
+            }
+            case CUSTOMER_ACQUISITION -> {
+                // === CUSTOMER DATA ===
+                List<Map<String, Object>> customerAcq = pizzaService.getCustomerAcquisition(user);
+                if (customerAcq != null && !customerAcq.isEmpty()) {
+                    context.put("customer_acquisition", formatCustomerAcquisition(customerAcq.subList(0, Math.min(3, customerAcq.size()))));
+                    context.put("customer_acquisition_raw", customerAcq);
+                }
+            }
+            case CUSTOMER_LIFETIME_VALUE -> {
+                // === CUSTOMER LIFETIME VALUE ===
+                List<Map<String, Object>> customerLTV = pizzaService.getCustomerLifetimeValue(user, 100);
+                if (customerLTV != null && !customerLTV.isEmpty()) {
+                    context.put("customer_ltv_summary", formatCustomerLTVSummary(customerLTV.subList(0, Math.min(5, customerLTV.size()))));
+                    context.put("customer_ltv_raw", customerLTV);
+                }
+            }
+            case HOURLY -> {
+                // === HOURLY PERFORMANCE ===
+                List<Map<String, Object>> hourlyPerf = repo.getHourlyPerformanceAnalyticsHQ();
+                if (hourlyPerf != null && !hourlyPerf.isEmpty()) {
+                    context.put("hourly_performance_raw", hourlyPerf);
+                    context.put("peak_hours", formatPeakHours(hourlyPerf));
+                }
+            }
+            case CAPACITY -> {
+                // === STORE CAPACITY ANALYSIS ===
+                List<Map<String, Object>> storeCapacity = pizzaService.getStoreCapacityAnalysis(user);
+                if (storeCapacity != null && !storeCapacity.isEmpty()) {
+                    context.put("store_capacity_raw", storeCapacity);
+                    Map<String, Object> capacitySummary = pizzaService.getStoreCapacitySummary(user);
+                    context.put("capacity_summary", capacitySummary);
+                }
+            }
+            case RETENTION -> {
+                // === CUSTOMER RETENTION ===
+                List<Map<String, Object>> customerRetention = pizzaService.getCustomerRetentionAnalysis(user, 12);
+                if (customerRetention != null && !customerRetention.isEmpty()) {
+                    context.put("customer_retention_raw", customerRetention);
+                    context.put("retention_summary", formatRetentionSummary(customerRetention.subList(0, Math.min(3, customerRetention.size()))));
+                }
+            }
+            case RECENT_ORDERS -> {
+                // === RECENT ORDERS ===
+                List<Map<String, Object>> recentOrders = pizzaService.getRecentOrders(user, 50);
+                if (recentOrders != null && !recentOrders.isEmpty()) {
+                    context.put("recent_orders_raw", recentOrders);
+                    context.put("recent_orders_summary", formatRecentOrdersSummary(recentOrders.subList(0, Math.min(10, recentOrders.size()))));
+                }
+            }
+            case STATES -> {
+                // === STATE PERFORMANCE ===
+                List<Map<String, Object>> statePerformance = pizzaService.getStatePerformanceAnalytics(user);
+                if (statePerformance != null && !statePerformance.isEmpty()) {
+                    context.put("state_performance_raw", statePerformance);
+                    context.put("top_states", formatTopStates(statePerformance.subList(0, Math.min(5, statePerformance.size()))));
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void loadStateSlice(ContextSlice slice, String stateAbbr, Map<String, Object> context) {
+        switch (slice) {
+            case KPIS -> {
+                Map<String, Object> stateKpis = repo.getStateKPIs(stateAbbr);
+                if (stateKpis != null) {
+                    Double stateRevenue = extractNumericValue(stateKpis, "revenue", "total_revenue");
+                    Integer stateOrders = extractIntegerValue(stateKpis, "orders", "total_orders");
+                    Double stateAvgOrder = extractNumericValue(stateKpis, "avg_order_value", "average_order_value");
+
+                    if (stateRevenue != null && stateOrders != null) {
+                        context.put("state_revenue", formatCurrency(stateRevenue));
+                        context.put("state_orders", formatNumber(stateOrders));
+                        context.put("state_avg_order_value", formatCurrency(stateAvgOrder != null ? stateAvgOrder : 0));
+                        context.put("state", stateAbbr);
+                    } else {
+                        logger.warn("State KPI data validation failed for state: {}", stateAbbr);
                     }
-                    
-                    // Store-specific historical data
-                    List<Map<String, Object>> storeRevenueByYear = repo.getRevenueByYearStore(user.getStoreId());
-                    if (storeRevenueByYear != null && !storeRevenueByYear.isEmpty()) {
-                        context.put("store_revenue_trends", formatRevenueTrends(storeRevenueByYear));
+                }
+            }
+            case YEARLY_REVENUE -> {
+                // State-specific historical data
+                List<Map<String, Object>> stateRevenueByYear = repo.getRevenueByYearState(stateAbbr);
+                if (stateRevenueByYear != null && !stateRevenueByYear.isEmpty()) {
+                    context.put("state_revenue_trends", formatRevenueTrends(stateRevenueByYear));
+                }
+            }
+            case TOP_STORES -> {
+                // State store performance
+                List<Map<String, Object>> stateStores = repo.getStorePerformanceState(stateAbbr);
+                if (stateStores != null && !stateStores.isEmpty()) {
+                    context.put("state_top_stores", formatTopStores(stateStores.subList(0, Math.min(3, stateStores.size()))));
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private void loadStoreSlice(ContextSlice slice, String storeId, Map<String, Object> context) {
+        switch (slice) {
+            case KPIS -> {
+                Map<String, Object> storeKpis = repo.getStoreKPIs(storeId);
+                if (storeKpis != null) {
+                    Double storeRevenue = extractNumericValue(storeKpis, "revenue", "total_revenue");
+                    Integer storeOrders = extractIntegerValue(storeKpis, "orders", "total_orders");
+                    Double storeAvgOrder = extractNumericValue(storeKpis, "avg_order_value", "average_order_value");
+
+                    if (storeRevenue != null && storeOrders != null) {
+                        context.put("store_revenue", formatCurrency(storeRevenue));
+                        context.put("store_orders", formatNumber(storeOrders));
+                        context.put("store_avg_order_value", formatCurrency(storeAvgOrder != null ? storeAvgOrder : 0));
+                        context.put("store_id", storeId);
+                    } else {
+                        logger.warn("Store KPI data validation failed for store: {}", storeId);
                     }
-                    
-                    break;
+                }
             }
-            
-            // Add category-specific context
-            if ("analytics".equals(category)) {
-                context.put("data_scope", user.getRole().toLowerCase().replace("_", " "));
-                context.put("current_date", LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd")));
-                context.put("available_years", getAvailableYears());
-                
-                // Add enhanced historical context for better AI responses
-                addSimulatedHistoricalContext(context, user);
+            case YEARLY_REVENUE -> {
+                // Store-specific historical data
+                List<Map<String, Object>> storeRevenueByYear = repo.getRevenueByYearStore(storeId);
+                if (storeRevenueByYear != null && !storeRevenueByYear.isEmpty()) {
+                    context.put("store_revenue_trends", formatRevenueTrends(storeRevenueByYear));
+                }
             }
-            
-        } catch (Exception e) {
-            logger.error("Error gathering business context: {}", e.getMessage(), e);
+            default -> { }
         }
-        
-        // ─── Validate context data quality ───
-        validateBusinessContext(context, user.getRole());
-        
-        // ─── Cache store with metadata ───
-        contextCache.put(cacheKey, new CachedContext(context, user.getRole(), category));
-        logger.debug("Cache stored for key: {}", cacheKey);
-        
-        // Clean up expired cache entries periodically
-        cleanupExpiredCache();
-        
-        return context;
     }
+
+    // Helper methods for formatting comprehensive data (package-private so the JMH benchmarks can call them)
     
-    // Helper methods for formatting comprehensive data
-    
-    private String formatRevenueTrends(List<Map<String, Object>> trends) {
+    String formatRevenueTrends(List<Map<String, Object>> trends) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < Math.min(3, trends.size()); i++) {
             Map<String, Object> trend = trends.get(i);
@@ -441,7 +586,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatMonthlyTrends(List<Map<String, Object>> trends) {
+    String formatMonthlyTrends(List<Map<String, Object>> trends) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < Math.min(3, trends.size()); i++) {
             Map<String, Object> trend = trends.get(i);
@@ -455,7 +600,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatTopStores(List<Map<String, Object>> stores) {
+    String formatTopStores(List<Map<String, Object>> stores) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < stores.size(); i++) {
             Map<String, Object> store = stores.get(i);
@@ -470,7 +615,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatTopProducts(List<Map<String, Object>> products) {
+    String formatTopProducts(List<Map<String, Object>> products) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < products.size(); i++) {
             Map<String, Object> product = products.get(i);
@@ -484,7 +629,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatCategoryPerformance(List<Map<String, Object>> categories) {
+    String formatCategoryPerformance(List<Map<String, Object>> categories) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < Math.min(3, categories.size()); i++) {
             Map<String, Object> category = categories.get(i);
@@ -498,7 +643,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatCustomerAcquisition(List<Map<String, Object>> acquisition) {
+    String formatCustomerAcquisition(List<Map<String, Object>> acquisition) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < acquisition.size(); i++) {
             Map<String, Object> acq = acquisition.get(i);
@@ -515,7 +660,7 @@ public class AIService {
     
     private String getAvailableYears() {
         try {
-            List<Map<String, Object>> years = repo.getAvailableYears();
+            List<Map<String, Object>> years = pizzaService.getAvailableYears();
             if (years != null && !years.isEmpty()) {
                 return years.stream()
                     .map(year -> String.valueOf(year.get("year")))
@@ -529,7 +674,7 @@ public class AIService {
     
     // Additional formatting methods for comprehensive data
     
-    private String formatWeeklyTrends(List<Map<String, Object>> trends) {
+    String formatWeeklyTrends(List<Map<String, Object>> trends) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < trends.size(); i++) {
             Map<String, Object> trend = trends.get(i);
@@ -543,7 +688,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatOrdersTrends(List<Map<String, Object>> trends) {
+    String formatOrdersTrends(List<Map<String, Object>> trends) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < trends.size(); i++) {
             Map<String, Object> trend = trends.get(i);
@@ -557,7 +702,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatCustomerLTVSummary(List<Map<String, Object>> customers) {
+    String formatCustomerLTVSummary(List<Map<String, Object>> customers) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < customers.size(); i++) {
             Map<String, Object> customer = customers.get(i);
@@ -575,7 +720,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatPeakHours(List<Map<String, Object>> hourlyData) {
+    String formatPeakHours(List<Map<String, Object>> hourlyData) {
         // Find peak hours based on revenue
         Map<String, Object> peakHour = hourlyData.stream()
             .max((h1, h2) -> {
@@ -593,7 +738,7 @@ public class AIService {
         return "Peak hours data not available";
     }
     
-    private String formatRetentionSummary(List<Map<String, Object>> retention) {
+    String formatRetentionSummary(List<Map<String, Object>> retention) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < retention.size(); i++) {
             Map<String, Object> cohort = retention.get(i);
@@ -607,7 +752,7 @@ public class AIService {
         return sb.toString();
     }
     
-    private String formatRecentOrdersSummary(List<Map<String, Object>> orders) {
+    String formatRecentOrdersSummary(List<Map<String, Object>> orders) {
         if (orders.isEmpty()) return "No recent orders";
         
         double totalValue = orders.stream()
@@ -617,7 +762,7 @@ public class AIService {
         return String.format("Last %d orders totaling %s", orders.size(), formatCurrency(totalValue));
     }
     
-    private String formatTopStates(List<Map<String, Object>> states) {
+    String formatTopStates(List<Map<String, Object>> states) {
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < states.size(); i++) {
             Map<String, Object> state = states.get(i);
@@ -713,11 +858,11 @@ public class AIService {
     }
     
     // Helper methods for formatting
-    private String formatCurrency(double value) {
+    String formatCurrency(double value) {
         return String.format("$%,.2f", value);
     }
     
-    private String formatNumber(int value) {
+    String formatNumber(int value) {
         return String.format("%,d", value);
     }
     
@@ -725,13 +870,20 @@ public class AIService {
      * Get chat history for a session
      */
     public List<ChatMessage> getChatHistory(String sessionId) {
-        Deque<ChatMessage> deque = chatSessions.get(sessionId);
-        return deque == null ? new ArrayList<>() : new ArrayList<>(deque);
+        return new ArrayList<>(chatHistory.history(sessionId));
     }
     
+    /**
+     * generateBusinessInsights on a worker thread, for callers that must not block
+     */
+    public Mono<List<AIInsight>> generateBusinessInsightsAsync(User user) {
+        return blocking(() -> generateBusinessInsights(user));
+    }
+
     /**
      * Generate business insights based on user role and data
      */
+    @RunsOn(Workload.AI)
     public List<AIInsight> generateBusinessInsights(User user) {
         List<AIInsight> userInsights = new ArrayList<>();
         
@@ -760,41 +912,55 @@ public class AIService {
      * Analyze natural language query and return structured response
      */
     public Map<String, Object> analyzeQuery(String query, User user) {
+        return analyzeQueryAsync(query, user).block();
+    }
+
+    /**
+     * analyzeQuery without holding the calling thread; the model is asked first and the
+     * keyword-based analysis answers when it is unavailable or fails
+     */
+    public Mono<Map<String, Object>> analyzeQueryAsync(String query, User user) {
+        Mono<Map<String, Object>> aiAnalysis = Mono.empty();
+        if (gemmaAIService.isAvailable()) {
+            aiAnalysis = blocking(() -> gatherBusinessContext(user, "analytics"))
+                    .flatMap(businessContext -> gemmaAIService.generateResponseAsync(query, user, "analytics", businessContext))
+                    .filter(answer -> !answer.trim().isEmpty())
+                    .map(answer -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("type", "ai_analysis");
+                        response.put("answer", answer);
+                        response.put("powered_by", "Google Gemma AI");
+                        return response;
+                    });
+        }
+        return aiAnalysis
+                .switchIfEmpty(blocking(() -> analyzeByKeywords(query, user)))
+                .onErrorResume(e -> {
+                    logger.error("Error analyzing query: {}", e.getMessage(), e);
+                    Map<String, Object> response = new HashMap<>();
+                    response.put("error", "Unable to process your query at this time.");
+                    return Mono.just(response);
+                });
+    }
+
+    /**
+     * Fallback to simple keyword-based analysis
+     */
+    private Map<String, Object> analyzeByKeywords(String query, User user) {
         Map<String, Object> response = new HashMap<>();
+        String lowerQuery = query.toLowerCase();
         
-        try {
-            // Try Gemma AI for query analysis first
-            if (gemmaAIService.isAvailable()) {
-                Map<String, Object> businessContext = gatherBusinessContext(user, "analytics");
-                String aiAnalysis = gemmaAIService.generateResponse(query, user, "analytics", businessContext);
-                
-                if (aiAnalysis != null && !aiAnalysis.trim().isEmpty()) {
-                    response.put("type", "ai_analysis");
-                    response.put("answer", aiAnalysis);
-                    response.put("powered_by", "Google Gemma AI");
-                    return response;
-                }
-            }
-            
-            // Fallback to simple keyword-based analysis
-            String lowerQuery = query.toLowerCase();
-            
-            if (lowerQuery.contains("revenue") || lowerQuery.contains("sales")) {
-                response = analyzeRevenueQuery(query, user);
-            } else if (lowerQuery.contains("customer") || lowerQuery.contains("retention")) {
-                response = analyzeCustomerQuery(query, user);
-            } else if (lowerQuery.contains("store") || lowerQuery.contains("performance")) {
-                response = analyzeStoreQuery(query, user);
-            } else if (lowerQuery.contains("product") || lowerQuery.contains("menu")) {
-                response = analyzeProductQuery(query, user);
-            } else {
-                response.put("type", "general");
-                response.put("answer", "I can help you analyze revenue, customers, stores, and products. Try asking something like 'What's our top performing store?' or 'How is customer retention?'");
-            }
-            
-        } catch (Exception e) {
-            logger.error("Error analyzing query: {}", e.getMessage(), e);
-            response.put("error", "Unable to process your query at this time.");
+        if (lowerQuery.contains("revenue") || lowerQuery.contains("sales")) {
+            response = analyzeRevenueQuery(query, user);
+        } else if (lowerQuery.contains("customer") || lowerQuery.contains("retention")) {
+            response = analyzeCustomerQuery(query, user);
+        } else if (lowerQuery.contains("store") || lowerQuery.contains("performance")) {
+            response = analyzeStoreQuery(query, user);
+        } else if (lowerQuery.contains("product") || lowerQuery.contains("menu")) {
+            response = analyzeProductQuery(query, user);
+        } else {
+            response.put("type", "general");
+            response.put("answer", "I can help you analyze revenue, customers, stores, and products. Try asking something like 'What's our top performing store?' or 'How is customer retention?'");
         }
         
         return response;
@@ -1162,70 +1328,7 @@ public class AIService {
      * exists in the businessContext with proper validation.
      */
     private boolean isNumberConsistent(String reply, Map<String, Object> ctx) {
-        if (reply == null || reply.isBlank()) return true;
-
-        // Extract all valid numbers from context with semantic meaning
-        Set<String> validNumbers = extractValidNumbers(ctx);
-        
-        // Find all numbers in the reply
-        Pattern numberPattern = Pattern.compile("(\\$[0-9,]+(?:\\.[0-9]{2})?|[0-9]{1,3}(?:,[0-9]{3})+(?:\\.[0-9]{2})?)");
-        Matcher matcher = numberPattern.matcher(reply);
-        
-        while (matcher.find()) {
-            String foundNumber = matcher.group();
-            String normalizedNumber = normalizeNumber(foundNumber);
-            
-            // Check if this number exists in our valid set
-            if (!validNumbers.contains(normalizedNumber)) {
-                logger.warn("AI response contains unvalidated number: {} (normalized: {})", foundNumber, normalizedNumber);
-                return false;
-            }
-        }
-        
-        return true;
-    }
-    
-    /**
-     * Extract all valid numbers from business context with proper normalization
-     */
-    private Set<String> extractValidNumbers(Map<String, Object> ctx) {
-        Set<String> validNumbers = new HashSet<>();
-        
-        for (Map.Entry<String, Object> entry : ctx.entrySet()) {
-            String key = entry.getKey();
-            Object value = entry.getValue();
-            
-            if (value == null) continue;
-            
-            // Skip raw data collections to avoid false positives
-            if (key.endsWith("_raw")) continue;
-            
-            String valueStr = value.toString();
-            
-            // Extract numbers from formatted strings
-            Pattern numberPattern = Pattern.compile("(\\$[0-9,]+(?:\\.[0-9]{2})?|[0-9]{1,3}(?:,[0-9]{3})+(?:\\.[0-9]{2})?)");
-            Matcher matcher = numberPattern.matcher(valueStr);
-            
-            while (matcher.find()) {
-                String number = matcher.group();
-                String normalized = normalizeNumber(number);
-                validNumbers.add(normalized);
-                
-                // Also add common variations (with/without decimals)
-                if (normalized.endsWith(".00")) {
-                    validNumbers.add(normalized.substring(0, normalized.length() - 3));
-                }
-            }
-        }
-        
-        return validNumbers;
-    }
-    
-    /**
-     * Normalize a number string for consistent comparison
-     */
-    private String normalizeNumber(String number) {
-        return number.replace("$", "").replace(",", "");
+        return NumberGuard.of(ctx).accepts(reply);
     }
     
     /**
@@ -1288,28 +1391,6 @@ public class AIService {
         return key.toString();
     }
     
-    /**
-     * Check if the category represents critical data that should have shorter cache TTL
-     */
-    private boolean isCriticalData(String category) {
-        return "analytics".equals(category) || "revenue".equals(category);
-    }
-    
-    /**
-     * Clean up expired cache entries to prevent memory leaks
-     */
-    private void cleanupExpiredCache() {
-        // Only clean up occasionally to avoid performance impact
-        if (contextCache.size() > 50 && Math.random() < 0.1) { // 10% chance when cache is large
-            contextCache.entrySet().removeIf(entry -> {
-                CachedContext cached = entry.getValue();
-                long ttl = isCriticalData(cached.category) ? CRITICAL_DATA_CACHE_TTL_MS : CONTEXT_CACHE_TTL_MS;
-                return cached.isExpired(ttl);
-            });
-            logger.debug("Cleaned up expired cache entries. Current size: {}", contextCache.size());
-        }
-    }
-    
     /**
      * Validate business context data for quality and consistency
      */
@@ -0,0 +1,72 @@
+package pizzaworld.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import pizzaworld.config.CoalescingCache;
+import pizzaworld.config.PizzaConfig;
+
+/**
+ * Exposes hit/miss/eviction counters of the Caffeine backed cache regions. hitRate is the
+ * per-region percentage of lookups served from the cache since startup.
+ */
+@Service
+public class CacheStatsService {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    public List<Map<String, Object>> getCacheStats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames().stream().sorted().toList()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?>) {
+                result.add(toStatsRow(name, cache));
+            }
+        }
+        return result;
+    }
+
+    private Map<String, Object> toStatsRow(String name, Cache cache) {
+        com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache.getNativeCache();
+        CacheStats stats = nativeCache.stats();
+        PizzaConfig.CacheRegion region = PizzaConfig.CACHE_REGIONS.get(name);
+
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("region", name);
+        row.put("size", nativeCache.estimatedSize());
+        row.put("maximumSize", region != null ? region.maximumSize() : null);
+        row.put("ttlSeconds", region != null ? region.ttl().toSeconds() : null);
+        row.put("requests", stats.requestCount());
+        row.put("hits", stats.hitCount());
+        row.put("misses", stats.missCount());
+        row.put("hitRate", Math.round(stats.hitRate() * 10000) / 100.0);
+        row.put("evictions", stats.evictionCount());
+        if (cache instanceof CoalescingCache coalescing) {
+            // Loads run in the region, not in Caffeine, which therefore records no load time
+            row.put("averageLoadMillis", Math.round(coalescing.averageLoadMillis() * 100) / 100.0);
+            row.put("loads", coalescing.loadCount());
+            row.put("coalescedCalls", coalescing.coalescedCount());
+            row.put("coalesceTimeouts", coalescing.timeoutCount());
+            row.put("inFlight", coalescing.inFlightCount());
+            if (coalescing.refreshAfter() != null) {
+                row.put("refreshAfterSeconds", coalescing.refreshAfter().toSeconds());
+                row.put("staleHits", coalescing.staleHitCount());
+                row.put("refreshFailures", coalescing.refreshFailureCount());
+                row.put("refreshesRejected", coalescing.refreshRejectedCount());
+            }
+        } else {
+            row.put("averageLoadMillis", Math.round(stats.averageLoadPenalty() / 1_000_000.0 * 100) / 100.0);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,149 @@
+package pizzaworld.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import pizzaworld.model.User;
+import pizzaworld.repository.OptimizedPizzaRepo;
+
+/**
+ * Fills the hot dashboard regions once the application is up, so the first page load of
+ * each manager after a deploy is served from the cache.
+ *
+ * The scopes are HQ, every state and every store from the stores table. Each scope loads
+ * its dashboard KPIs, global store KPIs, all-time store revenue chart, monthly trends and
+ * hourly analytics through the cached service methods, on a small pool that is shut down
+ * afterwards so warm-up never competes with user requests for more than a few connections.
+ * isReady() turns true once every scope has been tried; failed scopes are logged and left
+ * to load on first use.
+ */
+@Service
+public class CacheWarmupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    public enum State { PENDING, RUNNING, DONE, DISABLED }
+
+    @Autowired
+    private OptimizedPizzaService pizzaService;
+
+    @Autowired
+    private OptimizedPizzaRepo repo;
+
+    @Value("${pizzaworld.cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pizzaworld.cache.warmup.threads:2}")
+    private int threads;
+
+    private volatile State state = State.PENDING;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private final AtomicInteger scopes = new AtomicInteger();
+    private final AtomicInteger warmed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            state = State.DISABLED;
+            return;
+        }
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new CustomizableThreadFactory("cache-warmup-"));
+        CompletableFuture.supplyAsync(this::scopes, pool)
+                .thenCompose(users -> {
+                    scopes.set(users.size());
+                    return CompletableFuture.allOf(users.stream()
+                            .map(user -> CompletableFuture.runAsync(() -> warm(user), pool))
+                            .toArray(CompletableFuture[]::new));
+                })
+                .whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        logger.warn("Cache warm-up could not list the store scopes: {}", error.getMessage());
+                    }
+                    finishedAt = Instant.now();
+                    state = State.DONE;
+                    pool.shutdown();
+                    logger.info("Cache warm-up finished in {} ms: {} of {} scopes warmed, {} failed",
+                            Duration.between(startedAt, finishedAt).toMillis(), warmed.get(), scopes.get(), failed.get());
+                });
+    }
+
+    /** HQ, one state manager per state and one store manager per store. */
+    private List<User> scopes() {
+        List<Map<String, Object>> stores = repo.getStores(null, null);
+        List<User> users = new ArrayList<>();
+        users.add(new User(null, "warmup", "", "HQ_ADMIN", null, null));
+        TreeSet<String> states = new TreeSet<>();
+        for (Map<String, Object> store : stores) {
+            Object stateAbbr = store.get("state_abbr");
+            if (stateAbbr != null) {
+                states.add(stateAbbr.toString());
+            }
+        }
+        for (String stateAbbr : states) {
+            users.add(new User(null, "warmup", "", "STATE_MANAGER", null, stateAbbr));
+        }
+        for (Map<String, Object> store : stores) {
+            Object stateAbbr = store.get("state_abbr");
+            users.add(new User(null, "warmup", "", "STORE_MANAGER", String.valueOf(store.get("storeid")),
+                    stateAbbr != null ? stateAbbr.toString() : null));
+        }
+        return users;
+    }
+
+    private void warm(User user) {
+        try {
+            pizzaService.getDashboardKPIs(user);
+            pizzaService.getGlobalStoreKPIs(user);
+            pizzaService.getStoreRevenueByTimePeriod(user, "all-time", null, null, null);
+            pizzaService.getStoreRevenueChart(user, "all-time", null, null);
+            pizzaService.getMonthlyRevenueTrends(user);
+            pizzaService.getHourlyPerformanceAnalytics(user);
+            warmed.incrementAndGet();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.warn("Cache warm-up of {} {}{} failed: {}", user.getRole(),
+                    user.getStateAbbr() != null ? user.getStateAbbr() : "",
+                    user.getStoreId() != null ? "/" + user.getStoreId() : "", e.getMessage());
+        }
+    }
+
+    /** True once warm-up has finished (or is disabled); the caches are then as warm as they get. */
+    public boolean isReady() {
+        return state == State.DONE || state == State.DISABLED;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("state", state.name());
+        status.put("scopes", scopes.get());
+        status.put("warmed", warmed.get());
+        status.put("failed", failed.get());
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            status.put("elapsedMillis", Duration.between(startedAt, end).toMillis());
+        }
+        return status;
+    }
+}
@@ -0,0 +1,201 @@
+package pizzaworld.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import jakarta.annotation.PreDestroy;
+import pizzaworld.model.ChatMessage;
+
+/**
+ * Chat history of the AI assistant: the last maxMessages messages of every session.
+ *
+ * Sessions are held in a Caffeine cache weighed by an estimate of their size in memory.
+ * Past maxMemory the sessions used least are evicted; a session without a message or read
+ * for idleTimeout expires. An append replaces the session's immutable message list under
+ * the cache's lock for that session, so concurrent requests of one session never lose a
+ * message and readers never see a list being changed.
+ *
+ * With storeDir set the history outlives eviction and restarts: changed sessions are written
+ * behind, one JSON file each, every flush interval, an evicted session right away, and a
+ * session missing from memory is read back from its file. Files untouched for longer than
+ * the retention are deleted.
+ */
+@Service
+public class ChatHistoryStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryStore.class);
+
+    // Rough size of a message besides its text: object headers, ids, timestamp, role
+    private static final int MESSAGE_OVERHEAD_BYTES = 256;
+
+    private static final TypeReference<List<ChatMessage>> MESSAGES = new TypeReference<>() {};
+
+    private final int maxMessages;
+    private final Path storeDir;
+    private final Duration retention;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, List<ChatMessage>> sessions;
+
+    // Sessions appended to since their file was last written
+    private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ChatHistoryStore(@Value("${pizzaworld.chat.max-messages:20}") int maxMessages,
+                            @Value("${pizzaworld.chat.max-memory:16MB}") DataSize maxMemory,
+                            @Value("${pizzaworld.chat.idle-timeout:PT2H}") Duration idleTimeout,
+                            @Value("${pizzaworld.chat.store-dir:}") String storeDir,
+                            @Value("${pizzaworld.chat.retention:P7D}") Duration retention,
+                            ObjectMapper objectMapper) {
+        this.maxMessages = maxMessages;
+        this.storeDir = storeDir == null || storeDir.isBlank() ? null : Path.of(storeDir);
+        this.retention = retention;
+        this.objectMapper = objectMapper.copy().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.sessions = Caffeine.newBuilder()
+                .maximumWeight(maxMemory.toBytes())
+                .weigher((String sessionId, List<ChatMessage> messages) -> weigh(messages))
+                .expireAfterAccess(idleTimeout)
+                // Evict on the writing thread, so the cap holds as soon as an append returns
+                .executor(Runnable::run)
+                .evictionListener((String sessionId, List<ChatMessage> messages, RemovalCause cause) -> {
+                    if (sessionId != null && messages != null && this.storeDir != null) {
+                        dirty.remove(sessionId);
+                        write(sessionId, messages);
+                    }
+                })
+                .build();
+        if (this.storeDir != null) {
+            logger.info("Chat history is written behind to {}", this.storeDir.toAbsolutePath());
+        }
+    }
+
+    /** Messages of the session, oldest first; empty for an unknown session */
+    public List<ChatMessage> history(String sessionId) {
+        List<ChatMessage> messages = sessions.get(sessionId, this::restore);
+        return messages != null ? messages : List.of();
+    }
+
+    /** Adds the messages to the session, dropping its oldest ones beyond maxMessages */
+    public void append(String sessionId, ChatMessage... messages) {
+        sessions.asMap().compute(sessionId, (id, current) -> {
+            List<ChatMessage> history = new ArrayList<>(current != null ? current : restoreOrEmpty(id));
+            history.addAll(Arrays.asList(messages));
+            return List.copyOf(history.subList(Math.max(0, history.size() - maxMessages), history.size()));
+        });
+        if (storeDir != null) {
+            dirty.add(sessionId);
+        }
+    }
+
+    /** Writes the sessions changed since the last flush */
+    @Scheduled(initialDelayString = "${pizzaworld.chat.flush-interval:PT10S}",
+               fixedDelayString = "${pizzaworld.chat.flush-interval:PT10S}")
+    @PreDestroy
+    public void flush() {
+        for (String sessionId : List.copyOf(dirty)) {
+            // Removed first: an append from now on marks the session again
+            if (dirty.remove(sessionId)) {
+                List<ChatMessage> messages = sessions.asMap().get(sessionId);
+                if (messages != null) {
+                    write(sessionId, messages);
+                }
+            }
+        }
+    }
+
+    /** Deletes the files of sessions idle for longer than the retention */
+    @Scheduled(initialDelayString = "PT1H", fixedDelayString = "PT1H")
+    public void purge() {
+        if (storeDir == null || !Files.isDirectory(storeDir)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(retention);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(storeDir, "*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Purging chat history in {} failed: {}", storeDir, e.getMessage());
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} chat sessions idle for more than {}", deleted, retention);
+        }
+    }
+
+    private static int weigh(List<ChatMessage> messages) {
+        long bytes = 0;
+        for (ChatMessage message : messages) {
+            bytes += MESSAGE_OVERHEAD_BYTES + 2L * (message.getMessage() != null ? message.getMessage().length() : 0);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private List<ChatMessage> restoreOrEmpty(String sessionId) {
+        List<ChatMessage> messages = restore(sessionId);
+        return messages != null ? messages : List.of();
+    }
+
+    private List<ChatMessage> restore(String sessionId) {
+        if (storeDir == null) {
+            return null;
+        }
+        Path file = fileOf(sessionId);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return List.copyOf(objectMapper.readValue(file.toFile(), MESSAGES));
+        } catch (IOException e) {
+            logger.warn("Reading chat session from {} failed: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void write(String sessionId, List<ChatMessage> messages) {
+        Path file = fileOf(sessionId);
+        try {
+            Files.createDirectories(storeDir);
+            // Replaced in one step, so a crash never leaves half a file behind
+            Path temp = Files.createTempFile(storeDir, "session", ".tmp");
+            objectMapper.writeValue(temp.toFile(), messages);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Writing chat session to {} failed: {}", file, e.getMessage());
+        }
+    }
+
+    // Session ids come from the client: never part of a path as they are
+    private Path fileOf(String sessionId) {
+        return storeDir.resolve(UUID.nameUUIDFromBytes(sessionId.getBytes(StandardCharsets.UTF_8)) + ".json");
+    }
+}
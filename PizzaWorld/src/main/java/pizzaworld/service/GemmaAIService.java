@@ -1,6 +1,11 @@
 package pizzaworld.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
@@ -10,13 +15,21 @@ import org.slf4j.LoggerFactory;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
 import pizzaworld.model.User;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 
 @Service
 public class GemmaAIService {
@@ -29,38 +42,80 @@ public class GemmaAIService {
     @Value("${google.ai.model:gemini-1.5-flash}")
     private String model;
     
-    private static final String GOOGLE_AI_URL = "https://generativelanguage.googleapis.com/v1beta/models/";
+    // Overridable so a local stub server can stand in for the API, e.g. to measure time-to-first-token
+    @Value("${google.ai.base-url:https://generativelanguage.googleapis.com/v1beta/models/}")
+    private String baseUrl;
     
+    private static final Duration STREAM_CHUNK_TIMEOUT = Duration.ofSeconds(30);
+    
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+    
+    private final ConnectionProvider connectionProvider;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final int maxInFlight;
+    
+    // Model calls waiting for or reading a response; further calls are rejected
+    private final Semaphore inFlight;
+    private final LongAdder rejected = new LongAdder();
     
     public GemmaAIService() {
+        this(8);
+    }
+    
+    /**
+     * At most maxInFlight model calls run at once, each on its own kept-alive connection
+     * of a pool of the same size. A call beyond the limit is rejected at once, so the caller
+     * falls back to the rule-based answer instead of queueing behind a slow model.
+     */
+    @Autowired
+    public GemmaAIService(@Value("${pizzaworld.ai.max-in-flight:8}") int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.connectionProvider = ConnectionProvider.builder("google-ai")
+            .maxConnections(maxInFlight)
+            .pendingAcquireTimeout(Duration.ofSeconds(5))
+            .maxIdleTime(Duration.ofSeconds(30))
+            .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5_000);
         this.webClient = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
             .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(1024 * 1024)) // 1MB
             .build();
         this.objectMapper = new ObjectMapper();
     }
     
+    @PreDestroy
+    public void close() {
+        connectionProvider.dispose();
+    }
+    
     /**
      * Generate AI response using Google Gemma/Gemini
      */
     public String generateResponse(String userMessage, User user, String category, Map<String, Object> businessContext) {
+        return generateResponseAsync(userMessage, user, category, businessContext).block();
+    }
+    
+    /**
+     * Generate AI response without blocking: completes on the HTTP client's thread once the
+     * model has answered. Empty when no key is configured or the call fails, which triggers
+     * the fallback to rule-based responses.
+     */
+    public Mono<String> generateResponseAsync(String userMessage, User user, String category, Map<String, Object> businessContext) {
         if (apiKey == null || apiKey.trim().isEmpty()) {
             logger.warn("Google AI API key not configured, using fallback");
-            return null; // Will trigger fallback to rule-based responses
-        }
-        
-        try {
-            String prompt = buildBusinessPrompt(userMessage, user, category, businessContext);
-            String response = callGoogleAI(prompt);
-            
-            // Clean up the response
-            return cleanupResponse(response);
-            
-        } catch (Exception e) {
-            logger.error("Error calling Google AI: {} (key hidden)", e.getMessage(), e);
-            return null; // Will trigger fallback
+            return Mono.empty();
         }
+    
+        String prompt = buildBusinessPrompt(userMessage, user, category, businessContext);
+        return callGoogleAI(prompt)
+            .mapNotNull(this::cleanupResponse)
+            .onErrorResume(e -> {
+                logger.error("Error calling Google AI: {} (key hidden)", e.getMessage());
+                return Mono.empty();
+            });
     }
     
     /**
@@ -137,51 +192,117 @@ public class GemmaAIService {
     /**
      * Call Google AI API
      */
-    private String callGoogleAI(String prompt) {
+    private Mono<String> callGoogleAI(String prompt) {
+        String url = baseUrl + model + ":generateContent?key=" + apiKey;
+    
+        return webClient.post()
+            .uri(url)
+            .header("Content-Type", "application/json")
+            .bodyValue(buildRequestBody(prompt))
+            .retrieve()
+            .bodyToMono(String.class)
+            .timeout(RESPONSE_TIMEOUT)
+            .map(this::extractTextFromResponse)
+            .transform(this::limit)
+            .doOnError(WebClientResponseException.class, e -> logger.error(
+                "Google AI API error: status={} body={} (key hidden)", e.getStatusCode(), e.getResponseBodyAsString()));
+    }
+    
+    /**
+     * Runs the call only if a slot is free; the slot is held until the call completes,
+     * fails or is cancelled
+     */
+    <T> Mono<T> limit(Mono<T> call) {
+        return Mono.defer(() -> acquire() ? call.doFinally(signal -> inFlight.release()) : Mono.error(tooManyCalls()));
+    }
+    
+    <T> Flux<T> limit(Flux<T> call) {
+        return Flux.defer(() -> acquire() ? call.doFinally(signal -> inFlight.release()) : Flux.error(tooManyCalls()));
+    }
+    
+    private boolean acquire() {
+        if (inFlight.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+    
+    private IllegalStateException tooManyCalls() {
+        return new IllegalStateException("More than " + maxInFlight + " Google AI calls in flight");
+    }
+    
+    /**
+     * Stream the answer as the model writes it: one text delta per streamGenerateContent chunk
+     * (server-sent events). Empty when no API key is configured; errors are passed on so the
+     * caller can fall back. The delta is raw model text: no prefix stripping or number checks.
+     */
+    public Flux<String> streamResponse(String userMessage, User user, String category, Map<String, Object> businessContext) {
+        if (!isAvailable()) {
+            return Flux.empty();
+        }
+        String prompt = buildBusinessPrompt(userMessage, user, category, businessContext);
+        String url = baseUrl + model + ":streamGenerateContent?alt=sse&key=" + apiKey;
+        return webClient.post()
+            .uri(url)
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(buildRequestBody(prompt))
+            .retrieve()
+            .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+            // Between two chunks, not for the whole answer
+            .timeout(STREAM_CHUNK_TIMEOUT)
+            .map(event -> event.data() != null ? extractDelta(event.data()) : "")
+            .filter(delta -> !delta.isEmpty())
+            .transform(this::limit)
+            .doOnError(WebClientResponseException.class, e -> logger.error(
+                "Google AI streaming error: status={} body={} (key hidden)", e.getStatusCode(), e.getResponseBodyAsString()));
+    }
+    
+    /**
+     * Request body shared by the blocking and the streaming call
+     */
+    private Map<String, Object> buildRequestBody(String prompt) {
+        Map<String, Object> requestBody = new HashMap<>();
+        
+        // Contents array
+        Map<String, Object> content = new HashMap<>();
+        Map<String, Object> part = new HashMap<>();
+        part.put("text", prompt);
+        content.put("parts", List.of(part));
+        requestBody.put("contents", List.of(content));
+        
+        // Generation config
+        Map<String, Object> generationConfig = new HashMap<>();
+        generationConfig.put("temperature", 0.7);
+        generationConfig.put("topK", 40);
+        generationConfig.put("topP", 0.95);
+        generationConfig.put("maxOutputTokens", 500);
+        requestBody.put("generationConfig", generationConfig);
+        
+        // Safety settings (optional)
+        Map<String, Object> safetySettings = new HashMap<>();
+        safetySettings.put("category", "HARM_CATEGORY_HARASSMENT");
+        safetySettings.put("threshold", "BLOCK_MEDIUM_AND_ABOVE");
+        requestBody.put("safetySettings", List.of(safetySettings));
+        
+        return requestBody;
+    }
+    
+    /**
+     * Text of one streamed chunk; chunks without text (e.g. the final usage metadata) yield ""
+     */
+    private String extractDelta(String chunk) {
         try {
-            // Build request body for Google AI
-            Map<String, Object> requestBody = new HashMap<>();
-            
-            // Contents array
-            Map<String, Object> content = new HashMap<>();
-            Map<String, Object> part = new HashMap<>();
-            part.put("text", prompt);
-            content.put("parts", List.of(part));
-            requestBody.put("contents", List.of(content));
-            
-            // Generation config
-            Map<String, Object> generationConfig = new HashMap<>();
-            generationConfig.put("temperature", 0.7);
-            generationConfig.put("topK", 40);
-            generationConfig.put("topP", 0.95);
-            generationConfig.put("maxOutputTokens", 500);
-            requestBody.put("generationConfig", generationConfig);
-            
-            // Safety settings (optional)
-            Map<String, Object> safetySettings = new HashMap<>();
-            safetySettings.put("category", "HARM_CATEGORY_HARASSMENT");
-            safetySettings.put("threshold", "BLOCK_MEDIUM_AND_ABOVE");
-            requestBody.put("safetySettings", List.of(safetySettings));
-            
-            String url = GOOGLE_AI_URL + model + ":generateContent?key=" + apiKey;
-            
-            String response = webClient.post()
-                .uri(url)
-                .header("Content-Type", "application/json")
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(String.class)
-                .timeout(Duration.ofSeconds(30))
-                .block();
-            
-            return extractTextFromResponse(response);
-            
-        } catch (WebClientResponseException e) {
-            logger.error("Google AI API error: status={} body={} (key hidden)", e.getStatusCode(), e.getResponseBodyAsString());
-            throw new RuntimeException("Google AI API call failed: " + e.getMessage());
+            JsonNode parts = objectMapper.readTree(chunk).path("candidates").path(0).path("content").path("parts");
+            StringBuilder text = new StringBuilder();
+            for (JsonNode part : parts) {
+                text.append(part.path("text").asText(""));
+            }
+            return text.toString();
         } catch (Exception e) {
-            logger.error("Error calling Google AI: {} (key hidden)", e.getMessage(), e);
-            throw new RuntimeException("Failed to call Google AI: " + e.getMessage());
+            logger.warn("Skipping unreadable Google AI stream chunk: {}", e.getMessage());
+            return "";
         }
     }
     
@@ -286,6 +407,9 @@ public class GemmaAIService {
         Map<String, Object> info = new HashMap<>();
         info.put("apiKeyConfigured", isAvailable());
         info.put("model", model);
+        info.put("maxInFlight", maxInFlight);
+        info.put("inFlight", maxInFlight - inFlight.availablePermits());
+        info.put("rejected", rejected.sum());
         // Intentionally omit endpoint or any key details to avoid leaking sensitive data
         return info;
     }
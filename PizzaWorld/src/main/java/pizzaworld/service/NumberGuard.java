@@ -0,0 +1,169 @@
+package pizzaworld.service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Number-consistency guard for AI answers: every monetary value and large number in an
+ * answer has to appear in the business context the answer was generated from.
+ *
+ * accepts() checks a finished answer. A Stream checks an answer while it is being written
+ * and only releases text up to the last whitespace, so a number split across two model
+ * chunks is checked once it is complete and nothing unchecked ever reaches the user.
+ */
+class NumberGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(NumberGuard.class);
+
+    private static final Pattern NUMBER = Pattern.compile("(\\$[0-9,]+(?:\\.[0-9]{2})?|[0-9]{1,3}(?:,[0-9]{3})+(?:\\.[0-9]{2})?)");
+
+    private final Set<String> validNumbers;
+
+    private NumberGuard(Set<String> validNumbers) {
+        this.validNumbers = validNumbers;
+    }
+
+    /**
+     * Guard accepting the numbers found in the formatted context values. Raw data
+     * collections (keys ending in _raw) are skipped to avoid false positives.
+     */
+    static NumberGuard of(Map<String, Object> ctx) {
+        Set<String> validNumbers = new HashSet<>();
+        for (Map.Entry<String, Object> entry : ctx.entrySet()) {
+            if (entry.getValue() == null || entry.getKey().endsWith("_raw")) {
+                continue;
+            }
+            Matcher matcher = NUMBER.matcher(entry.getValue().toString());
+            while (matcher.find()) {
+                String normalized = normalize(matcher.group());
+                validNumbers.add(normalized);
+                // Also accept the value without its decimals
+                if (normalized.endsWith(".00")) {
+                    validNumbers.add(normalized.substring(0, normalized.length() - 3));
+                }
+            }
+        }
+        return new NumberGuard(validNumbers);
+    }
+
+    boolean accepts(String text) {
+        if (text == null || text.isBlank()) {
+            return true;
+        }
+        Matcher matcher = NUMBER.matcher(text);
+        while (matcher.find()) {
+            String found = matcher.group();
+            if (!validNumbers.contains(normalize(found))) {
+                logger.warn("AI response contains unvalidated number: {} (normalized: {})", found, normalize(found));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    Stream stream(int maxLength) {
+        return new Stream(maxLength);
+    }
+
+    private static String normalize(String number) {
+        return number.replace("$", "").replace(",", "");
+    }
+
+    /**
+     * Checks one streamed answer chunk by chunk. Not thread-safe; a reactive stream delivers
+     * its chunks one at a time.
+     */
+    class Stream {
+
+        private static final String[] PREFIXES = {"YOUR RESPONSE:", "RESPONSE:"};
+
+        private final int maxLength;
+        private final StringBuilder pending = new StringBuilder();
+        private final StringBuilder released = new StringBuilder();
+        private boolean rejected;
+        private boolean truncated;
+
+        private Stream(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        /**
+         * Adds a model chunk and returns the text that is now safe to show, possibly "".
+         * Returns "" for good once the answer is rejected or has reached maxLength.
+         */
+        String offer(String chunk) {
+            if (isClosed()) {
+                return "";
+            }
+            pending.append(chunk);
+            // Held back until a prefix like "RESPONSE:" can be recognised
+            if (released.isEmpty() && pending.length() < 16) {
+                return "";
+            }
+            int end = lastWhitespace(pending) + 1;
+            return end > 0 ? release(end) : "";
+        }
+
+        /** Releases what is still pending once the model has finished. */
+        String finish() {
+            return isClosed() || pending.isEmpty() ? "" : release(pending.length());
+        }
+
+        boolean isRejected() {
+            return rejected;
+        }
+
+        /** True once the answer is rejected or complete; the model can stop writing. */
+        boolean isClosed() {
+            return rejected || truncated;
+        }
+
+        /** Everything released so far, i.e. what the user has seen. */
+        String releasedText() {
+            return released.toString();
+        }
+
+        private String release(int end) {
+            String text = pending.substring(0, end);
+            pending.delete(0, end);
+            if (released.isEmpty()) {
+                text = stripPrefix(text);
+            }
+            if (!accepts(text)) {
+                rejected = true;
+                return "";
+            }
+            if (released.length() + text.length() > maxLength) {
+                text = text.substring(0, Math.max(0, maxLength - released.length())) + "...";
+                truncated = true;
+            }
+            released.append(text);
+            return text;
+        }
+
+        private String stripPrefix(String text) {
+            String result = text.stripLeading();
+            for (String prefix : PREFIXES) {
+                if (result.startsWith(prefix)) {
+                    return result.substring(prefix.length()).stripLeading();
+                }
+            }
+            return result;
+        }
+
+        private int lastWhitespace(CharSequence text) {
+            for (int i = text.length() - 1; i >= 0; i--) {
+                if (Character.isWhitespace(text.charAt(i))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -1,25 +1,44 @@
 package pizzaworld.service;
 
+import java.io.Writer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.security.core.Authentication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
 import pizzaworld.model.User;
+import pizzaworld.repository.AnalyticsRowRepo;
 import pizzaworld.repository.OptimizedPizzaRepo;
 import pizzaworld.dto.DashboardKpiDto;
+import pizzaworld.dto.HourlyPerformanceRow;
 import pizzaworld.dto.KpisGlobalStoreDto;
+import pizzaworld.dto.StoreMonthlyRevenueRow;
+import pizzaworld.dto.StorePerformanceRow;
+import pizzaworld.dto.StoreRevenueChartRow;
+import pizzaworld.util.CsvExportUtil;
+import pizzaworld.util.OrderCursor;
+import pizzaworld.util.PeriodRange;
+import pizzaworld.util.ScopedQuery;
 
 @Service
 public class OptimizedPizzaService {
@@ -27,16 +46,28 @@ public class OptimizedPizzaService {
     @Autowired
     private OptimizedPizzaRepo repo;
 
+    @Autowired
+    private AnalyticsRowRepo rowRepo;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ParallelQueryExecutor parallelQueryExecutor;
+
+    @Autowired
+    private RevenueCubeService revenueCube;
+
+    // Deadline for all slices of a composite payload
+    private static final Duration COMPOSITE_TIMEOUT = Duration.ofSeconds(15);
+
     private static final Logger logger = LoggerFactory.getLogger(OptimizedPizzaService.class);
 
     // =================================================================
     // DASHBOARD KPIs - Role-based using Materialized Views
     // =================================================================
 
-    @Cacheable(value = "dashboardKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "dashboardKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public DashboardKpiDto getDashboardKPIs(User user) {
         Map<String, Object> kpis = switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getHQKPIs();
@@ -106,7 +137,7 @@ public class OptimizedPizzaService {
     // RECENT ORDERS - Role-based using Materialized Views
     // =================================================================
 
-    @Cacheable(value = "recentOrders", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit")
+    @Cacheable(value = "recentOrders", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit", sync = true)
     public List<Map<String, Object>> getRecentOrders(User user, int limit) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getRecentOrdersHQ(limit);
@@ -287,31 +318,28 @@ public class OptimizedPizzaService {
     // ADDITIONAL ANALYTICS - Enhanced Dashboard Data
     // =================================================================
 
-    @Cacheable(value = "revenueByStore", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
-    public List<Map<String, Object>> getRevenueByStore(User user) {
+    @Cacheable(value = "revenueByStore", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
+    public List<StorePerformanceRow> getRevenueByStore(User user) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getStorePerformanceHQ();
-            case "STATE_MANAGER" -> repo.getStorePerformanceState(user.getStateAbbr());
-            case "STORE_MANAGER" -> {
-                // For store manager, return just their store's performance
-                List<Map<String, Object>> result = repo.getStorePerformance(user.getStoreId());
-                yield result;
-            }
+            case "HQ_ADMIN" -> rowRepo.getStorePerformanceHQ();
+            case "STATE_MANAGER" -> rowRepo.getStorePerformanceState(user.getStateAbbr());
+            // For store manager, return just their store's performance
+            case "STORE_MANAGER" -> rowRepo.getStorePerformance(user.getStoreId());
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
-    @Cacheable(value = "storePerformance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
-    public List<Map<String, Object>> getStorePerformance(User user) {
+    @Cacheable(value = "storePerformance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
+    public List<StorePerformanceRow> getStorePerformance(User user) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getStorePerformanceHQ();
-            case "STATE_MANAGER" -> repo.getStorePerformanceState(user.getStateAbbr());
-            case "STORE_MANAGER" -> repo.getStorePerformance(user.getStoreId());
+            case "HQ_ADMIN" -> rowRepo.getStorePerformanceHQ();
+            case "STATE_MANAGER" -> rowRepo.getStorePerformanceState(user.getStateAbbr());
+            case "STORE_MANAGER" -> rowRepo.getStorePerformance(user.getStoreId());
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
-    @Cacheable(value = "customerAcquisition", key = "#user.role + '_' + #user.stateAbbr")
+    @Cacheable(value = "customerAcquisition", key = "#user.role + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getCustomerAcquisition(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCustomerAcquisitionHQ();
@@ -325,8 +353,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "categoryPerformance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "categoryPerformance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getCategoryPerformance(User user) {
+        Optional<List<Map<String, Object>>> fromCube = revenueCube.categoryPerformance(user);
+        if (fromCube.isPresent()) {
+            return fromCube.get();
+        }
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCategoryPerformanceHQ();
             case "STATE_MANAGER" -> repo.getCategoryPerformanceState(user.getStateAbbr());
@@ -344,7 +376,7 @@ public class OptimizedPizzaService {
         return getTopProducts(user, null, 20);
     }
 
-    public List<Map<String, Object>> getStoresByRevenue(User user, String from, String to) {
+    public List<StorePerformanceRow> getStoresByRevenue(User user, String from, String to) {
         // Return store performance data (already includes revenue ranking)
         return getStorePerformance(user);
     }
@@ -369,21 +401,31 @@ public class OptimizedPizzaService {
     // CONSOLIDATED DASHBOARD PAYLOAD
     // =================================================================
     public pizzaworld.dto.ConsolidatedDto getConsolidatedPayload(User user) {
-        // Fetch required slices via existing role-aware helpers
-        pizzaworld.dto.DashboardKpiDto global = getDashboardKPIs(user);
-        List<Map<String, Object>> revMonth = getRevenueByMonth(user);
-        List<Map<String, Object>> ordMonth = getOrdersByMonth(user);
-        List<Map<String, Object>> revStore = getRevenueByStore(user);
-        List<Map<String, Object>> topProds = getTopProducts(user, null, 10);
-
-        return new pizzaworld.dto.ConsolidatedDto(global, revMonth, ordMonth, revStore, topProds);
+        // Fetch required slices in parallel via existing role-aware helpers
+        ParallelQueryExecutor.FanOut fanOut = parallelQueryExecutor.fanOut(COMPOSITE_TIMEOUT)
+                .fork("globalKPIs", () -> getDashboardKPIs(user))
+                .fork("revenueByMonth", () -> getRevenueByMonth(user))
+                .fork("ordersByMonth", () -> getOrdersByMonth(user))
+                .fork("revenueByStore", () -> getRevenueByStore(user))
+                .fork("topProducts", () -> getTopProducts(user, null, 10));
+
+        pizzaworld.dto.DashboardKpiDto global = fanOut.join("globalKPIs", null);
+        List<Map<String, Object>> revMonth = fanOut.join("revenueByMonth", List.of());
+        List<Map<String, Object>> ordMonth = fanOut.join("ordersByMonth", List.of());
+        List<StorePerformanceRow> revStore = fanOut.join("revenueByStore", List.of());
+        List<Map<String, Object>> topProds = fanOut.join("topProducts", List.of());
+
+        pizzaworld.dto.ConsolidatedDto payload = new pizzaworld.dto.ConsolidatedDto(global, revMonth, ordMonth, revStore, topProds);
+        payload.partial = fanOut.isPartial();
+        payload.slices = fanOut.timings();
+        return payload;
     }
 
     // =================================================================
     // GLOBAL STORE KPIs - Role-based access to kpis_global_store
     // =================================================================
 
-    @Cacheable(value = "globalStoreKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "globalStoreKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getGlobalStoreKPIs(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getAllStoreKPIs();
@@ -400,7 +442,7 @@ public class OptimizedPizzaService {
     // STORE REVENUE BY TIME PERIODS - Dynamic Chart API
     // =================================================================
 
-    @Cacheable(value = "storeRevenueChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month + '_' + #quarter")
+    @Cacheable(value = "storeRevenueChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month + '_' + #quarter", sync = true)
     public List<Map<String, Object>> getStoreRevenueByTimePeriod(User user, String timePeriod, Integer year, Integer month, Integer quarter) {
         
         return switch (timePeriod.toLowerCase()) {
@@ -472,7 +514,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeRevenueCustomRange", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #startDate + '_' + #endDate")
+    @Cacheable(value = "storeRevenueCustomRange", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #startDate + '_' + #endDate", sync = true)
     public List<Map<String, Object>> getStoreRevenueByDateRange(User user, String startDate, String endDate) {
         if (startDate == null || endDate == null) {
             throw new IllegalArgumentException("Start date and end date are required for custom date range");
@@ -490,17 +532,17 @@ public class OptimizedPizzaService {
     }
 
     // Utility methods for time period options
-    @Cacheable(value = "availableYears", key = "'years'")
+    @Cacheable(value = "availableYears", key = "'years'", sync = true)
     public List<Map<String, Object>> getAvailableYears() {
         return repo.getAvailableYears();
     }
 
-    @Cacheable(value = "availableMonths", key = "#year")
+    @Cacheable(value = "availableMonths", key = "#year", sync = true)
     public List<Map<String, Object>> getAvailableMonthsForYear(Integer year) {
         return repo.getAvailableMonthsForYear(year);
     }
 
-    @Cacheable(value = "availableQuarters", key = "#year")
+    @Cacheable(value = "availableQuarters", key = "#year", sync = true)
     public List<Map<String, Object>> getAvailableQuartersForYear(Integer year) {
         return repo.getAvailableQuartersForYear(year);
     }
@@ -509,9 +551,13 @@ public class OptimizedPizzaService {
     // FINAL STORE REVENUE CHART API - Production Ready
     // =================================================================
 
-    @Cacheable(value = "storeRevenueChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month")
-    public List<Map<String, Object>> getStoreRevenueChart(User user, String timePeriod, Integer year, Integer month) {
-        
+    @Cacheable(value = "storeRevenueChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month", sync = true)
+    public List<StoreRevenueChartRow> getStoreRevenueChart(User user, String timePeriod, Integer year, Integer month) {
+        Optional<List<StoreRevenueChartRow>> fromCube = revenueCube.storeRevenueChart(user, timePeriod, year, month);
+        if (fromCube.isPresent()) {
+            return fromCube.get();
+        }
+
         return switch (timePeriod.toLowerCase()) {
             case "all-time", "alltime" -> getStoreRevenueChartAllTime(user);
             case "year", "yearly" -> {
@@ -526,40 +572,40 @@ public class OptimizedPizzaService {
         };
     }
 
-    private List<Map<String, Object>> getStoreRevenueChartAllTime(User user) {
+    private List<StoreRevenueChartRow> getStoreRevenueChartAllTime(User user) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getStoreRevenueChartAllTimeHQ();
-            case "STATE_MANAGER" -> repo.getStoreRevenueChartAllTimeState(user.getStateAbbr());
-            case "STORE_MANAGER" -> repo.getStoreRevenueChartAllTimeStore(user.getStoreId());
+            case "HQ_ADMIN" -> rowRepo.getStoreRevenueChartAllTimeHQ();
+            case "STATE_MANAGER" -> rowRepo.getStoreRevenueChartAllTimeState(user.getStateAbbr());
+            case "STORE_MANAGER" -> rowRepo.getStoreRevenueChartAllTimeStore(user.getStoreId());
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
-    private List<Map<String, Object>> getStoreRevenueChartYear(User user, Integer year) {
+    private List<StoreRevenueChartRow> getStoreRevenueChartYear(User user, Integer year) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getStoreRevenueChartYearHQ(year);
-            case "STATE_MANAGER" -> repo.getStoreRevenueChartYearState(user.getStateAbbr(), year);
-            case "STORE_MANAGER" -> repo.getStoreRevenueChartYearStore(user.getStoreId(), year);
+            case "HQ_ADMIN" -> rowRepo.getStoreRevenueChartYearHQ(year);
+            case "STATE_MANAGER" -> rowRepo.getStoreRevenueChartYearState(user.getStateAbbr(), year);
+            case "STORE_MANAGER" -> rowRepo.getStoreRevenueChartYearStore(user.getStoreId(), year);
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
-    private List<Map<String, Object>> getStoreRevenueChartMonth(User user, Integer year, Integer month) {
+    private List<StoreRevenueChartRow> getStoreRevenueChartMonth(User user, Integer year, Integer month) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getStoreRevenueChartMonthHQ(year, month);
-            case "STATE_MANAGER" -> repo.getStoreRevenueChartMonthState(user.getStateAbbr(), year, month);
-            case "STORE_MANAGER" -> repo.getStoreRevenueChartMonthStore(user.getStoreId(), year, month);
+            case "HQ_ADMIN" -> rowRepo.getStoreRevenueChartMonthHQ(year, month);
+            case "STATE_MANAGER" -> rowRepo.getStoreRevenueChartMonthState(user.getStateAbbr(), year, month);
+            case "STORE_MANAGER" -> rowRepo.getStoreRevenueChartMonthStore(user.getStoreId(), year, month);
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
     // Chart utility methods
-    @Cacheable(value = "chartYears", key = "'available_years'")
+    @Cacheable(value = "chartYears", key = "'available_years'", sync = true)
     public List<Map<String, Object>> getChartAvailableYears() {
         return repo.getChartAvailableYears();
     }
 
-    @Cacheable(value = "chartMonths", key = "#year")
+    @Cacheable(value = "chartMonths", key = "#year", sync = true)
     public List<Map<String, Object>> getChartAvailableMonths(Integer year) {
         return repo.getChartAvailableMonths(year);
     }
@@ -569,18 +615,18 @@ public class OptimizedPizzaService {
     // =================================================================
 
     // Hourly Performance Analytics - Role-based using correct materialized views
-    @Cacheable(value = "hourlyAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
-    public List<Map<String, Object>> getHourlyPerformanceAnalytics(User user) {
+    @Cacheable(value = "hourlyAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
+    public List<HourlyPerformanceRow> getHourlyPerformanceAnalytics(User user) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getHourlyPerformanceAnalyticsHQ();
-            case "STATE_MANAGER" -> repo.getHourlyPerformanceAnalyticsState(user.getStateAbbr());
-            case "STORE_MANAGER" -> repo.getHourlyPerformanceAnalyticsStore(user.getStoreId());
+            case "HQ_ADMIN" -> rowRepo.getHourlyPerformanceAnalyticsHQ();
+            case "STATE_MANAGER" -> rowRepo.getHourlyPerformanceAnalyticsState(user.getStateAbbr());
+            case "STORE_MANAGER" -> rowRepo.getHourlyPerformanceAnalyticsStore(user.getStoreId());
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
 
     // Product Performance Analytics - Role-based using top_products views
-    @Cacheable(value = "productAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #category")
+    @Cacheable(value = "productAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #category", sync = true)
     public List<Map<String, Object>> getProductPerformanceAnalytics(User user, String category, Integer limit) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getProductPerformanceAnalyticsHQ(category, limit);
@@ -591,7 +637,7 @@ public class OptimizedPizzaService {
     }
 
     // Category Performance Analytics - Role-based
-    @Cacheable(value = "categoryAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "categoryAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getCategoryPerformanceAnalytics(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCategoryPerformanceAnalyticsHQ();
@@ -602,7 +648,7 @@ public class OptimizedPizzaService {
     }
 
     // Customer Acquisition Analytics - Role-based (only HQ and STATE have this data)
-    @Cacheable(value = "customerAcquisition", key = "#user.role + '_' + #user.stateAbbr")
+    @Cacheable(value = "customerAcquisition", key = "#user.role + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getCustomerAcquisitionAnalytics(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCustomerAcquisitionAnalyticsHQ();
@@ -613,8 +659,22 @@ public class OptimizedPizzaService {
     }
 
     // Customer Acquisition Analytics - Role-based with filtering
-    @Cacheable(value = "customerAcquisitionFiltered", key = "#user.role + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "customerAcquisitionFiltered", key = "#user.role + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getCustomerAcquisitionAnalytics(User user, List<String> states, List<String> storeIds) {
+        return getCustomerAcquisitionAnalytics(user, states, storeIds, false);
+    }
+
+    // Filtered distinct customers per month come from the revenue cube (merged sketches, with
+    // their error bound) unless exact counts are requested; unfiltered ones read the views
+    @Cacheable(value = "customerAcquisitionFiltered", key = "#user.role + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds + '_' + #exact", sync = true)
+    public List<Map<String, Object>> getCustomerAcquisitionAnalytics(User user, List<String> states, List<String> storeIds, boolean exact) {
+        boolean filtered = (states != null && !states.isEmpty()) || (storeIds != null && !storeIds.isEmpty());
+        if (filtered && !exact) {
+            Optional<List<Map<String, Object>>> fromCube = revenueCube.customerAcquisition(user, states, storeIds);
+            if (fromCube.isPresent()) {
+                return fromCube.get();
+            }
+        }
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> getFilteredCustomerAcquisitionAnalytics(user, states, storeIds);
             case "STATE_MANAGER" -> getFilteredCustomerAcquisitionAnalytics(user, states, storeIds);
@@ -642,7 +702,7 @@ public class OptimizedPizzaService {
     }
 
     // Daily Revenue Trends - Only for HQ (only view available)
-    @Cacheable(value = "dailyTrends", key = "#user.role")
+    @Cacheable(value = "dailyTrends", key = "#user.role", sync = true)
     public List<Map<String, Object>> getDailyRevenueTrends(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getDailyRevenueTrendsHQ();
@@ -652,7 +712,7 @@ public class OptimizedPizzaService {
     }
 
     // Monthly Revenue Trends - Role-based
-    @Cacheable(value = "monthlyTrends", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "monthlyTrends", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getMonthlyRevenueTrends(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getMonthlyRevenueTrendsHQ();
@@ -663,7 +723,7 @@ public class OptimizedPizzaService {
     }
 
     // Store Performance Comparison - Role-based
-    @Cacheable(value = "storeComparison", key = "#user.role + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeComparison", key = "#user.role + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStorePerformanceComparison(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStorePerformanceComparisonHQ(20);
@@ -674,7 +734,7 @@ public class OptimizedPizzaService {
     }
     
     // State Revenue Trends - Role-based (HQ gets all states, others get their data)
-    @Cacheable(value = "stateRevenueTrends", key = "#user.role + '_' + #user.stateAbbr")
+    @Cacheable(value = "stateRevenueTrends", key = "#user.role + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStateRevenueTrends(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStateRevenueTrendsHQ();
@@ -690,7 +750,7 @@ public class OptimizedPizzaService {
 
     // Removed seasonal analysis - doesn't provide real business value
 
-    @Cacheable(value = "topProductsByTime", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month + '_' + #limit")
+    @Cacheable(value = "topProductsByTime", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #timePeriod + '_' + #year + '_' + #month + '_' + #limit", sync = true)
     public List<Map<String, Object>> getTopProductsByTimePeriod(User user, String timePeriod, Integer year, Integer month, Integer limit) {
         if (limit == null) limit = 20; // Default limit
         
@@ -702,7 +762,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeComparison", key = "#user.role + '_' + #user.stateAbbr + '_' + #year + '_' + #month")
+    @Cacheable(value = "storeComparison", key = "#user.role + '_' + #user.stateAbbr + '_' + #year + '_' + #month", sync = true)
     public List<Map<String, Object>> getStorePerformanceComparison(User user, Integer year, Integer month) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStorePerformanceComparison(null, year, month);
@@ -722,7 +782,7 @@ public class OptimizedPizzaService {
     // ENHANCED STORE ANALYTICS - For the new stores page
     // =================================================================
 
-    @Cacheable(value = "storePerformanceAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storePerformanceAnalytics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStorePerformanceAnalytics(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStorePerformanceAnalyticsHQ();
@@ -732,7 +792,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "statePerformanceAnalytics", key = "#user.role + '_' + #user.stateAbbr")
+    @Cacheable(value = "statePerformanceAnalytics", key = "#user.role + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStatePerformanceAnalytics(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStatePerformanceAnalyticsHQ();
@@ -742,12 +802,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "monthlyRevenueTrendsByStore", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
-    public List<Map<String, Object>> getMonthlyRevenueTrendsByStore(User user) {
+    @Cacheable(value = "monthlyRevenueTrendsByStore", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
+    public List<StoreMonthlyRevenueRow> getMonthlyRevenueTrendsByStore(User user) {
         return switch (user.getRole()) {
-            case "HQ_ADMIN" -> repo.getMonthlyRevenueTrendsByStoreHQ();
-            case "STATE_MANAGER" -> repo.getMonthlyRevenueTrendsByStoreState(user.getStateAbbr());
-            case "STORE_MANAGER" -> repo.getMonthlyRevenueTrendsByStoreStore(user.getStoreId());
+            case "HQ_ADMIN" -> rowRepo.getMonthlyRevenueTrendsByStoreHQ();
+            case "STATE_MANAGER" -> rowRepo.getMonthlyRevenueTrendsByStoreState(user.getStateAbbr());
+            case "STORE_MANAGER" -> rowRepo.getMonthlyRevenueTrendsByStoreStore(user.getStoreId());
             default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
         };
     }
@@ -815,6 +875,17 @@ public class OptimizedPizzaService {
     }
 
     public List<Map<String, Object>> getStoreCustomerAcquisition(String role, String stateAbbr, String storeId) {
+        return getStoreCustomerAcquisition(role, stateAbbr, storeId, false);
+    }
+
+    public List<Map<String, Object>> getStoreCustomerAcquisition(String role, String stateAbbr, String storeId, boolean exact) {
+        if (!exact) {
+            // Per store-month counts are exact in the cube as well
+            Optional<List<Map<String, Object>>> fromCube = revenueCube.storeCustomerAcquisition(role, stateAbbr, storeId);
+            if (fromCube.isPresent()) {
+                return fromCube.get();
+            }
+        }
         String sql;
         if ("HQ_ADMIN".equals(role)) {
             sql = """
@@ -1266,7 +1337,7 @@ public class OptimizedPizzaService {
     // ENHANCED STORE ANALYTICS METHODS - Using Materialized Views with Full Filtering
     // =================================================================
 
-    @Cacheable(value = "storeContextualOverview", key = "#storeId + '_' + #user.role + '_' + #filters.toString()")
+    @Cacheable(value = "storeContextualOverview", key = "T(pizzaworld.util.AnalyticsCacheKey).of(#storeId, #user.role, #filters)", sync = true)
     public Map<String, Object> getStoreContextualOverview(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
@@ -1303,7 +1374,7 @@ public class OptimizedPizzaService {
         return result;
     }
 
-    @Cacheable(value = "enhancedStoreRevenueTrends", key = "#storeId + '_' + #user.role + '_' + #filters.toString()")
+    @Cacheable(value = "enhancedStoreRevenueTrends", key = "T(pizzaworld.util.AnalyticsCacheKey).of(#storeId, #user.role, #filters)", sync = true)
     public List<Map<String, Object>> getEnhancedStoreRevenueTrends(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
@@ -1317,7 +1388,7 @@ public class OptimizedPizzaService {
         return getFilteredRevenueTrends(storeId, timePeriod, year, month, quarter, startDate, endDate);
     }
 
-    @Cacheable(value = "enhancedStorePerformance", key = "#storeId + '_' + #user.role + '_' + #filters.toString()")
+    @Cacheable(value = "enhancedStorePerformance", key = "T(pizzaworld.util.AnalyticsCacheKey).of(#storeId, #user.role, #filters)", sync = true)
     public Map<String, Object> getEnhancedStorePerformance(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
@@ -1365,6 +1436,8 @@ public class OptimizedPizzaService {
                     "FROM orders o " +
                     "JOIN stores s ON o.storeid = s.storeid " +
                     "WHERE o.storeid = ?";
+        List<Object> params = new ArrayList<>();
+        params.add(storeId);
         
         // Apply time filtering if needed based on filters
         if (filters != null) {
@@ -1373,21 +1446,24 @@ public class OptimizedPizzaService {
             Integer month = (Integer) filters.get("month");
             Integer quarter = (Integer) filters.get("quarter");
             
+            PeriodRange range = null;
             if ("year".equals(timePeriod) && year != null) {
-                sql += " AND EXTRACT(YEAR FROM o.orderdate) = " + year;
+                range = PeriodRange.of(year, null, null);
             } else if ("month".equals(timePeriod) && year != null && month != null) {
-                sql += " AND EXTRACT(YEAR FROM o.orderdate) = " + year + " AND EXTRACT(MONTH FROM o.orderdate) = " + month;
+                range = PeriodRange.of(year, month, null);
             } else if ("quarter".equals(timePeriod) && year != null && quarter != null) {
-                int startMonth = (quarter - 1) * 3 + 1;
-                int endMonth = quarter * 3;
-                sql += " AND EXTRACT(YEAR FROM o.orderdate) = " + year + " AND EXTRACT(MONTH FROM o.orderdate) BETWEEN " + startMonth + " AND " + endMonth;
+                range = PeriodRange.of(year, null, quarter);
+            }
+            if (range != null) {
+                sql += " AND " + PeriodRange.predicate("o.orderdate");
+                range.bind(params);
             }
         }
         
         sql += " GROUP BY o.storeid, s.state_abbr";
         
         // Execute query with proper time filtering
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, storeId);
+        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, params.toArray());
         return result.isEmpty() ? new HashMap<>() : result.get(0);
     }
 
@@ -1444,13 +1520,12 @@ public class OptimizedPizzaService {
         String state = (String) stateResult.get(0).get("state_abbr");
         
         // Get state averages using filtered data from sales_monthly_store_cat
-        String sql = buildFilteredQuery("sales_monthly_store_cat", null, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT AVG(revenue) as avg_revenue, SUM(revenue)/NULLIF(SUM(orders),0) as avg_order_value, " +
-            "COUNT(DISTINCT storeid) as total_stores");
-        sql = sql.replace("WHERE storeid = ?", "WHERE state_abbr = ?");
-        sql = sql.replace("GROUP BY storeid, state_abbr", "");
+            "COUNT(DISTINCT storeid) as total_stores", filters)
+            .eq("state_abbr", state);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, state);
+        List<Map<String, Object>> result = jdbcTemplate.queryForList(query.sql(), query.params());
         Map<String, Object> comparison = result.isEmpty() ? new HashMap<>() : result.get(0);
         comparison.put("comparisonType", "state");
         comparison.put("comparisonValue", state);
@@ -1460,13 +1535,11 @@ public class OptimizedPizzaService {
 
     private Map<String, Object> getNationalComparisonData(String storeId, Map<String, Object> filters) {
         // Get national averages using filtered data from sales_monthly_store_cat
-        String sql = buildFilteredQuery("sales_monthly_store_cat", null, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT AVG(revenue) as avg_revenue, SUM(revenue)/NULLIF(SUM(orders),0) as avg_order_value, " +
-            "COUNT(DISTINCT storeid) as total_stores");
-        sql = sql.replace("WHERE storeid = ?", "");
-        sql = sql.replace("GROUP BY storeid, state_abbr", "");
+            "COUNT(DISTINCT storeid) as total_stores", filters);
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql);
+        List<Map<String, Object>> result = jdbcTemplate.queryForList(query.sql(), query.params());
         Map<String, Object> comparison = result.isEmpty() ? new HashMap<>() : result.get(0);
         comparison.put("comparisonType", "national");
         comparison.put("comparisonValue", "USA");
@@ -1475,13 +1548,12 @@ public class OptimizedPizzaService {
     }
 
     private Map<String, Object> getStoreRankings(String storeId, Map<String, Object> filters) {
-        String sql = buildFilteredQuery("sales_monthly_store_cat", null, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT storeid, SUM(revenue) as total_revenue, " +
-            "RANK() OVER (ORDER BY SUM(revenue) DESC) as revenue_rank");
-        sql = sql.replace("WHERE storeid = ?", "");
-        sql = sql.replace("GROUP BY storeid, state_abbr", "GROUP BY storeid");
+            "RANK() OVER (ORDER BY SUM(revenue) DESC) as revenue_rank", filters)
+            .append("GROUP BY storeid");
         
-        List<Map<String, Object>> allStores = jdbcTemplate.queryForList(sql);
+        List<Map<String, Object>> allStores = jdbcTemplate.queryForList(query.sql(), query.params());
         
         // Find this store's ranking
         for (Map<String, Object> store : allStores) {
@@ -1508,25 +1580,25 @@ public class OptimizedPizzaService {
     }
 
     private Map<String, Object> getFilteredStorePerformance(String storeId, Map<String, Object> filters) {
-        String sql = buildFilteredQuery("sales_monthly_store_cat", storeId, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT storeid, state_abbr, SUM(revenue) as total_revenue, " +
             "SUM(orders) as total_orders, SUM(revenue)/NULLIF(SUM(orders),0) as avg_order_value, " +
-            "SUM(unique_customers) as unique_customers, COUNT(DISTINCT year_month) as active_months");
+            "SUM(unique_customers) as unique_customers, COUNT(DISTINCT year_month) as active_months", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state_abbr");
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, storeId);
+        List<Map<String, Object>> result = jdbcTemplate.queryForList(query.sql(), query.params());
         return result.isEmpty() ? new HashMap<>() : result.get(0);
     }
 
-    private String buildFilteredQuery(String tableName, String storeId, Map<String, Object> filters, String selectClause) {
-        StringBuilder sql = new StringBuilder(selectClause + " FROM " + tableName);
-        
-        if (storeId != null) {
-            sql.append(" WHERE storeid = ?");
-        }
-        
-        // Handle null filters
+    /**
+     * Starts a query on a pre-aggregated view filtered by the period in the filters map
+     * (year, month, quarter or a custom date_key range). Callers add their own scope and GROUP BY.
+     */
+    private ScopedQuery filteredQuery(String tableName, String selectClause, Map<String, Object> filters) {
+        ScopedQuery query = ScopedQuery.from(selectClause + " FROM " + tableName);
         if (filters == null) {
-            filters = new HashMap<>();
+            return query;
         }
         
         String timePeriod = (String) filters.getOrDefault("timePeriod", "all-time");
@@ -1537,20 +1609,15 @@ public class OptimizedPizzaService {
         String endDate = (String) filters.get("endDate");
         
         if ("custom".equals(timePeriod) && startDate != null && endDate != null) {
-            sql.append(storeId != null ? " AND" : " WHERE").append(" date_key BETWEEN '" + startDate + "' AND '" + endDate + "'");
+            query.where("date_key BETWEEN CAST(? AS DATE) AND CAST(? AS DATE)", startDate, endDate);
         } else if ("year".equals(timePeriod) && year != null) {
-            sql.append(storeId != null ? " AND" : " WHERE").append(" year = " + year);
+            query.where("year = ?", year);
         } else if ("month".equals(timePeriod) && year != null && month != null) {
-            sql.append(storeId != null ? " AND" : " WHERE").append(" year = " + year + " AND month = " + month);
+            query.where("year = ? AND month = ?", year, month);
         } else if ("quarter".equals(timePeriod) && year != null && quarter != null) {
-            sql.append(storeId != null ? " AND" : " WHERE").append(" year = " + year + " AND quarter = " + quarter);
-        }
-        
-        if (storeId != null) {
-            sql.append(" GROUP BY storeid, state_abbr");
+            query.where("year = ? AND quarter = ?", year, quarter);
         }
-        
-        return sql.toString();
+        return query;
     }
 
     private Map<String, Object> getEnhancedStoreAnalyticsOverview(String storeId, User user, Map<String, Object> filters) {
@@ -1564,13 +1631,15 @@ public class OptimizedPizzaService {
     private Map<String, Object> getEnhancedStoreEfficiencyMetrics(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
-        String sql = buildFilteredQuery("sales_monthly_store_cat", storeId, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT storeid, state_abbr, AVG(revenue) as avg_revenue_per_month, " +
             "AVG(units_sold) as avg_items_per_month, " +
             "COUNT(DISTINCT year_month) as operating_months, " +
-            "SUM(unique_customers) as total_customers");
+            "SUM(unique_customers) as total_customers", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state_abbr");
         
-        List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, storeId);
+        List<Map<String, Object>> result = jdbcTemplate.queryForList(query.sql(), query.params());
         return result.isEmpty() ? new HashMap<>() : result.get(0);
     }
 
@@ -1578,7 +1647,8 @@ public class OptimizedPizzaService {
     // CUSTOM RANGE AND COMPARE FUNCTIONALITY
     // =================================================================
 
-    @Cacheable(value = "storeCustomRange", key = "#storeId + '_' + #user.role + '_' + #filters.toString()")
+    @Cacheable(value = "storeCustomRange", key = "T(pizzaworld.util.AnalyticsCacheKey).of(#storeId, #user.role, #filters)", unless = "#result['partial'] == true")
+    @RunsOn(Workload.HEAVY)
     public Map<String, Object> getStoreCustomRangeAnalytics(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
@@ -1587,67 +1657,51 @@ public class OptimizedPizzaService {
         Integer endYear = (Integer) filters.get("endYear");
         Integer endMonth = (Integer) filters.get("endMonth");
         boolean includeComparison = (Boolean) filters.getOrDefault("includeComparison", false);
+        boolean exact = (Boolean) filters.getOrDefault("exact", false);
         
         Map<String, Object> result = new HashMap<>();
         
         // Get data for the custom range
-        String sql;
+        PeriodRange range = PeriodRange.monthSpan(startYear, startMonth, endYear, endMonth);
+        String sql = "SELECT EXTRACT(YEAR FROM o.orderdate) as year, EXTRACT(MONTH FROM o.orderdate) as month, " +
+             "TO_CHAR(o.orderdate, 'YYYY-MM') as year_month, " +
+             "SUM(o.total) as total_revenue, COUNT(DISTINCT o.orderid) as total_orders, " +
+             "SUM(o.total)/NULLIF(COUNT(DISTINCT o.orderid),0) as avg_order_value, " +
+             "COUNT(DISTINCT o.customerid) as total_customers, SUM(o.nitems) as total_units " +
+             "FROM orders o " +
+             "WHERE o.storeid = ? AND " + PeriodRange.predicate("o.orderdate") + " " +
+             "GROUP BY EXTRACT(YEAR FROM o.orderdate), EXTRACT(MONTH FROM o.orderdate), TO_CHAR(o.orderdate, 'YYYY-MM') " +
+             "ORDER BY year, month";
         List<Object> params = new ArrayList<>();
-        
-        if (startYear.equals(endYear)) {
-            // Same year - simple month range
-            sql = "SELECT EXTRACT(YEAR FROM o.orderdate) as year, EXTRACT(MONTH FROM o.orderdate) as month, " +
-                 "TO_CHAR(o.orderdate, 'YYYY-MM') as year_month, " +
-                 "SUM(o.total) as total_revenue, COUNT(DISTINCT o.orderid) as total_orders, " +
-                 "SUM(o.total)/NULLIF(COUNT(DISTINCT o.orderid),0) as avg_order_value, " +
-                 "COUNT(DISTINCT o.customerid) as total_customers, SUM(o.nitems) as total_units " +
-                 "FROM orders o " +
-                 "WHERE o.storeid = ? AND EXTRACT(YEAR FROM o.orderdate) = ? " +
-                 "AND EXTRACT(MONTH FROM o.orderdate) >= ? AND EXTRACT(MONTH FROM o.orderdate) <= ? " +
-                 "GROUP BY EXTRACT(YEAR FROM o.orderdate), EXTRACT(MONTH FROM o.orderdate), TO_CHAR(o.orderdate, 'YYYY-MM') " +
-                 "ORDER BY year, month";
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(endMonth);
-            System.out.println("CUSTOM RANGE DEBUG - Same year query (FIXED - no JOIN): " + sql);
-            System.out.println("CUSTOM RANGE DEBUG - Parameters: storeId=" + storeId + ", year=" + startYear + ", startMonth=" + startMonth + ", endMonth=" + endMonth);
-        } else {
-            // Different years - more complex range
-            sql = "SELECT EXTRACT(YEAR FROM o.orderdate) as year, EXTRACT(MONTH FROM o.orderdate) as month, " +
-                 "TO_CHAR(o.orderdate, 'YYYY-MM') as year_month, " +
-                 "SUM(o.total) as total_revenue, COUNT(DISTINCT o.orderid) as total_orders, " +
-                 "SUM(o.total)/NULLIF(COUNT(DISTINCT o.orderid),0) as avg_order_value, " +
-                 "COUNT(DISTINCT o.customerid) as total_customers, SUM(o.nitems) as total_units " +
-                 "FROM orders o " +
-                 "WHERE o.storeid = ? AND " +
-                 "((EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) >= ?) OR " +
-                 "(EXTRACT(YEAR FROM o.orderdate) > ? AND EXTRACT(YEAR FROM o.orderdate) < ?) OR " +
-                 "(EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) <= ?)) " +
-                 "GROUP BY EXTRACT(YEAR FROM o.orderdate), EXTRACT(MONTH FROM o.orderdate), TO_CHAR(o.orderdate, 'YYYY-MM') " +
-                 "ORDER BY year, month";
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(startYear);
-            params.add(endYear);
-            params.add(endYear);
-            params.add(endMonth);
-            System.out.println("CUSTOM RANGE DEBUG - Multi-year query (FIXED - no JOIN): " + sql);
-            System.out.println("CUSTOM RANGE DEBUG - Parameters: storeId=" + storeId + ", startYear=" + startYear + ", startMonth=" + startMonth + ", endYear=" + endYear + ", endMonth=" + endMonth);
+        params.add(storeId);
+        range.bind(params);
+        
+        // Monthly breakdown, best product/category and the previous period are independent queries
+        String monthlySql = sql;
+        Optional<List<Map<String, Object>>> monthlyFromCube = exact ? Optional.empty()
+                : revenueCube.storeMonthlyBreakdown(storeId, range);
+        ParallelQueryExecutor.FanOut fanOut = parallelQueryExecutor.fanOut(COMPOSITE_TIMEOUT)
+                .fork("monthlyBreakdown", () -> monthlyFromCube.orElseGet(
+                        () -> jdbcTemplate.queryForList(monthlySql, params.toArray())))
+                .fork("bestProduct", () -> getBestProductForCustomRange(storeId, range))
+                .fork("bestCategory", () -> getBestCategoryForCustomRange(storeId, range));
+        if (includeComparison) {
+            fanOut.fork("previousPeriod", () -> getPreviousPeriodComparison(storeId, startYear, startMonth, endYear, endMonth));
         }
         
-        List<Map<String, Object>> monthlyData = jdbcTemplate.queryForList(sql, params.toArray());
+        List<Map<String, Object>> monthlyData = fanOut.join("monthlyBreakdown", List.of());
         
         // Calculate summary metrics
         Map<String, Object> summary = calculateRangeSummary(monthlyData);
         
-        // Get best product and category for the custom range
-        Map<String, Object> bestProduct = getBestProductForCustomRange(storeId, startYear, startMonth, endYear, endMonth);
-        Map<String, Object> bestCategory = getBestCategoryForCustomRange(storeId, startYear, startMonth, endYear, endMonth);
+        // Best product and category for the custom range
+        Map<String, Object> bestProduct = fanOut.join("bestProduct", new HashMap<>());
+        Map<String, Object> bestCategory = fanOut.join("bestCategory", new HashMap<>());
         
         summary.put("bestProduct", bestProduct);
         summary.put("bestCategory", bestCategory);
+        // Monthly customer counts of a single store are exact on either path
+        summary.put("distinctErrorBound", 0.0);
         
         result.put("summary", summary);
         result.put("monthlyBreakdown", monthlyData);
@@ -1660,15 +1714,24 @@ public class OptimizedPizzaService {
         
         // Add comparison with previous period if requested
         if (includeComparison) {
-            Map<String, Object> previousPeriod = getPreviousPeriodComparison(storeId, startYear, startMonth, endYear, endMonth);
+            Map<String, Object> previousPeriod = fanOut.join("previousPeriod", new HashMap<>());
             result.put("previousPeriodComparison", previousPeriod);
         }
         
+        result.put("partial", fanOut.isPartial());
+        result.put("slices", fanOut.timings());
         return result;
     }
 
-    @Cacheable(value = "storeComparePeriods", key = "#storeId + '_' + #periods.toString()")
     public List<Map<String, Object>> getStoreComparePeriods(String storeId, List<Map<String, Object>> periods) {
+        return getStoreComparePeriods(storeId, periods, false);
+    }
+
+    @Cacheable(value = "storeComparePeriods", key = "T(pizzaworld.util.AnalyticsCacheKey).of(#storeId, #periods, #exact)", sync = true)
+    public List<Map<String, Object>> getStoreComparePeriods(String storeId, List<Map<String, Object>> periods, boolean exact) {
+        if (periods == null || periods.isEmpty()) {
+            return List.of();
+        }
         
         // We don't need current user for this method since store access validation 
         // should be handled at controller level for these analytics endpoints
@@ -1676,93 +1739,98 @@ public class OptimizedPizzaService {
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> comparisons = new ArrayList<>();
         
-        // Process each period
-        for (Map<String, Object> period : periods) {
-            Map<String, Object> periodData = new HashMap<>();
+        // One bucket per requested period; all of them are aggregated in a single query
+        StringBuilder values = new StringBuilder();
+        List<Object> params = new ArrayList<>();
+        List<String> labels = new ArrayList<>();
+        List<PeriodRange> ranges = new ArrayList<>();
+        boolean monthOfAnyYear = false;
+        for (int i = 0; i < periods.size(); i++) {
+            Map<String, Object> period = periods.get(i);
             
             // Extract period data - handle both string and number types
-            Integer year = null;
-            Integer month = null;
-            Integer quarter = null;
-            
-            if (period.get("year") != null) {
-                Object yearObj = period.get("year");
-                if (yearObj instanceof String) {
-                    year = Integer.parseInt((String) yearObj);
-                } else if (yearObj instanceof Number) {
-                    year = ((Number) yearObj).intValue();
-                }
-            }
+            Integer year = toInteger(period.get("year"));
+            Integer month = toInteger(period.get("month"));
+            Integer quarter = toInteger(period.get("quarter"));
+            String label = (String) period.getOrDefault("label", "");
+            labels.add(label.isEmpty() ? generateSimplePeriodLabel(year, month, quarter) : label);
             
-            if (period.get("month") != null) {
-                Object monthObj = period.get("month");
-                if (monthObj instanceof String) {
-                    month = Integer.parseInt((String) monthObj);
-                } else if (monthObj instanceof Number) {
-                    month = ((Number) monthObj).intValue();
+            // A month or quarter without a year means those months in every year
+            PeriodRange range = year != null ? PeriodRange.of(year, month, quarter) : PeriodRange.allTime();
+            int firstMonth = 1;
+            int lastMonth = 12;
+            if (year == null && (month != null || quarter != null)) {
+                monthOfAnyYear = true;
+                if (quarter != null) {
+                    firstMonth = (quarter - 1) * 3 + 1;
+                    lastMonth = quarter * 3;
                 }
-            }
-            
-            if (period.get("quarter") != null) {
-                Object quarterObj = period.get("quarter");
-                if (quarterObj instanceof String) {
-                    quarter = Integer.parseInt((String) quarterObj);
-                } else if (quarterObj instanceof Number) {
-                    quarter = ((Number) quarterObj).intValue();
+                if (month != null) {
+                    firstMonth = Math.max(firstMonth, month);
+                    lastMonth = Math.min(lastMonth, month);
                 }
             }
-            String label = (String) period.getOrDefault("label", "");
-            
-            // Build SQL query for this period using raw orders table
-            StringBuilder sql = new StringBuilder();
-            List<Object> params = new ArrayList<>();
-            
-            sql.append("SELECT ");
-            sql.append("SUM(o.total) as total_revenue, ");
-            sql.append("COUNT(o.orderid) as total_orders, ");
-            sql.append("COUNT(DISTINCT o.customerid) as total_customers, ");
-            sql.append("ROUND(AVG(o.total), 2) as avg_order_value ");
-            sql.append("FROM orders o ");
-            sql.append("WHERE o.storeid = ? ");
-            params.add(storeId);
-            
-            if (year != null) {
-                sql.append("AND EXTRACT(YEAR FROM o.orderdate) = ? ");
-                params.add(year);
-            }
-            
-            if (month != null) {
-                sql.append("AND EXTRACT(MONTH FROM o.orderdate) = ? ");
-                params.add(month);
-            }
-            
-            if (quarter != null) {
-                int startMonth = (quarter - 1) * 3 + 1;
-                int endMonth = quarter * 3;
-                sql.append("AND EXTRACT(MONTH FROM o.orderdate) BETWEEN ? AND ? ");
-                params.add(startMonth);
-                params.add(endMonth);
+            ranges.add(range);
+            values.append(i == 0 ? "" : ", ")
+                  .append("(?, CAST(? AS DATE), CAST(? AS DATE), CAST(? AS INTEGER), CAST(? AS INTEGER))");
+            params.add(i);
+            params.add(range.start());
+            params.add(range.end());
+            params.add(firstMonth);
+            params.add(lastMonth);
+        }
+        params.add(storeId);
+        
+        String sql = """
+            SELECT p.idx,
+                   SUM(o.total) as total_revenue,
+                   COUNT(o.orderid) as total_orders,
+                   COUNT(DISTINCT o.customerid) as total_customers,
+                   ROUND(AVG(o.total), 2) as avg_order_value
+            FROM (VALUES %s) AS p(idx, start_date, end_date, first_month, last_month)
+            LEFT JOIN orders o
+              ON o.storeid = ? AND o.orderdate >= p.start_date AND o.orderdate < p.end_date
+             AND EXTRACT(MONTH FROM o.orderdate) BETWEEN p.first_month AND p.last_month
+            GROUP BY p.idx
+            ORDER BY p.idx
+            """.formatted(values);
+        
+        Map<Integer, Map<String, Object>> metricsByPeriod = new HashMap<>();
+        // The cube selects months by date range only, so month-of-any-year periods go to SQL
+        Optional<List<Map<String, Object>>> fromCube = exact || monthOfAnyYear ? Optional.empty()
+                : revenueCube.storeComparePeriods(storeId, ranges);
+        if (fromCube.isPresent()) {
+            for (int i = 0; i < ranges.size(); i++) {
+                metricsByPeriod.put(i, fromCube.get().get(i));
             }
-            
+        } else {
             try {
-                Map<String, Object> metrics = jdbcTemplate.queryForMap(sql.toString(), params.toArray());
-                periodData.put("metrics", metrics);
-                periodData.put("period", period);
-                periodData.put("label", label.isEmpty() ? generateSimplePeriodLabel(year, month, quarter) : label);
-                comparisons.add(periodData);
+                for (Map<String, Object> row : jdbcTemplate.queryForList(sql, params.toArray())) {
+                    int idx = ((Number) row.remove("idx")).intValue();
+                    row.put("distinct_error_bound", 0.0);
+                    metricsByPeriod.put(idx, row);
+                }
             } catch (Exception e) {
-                logger.error("Error fetching data for period: " + period, e);
+                logger.error("Error fetching data for periods: " + periods, e);
+            }
+        }
+        
+        for (int i = 0; i < periods.size(); i++) {
+            Map<String, Object> metrics = metricsByPeriod.get(i);
+            if (metrics == null) {
                 // Add empty metrics for failed periods
-                Map<String, Object> emptyMetrics = new HashMap<>();
-                emptyMetrics.put("total_revenue", 0.0);
-                emptyMetrics.put("total_orders", 0);
-                emptyMetrics.put("total_customers", 0);
-                emptyMetrics.put("avg_order_value", 0.0);
-                periodData.put("metrics", emptyMetrics);
-                periodData.put("period", period);
-                periodData.put("label", label.isEmpty() ? generateSimplePeriodLabel(year, month, quarter) : label);
-                comparisons.add(periodData);
+                metrics = new HashMap<>();
+                metrics.put("total_revenue", 0.0);
+                metrics.put("total_orders", 0);
+                metrics.put("total_customers", 0);
+                metrics.put("avg_order_value", 0.0);
+                metrics.put("distinct_error_bound", 0.0);
             }
+            Map<String, Object> periodData = new HashMap<>();
+            periodData.put("metrics", metrics);
+            periodData.put("period", periods.get(i));
+            periodData.put("label", labels.get(i));
+            comparisons.add(periodData);
         }
         
         result.put("comparisons", comparisons);
@@ -1779,36 +1847,39 @@ public class OptimizedPizzaService {
     private List<Map<String, Object>> getEnhancedStoreHourlyPerformance(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
-        String sql = buildFilteredQuery("store_analytics_comprehensive", storeId, filters,
+        ScopedQuery query = filteredQuery("store_analytics_comprehensive",
             "SELECT storeid, state, city, hour_of_day, SUM(product_revenue) as revenue, COUNT(DISTINCT orderid) as orders, " +
-            "AVG(order_total) as avg_order_value, COUNT(DISTINCT customerid) as customers");
-        sql = sql.replace("GROUP BY storeid, state, city", "GROUP BY storeid, state, city, hour_of_day ORDER BY hour_of_day");
+            "AVG(order_total) as avg_order_value, COUNT(DISTINCT customerid) as customers", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state, city, hour_of_day ORDER BY hour_of_day");
         
-        return jdbcTemplate.queryForList(sql, storeId);
+        return jdbcTemplate.queryForList(query.sql(), query.params());
     }
 
     private List<Map<String, Object>> getEnhancedStoreCategoryPerformance(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
-        String sql = buildFilteredQuery("sales_monthly_store_cat", storeId, filters,
+        ScopedQuery query = filteredQuery("sales_monthly_store_cat",
             "SELECT storeid, state_abbr, category, SUM(revenue) as total_revenue, SUM(units_sold) as units_sold, " +
             "SUM(orders) as total_orders, SUM(unique_customers) as unique_customers, " +
-            "SUM(revenue)/NULLIF(SUM(units_sold),0) as avg_item_price");
-        sql = sql.replace("GROUP BY storeid, state_abbr", "GROUP BY storeid, state_abbr, category ORDER BY SUM(revenue) DESC");
+            "SUM(revenue)/NULLIF(SUM(units_sold),0) as avg_item_price", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state_abbr, category ORDER BY SUM(revenue) DESC");
         
-        return jdbcTemplate.queryForList(sql, storeId);
+        return jdbcTemplate.queryForList(query.sql(), query.params());
     }
 
     private List<Map<String, Object>> getEnhancedStoreDailyOperations(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
-        String sql = buildFilteredQuery("store_analytics_comprehensive", storeId, filters,
+        ScopedQuery query = filteredQuery("store_analytics_comprehensive",
             "SELECT storeid, state, city, date_key, SUM(product_revenue) as daily_revenue, COUNT(DISTINCT orderid) as daily_orders, " +
             "AVG(order_total) as avg_order_value, COUNT(DISTINCT customerid) as unique_customers, " +
-            "SUM(quantity_sold) as total_items_sold");
-        sql = sql.replace("GROUP BY storeid, state, city", "GROUP BY storeid, state, city, date_key ORDER BY date_key DESC");
+            "SUM(quantity_sold) as total_items_sold", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state, city, date_key ORDER BY date_key DESC");
         
-        return jdbcTemplate.queryForList(sql, storeId);
+        return jdbcTemplate.queryForList(query.sql(), query.params());
     }
 
     private List<Map<String, Object>> getEnhancedStoreCustomerInsights(String storeId, User user, Map<String, Object> filters) {
@@ -1821,34 +1892,36 @@ public class OptimizedPizzaService {
         Integer year = (Integer) filters.get("year");
         Integer month = (Integer) filters.get("month");
         
-        if ("year".equals(timePeriod) && year != null) {
-            sql += " AND EXTRACT(YEAR FROM month) = " + year;
-        } else if ("month".equals(timePeriod) && year != null && month != null) {
-            sql += " AND EXTRACT(YEAR FROM month) = " + year + " AND EXTRACT(MONTH FROM month) = " + month;
+        List<Object> params = new ArrayList<>();
+        params.add(storeId);
+        if (("year".equals(timePeriod) && year != null) || ("month".equals(timePeriod) && year != null && month != null)) {
+            sql += " AND " + PeriodRange.predicate("month");
+            PeriodRange.of(year, "month".equals(timePeriod) ? month : null, null).bind(params);
         }
         
         sql += " ORDER BY month DESC";
         
-        return jdbcTemplate.queryForList(sql, storeId);
+        return jdbcTemplate.queryForList(sql, params.toArray());
     }
 
     private List<Map<String, Object>> getEnhancedStoreProductPerformance(String storeId, User user, Map<String, Object> filters) {
         validateStoreAccess(user, storeId);
         
-        String sql = buildFilteredQuery("store_analytics_comprehensive", storeId, filters,
+        ScopedQuery query = filteredQuery("store_analytics_comprehensive",
             "SELECT storeid, state, city, sku, product_name, category, size, SUM(product_revenue) as total_revenue, " +
             "SUM(quantity_sold) as total_quantity, COUNT(DISTINCT orderid) as orders_count, " +
-            "COUNT(DISTINCT customerid) as customers_count, AVG(price) as avg_price");
-        sql = sql.replace("GROUP BY storeid, state, city", "GROUP BY storeid, state, city, sku, product_name, category, size ORDER BY SUM(product_revenue) DESC");
+            "COUNT(DISTINCT customerid) as customers_count, AVG(price) as avg_price", filters)
+            .eq("storeid", storeId)
+            .append("GROUP BY storeid, state, city, sku, product_name, category, size ORDER BY SUM(product_revenue) DESC");
         
-        return jdbcTemplate.queryForList(sql, storeId);
+        return jdbcTemplate.queryForList(query.sql(), query.params());
     }
 
     // =================================================================
-    // HELPER METHODS FOR CUSTOM RANGE AND COMPARE FUNCTIONALITY
+    // HELPER METHODS FOR CUSTOM RANGE AND COMPARE FUNCTIONALITY - package-private for the JMH benchmarks
     // =================================================================
 
-    private Map<String, Object> calculateRangeSummary(List<Map<String, Object>> monthlyData) {
+    Map<String, Object> calculateRangeSummary(List<Map<String, Object>> monthlyData) {
         Map<String, Object> summary = new HashMap<>();
         
         double totalRevenue = monthlyData.stream()
@@ -1946,7 +2019,7 @@ public class OptimizedPizzaService {
         }
     }
 
-    private Map<String, Object> generateSummaryComparison(List<Map<String, Object>> comparisons) {
+    Map<String, Object> generateSummaryComparison(List<Map<String, Object>> comparisons) {
         Map<String, Object> summary = new HashMap<>();
         
         // Extract metrics from each comparison
@@ -2019,6 +2092,42 @@ public class OptimizedPizzaService {
         return summary;
     }
 
+    private static final String STORES_IN_STATE = "SELECT storeid FROM stores WHERE state_abbr";
+
+    /**
+     * Year/month filter on o.orderdate as a half-open range. A month without a year
+     * means that month in every year, which has no single range, so it keeps EXTRACT.
+     */
+    private void addOrderDateFilter(ScopedQuery query, Integer year, Integer month) {
+        if (year != null) {
+            query.range("o.orderdate", PeriodRange.of(year, month, null));
+        } else if (month != null) {
+            query.where("EXTRACT(MONTH FROM o.orderdate) = ?", month);
+        }
+    }
+
+    /** Manager scope for product queries joining orders o; without a user nothing is restricted. */
+    private void scopeProductOrders(ScopedQuery query, User user) {
+        if (user == null) {
+            return;
+        }
+        if ("STATE_MANAGER".equals(user.getRole())) {
+            query.where("o.storeid IN (" + STORES_IN_STATE + " = ?)", user.getStateAbbr());
+        } else if ("STORE_MANAGER".equals(user.getRole())) {
+            query.where("o.storeid = ?", user.getStoreId());
+        }
+    }
+
+    private Integer toInteger(Object value) {
+        if (value instanceof Number number) {
+            return number.intValue();
+        }
+        if (value instanceof String text && !text.isBlank()) {
+            return Integer.parseInt(text.trim());
+        }
+        return null;
+    }
+
     private String generateSimplePeriodLabel(Integer year, Integer month, Integer quarter) {
         if (year == null) return "Unknown Period";
         
@@ -2037,115 +2146,46 @@ public class OptimizedPizzaService {
     // CUSTOM RANGE PERFORMANCE METRICS - Best Product and Category
     // =================================================================
 
-    private Map<String, Object> getBestProductForCustomRange(String storeId, Integer startYear, Integer startMonth, 
-                                                           Integer endYear, Integer endMonth) {
-        String sql;
+    private Map<String, Object> getBestProductForCustomRange(String storeId, PeriodRange range) {
+        String sql = """
+            SELECT p.sku, p.name, p.size, p.category,
+                   SUM(oi.quantity * p.price) as total_revenue,
+                   SUM(oi.quantity) as total_quantity,
+                   COUNT(DISTINCT o.orderid) as orders_count
+            FROM orders o
+            JOIN order_items oi ON o.orderid = oi.orderid
+            JOIN products p ON oi.sku = p.sku
+            WHERE o.storeid = ? AND o.orderdate >= ? AND o.orderdate < ?
+            GROUP BY p.sku, p.name, p.size, p.category
+            ORDER BY total_revenue DESC
+            LIMIT 1
+            """;
         List<Object> params = new ArrayList<>();
-        
-        if (startYear.equals(endYear)) {
-            // Same year - simple month range
-            sql = """
-                SELECT p.sku, p.name, p.size, p.category,
-                       SUM(oi.quantity * p.price) as total_revenue,
-                       SUM(oi.quantity) as total_quantity,
-                       COUNT(DISTINCT o.orderid) as orders_count
-                FROM orders o
-                JOIN order_items oi ON o.orderid = oi.orderid
-                JOIN products p ON oi.sku = p.sku
-                WHERE o.storeid = ? AND EXTRACT(YEAR FROM o.orderdate) = ?
-                  AND EXTRACT(MONTH FROM o.orderdate) >= ? AND EXTRACT(MONTH FROM o.orderdate) <= ?
-                GROUP BY p.sku, p.name, p.size, p.category
-                ORDER BY total_revenue DESC
-                LIMIT 1
-                """;
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(endMonth);
-        } else {
-            // Different years - more complex range
-            sql = """
-                SELECT p.sku, p.name, p.size, p.category,
-                       SUM(oi.quantity * p.price) as total_revenue,
-                       SUM(oi.quantity) as total_quantity,
-                       COUNT(DISTINCT o.orderid) as orders_count
-                FROM orders o
-                JOIN order_items oi ON o.orderid = oi.orderid
-                JOIN products p ON oi.sku = p.sku
-                WHERE o.storeid = ? AND
-                      ((EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) >= ?) OR
-                       (EXTRACT(YEAR FROM o.orderdate) > ? AND EXTRACT(YEAR FROM o.orderdate) < ?) OR
-                       (EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) <= ?))
-                GROUP BY p.sku, p.name, p.size, p.category
-                ORDER BY total_revenue DESC
-                LIMIT 1
-                """;
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(startYear);
-            params.add(endYear);
-            params.add(endYear);
-            params.add(endMonth);
-        }
+        params.add(storeId);
+        range.bind(params);
         
         List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, params.toArray());
         return result.isEmpty() ? new HashMap<>() : result.get(0);
     }
 
-    private Map<String, Object> getBestCategoryForCustomRange(String storeId, Integer startYear, Integer startMonth, 
-                                                            Integer endYear, Integer endMonth) {
-        String sql;
+    private Map<String, Object> getBestCategoryForCustomRange(String storeId, PeriodRange range) {
+        String sql = """
+            SELECT p.category,
+                   SUM(oi.quantity * p.price) as total_revenue,
+                   SUM(oi.quantity) as total_quantity,
+                   COUNT(DISTINCT o.orderid) as orders_count,
+                   COUNT(DISTINCT p.sku) as products_count
+            FROM orders o
+            JOIN order_items oi ON o.orderid = oi.orderid
+            JOIN products p ON oi.sku = p.sku
+            WHERE o.storeid = ? AND o.orderdate >= ? AND o.orderdate < ?
+            GROUP BY p.category
+            ORDER BY total_revenue DESC
+            LIMIT 1
+            """;
         List<Object> params = new ArrayList<>();
-        
-        if (startYear.equals(endYear)) {
-            // Same year - simple month range
-            sql = """
-                SELECT p.category,
-                       SUM(oi.quantity * p.price) as total_revenue,
-                       SUM(oi.quantity) as total_quantity,
-                       COUNT(DISTINCT o.orderid) as orders_count,
-                       COUNT(DISTINCT p.sku) as products_count
-                FROM orders o
-                JOIN order_items oi ON o.orderid = oi.orderid
-                JOIN products p ON oi.sku = p.sku
-                WHERE o.storeid = ? AND EXTRACT(YEAR FROM o.orderdate) = ?
-                  AND EXTRACT(MONTH FROM o.orderdate) >= ? AND EXTRACT(MONTH FROM o.orderdate) <= ?
-                GROUP BY p.category
-                ORDER BY total_revenue DESC
-                LIMIT 1
-                """;
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(endMonth);
-        } else {
-            // Different years - more complex range
-            sql = """
-                SELECT p.category,
-                       SUM(oi.quantity * p.price) as total_revenue,
-                       SUM(oi.quantity) as total_quantity,
-                       COUNT(DISTINCT o.orderid) as orders_count,
-                       COUNT(DISTINCT p.sku) as products_count
-                FROM orders o
-                JOIN order_items oi ON o.orderid = oi.orderid
-                JOIN products p ON oi.sku = p.sku
-                WHERE o.storeid = ? AND
-                      ((EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) >= ?) OR
-                       (EXTRACT(YEAR FROM o.orderdate) > ? AND EXTRACT(YEAR FROM o.orderdate) < ?) OR
-                       (EXTRACT(YEAR FROM o.orderdate) = ? AND EXTRACT(MONTH FROM o.orderdate) <= ?))
-                GROUP BY p.category
-                ORDER BY total_revenue DESC
-                LIMIT 1
-                """;
-            params.add(storeId);
-            params.add(startYear);
-            params.add(startMonth);
-            params.add(startYear);
-            params.add(endYear);
-            params.add(endYear);
-            params.add(endMonth);
-        }
+        params.add(storeId);
+        range.bind(params);
         
         List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, params.toArray());
         return result.isEmpty() ? new HashMap<>() : result.get(0);
@@ -2360,6 +2400,11 @@ public class OptimizedPizzaService {
 
     // Products overview chart - use products_info_all materialized view
     public List<Map<String, Object>> getProductsOverviewChart(User user, String timePeriod, Integer year, Integer month) {
+        Optional<List<Map<String, Object>>> fromCube = revenueCube.productsOverviewChart(timePeriod, year, month);
+        if (fromCube.isPresent()) {
+            return fromCube.get();
+        }
+
         StringBuilder sql = new StringBuilder();
         List<Object> params = new ArrayList<>();
         
@@ -2476,42 +2521,50 @@ public class OptimizedPizzaService {
     public Map<String, Object> getProductsComparePeriodsOverview(User user, List<Map<String, Object>> periods) {
         Map<String, Object> result = new HashMap<>();
         List<Map<String, Object>> comparisons = new ArrayList<>();
+        if (periods == null || periods.isEmpty()) {
+            result.put("comparisons", comparisons);
+            result.put("compareType", "periods");
+            result.put("totalPeriods", 0);
+            return result;
+        }
         
-        for (Map<String, Object> period : periods) {
+        // Top 10 products of every period in one query over the rollup rows
+        List<Object> params = new ArrayList<>();
+        String values = productPeriodValues(periods, params);
+        String sql = """
+            SELECT idx, sku, product_name, category, size, total_units, total_revenue, total_orders, unique_customers
+            FROM (
+                SELECT 
+                    p.idx,
+                    pia.sku, 
+                    pia.product_name, 
+                    pia.category, 
+                    pia.size,
+                    pia.units_sold as total_units,
+                    pia.revenue as total_revenue,
+                    pia.orders as total_orders,
+                    pia.unique_customers,
+                    ROW_NUMBER() OVER (PARTITION BY p.idx ORDER BY pia.revenue DESC) as rn
+                FROM (VALUES %s) AS p(idx, year, month)
+                JOIN products_info_all pia
+                  ON pia.year IS NOT DISTINCT FROM p.year AND pia.month IS NOT DISTINCT FROM p.month
+            ) ranked
+            WHERE rn <= 10
+            ORDER BY idx, rn
+            """.formatted(values);
+        
+        Map<Integer, List<Map<String, Object>>> productsByPeriod = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql, params.toArray())) {
+            int idx = ((Number) row.remove("idx")).intValue();
+            productsByPeriod.computeIfAbsent(idx, k -> new ArrayList<>()).add(row);
+        }
+        
+        for (int i = 0; i < periods.size(); i++) {
+            Map<String, Object> period = periods.get(i);
             Integer year = period.get("year") != null ? ((Number) period.get("year")).intValue() : null;
             Integer month = period.get("month") != null ? ((Number) period.get("month")).intValue() : null;
             String label = (String) period.getOrDefault("label", "");
-            
-            StringBuilder sql = new StringBuilder("""
-                SELECT 
-                    sku, 
-                    product_name, 
-                    category, 
-                    size,
-                    units_sold as total_units,
-                    revenue as total_revenue,
-                    orders as total_orders,
-                    unique_customers
-                FROM products_info_all
-                WHERE 1=1
-                """);
-            
-            List<Object> params = new ArrayList<>();
-            
-            if (year != null && month != null) {
-                sql.append(" AND year = ? AND month = ?");
-                params.add(year);
-                params.add(month);
-            } else if (year != null) {
-                sql.append(" AND year = ? AND month IS NULL");
-                params.add(year);
-            } else {
-                sql.append(" AND year IS NULL AND month IS NULL");
-            }
-            
-            sql.append(" ORDER BY total_revenue DESC LIMIT 10");
-            
-            List<Map<String, Object>> periodData = jdbcTemplate.queryForList(sql.toString(), params.toArray());
+            List<Map<String, Object>> periodData = productsByPeriod.getOrDefault(i, new ArrayList<>());
             
             Map<String, Object> comparison = new HashMap<>();
             comparison.put("period", Map.of("year", year, "month", month, "label", label));
@@ -2588,46 +2641,49 @@ public class OptimizedPizzaService {
     // Product compare periods (individual product)
     public List<Map<String, Object>> getProductComparePeriods(User user, String sku, List<Map<String, Object>> periods) {
         List<Map<String, Object>> result = new ArrayList<>();
+        if (periods == null || periods.isEmpty()) {
+            return result;
+        }
+        
+        // All requested periods for the SKU in one query; periods without a rollup row stay null
+        List<Object> params = new ArrayList<>();
+        String values = productPeriodValues(periods, params);
+        params.add(sku);
+        String sql = """
+            SELECT 
+                p.idx,
+                pia.sku,
+                pia.units_sold as total_units,
+                pia.revenue as total_revenue,
+                pia.orders as total_orders,
+                pia.unique_customers as total_customers,
+                (pia.revenue / NULLIF(pia.orders, 0)) as avg_order_value
+            FROM (VALUES %s) AS p(idx, year, month)
+            LEFT JOIN products_info_all pia
+              ON pia.sku = ? AND pia.year IS NOT DISTINCT FROM p.year AND pia.month IS NOT DISTINCT FROM p.month
+            ORDER BY p.idx
+            """.formatted(values);
+        
+        Map<Integer, Map<String, Object>> dataByPeriod = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(sql, params.toArray())) {
+            if (row.get("sku") != null) {
+                dataByPeriod.putIfAbsent(((Number) row.get("idx")).intValue(), row);
+            }
+        }
         
-        for (Map<String, Object> period : periods) {
+        for (int i = 0; i < periods.size(); i++) {
+            Map<String, Object> period = periods.get(i);
             Integer year = period.get("year") != null ? ((Number) period.get("year")).intValue() : null;
             Integer month = period.get("month") != null ? ((Number) period.get("month")).intValue() : null;
             String label = (String) period.getOrDefault("label", "");
             
-            StringBuilder sql = new StringBuilder("""
-                SELECT 
-                    units_sold as total_units,
-                    revenue as total_revenue,
-                    orders as total_orders,
-                    unique_customers as total_customers,
-                    (revenue / NULLIF(orders, 0)) as avg_order_value
-                FROM products_info_all
-                WHERE sku = ?
-                """);
-            
-            List<Object> params = new ArrayList<>();
-            params.add(sku);
-            
-            if (year != null && month != null) {
-                sql.append(" AND year = ? AND month = ?");
-                params.add(year);
-                params.add(month);
-            } else if (year != null) {
-                sql.append(" AND year = ? AND month IS NULL");
-                params.add(year);
-            } else {
-                sql.append(" AND year IS NULL AND month IS NULL");
-            }
-            
-            List<Map<String, Object>> periodData = jdbcTemplate.queryForList(sql.toString(), params.toArray());
-            
             Map<String, Object> periodResult = new HashMap<>();
             periodResult.put("periodLabel", label);
             periodResult.put("year", year);
             periodResult.put("month", month);
             
-            if (!periodData.isEmpty()) {
-                Map<String, Object> data = periodData.get(0);
+            Map<String, Object> data = dataByPeriod.get(i);
+            if (data != null) {
                 periodResult.put("revenue", data.get("total_revenue"));
                 periodResult.put("orders", data.get("total_orders"));
                 periodResult.put("units", data.get("total_units"));
@@ -2647,8 +2703,26 @@ public class OptimizedPizzaService {
         return result;
     }
 
+    /**
+     * VALUES rows (idx, year, month) addressing the products_info_all rollup: a year
+     * without month selects the yearly row, no year selects the all-time row.
+     */
+    private String productPeriodValues(List<Map<String, Object>> periods, List<Object> params) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < periods.size(); i++) {
+            Map<String, Object> period = periods.get(i);
+            Integer year = period.get("year") != null ? ((Number) period.get("year")).intValue() : null;
+            Integer month = year != null && period.get("month") != null ? ((Number) period.get("month")).intValue() : null;
+            values.append(i == 0 ? "" : ", ").append("(?, CAST(? AS INTEGER), CAST(? AS INTEGER))");
+            params.add(i);
+            params.add(year);
+            params.add(month);
+        }
+        return values.toString();
+    }
+
     // Helper method to calculate period summary
-    private Map<String, Object> calculatePeriodSummary(List<Map<String, Object>> periodData) {
+    Map<String, Object> calculatePeriodSummary(List<Map<String, Object>> periodData) {
         if (periodData.isEmpty()) {
             return Map.of(
                 "totalRevenue", 0,
@@ -2749,6 +2823,23 @@ public class OptimizedPizzaService {
      *                LIMIT $5 OFFSET ($6 - 1) * $5;
      */
     public List<Map<String, Object>> getProductsPerformance(Integer year, Integer month, String category, String search, User user, List<String> storeIds, List<String> states) {
+        List<Object> params = new ArrayList<>();
+        String sql = buildProductsPerformanceQuery(year, month, category, search, user, storeIds, states, params);
+        return jdbcTemplate.queryForList(sql, params.toArray());
+    }
+
+    /**
+     * Streams the products performance export with the columns of the export header.
+     */
+    @Transactional(readOnly = true)
+    @RunsOn(Workload.HEAVY)
+    public void streamProductsPerformanceExport(Writer writer, Integer year, Integer month, String category, String search, User user, List<String> storeIds, List<String> states) {
+        List<Object> params = new ArrayList<>();
+        String sql = buildProductsPerformanceQuery(year, month, category, search, user, storeIds, states, params);
+        streamCsvRows(sql, params, writer);
+    }
+
+    private String buildProductsPerformanceQuery(Integer year, Integer month, String category, String search, User user, List<String> storeIds, List<String> states, List<Object> params) {
         StringBuilder sql = new StringBuilder("""
             SELECT p.sku,
                 p.name as product_name,
@@ -2764,56 +2855,28 @@ public class OptimizedPizzaService {
             LEFT JOIN orders o ON oi.orderid = o.orderid
             """);
 
-        List<Object> params = new ArrayList<>();
-        List<String> whereClauses = new ArrayList<>();
-
-        if (user != null) {
-            String role = user.getRole();
-            if ("STATE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr = ?)");
-                params.add(user.getStateAbbr());
-            } else if ("STORE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid = ?");
-                params.add(user.getStoreId());
-            }
-        }
-        
-        if (year != null) {
-            whereClauses.add("EXTRACT(YEAR FROM o.orderdate) = ?");
-            params.add(year);
-        }
-        if (month != null) {
-            whereClauses.add("EXTRACT(MONTH FROM o.orderdate) = ?");
-            params.add(month);
-        }
+        ScopedQuery query = ScopedQuery.wrap(sql, params);
+        scopeProductOrders(query, user);
+        addOrderDateFilter(query, year, month);
         if (category != null && !category.trim().isEmpty()) {
-            whereClauses.add("p.category ILIKE ?");
-            params.add("%" + category + "%");
+            query.where("p.category ILIKE ?", "%" + category + "%");
         }
         if (search != null && !search.trim().isEmpty()) {
-            whereClauses.add("(p.sku ILIKE ? OR p.name ILIKE ?)");
-            params.add("%" + search + "%");
-            params.add("%" + search + "%");
-        }
-        if (storeIds != null && !storeIds.isEmpty()) {
-            whereClauses.add("o.storeid IN (" + String.join(",", Collections.nCopies(storeIds.size(), "?")) + ")");
-            params.addAll(storeIds);
-        }
-        if (states != null && !states.isEmpty()) {
-            whereClauses.add("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr IN (" + String.join(",", Collections.nCopies(states.size(), "?")) + "))");
-            params.addAll(states);
-        }
-
-        if (!whereClauses.isEmpty()) {
-            sql.append(" WHERE ").append(String.join(" AND ", whereClauses));
+            query.where("(p.sku ILIKE ? OR p.name ILIKE ?)", "%" + search + "%", "%" + search + "%");
         }
+        query.in("o.storeid", storeIds)
+                .inSelect("o.storeid", STORES_IN_STATE, states)
+                .append("GROUP BY p.sku, p.name, p.size, p.price, p.category, p.launch ORDER BY total_revenue DESC");
 
-        sql.append(" GROUP BY p.sku, p.name, p.size, p.price, p.category, p.launch ORDER BY total_revenue DESC");
-
-        return jdbcTemplate.queryForList(sql.toString(), params.toArray());
+        return query.sql();
     }
 
     public List<Map<String, Object>> getRevenueByCategory(Integer year, Integer month, String search, User user, List<String> storeIds, List<String> states) {
+        Optional<List<Map<String, Object>>> fromCube = revenueCube.revenueByCategory(year, month, search, user, storeIds, states);
+        if (fromCube.isPresent()) {
+            return fromCube.get();
+        }
+
         StringBuilder sql = new StringBuilder("""
             SELECT p.category,
                    COALESCE(SUM(oi.quantity * p.price), 0) as total_revenue
@@ -2823,56 +2886,41 @@ public class OptimizedPizzaService {
             """);
         
         List<Object> params = new ArrayList<>();
-        List<String> whereClauses = new ArrayList<>();
-        
-        if (user != null) {
-            String role = user.getRole();
-            if ("HQ_ADMIN".equals(role)) {
-                // HQ can filter by states if provided
-                if (states != null && !states.isEmpty()) {
-                    String inClause = String.join(",", Collections.nCopies(states.size(), "?"));
-                    whereClauses.add(String.format("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr IN (%s))", inClause));
-                    params.addAll(states);
-                }
-            } else if ("STATE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr = ?)");
-                params.add(user.getStateAbbr());
-            } else if ("STORE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid = ?");
-                params.add(user.getStoreId());
-            }
-        }
+        ScopedQuery query = ScopedQuery.wrap(sql, params);
         
-        if (year != null) {
-            whereClauses.add("EXTRACT(YEAR FROM o.orderdate) = ?");
-            params.add(year);
-        }
-        if (month != null) {
-            whereClauses.add("EXTRACT(MONTH FROM o.orderdate) = ?");
-            params.add(month);
+        // HQ can filter by states if provided
+        if (user != null && "HQ_ADMIN".equals(user.getRole())) {
+            query.inSelect("o.storeid", STORES_IN_STATE, states);
         }
+        scopeProductOrders(query, user);
+        addOrderDateFilter(query, year, month);
         if (search != null && !search.trim().isEmpty()) {
-            whereClauses.add("(p.sku ILIKE ? OR p.name ILIKE ?)");
-            params.add("%" + search + "%");
-            params.add("%" + search + "%");
-        }
-        if (storeIds != null && !storeIds.isEmpty()) {
-            whereClauses.add("o.storeid IN (" + String.join(",", Collections.nCopies(storeIds.size(), "?")) + ")");
-            params.addAll(storeIds);
-        }
-        
-        if (!whereClauses.isEmpty()) {
-            sql.append(" WHERE ").append(String.join(" AND ", whereClauses));
+            query.where("(p.sku ILIKE ? OR p.name ILIKE ?)", "%" + search + "%", "%" + search + "%");
         }
+        query.in("o.storeid", storeIds);
         
-        sql.append(" GROUP BY p.category ORDER BY total_revenue DESC");
-        return jdbcTemplate.queryForList(sql.toString(), params.toArray());
+        query.append("GROUP BY p.category ORDER BY total_revenue DESC");
+        return jdbcTemplate.queryForList(query.sql(), query.params());
     }
 
     /**
      * Get aggregate KPIs for hero tiles
      */
     public Map<String, Object> getProductsKpis(Integer year, Integer month, String category, User user, List<String> storeIds, List<String> states) {
+        return getProductsKpis(year, month, category, user, storeIds, states, false);
+    }
+
+    /**
+     * Get aggregate KPIs for hero tiles; exact bypasses the revenue cube
+     */
+    public Map<String, Object> getProductsKpis(Integer year, Integer month, String category, User user, List<String> storeIds,
+                                               List<String> states, boolean exact) {
+        if (!exact) {
+            Optional<Map<String, Object>> fromCube = revenueCube.productsKpis(year, month, category, user, storeIds, states);
+            if (fromCube.isPresent()) {
+                return fromCube.get();
+            }
+        }
         StringBuilder sql = new StringBuilder("""
             SELECT 
                 COUNT(DISTINCT p.sku) as total_products,
@@ -2886,56 +2934,29 @@ public class OptimizedPizzaService {
             """);
         
         List<Object> params = new ArrayList<>();
-        List<String> whereClauses = new ArrayList<>();
-
-        if (user != null) {
-            String role = user.getRole();
-            if ("HQ_ADMIN".equals(role)) {
-                // HQ can filter by states if provided
-                if (states != null && !states.isEmpty()) {
-                    String inClause = String.join(",", Collections.nCopies(states.size(), "?"));
-                    whereClauses.add(String.format("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr IN (%s))", inClause));
-                    params.addAll(states);
-                }
-            } else if ("STATE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid IN (SELECT storeid FROM stores WHERE state_abbr = ?)");
-                params.add(user.getStateAbbr());
-            } else if ("STORE_MANAGER".equals(role)) {
-                whereClauses.add("o.storeid = ?");
-                params.add(user.getStoreId());
-            }
-        }
-        
-        if (year != null) {
-            whereClauses.add("EXTRACT(YEAR FROM o.orderdate) = ?");
-            params.add(year);
-        }
-        if (month != null) {
-            whereClauses.add("EXTRACT(MONTH FROM o.orderdate) = ?");
-            params.add(month);
+        ScopedQuery query = ScopedQuery.wrap(sql, params);
+
+        // HQ can filter by states if provided
+        if (user != null && "HQ_ADMIN".equals(user.getRole())) {
+            query.inSelect("o.storeid", STORES_IN_STATE, states);
         }
+        scopeProductOrders(query, user);
+        addOrderDateFilter(query, year, month);
         if (category != null && !category.trim().isEmpty()) {
-            whereClauses.add("p.category ILIKE ?");
-            params.add("%" + category + "%");
-        }
-        if (storeIds != null && !storeIds.isEmpty()) {
-            whereClauses.add("o.storeid IN (" + String.join(",", Collections.nCopies(storeIds.size(), "?")) + ")");
-            params.addAll(storeIds);
-        }
-
-        if (!whereClauses.isEmpty()) {
-            sql.append(" WHERE ").append(String.join(" AND ", whereClauses));
+            query.where("p.category ILIKE ?", "%" + category + "%");
         }
+        query.in("o.storeid", storeIds);
 
         try {
-            Map<String, Object> result = jdbcTemplate.queryForMap(sql.toString(), params.toArray());
+            Map<String, Object> result = jdbcTemplate.queryForMap(query.sql(), query.params());
             
             return Map.of(
                 "totalProducts", ((Number) result.getOrDefault("total_products", 0)).intValue(),
                 "totalRevenue", ((Number) result.getOrDefault("total_revenue", 0)).doubleValue(),
                 "totalOrders", ((Number) result.getOrDefault("total_orders", 0)).intValue(),
                 "totalUnits", ((Number) result.getOrDefault("total_units", 0)).intValue(),
-                "avgPrice", ((Number) result.getOrDefault("avg_price", 0)).doubleValue()
+                "avgPrice", ((Number) result.getOrDefault("avg_price", 0)).doubleValue(),
+                "distinctErrorBound", 0.0
             );
         } catch (Exception e) {
             logger.error("Error getting products KPIs: ", e);
@@ -2945,7 +2966,8 @@ public class OptimizedPizzaService {
                 "totalRevenue", 0.0,
                 "totalOrders", 0,
                 "totalUnits", 0,
-                "avgPrice", 0.0
+                "avgPrice", 0.0,
+                "distinctErrorBound", 0.0
             );
         }
     }
@@ -2957,131 +2979,26 @@ public class OptimizedPizzaService {
     public Map<String, Object> getOrdersWithFiltersAndPagination(
             int page, int limit, String store, String state, String orderid, 
             String search, String from, String to, String sortBy, String sortOrder, User user) {
+        return getOrdersWithFiltersAndPagination(page, limit, store, state, orderid, search, from, to,
+                sortBy, sortOrder, "exact", user);
+    }
+
+    public Map<String, Object> getOrdersWithFiltersAndPagination(
+            int page, int limit, String store, String state, String orderid, 
+            String search, String from, String to, String sortBy, String sortOrder, String countMode, User user) {
         
         // Build parameterized query using the materialized view
-        StringBuilder sql = new StringBuilder("""
-            SELECT 
-                orderid,
-                customerid,
-                orderdate,
-                storeid,
-                state_code,
-                state,
-                nitems,
-                order_value,
-                city
-            FROM public.dashboard_recent_orders
-            WHERE 1=1
-            """);
-        
+        StringBuilder sql = new StringBuilder(ORDERS_SELECT);
         List<Object> params = new ArrayList<>();
-        
-        // Apply role-based filters
-        switch (user.getRole()) {
-            case "HQ_ADMIN":
-                // HQ can see everything - apply optional filters
-                if (store != null && !store.trim().isEmpty()) {
-                    sql.append(" AND storeid = ?");
-                    params.add(store);
-                }
-                if (state != null && !state.trim().isEmpty()) {
-                    sql.append(" AND state_code = ?");
-                    params.add(state);
-                }
-                break;
-                
-            case "STATE_MANAGER":
-                // State manager sees only their state
-                sql.append(" AND state_code = ?");
-                params.add(user.getStateAbbr());
-                
-                if (store != null && !store.trim().isEmpty()) {
-                    sql.append(" AND storeid = ?");
-                    params.add(store);
-                }
-                break;
-                
-            case "STORE_MANAGER":
-                // Store manager sees only their store
-                sql.append(" AND storeid = ?");
-                params.add(user.getStoreId());
-                break;
-                
-            default:
-                throw new AccessDeniedException("Unknown role: " + user.getRole());
-        }
-        
-        // Apply additional filters
-        if (orderid != null && !orderid.trim().isEmpty()) {
-            try {
-                Integer orderIdInt = Integer.parseInt(orderid);
-                sql.append(" AND orderid = ?");
-                params.add(orderIdInt);
-            } catch (NumberFormatException e) {
-                // Ignore invalid order ID
-            }
-        }
-        
-        if (search != null && !search.trim().isEmpty()) {
-            // Enhanced search to support both state abbreviations (AZ, CA, NV, UT) and full state names (Arizona, California, Nevada, Utah)
-            sql.append(" AND (CAST(customerid AS TEXT) LIKE ? OR CAST(orderid AS TEXT) LIKE ? OR city ILIKE ? OR storeid ILIKE ? OR state_code ILIKE ? OR ");
-            sql.append("(state_code = 'AZ' AND ? ILIKE '%arizona%') OR ");
-            sql.append("(state_code = 'CA' AND ? ILIKE '%california%') OR ");
-            sql.append("(state_code = 'NV' AND ? ILIKE '%nevada%') OR ");
-            sql.append("(state_code = 'UT' AND ? ILIKE '%utah%'))");
-            
-            String searchPattern = "%" + search.trim() + "%";
-            String searchLower = search.trim().toLowerCase();
-            
-            // Add parameters for basic searches
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            
-            // Add parameters for full state name searches
-            params.add(searchLower);
-            params.add(searchLower);
-            params.add(searchLower);
-            params.add(searchLower);
-        }
-        
-        if (from != null && !from.trim().isEmpty()) {
-            sql.append(" AND orderdate >= CAST(? AS TIMESTAMP)");
-            params.add(from);
-        }
-        
-        if (to != null && !to.trim().isEmpty()) {
-            sql.append(" AND orderdate < CAST(? AS TIMESTAMP) + INTERVAL '1 day'");
-            params.add(to);
-        }
+        appendOrdersFilters(sql, params, store, state, orderid, search, from, to, user);
         
         // Get total count before pagination
-        String countSql = "SELECT COUNT(*) " + sql.toString().substring(sql.indexOf("FROM"));
-        Long totalCount = jdbcTemplate.queryForObject(countSql, Long.class, params.toArray());
+        Long totalCount = countOrders(sql, params, countMode);
         
         // Add ordering and pagination
         String orderClause = " ORDER BY ";
         if (sortBy != null && !sortBy.trim().isEmpty()) {
-            switch (sortBy.toLowerCase()) {
-                case "orderid":
-                    orderClause += "orderid";
-                    break;
-                case "total":
-                case "order_value":
-                    orderClause += "order_value";
-                    break;
-                case "orderdate":
-                    orderClause += "orderdate";
-                    break;
-                case "nitems":
-                case "items":
-                    orderClause += "nitems";
-                    break;
-                default:
-                    orderClause += "orderdate"; // Default sort
-            }
+            orderClause += resolveOrdersSortColumn(sortBy);
             
             // Add sort direction
             if (sortOrder != null && sortOrder.equalsIgnoreCase("asc")) {
@@ -3098,29 +3015,280 @@ public class OptimizedPizzaService {
             orderClause += "orderdate DESC, orderid DESC"; // Default sort
         }
         
+        // Without a count, one extra row tells us whether there is a next page
+        int fetchSize = totalCount == null ? limit + 1 : limit;
         sql.append(orderClause);
         sql.append(" LIMIT ? OFFSET ?");
-        params.add(limit);
+        params.add(fetchSize);
         params.add(page * limit);
         
         // Execute query
         List<Map<String, Object>> orders = jdbcTemplate.queryForList(sql.toString(), params.toArray());
-        
-        // Calculate pagination metadata
-        int totalPages = (int) Math.ceil((double) totalCount / limit);
+        boolean hasNext;
+        Integer totalPages = null;
+        if (totalCount == null) {
+            hasNext = orders.size() > limit;
+            if (hasNext) {
+                orders = orders.subList(0, limit);
+            }
+        } else {
+            // Calculate pagination metadata
+            totalPages = (int) Math.ceil((double) totalCount / limit);
+            hasNext = page < totalPages - 1;
+        }
         
         Map<String, Object> result = new HashMap<>();
         result.put("orders", orders);
         result.put("totalCount", totalCount);
+        result.put("totalCountEstimated", "estimate".equalsIgnoreCase(countMode));
         result.put("totalPages", totalPages);
         result.put("currentPage", page);
         result.put("pageSize", limit);
-        result.put("hasNext", page < totalPages - 1);
+        result.put("hasNext", hasNext);
         result.put("hasPrevious", page > 0);
         
         return result;
     }
 
+    /**
+     * Keyset (seek) pagination over dashboard_recent_orders. Instead of OFFSET the next page
+     * starts after the (sort value, orderid) pair carried in the opaque cursor, so deep pages
+     * cost the same as the first one. countMode is "none" (default), "estimate" or "exact".
+     */
+    public Map<String, Object> getOrdersWithKeysetPagination(
+            int limit, String cursor, String store, String state, String orderid,
+            String search, String from, String to, String sortBy, String sortOrder, String countMode, User user) {
+
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be at least 1");
+        }
+
+        String sortColumn = resolveOrdersSortColumn(sortBy);
+        boolean ascending = sortOrder != null && sortOrder.equalsIgnoreCase("asc");
+
+        StringBuilder sql = new StringBuilder(ORDERS_SELECT);
+        List<Object> params = new ArrayList<>();
+        appendOrdersFilters(sql, params, store, state, orderid, search, from, to, user);
+
+        // Count only the filter, not the seek predicate
+        Long totalCount = countOrders(sql, params, countMode);
+
+        if (cursor != null && !cursor.isBlank()) {
+            OrderCursor after = OrderCursor.decode(cursor);
+            if (!after.sortColumn().equals(sortColumn) || after.ascending() != ascending) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort order");
+            }
+            String op = ascending ? ">" : "<";
+            if ("orderid".equals(sortColumn)) {
+                sql.append(" AND orderid ").append(op).append(" ?");
+            } else {
+                sql.append(" AND (").append(sortColumn).append(", orderid) ").append(op).append(" (?, ?)");
+                params.add(after.typedSortValue());
+            }
+            params.add(after.orderId());
+        }
+
+        // Tie-breaker uses the same direction so the row comparison above stays valid
+        String direction = ascending ? " ASC" : " DESC";
+        sql.append(" ORDER BY ").append(sortColumn).append(direction);
+        if (!"orderid".equals(sortColumn)) {
+            sql.append(", orderid").append(direction);
+        }
+        sql.append(" LIMIT ?");
+        params.add(limit + 1);
+
+        List<Map<String, Object>> orders = jdbcTemplate.queryForList(sql.toString(), params.toArray());
+        boolean hasNext = orders.size() > limit;
+        if (hasNext) {
+            orders = orders.subList(0, limit);
+        }
+
+        String nextCursor = null;
+        if (hasNext) {
+            Map<String, Object> last = orders.get(orders.size() - 1);
+            nextCursor = OrderCursor.after(sortColumn, ascending, last.get(sortColumn), last.get("orderid")).encode();
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("orders", orders);
+        result.put("nextCursor", nextCursor);
+        result.put("hasNext", hasNext);
+        result.put("pageSize", limit);
+        result.put("totalCount", totalCount);
+        result.put("totalCountEstimated", "estimate".equalsIgnoreCase(countMode));
+        return result;
+    }
+
+    /**
+     * Streams every order matching the grid filters as CSV rows, newest first. Runs in a
+     * read-only transaction because the PostgreSQL driver only honours the fetch size
+     * (server-side cursor) with auto-commit disabled.
+     */
+    @Transactional(readOnly = true)
+    @RunsOn(Workload.HEAVY)
+    public void streamOrdersExport(Writer writer, String store, String state, String orderid,
+            String search, String from, String to, User user) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT orderid, customerid, orderdate, storeid, state_code, city, nitems, order_value
+            FROM public.dashboard_recent_orders
+            WHERE 1=1
+            """);
+        List<Object> params = new ArrayList<>();
+        appendOrdersFilters(sql, params, store, state, orderid, search, from, to, user);
+        sql.append(" ORDER BY orderdate DESC, orderid DESC");
+
+        streamCsvRows(sql.toString(), params, writer);
+    }
+
+    /**
+     * Streams the customer lifetime value export, top spenders first, within the user's scope.
+     */
+    @Transactional(readOnly = true)
+    @RunsOn(Workload.HEAVY)
+    public void streamCustomerLifetimeValueExport(Writer writer, User user, int limit) {
+        StringBuilder sql = new StringBuilder("""
+            SELECT clv.customerid, clv.total_orders, clv.total_spent, clv.avg_order_value,
+                   clv.first_order_date, clv.last_order_date, clv.customer_lifespan_days,
+                   clv.stores_visited, clv.daily_value, clv.clv_per_order, clv.customer_segment
+            FROM customer_lifetime_value clv
+            """);
+        List<Object> params = new ArrayList<>();
+        switch (user.getRole()) {
+            case "HQ_ADMIN" -> { }
+            case "STATE_MANAGER" -> {
+                sql.append(" WHERE clv.customerid IN (SELECT o.customerid FROM orders o JOIN stores s ON o.storeid = s.storeid WHERE s.state_abbr = ?)");
+                params.add(user.getStateAbbr());
+            }
+            case "STORE_MANAGER" -> {
+                sql.append(" WHERE clv.customerid IN (SELECT o.customerid FROM orders o WHERE o.storeid = ?)");
+                params.add(user.getStoreId());
+            }
+            default -> throw new AccessDeniedException("Unknown role: " + user.getRole());
+        }
+        sql.append(" ORDER BY clv.total_spent DESC LIMIT ?");
+        params.add(limit);
+
+        streamCsvRows(sql.toString(), params, writer);
+    }
+
+    /**
+     * Runs the query on a forward-only cursor and writes each row to the CSV writer as it
+     * arrives, so memory use does not depend on the result size.
+     */
+    private void streamCsvRows(String sql, List<Object> params, Writer writer) {
+        long startTime = System.currentTimeMillis();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(EXPORT_FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(params.toArray()).setValues(ps);
+            return ps;
+        }, CsvExportUtil.rowWriter(writer));
+        logger.info("CSV export streamed in {}ms", System.currentTimeMillis() - startTime);
+    }
+
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final String ORDERS_SELECT = """
+            SELECT 
+                orderid,
+                customerid,
+                orderdate,
+                storeid,
+                state_code,
+                state,
+                nitems,
+                order_value,
+                city
+            FROM public.dashboard_recent_orders
+            WHERE 1=1
+            """;
+
+    private static final String ORDERS_SEARCH_PREDICATE =
+            "(CAST(customerid AS TEXT) LIKE ? OR CAST(orderid AS TEXT) LIKE ? OR city ILIKE ? OR storeid ILIKE ? OR state_code ILIKE ? OR " +
+            "(state_code = 'AZ' AND ? ILIKE '%arizona%') OR " +
+            "(state_code = 'CA' AND ? ILIKE '%california%') OR " +
+            "(state_code = 'NV' AND ? ILIKE '%nevada%') OR " +
+            "(state_code = 'UT' AND ? ILIKE '%utah%'))";
+
+    private static final Pattern PLAN_ROWS = Pattern.compile("\"Plan Rows\"\\s*:\\s*([0-9.]+)");
+
+    /**
+     * Role scope and optional filters shared by the orders grid queries.
+     */
+    private void appendOrdersFilters(StringBuilder sql, List<Object> params, String store, String state,
+            String orderid, String search, String from, String to, User user) {
+        ScopedQuery query = ScopedQuery.extend(sql, params).scope(user, "state_code", "storeid");
+        
+        // HQ may narrow down by state and store, a state manager by store within their state
+        if (!"STORE_MANAGER".equals(user.getRole())) {
+            query.eq("storeid", store);
+        }
+        if ("HQ_ADMIN".equals(user.getRole())) {
+            query.eq("state_code", state);
+        }
+        
+        if (orderid != null && !orderid.trim().isEmpty()) {
+            try {
+                query.where("orderid = ?", Integer.parseInt(orderid));
+            } catch (NumberFormatException e) {
+                // Ignore invalid order ID
+            }
+        }
+        
+        if (search != null && !search.trim().isEmpty()) {
+            // Matches state abbreviations (AZ, CA, NV, UT) as well as full state names (Arizona, California, Nevada, Utah)
+            String searchPattern = "%" + search.trim() + "%";
+            String searchLower = search.trim().toLowerCase();
+            query.where(ORDERS_SEARCH_PREDICATE,
+                    searchPattern, searchPattern, searchPattern, searchPattern, searchPattern,
+                    searchLower, searchLower, searchLower, searchLower);
+        }
+        
+        if (from != null && !from.trim().isEmpty()) {
+            query.where("orderdate >= CAST(? AS TIMESTAMP)", from);
+        }
+        
+        if (to != null && !to.trim().isEmpty()) {
+            query.where("orderdate < CAST(? AS TIMESTAMP) + INTERVAL '1 day'", to);
+        }
+    }
+
+    private String resolveOrdersSortColumn(String sortBy) {
+        if (sortBy == null || sortBy.trim().isEmpty()) {
+            return "orderdate";
+        }
+        return switch (sortBy.toLowerCase()) {
+            case "orderid" -> "orderid";
+            case "total", "order_value" -> "order_value";
+            case "nitems", "items" -> "nitems";
+            default -> "orderdate"; // Default sort
+        };
+    }
+
+    /**
+     * Row count for the filtered orders query. "exact" runs COUNT(*), "estimate" reads the
+     * planner's row estimate from EXPLAIN, anything else skips counting and returns null.
+     */
+    private Long countOrders(StringBuilder sql, List<Object> params, String countMode) {
+        String fromClause = sql.substring(sql.indexOf("FROM"));
+        if (countMode == null || countMode.equalsIgnoreCase("exact")) {
+            return jdbcTemplate.queryForObject("SELECT COUNT(*) " + fromClause, Long.class, params.toArray());
+        }
+        if (countMode.equalsIgnoreCase("estimate")) {
+            try {
+                String plan = jdbcTemplate.queryForObject("EXPLAIN (FORMAT JSON) SELECT 1 " + fromClause,
+                        String.class, params.toArray());
+                Matcher matcher = PLAN_ROWS.matcher(plan != null ? plan : "");
+                if (matcher.find()) {
+                    return (long) Double.parseDouble(matcher.group(1));
+                }
+            } catch (Exception e) {
+                logger.warn("Could not estimate orders count: {}", e.getMessage());
+            }
+        }
+        return null;
+    }
+
     /**
      * Get available states for orders filtering based on user role
      */
@@ -3166,17 +3334,34 @@ public class OptimizedPizzaService {
     /**
      * Get KPIs for orders page based on the same filters used for orders table
      */
-    @Cacheable(value = "ordersKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #store + '_' + #state + '_' + #orderid + '_' + #search + '_' + #from + '_' + #to")
     public Map<String, Object> getOrdersKPIs(
             String store, String state, String orderid, 
             String search, String from, String to, User user) {
+        return getOrdersKPIs(store, state, orderid, search, from, to, false, user);
+    }
+
+    /**
+     * Orders page KPIs. Unless exact is set, ranges of whole months are answered from the
+     * revenue cube, where the distinct customer count may be an estimate (see distinctErrorBound).
+     */
+    @Cacheable(value = "ordersKPIs", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #store + '_' + #state + '_' + #orderid + '_' + #search + '_' + #from + '_' + #to + '_' + #exact", sync = true)
+    public Map<String, Object> getOrdersKPIs(
+            String store, String state, String orderid, 
+            String search, String from, String to, boolean exact, User user) {
+        
+        if (!exact) {
+            Optional<Map<String, Object>> fromCube = revenueCube.ordersKpis(store, state, orderid, search, from, to, user);
+            if (fromCube.isPresent()) {
+                return fromCube.get();
+            }
+        }
         
         logger.info("Loading orders KPIs for user role: {} with filters - store: {}, state: {}, orderid: {}, search: {}, from: {}, to: {}", 
                    user.getRole(), store, state, orderid, search, from, to);
         
         long startTime = System.currentTimeMillis();
         
-        // Build parameterized query using the same logic as getOrdersWithFiltersAndPagination
+        // Same filters as getOrdersWithFiltersAndPagination
         StringBuilder sql = new StringBuilder("""
             SELECT 
                 COUNT(*) as total_orders,
@@ -3189,86 +3374,7 @@ public class OptimizedPizzaService {
         
         List<Object> params = new ArrayList<>();
         
-        // Apply role-based filters (same logic as orders method)
-        switch (user.getRole()) {
-            case "HQ_ADMIN":
-                // HQ can see everything - apply optional filters
-                if (store != null && !store.trim().isEmpty()) {
-                    sql.append(" AND storeid = ?");
-                    params.add(store);
-                }
-                if (state != null && !state.trim().isEmpty()) {
-                    sql.append(" AND state_code = ?");
-                    params.add(state);
-                }
-                break;
-                
-            case "STATE_MANAGER":
-                // State manager sees only their state
-                sql.append(" AND state_code = ?");
-                params.add(user.getStateAbbr());
-                
-                if (store != null && !store.trim().isEmpty()) {
-                    sql.append(" AND storeid = ?");
-                    params.add(store);
-                }
-                break;
-                
-            case "STORE_MANAGER":
-                // Store manager sees only their store
-                sql.append(" AND storeid = ?");
-                params.add(user.getStoreId());
-                break;
-                
-            default:
-                throw new AccessDeniedException("Unknown role: " + user.getRole());
-        }
-        
-        // Apply additional filters (same as orders method)
-        if (orderid != null && !orderid.trim().isEmpty()) {
-            try {
-                Integer orderIdInt = Integer.parseInt(orderid);
-                sql.append(" AND orderid = ?");
-                params.add(orderIdInt);
-            } catch (NumberFormatException e) {
-                // Ignore invalid order ID
-            }
-        }
-        
-        if (search != null && !search.trim().isEmpty()) {
-            // Enhanced search to support both state abbreviations (AZ, CA, NV, UT) and full state names (Arizona, California, Nevada, Utah)
-            sql.append(" AND (CAST(customerid AS TEXT) LIKE ? OR CAST(orderid AS TEXT) LIKE ? OR city ILIKE ? OR storeid ILIKE ? OR state_code ILIKE ? OR ");
-            sql.append("(state_code = 'AZ' AND ? ILIKE '%arizona%') OR ");
-            sql.append("(state_code = 'CA' AND ? ILIKE '%california%') OR ");
-            sql.append("(state_code = 'NV' AND ? ILIKE '%nevada%') OR ");
-            sql.append("(state_code = 'UT' AND ? ILIKE '%utah%'))");
-            
-            String searchPattern = "%" + search.trim() + "%";
-            String searchLower = search.trim().toLowerCase();
-            
-            // Add parameters for basic searches
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            params.add(searchPattern);
-            
-            // Add parameters for full state name searches
-            params.add(searchLower);
-            params.add(searchLower);
-            params.add(searchLower);
-            params.add(searchLower);
-        }
-        
-        if (from != null && !from.trim().isEmpty()) {
-            sql.append(" AND orderdate >= CAST(? AS TIMESTAMP)");
-            params.add(from);
-        }
-        
-        if (to != null && !to.trim().isEmpty()) {
-            sql.append(" AND orderdate < CAST(? AS TIMESTAMP) + INTERVAL '1 day'");
-            params.add(to);
-        }
+        appendOrdersFilters(sql, params, store, state, orderid, search, from, to, user);
         
         logger.debug("Executing KPI query: {} with params: {}", sql.toString(), params);
         
@@ -3281,6 +3387,7 @@ public class OptimizedPizzaService {
         kpis.put("totalRevenue", ((Number) result.getOrDefault("total_revenue", 0.0)).doubleValue());
         kpis.put("totalCustomers", ((Number) result.getOrDefault("total_customers", 0)).longValue());
         kpis.put("totalStores", ((Number) result.getOrDefault("total_stores", 0)).longValue());
+        kpis.put("distinctErrorBound", 0.0);
         
         long endTime = System.currentTimeMillis();
         logger.info("Orders KPIs loaded in {} ms: {}", (endTime - startTime), kpis);
@@ -3306,7 +3413,7 @@ public class OptimizedPizzaService {
     // CUSTOMER LIFETIME VALUE ANALYTICS - Role-based
     // =================================================================
 
-    @Cacheable(value = "customerLifetimeValue", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit")
+    @Cacheable(value = "customerLifetimeValue", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit", sync = true)
     public List<Map<String, Object>> getCustomerLifetimeValue(User user, Integer limit) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCustomerLifetimeValueHQ(limit);
@@ -3316,12 +3423,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "customerLifetimeValueFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "customerLifetimeValueFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getCustomerLifetimeValue(User user, Integer limit, List<String> states, List<String> storeIds) {
         return getFilteredCustomerLifetimeValue(user, limit, states, storeIds);
     }
 
-    @Cacheable(value = "customerLifetimeValueSummary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "customerLifetimeValueSummary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public Map<String, Object> getCustomerLifetimeValueSummary(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCustomerLifetimeValueSummaryHQ();
@@ -3331,7 +3438,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "customerLifetimeValueSummaryFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "customerLifetimeValueSummaryFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds", sync = true)
     public Map<String, Object> getCustomerLifetimeValueSummary(User user, List<String> states, List<String> storeIds) {
         return getFilteredCustomerLifetimeValueSummary(user, states, storeIds);
     }
@@ -3340,7 +3447,7 @@ public class OptimizedPizzaService {
     // CUSTOMER RETENTION ANALYTICS - Role-based
     // =================================================================
 
-    @Cacheable(value = "customerRetentionAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit")
+    @Cacheable(value = "customerRetentionAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit", sync = true)
     public List<Map<String, Object>> getCustomerRetentionAnalysis(User user, Integer limit) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getCustomerRetentionAnalysisHQ(limit);
@@ -3350,7 +3457,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "customerRetentionAnalysisFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "customerRetentionAnalysisFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #limit + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getCustomerRetentionAnalysis(User user, Integer limit, List<String> states, List<String> storeIds) {
         return getFilteredCustomerRetentionAnalysis(user, limit, states, storeIds);
     }
@@ -3359,7 +3466,7 @@ public class OptimizedPizzaService {
     // STORE CAPACITY ANALYTICS - Role-based
     // =================================================================
 
-    @Cacheable(value = "storeCapacityAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeCapacityAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStoreCapacityAnalysis(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityAnalysisHQ();
@@ -3369,7 +3476,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeCapacitySummary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeCapacitySummary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public Map<String, Object> getStoreCapacitySummary(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacitySummaryHQ();
@@ -3379,7 +3486,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "peakHoursAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "peakHoursAnalysis", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getPeakHoursAnalysis(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getPeakHoursAnalysisHQ();
@@ -3393,7 +3500,7 @@ public class OptimizedPizzaService {
     // STORE CAPACITY V3 - Enhanced capacity analysis with delivery metrics
     // =================================================================
 
-    @Cacheable(value = "storeCapacityV3Summary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeCapacityV3Summary", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3Summary(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3SummaryHQ();
@@ -3406,12 +3513,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeCapacityV3SummaryFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "storeCapacityV3SummaryFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3Summary(User user, List<String> states, List<String> storeIds) {
         return getFilteredStoreCapacityV3Summary(user, states, storeIds);
     }
 
-    @Cacheable(value = "storeCapacityV3Metrics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month")
+    @Cacheable(value = "storeCapacityV3Metrics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3Metrics(User user, Integer year, Integer month) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3MetricsHQ(year, month);
@@ -3421,7 +3528,7 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeCapacityV3PeakHours", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeCapacityV3PeakHours", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3PeakHours(User user) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3PeakHoursHQ();
@@ -3431,12 +3538,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeCapacityV3PeakHoursFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "storeCapacityV3PeakHoursFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3PeakHours(User user, List<String> states, List<String> storeIds) {
         return getFilteredStoreCapacityV3PeakHours(user, states, storeIds);
     }
 
-    @Cacheable(value = "storeCapacityV3CustomerDistance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr")
+    @Cacheable(value = "storeCapacityV3CustomerDistance", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr", sync = true)
     public Map<String, Object> getStoreCapacityV3CustomerDistance(User user) {
         List<Map<String, Object>> distances = switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3CustomerDistanceHQ();
@@ -3452,12 +3559,12 @@ public class OptimizedPizzaService {
         return result;
     }
 
-    @Cacheable(value = "storeCapacityV3CustomerDistanceFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "storeCapacityV3CustomerDistanceFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #states + '_' + #storeIds", sync = true)
     public Map<String, Object> getStoreCapacityV3CustomerDistance(User user, List<String> states, List<String> storeIds) {
         return getFilteredStoreCapacityV3CustomerDistance(user, states, storeIds);
     }
 
-    @Cacheable(value = "storeCapacityV3DeliveryMetrics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month")
+    @Cacheable(value = "storeCapacityV3DeliveryMetrics", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3DeliveryMetrics(User user, Integer year, Integer month) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3DeliveryMetricsHQ(year, month);
@@ -3467,12 +3574,12 @@ public class OptimizedPizzaService {
         };
     }
 
-    @Cacheable(value = "storeCapacityV3DeliveryMetricsFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month + '_' + #states + '_' + #storeIds")
+    @Cacheable(value = "storeCapacityV3DeliveryMetricsFiltered", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month + '_' + #states + '_' + #storeIds", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3DeliveryMetrics(User user, Integer year, Integer month, List<String> states, List<String> storeIds) {
         return getFilteredStoreCapacityV3DeliveryMetrics(user, year, month, states, storeIds);
     }
 
-    @Cacheable(value = "storeCapacityV3UtilizationChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month")
+    @Cacheable(value = "storeCapacityV3UtilizationChart", key = "#user.role + '_' + #user.storeId + '_' + #user.stateAbbr + '_' + #year + '_' + #month", sync = true)
     public List<Map<String, Object>> getStoreCapacityV3UtilizationChart(User user, Integer year, Integer month) {
         return switch (user.getRole()) {
             case "HQ_ADMIN" -> repo.getStoreCapacityV3UtilizationChartHQ(year, month);
@@ -3506,39 +3613,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND o.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-            // HQ_ADMIN has no base restrictions
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND o.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "o.storeid")
+                .in("s.state_abbr", states)
+                .in("o.storeid", storeIds);
 
         sql.append("""
              GROUP BY EXTRACT(YEAR FROM o.orderdate), EXTRACT(MONTH FROM o.orderdate), TO_CHAR(o.orderdate, 'Month YYYY')
@@ -3578,38 +3657,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND o.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND o.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "o.storeid")
+                .in("s.state_abbr", states)
+                .in("o.storeid", storeIds);
 
         sql.append("""
              GROUP BY o.customerid
@@ -3643,38 +3695,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND o.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND o.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "o.storeid")
+                .in("s.state_abbr", states)
+                .in("o.storeid", storeIds);
 
         sql.append("""
                 GROUP BY o.customerid
@@ -3734,38 +3759,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND o.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND o.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "o.storeid")
+                .in("s.state_abbr", states)
+                .in("o.storeid", storeIds);
 
         sql.append("""
              GROUP BY EXTRACT(YEAR FROM o.orderdate), EXTRACT(MONTH FROM o.orderdate), TO_CHAR(o.orderdate, 'YYYY-MM')
@@ -3794,38 +3792,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "state_abbr", "storeid")
+                .in("state_abbr", states)
+                .in("storeid", storeIds);
 
         sql.append(" ORDER BY avg_utilization DESC");
 
@@ -3846,38 +3817,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND sph.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND sph.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "sph.storeid")
+                .in("s.state_abbr", states)
+                .in("sph.storeid", storeIds);
 
         sql.append(" ORDER BY sph.storeid, sph.avg_orders DESC");
 
@@ -3898,38 +3842,11 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND cda.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND cda.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "cda.storeid")
+                .in("s.state_abbr", states)
+                .in("cda.storeid", storeIds);
 
         sql.append(" ORDER BY cda.storeid, cda.distance_category");
 
@@ -3956,48 +3873,13 @@ public class OptimizedPizzaService {
 
         List<Object> params = new ArrayList<>();
 
-        // Apply role-based restrictions first
-        switch (user.getRole()) {
-            case "STATE_MANAGER":
-                sql.append(" AND s.state_abbr = ?");
-                params.add(user.getStateAbbr());
-                break;
-            case "STORE_MANAGER":
-                sql.append(" AND dm.storeid = ?");
-                params.add(user.getStoreId());
-                break;
-        }
-
-        // Apply time filters if provided
-        if (year != null) {
-            sql.append(" AND dm.year = ?");
-            params.add(year);
-        }
-        if (month != null) {
-            sql.append(" AND dm.month = ?");
-            params.add(month);
-        }
-
-        // Apply additional filters if provided
-        if (states != null && !states.isEmpty()) {
-            sql.append(" AND s.state_abbr IN (");
-            for (int i = 0; i < states.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(states);
-        }
-
-        if (storeIds != null && !storeIds.isEmpty()) {
-            sql.append(" AND dm.storeid IN (");
-            for (int i = 0; i < storeIds.size(); i++) {
-                if (i > 0) sql.append(",");
-                sql.append("?");
-            }
-            sql.append(")");
-            params.addAll(storeIds);
-        }
+        // Role scope first, then the requested states/stores within it
+        ScopedQuery.extend(sql, params)
+                .scope(user, "s.state_abbr", "dm.storeid")
+                .eq("dm.year", year)
+                .eq("dm.month", month)
+                .in("s.state_abbr", states)
+                .in("dm.storeid", storeIds);
 
         sql.append(" ORDER BY dm.storeid, dm.year, dm.month, dm.delivery_date");
 
@@ -0,0 +1,145 @@
+package pizzaworld.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import pizzaworld.config.Workload;
+
+/**
+ * Runs the independent queries of a composite payload in parallel on the bounded
+ * analytics executor. Each slice is timed; a slice that fails or misses the deadline
+ * yields its fallback value so the payload can still be returned partially.
+ * <p>
+ * Every slice runs in a read-only transaction whose timeout is the time left until the
+ * deadline. JdbcTemplate and JPA queries derive their statement timeout from it, so the
+ * database cancels a query that outlives the deadline and its thread and connection are
+ * freed; cancelling the future alone would leave the query running.
+ */
+@Component
+public class ParallelQueryExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelQueryExecutor.class);
+
+    @Autowired
+    @Qualifier("analyticsExecutor")
+    private Executor analyticsExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public FanOut fanOut(Duration timeout) {
+        return new FanOut(analyticsExecutor, transactionManager, timeout);
+    }
+
+    public static class FanOut {
+
+        private final Executor executor;
+        private final PlatformTransactionManager transactionManager;
+        private final long deadlineNanos;
+        private final Map<String, CompletableFuture<Object>> slices = new LinkedHashMap<>();
+        private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+        private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+        private FanOut(Executor executor, PlatformTransactionManager transactionManager, Duration timeout) {
+            this.executor = executor;
+            this.transactionManager = transactionManager;
+            this.deadlineNanos = System.nanoTime() + timeout.toNanos();
+        }
+
+        /**
+         * Starts a named slice; its latency is measured on the worker thread, which runs on
+         * the connection pool of the caller's workload.
+         */
+        public FanOut fork(String name, Supplier<?> task) {
+            Workload workload = Workload.current();
+            slices.put(name, CompletableFuture.supplyAsync(() -> workload.call(() -> {
+                long start = System.nanoTime();
+                try {
+                    return withinDeadline(task);
+                } finally {
+                    latencies.put(name, (System.nanoTime() - start) / 1_000_000);
+                }
+            }), executor));
+            return this;
+        }
+
+        /** Waits for a slice until the shared deadline and returns the fallback on failure. */
+        @SuppressWarnings("unchecked")
+        public <T> T join(String name, T fallback) {
+            CompletableFuture<Object> future = slices.get(name);
+            if (future == null) {
+                return fallback;
+            }
+            try {
+                long remaining = Math.max(0, deadlineNanos - System.nanoTime());
+                return (T) future.get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // Does not stop the worker; the statement timeout of its transaction does
+                future.cancel(true);
+                markFailed(name, "timeout");
+                logger.warn("Slice '{}' timed out, returning partial result", name);
+            } catch (ExecutionException e) {
+                markFailed(name, "error");
+                logger.error("Slice '{}' failed: {}", name, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                markFailed(name, "interrupted");
+            }
+            return fallback;
+        }
+
+        /**
+         * Runs the slice in a read-only transaction that times out at the deadline. The
+         * timeout is taken when the slice starts, so time spent queued counts against it.
+         */
+        private Object withinDeadline(Supplier<?> task) {
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                throw new QueryTimeoutException("Deadline passed before the slice started");
+            }
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            // Transaction timeouts have second granularity; round up so a slice never gets 0
+            transaction.setTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + 999_999_999L)));
+            return transaction.execute(status -> task.get());
+        }
+
+        /** Per-slice latency (ms) and status, in fork order. */
+        public Map<String, Map<String, Object>> timings() {
+            Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+            slices.forEach((name, future) -> {
+                String status = failures.getOrDefault(name, future.isDone() ? "ok" : "pending");
+                Map<String, Object> timing = new LinkedHashMap<>();
+                timing.put("latencyMs", latencies.get(name));
+                timing.put("status", status);
+                result.put(name, timing);
+            });
+            return result;
+        }
+
+        public boolean isPartial() {
+            return !failures.isEmpty();
+        }
+
+        private void markFailed(String name, String status) {
+            failures.put(name, status);
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package pizzaworld.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pizzaworld.util.DistinctCount;
+import pizzaworld.util.HyperLogLog;
+import pizzaworld.util.PeriodRange;
+
+/**
+ * Immutable in-memory aggregate of orders and order_items by store x month x category.
+ *
+ * Every measure is a flat primitive array indexed by cell(store, month, category). The last
+ * category slot of each store-month holds the order-level totals (SUM(o.total), order count)
+ * of all categories. Unique customers come from exact counts where the cube has them (one
+ * store-month, one store over all time) and from merged HyperLogLog sketches otherwise.
+ * A smaller product x month slice carries the per-SKU measures of the products charts, and
+ * the order_items rows per product x store x month give SKU counts and line-weighted prices.
+ *
+ * Months are consecutive calendar months from the first to the last order. Instances are
+ * built by RevenueCubeRepo and replaced as a whole, so readers never see a partial update.
+ */
+public final class RevenueCube {
+
+    public record Store(String storeId, String city, String stateName, String stateAbbr) {
+    }
+
+    public record Product(String sku, String name, String category, String size, double price) {
+    }
+
+    /** Additive measures of a selection; lines are order_items rows. */
+    public record Totals(double revenue, long orders, long units, long lines) {
+    }
+
+    private final List<Store> stores;
+    private final List<Product> products;
+    private final List<String> categories;
+    private final Map<String, Integer> storeIndex;
+    private final int firstMonth;
+    private final int months;
+    private final int slots;
+
+    // by cell(store, month, slot)
+    private final double[] revenue;
+    private final long[] orders;
+    private final long[] units;
+    private final long[] lines;
+    private final byte[] sketches;
+    private final byte[] storeSketches;    // all months merged, by store * slots + slot
+
+    private final long[] monthCustomers;   // by store * months + month
+    private final long[] storeCustomers;   // by store
+
+    // by product * months + month
+    private final double[] productRevenue;
+    private final long[] productOrders;
+    private final long[] productUnits;
+    private final long[] productCustomers;
+    private final long[] productStoreLines;  // by (product * stores + store) * months + month
+
+    private final Instant builtAt;
+
+    private RevenueCube(Builder builder) {
+        this.stores = builder.stores;
+        this.products = builder.products;
+        this.categories = builder.categories;
+        this.storeIndex = builder.storeIndex;
+        this.firstMonth = builder.firstMonth;
+        this.months = builder.months;
+        this.slots = builder.slots;
+        this.revenue = builder.revenue;
+        this.orders = builder.orders;
+        this.units = builder.units;
+        this.lines = builder.lines;
+        this.sketches = builder.sketches;
+        this.storeSketches = builder.storeSketches();
+        this.monthCustomers = builder.monthCustomers;
+        this.storeCustomers = builder.storeCustomers;
+        this.productRevenue = builder.productRevenue;
+        this.productOrders = builder.productOrders;
+        this.productUnits = builder.productUnits;
+        this.productCustomers = builder.productCustomers;
+        this.productStoreLines = builder.productStoreLines;
+        this.builtAt = Instant.now();
+    }
+
+    // =================================================================
+    // DIMENSIONS
+    // =================================================================
+
+    public List<Store> stores() {
+        return stores;
+    }
+
+    public List<Product> products() {
+        return products;
+    }
+
+    public List<String> categories() {
+        return categories;
+    }
+
+    /** Slot of the order-level totals over all categories. */
+    public int allCategories() {
+        return categories.size();
+    }
+
+    public int storeIndex(String storeId) {
+        return storeIndex.getOrDefault(storeId, -1);
+    }
+
+    public int months() {
+        return months;
+    }
+
+    public int year(int month) {
+        return Math.floorDiv(firstMonth + month, 12);
+    }
+
+    public int monthOfYear(int month) {
+        return Math.floorMod(firstMonth + month, 12) + 1;
+    }
+
+    public Instant builtAt() {
+        return builtAt;
+    }
+
+    /** Approximate heap size of the measure arrays and sketches. */
+    public long sizeInBytes() {
+        return revenue.length * 8L * 4 + sketches.length + storeSketches.length + monthCustomers.length * 8L
+                + storeCustomers.length * 8L + productRevenue.length * 8L * 4 + productStoreLines.length * 8L;
+    }
+
+    // =================================================================
+    // SELECTIONS - boolean masks over stores and months
+    // =================================================================
+
+    /** Months overlapping the half-open date range; ranges are whole months in practice. */
+    public boolean[] months(PeriodRange range) {
+        boolean[] mask = new boolean[months];
+        int from = Math.max(0, epochMonth(range.start()) - firstMonth);
+        int to = Math.min(months, epochMonth(range.end().minusDays(1)) - firstMonth + 1);
+        for (int m = from; m < to && !range.isEmpty(); m++) {
+            mask[m] = true;
+        }
+        return mask;
+    }
+
+    /** The given calendar month in every year, like EXTRACT(MONTH FROM orderdate) = ?. */
+    public boolean[] monthsOfYear(int monthOfYear) {
+        boolean[] mask = new boolean[months];
+        for (int m = 0; m < months; m++) {
+            mask[m] = monthOfYear(m) == monthOfYear;
+        }
+        return mask;
+    }
+
+    public boolean[] allMonths() {
+        boolean[] mask = new boolean[months];
+        Arrays.fill(mask, true);
+        return mask;
+    }
+
+    // =================================================================
+    // MEASURES
+    // =================================================================
+
+    public Totals sum(boolean[] storeMask, boolean[] monthMask, int slot) {
+        double revenueSum = 0;
+        long orderSum = 0;
+        long unitSum = 0;
+        long lineSum = 0;
+        for (int s = 0; s < stores.size(); s++) {
+            if (!storeMask[s]) {
+                continue;
+            }
+            for (int m = 0; m < months; m++) {
+                if (monthMask[m]) {
+                    int cell = cell(s, m, slot);
+                    revenueSum += revenue[cell];
+                    orderSum += orders[cell];
+                    unitSum += units[cell];
+                    lineSum += lines[cell];
+                }
+            }
+        }
+        return new Totals(revenueSum, orderSum, unitSum, lineSum);
+    }
+
+    /**
+     * Distinct customers of the selection. Exact for a single store-month or a single store
+     * over all months of the order-level slot, a HyperLogLog estimate otherwise.
+     */
+    public DistinctCount customers(boolean[] storeMask, boolean[] monthMask, int slot) {
+        int store = single(storeMask);
+        if (store >= 0 && slot == allCategories()) {
+            int month = single(monthMask);
+            if (month >= 0) {
+                return DistinctCount.exact(monthCustomers[store * months + month]);
+            }
+            if (count(monthMask) == months) {
+                return DistinctCount.exact(storeCustomers[store]);
+            }
+        }
+        if (count(storeMask) == 0 || count(monthMask) == 0) {
+            return DistinctCount.exact(0);
+        }
+        HyperLogLog union = new HyperLogLog();
+        boolean allTime = count(monthMask) == months;
+        for (int s = 0; s < stores.size(); s++) {
+            if (!storeMask[s]) {
+                continue;
+            }
+            if (allTime) {
+                union.merge(storeSketches, (s * slots + slot) * HyperLogLog.REGISTERS);
+                continue;
+            }
+            for (int m = 0; m < months; m++) {
+                if (monthMask[m] && orders[cell(s, m, slot)] > 0) {
+                    union.merge(sketches, cell(s, m, slot) * HyperLogLog.REGISTERS);
+                }
+            }
+        }
+        return DistinctCount.estimate(union.estimate());
+    }
+
+    /** Sum of the distinct customers of each selected store-month, as the monthly views report it. */
+    public long monthlyCustomers(int store, boolean[] monthMask) {
+        long sum = 0;
+        for (int m = 0; m < months; m++) {
+            if (monthMask[m]) {
+                sum += monthCustomers[store * months + m];
+            }
+        }
+        return sum;
+    }
+
+    /** Product measures of the selected months; lines holds the summed monthly distinct customers. */
+    public Totals productSum(int product, boolean[] monthMask) {
+        double revenueSum = 0;
+        long orderSum = 0;
+        long unitSum = 0;
+        long customerSum = 0;
+        for (int m = 0; m < months; m++) {
+            if (monthMask[m]) {
+                int cell = product * months + m;
+                revenueSum += productRevenue[cell];
+                orderSum += productOrders[cell];
+                unitSum += productUnits[cell];
+                customerSum += productCustomers[cell];
+            }
+        }
+        return new Totals(revenueSum, orderSum, unitSum, customerSum);
+    }
+
+    /** order_items rows of the product in the selected stores and months. */
+    public long productLines(int product, boolean[] storeMask, boolean[] monthMask) {
+        long sum = 0;
+        for (int s = 0; s < stores.size(); s++) {
+            if (!storeMask[s]) {
+                continue;
+            }
+            int base = (product * stores.size() + s) * months;
+            for (int m = 0; m < months; m++) {
+                if (monthMask[m]) {
+                    sum += productStoreLines[base + m];
+                }
+            }
+        }
+        return sum;
+    }
+
+    private int cell(int store, int month, int slot) {
+        return (store * months + month) * slots + slot;
+    }
+
+    private static int single(boolean[] mask) {
+        int found = -1;
+        for (int i = 0; i < mask.length; i++) {
+            if (mask[i]) {
+                if (found >= 0) {
+                    return -1;
+                }
+                found = i;
+            }
+        }
+        return found;
+    }
+
+    private static int count(boolean[] mask) {
+        int count = 0;
+        for (boolean selected : mask) {
+            if (selected) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    static int epochMonth(LocalDate date) {
+        return date.getYear() * 12 + date.getMonthValue() - 1;
+    }
+
+    // =================================================================
+    // BUILDER - rows outside the dimensions are ignored
+    // =================================================================
+
+    public static final class Builder {
+
+        private final List<Store> stores;
+        private final List<Product> products;
+        private final List<String> categories;
+        private final Map<String, Integer> storeIndex = new HashMap<>();
+        private final Map<String, Integer> productIndex = new HashMap<>();
+        private final Map<String, Integer> categoryIndex = new HashMap<>();
+        private final int firstMonth;
+        private final int months;
+        private final int slots;
+
+        private final double[] revenue;
+        private final long[] orders;
+        private final long[] units;
+        private final long[] lines;
+        private final byte[] sketches;
+        private final long[] monthCustomers;
+        private final long[] storeCustomers;
+        private final double[] productRevenue;
+        private final long[] productOrders;
+        private final long[] productUnits;
+        private final long[] productCustomers;
+        private final long[] productStoreLines;
+
+        /**
+         * @param first first month with orders, or null when there are none
+         * @param last  last month with orders
+         */
+        public Builder(List<Store> stores, List<Product> products, LocalDate first, LocalDate last) {
+            this.stores = List.copyOf(stores);
+            this.products = List.copyOf(products);
+            this.categories = products.stream().map(Product::category).distinct()
+                    .sorted(Comparator.nullsLast(Comparator.naturalOrder())).toList();
+            for (int i = 0; i < stores.size(); i++) {
+                storeIndex.put(stores.get(i).storeId(), i);
+            }
+            for (int i = 0; i < products.size(); i++) {
+                productIndex.put(products.get(i).sku(), i);
+            }
+            for (int i = 0; i < categories.size(); i++) {
+                categoryIndex.put(categories.get(i), i);
+            }
+            this.firstMonth = first != null ? epochMonth(first) : 0;
+            this.months = first != null ? epochMonth(last) - firstMonth + 1 : 0;
+            this.slots = categories.size() + 1;
+
+            int cells = stores.size() * months * slots;
+            this.revenue = new double[cells];
+            this.orders = new long[cells];
+            this.units = new long[cells];
+            this.lines = new long[cells];
+            this.sketches = new byte[cells * HyperLogLog.REGISTERS];
+            this.monthCustomers = new long[stores.size() * months];
+            this.storeCustomers = new long[stores.size()];
+            this.productRevenue = new double[products.size() * months];
+            this.productOrders = new long[products.size() * months];
+            this.productUnits = new long[products.size() * months];
+            this.productCustomers = new long[products.size() * months];
+            this.productStoreLines = new long[products.size() * stores.size() * months];
+        }
+
+        /** Order-level totals of one store-month. */
+        public void addOrders(String storeId, int year, int month, double revenueSum, long orderCount,
+                              long customers) {
+            int s = storeIndex.getOrDefault(storeId, -1);
+            int m = month(year, month);
+            if (s >= 0 && m >= 0) {
+                int cell = (s * months + m) * slots + slots - 1;
+                revenue[cell] += revenueSum;
+                orders[cell] += orderCount;
+                monthCustomers[s * months + m] += customers;
+            }
+        }
+
+        public void addStoreCustomers(String storeId, long customers) {
+            int s = storeIndex.getOrDefault(storeId, -1);
+            if (s >= 0) {
+                storeCustomers[s] = customers;
+            }
+        }
+
+        /** Line-item totals of one category in one store-month; units and lines also roll up to all categories. */
+        public void addCategory(String storeId, int year, int month, String category, double revenueSum,
+                                long unitSum, long orderCount, long lineCount) {
+            int s = storeIndex.getOrDefault(storeId, -1);
+            int m = month(year, month);
+            Integer c = categoryIndex.get(category);
+            if (s >= 0 && m >= 0 && c != null) {
+                int base = (s * months + m) * slots;
+                revenue[base + c] += revenueSum;
+                orders[base + c] += orderCount;
+                units[base + c] += unitSum;
+                lines[base + c] += lineCount;
+                units[base + slots - 1] += unitSum;
+                lines[base + slots - 1] += lineCount;
+            }
+        }
+
+        /** Adds a customer to the sketches of the category and of all categories of one store-month. */
+        public void addCustomer(String storeId, int year, int month, String category, long customerId) {
+            int s = storeIndex.getOrDefault(storeId, -1);
+            int m = month(year, month);
+            Integer c = categoryIndex.get(category);
+            if (s >= 0 && m >= 0 && c != null) {
+                int base = (s * months + m) * slots;
+                HyperLogLog.add(sketches, (base + c) * HyperLogLog.REGISTERS, customerId);
+                HyperLogLog.add(sketches, (base + slots - 1) * HyperLogLog.REGISTERS, customerId);
+            }
+        }
+
+        public void addProduct(String sku, int year, int month, double revenueSum, long unitSum,
+                               long orderCount, long customers) {
+            int p = productIndex.getOrDefault(sku, -1);
+            int m = month(year, month);
+            if (p >= 0 && m >= 0) {
+                int cell = p * months + m;
+                productRevenue[cell] += revenueSum;
+                productUnits[cell] += unitSum;
+                productOrders[cell] += orderCount;
+                productCustomers[cell] += customers;
+            }
+        }
+
+        public void addProductLines(String sku, String storeId, int year, int month, long lineCount) {
+            int p = productIndex.getOrDefault(sku, -1);
+            int s = storeIndex.getOrDefault(storeId, -1);
+            int m = month(year, month);
+            if (p >= 0 && s >= 0 && m >= 0) {
+                productStoreLines[(p * stores.size() + s) * months + m] += lineCount;
+            }
+        }
+
+        public RevenueCube build() {
+            return new RevenueCube(this);
+        }
+
+        // Pre-merged all-time sketches; all-time selections are the common case
+        private byte[] storeSketches() {
+            byte[] merged = new byte[stores.size() * slots * HyperLogLog.REGISTERS];
+            for (int s = 0; s < stores.size(); s++) {
+                for (int slot = 0; slot < slots; slot++) {
+                    int target = (s * slots + slot) * HyperLogLog.REGISTERS;
+                    for (int m = 0; m < months; m++) {
+                        int source = ((s * months + m) * slots + slot) * HyperLogLog.REGISTERS;
+                        for (int i = 0; i < HyperLogLog.REGISTERS; i++) {
+                            merged[target + i] = (byte) Math.max(merged[target + i], sketches[source + i]);
+                        }
+                    }
+                }
+            }
+            return merged;
+        }
+
+        private int month(int year, int month) {
+            int m = year * 12 + month - 1 - firstMonth;
+            return m >= 0 && m < months ? m : -1;
+        }
+    }
+}
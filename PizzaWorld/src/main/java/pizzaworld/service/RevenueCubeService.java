@@ -0,0 +1,626 @@
+package pizzaworld.service;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.format.DateTimeParseException;
+import java.time.format.TextStyle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import pizzaworld.dto.StoreRevenueChartRow;
+import pizzaworld.model.User;
+import pizzaworld.repository.RevenueCubeRepo;
+import pizzaworld.util.DistinctCount;
+import pizzaworld.util.PeriodRange;
+
+/**
+ * Answers the store x month x category dashboard slices from the in-memory RevenueCube.
+ *
+ * Every method returns the rows in the shape of its SQL counterpart in OptimizedPizzaService,
+ * or empty when the cube is not built yet, disabled, or cannot express the request (a text
+ * search, an unknown role or store); the caller then runs the SQL query. Distinct customer
+ * counts that had to be merged from sketches are reported with their error bound
+ * (distinctErrorBound / distinct_error_bound, 0 when exact); callers that need exact
+ * counts skip the cube. The cube is rebuilt
+ * in the background on a fixed delay and by ViewRefreshService as soon as the base tables
+ * change; requests keep reading the previous cube until the new one is complete.
+ */
+@Service
+public class RevenueCubeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueCubeService.class);
+
+    private static final int PRODUCTS_CHART_LIMIT = 20;
+
+    @Autowired
+    private RevenueCubeRepo cubeRepo;
+
+    @Value("${pizzaworld.cube.enabled:true}")
+    private boolean enabled;
+
+    private volatile RevenueCube cube;
+    private final AtomicBoolean building = new AtomicBoolean();
+    private volatile boolean rebuildRequested;
+
+    @Scheduled(initialDelayString = "${pizzaworld.cube.initial-delay:PT10S}",
+               fixedDelayString = "${pizzaworld.cube.rebuild-interval:PT30M}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Loads a new cube and swaps it in. A call during a running build makes that build run
+     * once more afterwards, so changes committed meanwhile are not missed.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildRequested = true;
+        while (rebuildRequested && building.compareAndSet(false, true)) {
+            try {
+                rebuildRequested = false;
+                long start = System.currentTimeMillis();
+                RevenueCube next = cubeRepo.load();
+                cube = next;
+                logger.info("Revenue cube built in {} ms: {} stores x {} months x {} categories, {} KB",
+                        System.currentTimeMillis() - start, next.stores().size(), next.months(),
+                        next.categories().size(), next.sizeInBytes() / 1024);
+            } catch (Exception e) {
+                logger.error("Revenue cube build failed, serving from SQL: {}", e.getMessage(), e);
+            } finally {
+                building.set(false);
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && cube != null;
+    }
+
+    // =================================================================
+    // STORE REVENUE CHART
+    // =================================================================
+
+    public Optional<List<StoreRevenueChartRow>> storeRevenueChart(User user, String timePeriod, Integer year, Integer month) {
+        RevenueCube current = current();
+        Predicate<RevenueCube.Store> scope = managerScope(user);
+        if (current == null || scope == null) {
+            return Optional.empty();
+        }
+        boolean[] stores = storeMask(current, scope);
+        List<StoreRevenueChartRow> rows = new ArrayList<>();
+        switch (timePeriod.toLowerCase()) {
+            case "all-time", "alltime" -> {
+                boolean[] months = current.allMonths();
+                forEachStore(current, stores, (s, store, only) -> {
+                    RevenueCube.Totals totals = current.sum(only, months, current.allCategories());
+                    if (totals.orders() > 0) {
+                        rows.add(new StoreRevenueChartRow.AllTime(store.storeId(), store.city(), store.stateName(),
+                                store.stateAbbr(), cents(totals.revenue()), totals.orders(), average(totals),
+                                current.customers(only, months, current.allCategories()).value()));
+                    }
+                });
+            }
+            case "year", "yearly" -> {
+                if (year == null) {
+                    return Optional.empty();
+                }
+                boolean[] months = current.months(PeriodRange.of(year, null, null));
+                forEachStore(current, stores, (s, store, only) -> {
+                    RevenueCube.Totals totals = current.sum(only, months, current.allCategories());
+                    if (totals.orders() > 0) {
+                        rows.add(new StoreRevenueChartRow.Year(store.storeId(), store.city(), store.stateName(),
+                                store.stateAbbr(), year, cents(totals.revenue()), totals.orders(), average(totals),
+                                current.monthlyCustomers(s, months)));
+                    }
+                });
+            }
+            case "month", "monthly" -> {
+                if (year == null || month == null) {
+                    return Optional.empty();
+                }
+                boolean[] months = current.months(PeriodRange.of(year, month, null));
+                String label = "%d-%02d".formatted(year, month);
+                String nameLabel = Month.of(month).getDisplayName(TextStyle.FULL, Locale.ENGLISH) + " " + year;
+                forEachStore(current, stores, (s, store, only) -> {
+                    RevenueCube.Totals totals = current.sum(only, months, current.allCategories());
+                    if (totals.orders() > 0) {
+                        rows.add(new StoreRevenueChartRow.Month(store.storeId(), store.city(), store.stateName(),
+                                store.stateAbbr(), year, month, label, nameLabel, cents(totals.revenue()),
+                                totals.orders(), average(totals), current.monthlyCustomers(s, months)));
+                    }
+                });
+            }
+            default -> {
+                return Optional.empty();
+            }
+        }
+        rows.sort(Comparator.comparingDouble(RevenueCubeService::chartRevenue).reversed());
+        return Optional.of(rows);
+    }
+
+    private static double chartRevenue(StoreRevenueChartRow row) {
+        if (row instanceof StoreRevenueChartRow.AllTime allTime) {
+            return allTime.totalRevenue();
+        }
+        if (row instanceof StoreRevenueChartRow.Year yearly) {
+            return yearly.yearlyRevenue();
+        }
+        return ((StoreRevenueChartRow.Month) row).monthlyRevenue();
+    }
+
+    // =================================================================
+    // CATEGORIES
+    // =================================================================
+
+    /** Category performance of the user's scope over all time; unique customers are estimated. */
+    public Optional<List<Map<String, Object>>> categoryPerformance(User user) {
+        RevenueCube current = current();
+        Predicate<RevenueCube.Store> scope = managerScope(user);
+        if (current == null || scope == null) {
+            return Optional.empty();
+        }
+        boolean[] stores = storeMask(current, scope);
+        boolean[] months = current.allMonths();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int c = 0; c < current.categories().size(); c++) {
+            RevenueCube.Totals totals = current.sum(stores, months, c);
+            if (totals.lines() == 0) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("category", current.categories().get(c));
+            row.put("total_revenue", cents(totals.revenue()));
+            row.put("units_sold", totals.units());
+            row.put("total_orders", totals.orders());
+            DistinctCount customers = current.customers(stores, months, c);
+            row.put("unique_customers", customers.value());
+            // AVG(oi.quantity * p.price) in SQL: the mean line value
+            row.put("avg_order_value", totals.revenue() / totals.lines());
+            row.put("distinct_error_bound", customers.errorBound());
+            rows.add(row);
+        }
+        rows.sort(byRevenueDesc());
+        return Optional.of(rows);
+    }
+
+    /**
+     * Revenue per category with the filters of getRevenueByCategory. A text search needs the
+     * product names, so it is left to SQL.
+     */
+    public Optional<List<Map<String, Object>>> revenueByCategory(Integer year, Integer month, String search, User user,
+                                                                 List<String> storeIds, List<String> states) {
+        RevenueCube current = current();
+        if (current == null || (search != null && !search.trim().isEmpty())) {
+            return Optional.empty();
+        }
+        ProductSelection selection = productSelection(current, year, month, user, storeIds, states);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int c = 0; c < current.categories().size(); c++) {
+            RevenueCube.Totals totals = current.sum(selection.stores(), selection.months(), c);
+            if (selection.filtered() && totals.lines() == 0) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("category", current.categories().get(c));
+            row.put("total_revenue", cents(totals.revenue()));
+            rows.add(row);
+        }
+        rows.sort(byRevenueDesc());
+        return Optional.of(rows);
+    }
+
+    // =================================================================
+    // PRODUCTS
+    // =================================================================
+
+    /** Top products by revenue for all time, a year or a month, like products_info_all. */
+    public Optional<List<Map<String, Object>>> productsOverviewChart(String timePeriod, Integer year, Integer month) {
+        RevenueCube current = current();
+        if (current == null) {
+            return Optional.empty();
+        }
+        boolean[] months;
+        if ("year".equals(timePeriod) && year != null) {
+            months = current.months(PeriodRange.of(year, null, null));
+        } else if ("month".equals(timePeriod) && year != null && month != null) {
+            months = current.months(PeriodRange.of(year, month, null));
+        } else {
+            months = current.allMonths();
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int p = 0; p < current.products().size(); p++) {
+            RevenueCube.Totals totals = current.productSum(p, months);
+            if (totals.orders() == 0) {
+                continue;
+            }
+            RevenueCube.Product product = current.products().get(p);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("sku", product.sku());
+            row.put("product_name", product.name());
+            row.put("category", product.category());
+            row.put("size", product.size());
+            row.put("total_units", totals.units());
+            row.put("total_revenue", cents(totals.revenue()));
+            row.put("total_orders", totals.orders());
+            row.put("unique_customers", totals.lines());
+            rows.add(row);
+        }
+        rows.sort(byRevenueDesc());
+        return Optional.of(rows.size() > PRODUCTS_CHART_LIMIT ? new ArrayList<>(rows.subList(0, PRODUCTS_CHART_LIMIT)) : rows);
+    }
+
+    /**
+     * Hero tile KPIs of the products page with the filters of getProductsKpis. The category
+     * filter is a substring match like ILIKE; when it matches several categories an order
+     * may hold more than one of them, so the distinct order count is left to SQL.
+     */
+    public Optional<Map<String, Object>> productsKpis(Integer year, Integer month, String category, User user,
+                                                      List<String> storeIds, List<String> states) {
+        RevenueCube current = current();
+        boolean byCategory = category != null && !category.trim().isEmpty();
+        if (current == null || (byCategory && (category.contains("%") || category.contains("_")))) {
+            return Optional.empty();
+        }
+        List<Integer> categories = new ArrayList<>();
+        for (int c = 0; c < current.categories().size(); c++) {
+            String name = current.categories().get(c);
+            if (!byCategory || (name != null && name.toLowerCase(Locale.ROOT).contains(category.toLowerCase(Locale.ROOT)))) {
+                categories.add(c);
+            }
+        }
+        if (byCategory && categories.size() > 1) {
+            return Optional.empty();
+        }
+        ProductSelection selection = productSelection(current, year, month, user, storeIds, states);
+
+        double revenue = 0;
+        long units = 0;
+        for (int c : categories) {
+            RevenueCube.Totals totals = current.sum(selection.stores(), selection.months(), c);
+            revenue += totals.revenue();
+            units += totals.units();
+        }
+        int ordersSlot = byCategory ? (categories.isEmpty() ? -1 : categories.get(0)) : current.allCategories();
+        long orders = ordersSlot < 0 ? 0 : current.sum(selection.stores(), selection.months(), ordersSlot).orders();
+
+        // Products and AVG(p.price) run over the joined rows: one per order line, plus one
+        // per unsold product while the LEFT JOINs are not filtered down to inner joins
+        long products = 0;
+        double priceSum = 0;
+        long priceRows = 0;
+        for (int p = 0; p < current.products().size(); p++) {
+            RevenueCube.Product product = current.products().get(p);
+            if (byCategory && (categories.isEmpty()
+                    || !Objects.equals(product.category(), current.categories().get(categories.get(0))))) {
+                continue;
+            }
+            long lines = current.productLines(p, selection.stores(), selection.months());
+            long rows = lines > 0 ? lines : selection.filtered() ? 0 : 1;
+            if (rows > 0) {
+                products++;
+                priceSum += product.price() * rows;
+                priceRows += rows;
+            }
+        }
+
+        Map<String, Object> kpis = new LinkedHashMap<>();
+        kpis.put("totalProducts", (int) products);
+        kpis.put("totalRevenue", cents(revenue));
+        kpis.put("totalOrders", (int) orders);
+        kpis.put("totalUnits", (int) units);
+        kpis.put("avgPrice", priceRows > 0 ? priceSum / priceRows : 0.0);
+        kpis.put("distinctErrorBound", 0.0);
+        return Optional.of(kpis);
+    }
+
+    // =================================================================
+    // ORDERS
+    // =================================================================
+
+    /**
+     * Orders page KPIs for the store/state scope and a date range of whole months. An order
+     * id or text search, or a range that starts or ends within a month, is left to SQL.
+     */
+    public Optional<Map<String, Object>> ordersKpis(String store, String state, String orderid, String search,
+                                                    String from, String to, User user) {
+        RevenueCube current = current();
+        Predicate<RevenueCube.Store> scope = managerScope(user);
+        if (current == null || scope == null || isPresent(orderid) || isPresent(search)) {
+            return Optional.empty();
+        }
+        if (!"STORE_MANAGER".equals(user.getRole()) && isPresent(store)) {
+            scope = scope.and(s -> Objects.equals(s.storeId(), store));
+        }
+        if ("HQ_ADMIN".equals(user.getRole()) && isPresent(state)) {
+            scope = scope.and(s -> Objects.equals(s.stateAbbr(), state));
+        }
+        LocalDate start = PeriodRange.allTime().start();
+        LocalDate end = PeriodRange.allTime().end();
+        try {
+            if (isPresent(from)) {
+                start = LocalDate.parse(from.trim());
+            }
+            if (isPresent(to)) {
+                end = LocalDate.parse(to.trim()).plusDays(1);
+            }
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+        if (start.getDayOfMonth() != 1 || end.getDayOfMonth() != 1) {
+            return Optional.empty();
+        }
+
+        boolean[] stores = storeMask(current, scope);
+        boolean[] months = current.months(new PeriodRange(start, end.isBefore(start) ? start : end));
+        RevenueCube.Totals totals = current.sum(stores, months, current.allCategories());
+        DistinctCount customers = current.customers(stores, months, current.allCategories());
+        long storesWithOrders = 0;
+        for (int s = 0; s < stores.length; s++) {
+            if (stores[s] && current.sum(only(stores.length, s), months, current.allCategories()).orders() > 0) {
+                storesWithOrders++;
+            }
+        }
+
+        Map<String, Object> kpis = new HashMap<>();
+        kpis.put("totalOrders", totals.orders());
+        kpis.put("totalRevenue", cents(totals.revenue()));
+        kpis.put("totalCustomers", customers.value());
+        kpis.put("totalStores", storesWithOrders);
+        kpis.put("distinctErrorBound", customers.errorBound());
+        return Optional.of(kpis);
+    }
+
+    // =================================================================
+    // CUSTOMER ACQUISITION - distinct customers per month
+    // =================================================================
+
+    /** Last 12 months with orders in the user's scope narrowed to the given states and stores. */
+    public Optional<List<Map<String, Object>>> customerAcquisition(User user, List<String> states, List<String> storeIds) {
+        RevenueCube current = current();
+        Predicate<RevenueCube.Store> scope = managerScope(user);
+        if (current == null || scope == null) {
+            return Optional.empty();
+        }
+        if (states != null && !states.isEmpty()) {
+            scope = scope.and(s -> states.contains(s.stateAbbr()));
+        }
+        if (storeIds != null && !storeIds.isEmpty()) {
+            scope = scope.and(s -> storeIds.contains(s.storeId()));
+        }
+        boolean[] stores = storeMask(current, scope);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int m = current.months() - 1; m >= 0 && rows.size() < 12; m--) {
+            boolean[] month = only(current.months(), m);
+            RevenueCube.Totals totals = current.sum(stores, month, current.allCategories());
+            if (totals.orders() == 0) {
+                continue;
+            }
+            DistinctCount customers = current.customers(stores, month, current.allCategories());
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("year", current.year(m));
+            row.put("month", current.monthOfYear(m));
+            row.put("month_name", monthName(current.monthOfYear(m)) + " " + current.year(m));
+            row.put("new_customers", customers.value());
+            row.put("revenue_from_new_customers", cents(totals.revenue()));
+            row.put("distinct_error_bound", customers.errorBound());
+            rows.add(row);
+        }
+        return Optional.of(rows);
+    }
+
+    /** Customers per store and month for the stores the role sees; every count is exact. */
+    public Optional<List<Map<String, Object>>> storeCustomerAcquisition(String role, String stateAbbr, String storeId) {
+        RevenueCube current = current();
+        if (current == null) {
+            return Optional.empty();
+        }
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int s = 0; s < current.stores().size(); s++) {
+            RevenueCube.Store store = current.stores().get(s);
+            boolean visible = "HQ_ADMIN".equals(role)
+                    || ("STATE_MANAGER".equals(role) ? Objects.equals(store.stateAbbr(), stateAbbr)
+                            : Objects.equals(store.storeId(), storeId));
+            if (!visible) {
+                continue;
+            }
+            boolean[] only = only(current.stores().size(), s);
+            for (int m = 0; m < current.months(); m++) {
+                boolean[] month = only(current.months(), m);
+                RevenueCube.Totals totals = current.sum(only, month, current.allCategories());
+                if (totals.orders() == 0) {
+                    continue;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("storeid", store.storeId());
+                row.put("city", store.city());
+                row.put("state_abbr", store.stateAbbr());
+                row.put("year", current.year(m));
+                row.put("month", current.monthOfYear(m));
+                row.put("month_name", monthName(current.monthOfYear(m)) + " " + current.year(m));
+                row.put("new_customers", current.customers(only, month, current.allCategories()).value());
+                row.put("revenue_from_new_customers", cents(totals.revenue()));
+                row.put("distinct_error_bound", 0.0);
+                rows.add(row);
+            }
+        }
+        return Optional.of(rows);
+    }
+
+    // =================================================================
+    // STORE CUSTOM RANGE & PERIOD COMPARISON
+    // =================================================================
+
+    /**
+     * Monthly breakdown of one store between two months inclusive, one row per month with
+     * orders. Counts of a single store-month are exact. Empty for a store the cube does not know.
+     */
+    public Optional<List<Map<String, Object>>> storeMonthlyBreakdown(String storeId, PeriodRange range) {
+        RevenueCube current = current();
+        int s = current != null ? current.storeIndex(storeId) : -1;
+        if (s < 0) {
+            return Optional.empty();
+        }
+        boolean[] only = only(current.stores().size(), s);
+        boolean[] selected = current.months(range);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int m = 0; m < current.months(); m++) {
+            if (!selected[m]) {
+                continue;
+            }
+            boolean[] month = only(current.months(), m);
+            RevenueCube.Totals totals = current.sum(only, month, current.allCategories());
+            if (totals.orders() == 0) {
+                continue;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("year", current.year(m));
+            row.put("month", current.monthOfYear(m));
+            row.put("year_month", "%d-%02d".formatted(current.year(m), current.monthOfYear(m)));
+            row.put("total_revenue", cents(totals.revenue()));
+            row.put("total_orders", totals.orders());
+            row.put("avg_order_value", average(totals));
+            row.put("total_customers", current.customers(only, month, current.allCategories()).value());
+            row.put("total_units", totals.units());
+            rows.add(row);
+        }
+        return Optional.of(rows);
+    }
+
+    /**
+     * Metrics of one store for each period, in the order given. Empty for a store the cube
+     * does not know, which SQL then reports with zero metrics.
+     */
+    public Optional<List<Map<String, Object>>> storeComparePeriods(String storeId, List<PeriodRange> periods) {
+        RevenueCube current = current();
+        int s = current != null ? current.storeIndex(storeId) : -1;
+        if (s < 0) {
+            return Optional.empty();
+        }
+        boolean[] only = only(current.stores().size(), s);
+        List<Map<String, Object>> metrics = new ArrayList<>(periods.size());
+        for (PeriodRange period : periods) {
+            boolean[] months = current.months(period);
+            RevenueCube.Totals totals = current.sum(only, months, current.allCategories());
+            // A period without orders gets zeros, like a period whose SQL query failed
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("total_revenue", cents(totals.revenue()));
+            row.put("total_orders", totals.orders());
+            DistinctCount customers = current.customers(only, months, current.allCategories());
+            row.put("total_customers", customers.value());
+            row.put("avg_order_value", cents(average(totals)));
+            row.put("distinct_error_bound", customers.errorBound());
+            metrics.add(row);
+        }
+        return Optional.of(metrics);
+    }
+
+    // =================================================================
+    // HELPERS
+    // =================================================================
+
+    private RevenueCube current() {
+        return enabled ? cube : null;
+    }
+
+    /** Stores visible to the role, or null for an unknown role (the SQL path rejects it). */
+    private static Predicate<RevenueCube.Store> managerScope(User user) {
+        return switch (user.getRole()) {
+            case "HQ_ADMIN" -> store -> true;
+            case "STATE_MANAGER" -> store -> Objects.equals(store.stateAbbr(), user.getStateAbbr());
+            case "STORE_MANAGER" -> store -> Objects.equals(store.storeId(), user.getStoreId());
+            default -> null;
+        };
+    }
+
+    private static boolean[] storeMask(RevenueCube cube, Predicate<RevenueCube.Store> scope) {
+        boolean[] mask = new boolean[cube.stores().size()];
+        for (int s = 0; s < mask.length; s++) {
+            mask[s] = scope.test(cube.stores().get(s));
+        }
+        return mask;
+    }
+
+    /**
+     * Stores and months selected by the filters of the product endpoints. filtered tells
+     * whether any condition applies to the orders, which turns the LEFT JOINs of those
+     * queries into inner joins and drops products and categories without matching sales.
+     */
+    private record ProductSelection(boolean[] stores, boolean[] months, boolean filtered) {
+    }
+
+    private static ProductSelection productSelection(RevenueCube cube, Integer year, Integer month, User user,
+                                                     List<String> storeIds, List<String> states) {
+        boolean hqStates = user != null && "HQ_ADMIN".equals(user.getRole()) && states != null && !states.isEmpty();
+        boolean managed = user != null && ("STATE_MANAGER".equals(user.getRole()) || "STORE_MANAGER".equals(user.getRole()));
+        boolean someStores = storeIds != null && !storeIds.isEmpty();
+
+        Predicate<RevenueCube.Store> scope = managed ? managerScope(user) : store -> true;
+        if (hqStates) {
+            scope = scope.and(store -> states.contains(store.stateAbbr()));
+        }
+        if (someStores) {
+            scope = scope.and(store -> storeIds.contains(store.storeId()));
+        }
+        boolean[] months = year != null ? cube.months(PeriodRange.of(year, month, null))
+                : month != null ? cube.monthsOfYear(month) : cube.allMonths();
+        return new ProductSelection(storeMask(cube, scope), months,
+                year != null || month != null || hqStates || managed || someStores);
+    }
+
+    private static boolean[] only(int size, int index) {
+        boolean[] mask = new boolean[size];
+        mask[index] = true;
+        return mask;
+    }
+
+    // TO_CHAR(orderdate, 'Month') pads the name to nine characters
+    private static String monthName(int month) {
+        return "%-9s".formatted(Month.of(month).getDisplayName(TextStyle.FULL, Locale.ENGLISH));
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+
+    private interface StoreVisitor {
+        void visit(int index, RevenueCube.Store store, boolean[] only);
+    }
+
+    private static void forEachStore(RevenueCube cube, boolean[] stores, StoreVisitor visitor) {
+        for (int s = 0; s < stores.length; s++) {
+            if (stores[s]) {
+                visitor.visit(s, cube.stores().get(s), only(stores.length, s));
+            }
+        }
+    }
+
+    private static Comparator<Map<String, Object>> byRevenueDesc() {
+        return Comparator.comparingDouble((Map<String, Object> row) -> (Double) row.get("total_revenue")).reversed();
+    }
+
+    private static double average(RevenueCube.Totals totals) {
+        return totals.orders() > 0 ? totals.revenue() / totals.orders() : 0.0;
+    }
+
+    private static double cents(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
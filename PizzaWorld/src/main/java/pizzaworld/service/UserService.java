@@ -3,6 +3,7 @@ package pizzaworld.service;
 import org.springframework.stereotype.Service;
 import pizzaworld.model.User;
 import pizzaworld.repository.UserRepo;
+import pizzaworld.security.AuthTokenCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -14,15 +15,22 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private AuthTokenCache tokenCache;
+
     public UserService(UserRepo repo) {
         this.repo = repo;
     }
 
     public User save(User u) {
+        u.setUsername(User.normalizeUsername(u.getUsername()));
         if (!u.getPassword().startsWith("$2a$")) {
             u.setPassword(passwordEncoder.encode(u.getPassword()));
         }
-        return repo.save(u);
+        User saved = repo.save(u);
+        // Tokens issued before the change must not keep the old role or scope
+        tokenCache.invalidateUser(saved.getUsername());
+        return saved;
     }
 
     public User find(String username) {
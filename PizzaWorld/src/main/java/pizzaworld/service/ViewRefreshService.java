@@ -0,0 +1,305 @@
+package pizzaworld.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import pizzaworld.config.PizzaConfig;
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
+
+/**
+ * Keeps the analytics materialized views fresh and the caches built on them consistent.
+ *
+ * Every poll compares the write counters of the base tables with the previous poll. When
+ * they moved, the views that depend on the base tables are refreshed; once per interval
+ * every view is. Dependencies between views are read from the PostgreSQL catalog, so a
+ * view is always refreshed after the views it selects from. Views with a plain unique
+ * index are refreshed CONCURRENTLY and stay readable meanwhile. After each refresh the
+ * cache regions listed for the view in PizzaConfig.VIEW_CACHES are cleared.
+ */
+@Service
+public class ViewRefreshService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ViewRefreshService.class);
+
+    // Materialized views with their population state and whether CONCURRENTLY is possible
+    private static final String MATVIEWS_SQL = """
+        SELECT m.matviewname AS view_name,
+               m.ispopulated AS populated,
+               EXISTS (SELECT 1 FROM pg_index i
+                       WHERE i.indrelid = c.oid AND i.indisunique AND i.indisvalid
+                         AND i.indpred IS NULL AND i.indexprs IS NULL) AS has_unique_index
+        FROM pg_matviews m
+        JOIN pg_namespace n ON n.nspname = m.schemaname
+        JOIN pg_class c ON c.relname = m.matviewname AND c.relnamespace = n.oid
+        WHERE m.schemaname = 'public'
+        """;
+
+    // Relations (tables, views, materialized views) each view or materialized view selects from
+    private static final String DEPENDENCIES_SQL = """
+        SELECT DISTINCT v.relname AS view_name, d.relname AS source_name
+        FROM pg_class v
+        JOIN pg_namespace n ON n.oid = v.relnamespace
+        JOIN pg_rewrite r ON r.ev_class = v.oid
+        JOIN pg_depend dep ON dep.objid = r.oid
+             AND dep.classid = 'pg_rewrite'::regclass AND dep.refclassid = 'pg_class'::regclass
+        JOIN pg_class d ON d.oid = dep.refobjid
+        WHERE n.nspname = 'public' AND v.relkind IN ('m', 'v') AND d.oid <> v.oid
+        """;
+
+    private static final String BASE_TABLE_WRITES_SQL =
+            "SELECT COALESCE(SUM(n_tup_ins + n_tup_upd + n_tup_del), 0) FROM pg_stat_user_tables "
+            + "WHERE schemaname = 'public' AND relname IN ('orders', 'order_items', 'products', 'stores')";
+
+    /** Outcome of the last refresh of one view. */
+    public record ViewRefreshStatus(String view, Instant lastRefresh, long durationMillis,
+                                    boolean concurrent, String lastError) {
+    }
+
+    private record MatView(String name, boolean populated, boolean hasUniqueIndex) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private RevenueCubeService revenueCube;
+
+    @Value("${pizzaworld.views.refresh.enabled:true}")
+    private boolean enabled;
+
+    @Value("${pizzaworld.views.refresh.interval:PT6H}")
+    private Duration interval;
+
+    private final Map<String, ViewRefreshStatus> statuses = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean fullRefreshRequested;
+    private volatile Instant lastFullRefresh = Instant.now();
+    private Long lastBaseTableWrites;
+
+    @Scheduled(initialDelayString = "${pizzaworld.views.refresh.poll:PT1M}",
+               fixedDelayString = "${pizzaworld.views.refresh.poll:PT1M}")
+    @RunsOn(Workload.HEAVY)
+    public void poll() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            boolean full = fullRefreshRequested || Instant.now().isAfter(lastFullRefresh.plus(interval));
+            boolean baseTablesChanged = baseTablesChanged();
+            if (baseTablesChanged) {
+                // Regions reading the base tables directly are stale right away; the cube
+                // is rebuilt first so they do not refill from the old one
+                revenueCube.rebuild();
+                evictCachesOf(PizzaConfig.BASE_TABLES);
+            }
+            if (full) {
+                fullRefreshRequested = false;
+                refresh(null);
+                lastFullRefresh = Instant.now();
+            } else if (baseTablesChanged) {
+                refresh(PizzaConfig.BASE_TABLES);
+            }
+        } catch (Exception e) {
+            logger.error("Materialized view refresh failed: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** Refreshes every view on the next poll. */
+    public void requestFullRefresh() {
+        fullRefreshRequested = true;
+    }
+
+    /** Last refresh of each view that was refreshed since startup, by view name. */
+    public List<ViewRefreshStatus> getStatuses() {
+        return statuses.values().stream()
+                .sorted((a, b) -> a.view().compareTo(b.view()))
+                .toList();
+    }
+
+    private boolean baseTablesChanged() {
+        Long writes = jdbcTemplate.queryForObject(BASE_TABLE_WRITES_SQL, Long.class);
+        boolean changed = lastBaseTableWrites != null && !lastBaseTableWrites.equals(writes);
+        lastBaseTableWrites = writes;
+        return changed;
+    }
+
+    /**
+     * Refreshes the materialized views that depend, directly or through other views, on one
+     * of the given relations, or all of them when sources is null. A view whose upstream
+     * refresh failed is skipped for this round.
+     */
+    private void refresh(Set<String> sources) {
+        Map<String, MatView> matViews = new LinkedHashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(MATVIEWS_SQL)) {
+            String name = (String) row.get("view_name");
+            matViews.put(name, new MatView(name, Boolean.TRUE.equals(row.get("populated")),
+                    Boolean.TRUE.equals(row.get("has_unique_index"))));
+        }
+        Map<String, Set<String>> upstream = new HashMap<>();
+        for (Map<String, Object> row : jdbcTemplate.queryForList(DEPENDENCIES_SQL)) {
+            upstream.computeIfAbsent((String) row.get("view_name"), v -> new HashSet<>())
+                    .add((String) row.get("source_name"));
+        }
+
+        Set<String> selected = sources == null ? matViews.keySet() : dependentsOf(sources, upstream);
+        Set<String> failed = new HashSet<>();
+        long started = System.currentTimeMillis();
+        int refreshed = 0;
+
+        for (String view : refreshOrder(matViews.keySet(), upstream)) {
+            if (!selected.contains(view)) {
+                continue;
+            }
+            if (dependsOnAny(view, failed, upstream)) {
+                failed.add(view);
+                logger.warn("Skipping refresh of {}: an upstream view failed", view);
+                continue;
+            }
+            if (refreshView(matViews.get(view))) {
+                refreshed++;
+                evictCachesOf(Set.of(view));
+            } else {
+                failed.add(view);
+            }
+        }
+        logger.info("Refreshed {} materialized views ({} failed) in {} ms",
+                refreshed, failed.size(), System.currentTimeMillis() - started);
+    }
+
+    private boolean refreshView(MatView view) {
+        // CONCURRENTLY needs a unique index and an already populated view
+        boolean concurrent = view.hasUniqueIndex() && view.populated();
+        String sql = "REFRESH MATERIALIZED VIEW " + (concurrent ? "CONCURRENTLY " : "")
+                + "public.\"" + view.name().replace("\"", "\"\"") + "\"";
+        long start = System.nanoTime();
+        try {
+            jdbcTemplate.execute(sql);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            statuses.put(view.name(), new ViewRefreshStatus(view.name(), Instant.now(), millis, concurrent, null));
+            logger.debug("Refreshed {} in {} ms (concurrent: {})", view.name(), millis, concurrent);
+            return true;
+        } catch (Exception e) {
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            ViewRefreshStatus previous = statuses.get(view.name());
+            statuses.put(view.name(), new ViewRefreshStatus(view.name(),
+                    previous != null ? previous.lastRefresh() : null, millis, concurrent, e.getMessage()));
+            logger.error("Refresh of {} failed: {}", view.name(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void evictCachesOf(Collection<String> relations) {
+        Set<String> regions = new TreeSet<>();
+        for (String relation : relations) {
+            regions.addAll(PizzaConfig.VIEW_CACHES.getOrDefault(relation, Set.of()));
+        }
+        for (String region : regions) {
+            Cache cache = cacheManager.getCache(region);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+        if (!regions.isEmpty()) {
+            logger.debug("Cleared cache regions {} after change of {}", regions, relations);
+        }
+    }
+
+    // =================================================================
+    // DEPENDENCY GRAPH - upstream maps a view to the relations it selects from
+    // =================================================================
+
+    /** Views reachable downstream from any of the sources. */
+    static Set<String> dependentsOf(Set<String> sources, Map<String, Set<String>> upstream) {
+        Map<String, Set<String>> downstream = new HashMap<>();
+        upstream.forEach((view, inputs) -> inputs.forEach(
+                input -> downstream.computeIfAbsent(input, k -> new HashSet<>()).add(view)));
+
+        Set<String> result = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(sources);
+        while (!pending.isEmpty()) {
+            for (String view : downstream.getOrDefault(pending.poll(), Set.of())) {
+                if (result.add(view)) {
+                    pending.add(view);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Orders the views so that every view comes after the views it selects from, also
+     * through plain views in between. PostgreSQL rejects cyclic view definitions, the
+     * in-progress set only keeps the recursion finite.
+     */
+    static List<String> refreshOrder(Set<String> views, Map<String, Set<String>> upstream) {
+        List<String> order = new ArrayList<>(views.size());
+        Set<String> visited = new HashSet<>();
+        Set<String> inProgress = new HashSet<>();
+        for (String view : new TreeSet<>(views)) {
+            visit(view, views, upstream, visited, inProgress, order);
+        }
+        return order;
+    }
+
+    private static void visit(String node, Set<String> views, Map<String, Set<String>> upstream,
+                              Set<String> visited, Set<String> inProgress, List<String> order) {
+        if (visited.contains(node) || !inProgress.add(node)) {
+            return;
+        }
+        for (String input : new TreeSet<>(upstream.getOrDefault(node, Set.of()))) {
+            visit(input, views, upstream, visited, inProgress, order);
+        }
+        inProgress.remove(node);
+        visited.add(node);
+        if (views.contains(node)) {
+            order.add(node);
+        }
+    }
+
+    private static boolean dependsOnAny(String view, Set<String> others, Map<String, Set<String>> upstream) {
+        if (others.isEmpty()) {
+            return false;
+        }
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(upstream.getOrDefault(view, Set.of()));
+        while (!pending.isEmpty()) {
+            String input = pending.poll();
+            if (others.contains(input)) {
+                return true;
+            }
+            if (seen.add(input)) {
+                pending.addAll(upstream.getOrDefault(input, Set.of()));
+            }
+        }
+        return false;
+    }
+}
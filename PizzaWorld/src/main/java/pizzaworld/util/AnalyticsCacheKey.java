@@ -0,0 +1,117 @@
+package pizzaworld.util;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.github.benmanes.caffeine.cache.Interner;
+
+/**
+ * Cache key of the filter-keyed analytics regions (@Cacheable key =
+ * "T(pizzaworld.util.AnalyticsCacheKey).of(...)").
+ *
+ * Filters are normalized before they become part of the key: entries are sorted by name,
+ * null values dropped, and integral numbers, whether they arrive as Integer, Long or a
+ * numeric String, all become a Long. Requests that differ only in map order or in how a
+ * number was typed therefore share one entry. The hash is computed once and equal keys
+ * are interned, so a hot key is a single small object however often it is looked up.
+ */
+public final class AnalyticsCacheKey {
+
+    private static final Interner<AnalyticsCacheKey> INTERNER = Interner.newWeakInterner();
+
+    private final String scope;
+    private final Object[] parts;
+    private final int hash;
+
+    private AnalyticsCacheKey(String scope, Object[] parts) {
+        this.scope = scope;
+        this.parts = parts;
+        this.hash = 31 * scope.hashCode() + Arrays.deepHashCode(parts);
+    }
+
+    /** Key of a per-store request: store, role and filter map. */
+    public static AnalyticsCacheKey of(String storeId, String role, Map<String, ?> filters) {
+        return intern(storeId + "/" + role, new Object[] {normalize(filters)});
+    }
+
+    /** Key of a per-store period comparison: the periods in request order, plus a flag. */
+    public static AnalyticsCacheKey of(String storeId, List<? extends Map<String, ?>> periods, boolean exact) {
+        return intern(storeId + "/" + (exact ? "exact" : "approx"), new Object[] {normalize(periods)});
+    }
+
+    private static AnalyticsCacheKey intern(String scope, Object[] parts) {
+        return INTERNER.intern(new AnalyticsCacheKey(scope, parts));
+    }
+
+    static Object normalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            // name, value, name, value... in name order
+            TreeMap<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> {
+                if (v != null) {
+                    sorted.put(String.valueOf(k), normalize(v));
+                }
+            });
+            Object[] flat = new Object[sorted.size() * 2];
+            int i = 0;
+            for (Map.Entry<String, Object> entry : sorted.entrySet()) {
+                flat[i++] = entry.getKey();
+                flat[i++] = entry.getValue();
+            }
+            return flat;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> normalized = new ArrayList<>(list.size());
+            for (Object item : list) {
+                normalized.add(normalize(item));
+            }
+            return normalized.toArray();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return integral(decimal);
+        }
+        if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            return Double.isFinite(number) ? integral(BigDecimal.valueOf(number)) : number;
+        }
+        if (value instanceof Number number) {
+            return integral(new BigDecimal(number.toString()));
+        }
+        if (value instanceof String text) {
+            String trimmed = text.trim();
+            if (trimmed.matches("-?\\d{1,18}")) {
+                return Long.parseLong(trimmed);
+            }
+            return trimmed;
+        }
+        return value;
+    }
+
+    private static Object integral(BigDecimal decimal) {
+        try {
+            return decimal.longValueExact();
+        } catch (ArithmeticException e) {
+            return decimal.doubleValue();
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || (other instanceof AnalyticsCacheKey key
+                && hash == key.hash && scope.equals(key.scope) && Arrays.deepEquals(parts, key.parts));
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return scope + Arrays.deepToString(parts);
+    }
+}
@@ -1,30 +1,193 @@
 package pizzaworld.util;
 
 import jakarta.servlet.http.HttpServletResponse;
-import java.io.PrintWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSetMetaData;
 import java.util.List;
+import java.util.Map;
 
 public class CsvExportUtil {
 
-    public static void writeCsv(HttpServletResponse response, List<String> headers, List<List<String>> rows, String filename) {
-        try {
-            response.setContentType("text/csv");
-            response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+    private static final Logger logger = LoggerFactory.getLogger(CsvExportUtil.class);
+
+    private static final String LINE_END = "\r\n";
+    private static final int BUFFER_SIZE = 16 * 1024;
 
-            PrintWriter writer = response.getWriter();
+    /**
+     * Writes the body of a CSV export.
+     */
+    @FunctionalInterface
+    public interface CsvBody {
+        void write(Writer writer) throws Exception;
+    }
 
-            // Schreibe Header
-            writer.println(String.join(",", headers));
+    /**
+     * Streams a CSV export. The writer is only flushed once the body completed, so a failure
+     * while the rows still fit into the buffers resets the response and surfaces as an error
+     * status. After the response is committed the failure is rethrown as well, which makes
+     * the container abort the connection instead of finishing a truncated chunked body.
+     */
+    public static void streamCsv(HttpServletResponse response, String filename, CsvBody body) {
+        try {
+            Writer writer = openCsv(response, filename);
+            body.write(writer);
+            writer.close();
+        } catch (Exception e) {
+            logger.error("CSV export {} failed (response committed: {})", filename, response.isCommitted(), e);
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            if (e instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (e instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            throw new IllegalStateException("CSV export " + filename + " failed", e);
+        }
+    }
 
-            // Schreibe Datenzeilen
+    public static void writeCsv(HttpServletResponse response, List<String> headers, List<List<String>> rows, String filename) {
+        streamCsv(response, filename, writer -> {
+            writeRow(writer, headers);
             for (List<String> row : rows) {
-                writer.println(String.join(",", row));
+                writeRow(writer, row);
             }
+        });
+    }
 
-            writer.flush();
-            writer.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Writes query rows as CSV, using the column order of the first row as header.
+     * Rows are written one by one without building an intermediate string table.
+     */
+    public static void writeCsv(HttpServletResponse response, List<Map<String, Object>> data, String filename) {
+        if (data.isEmpty()) {
+            writeCsv(response, List.of("No Data"), List.of(), filename);
+            return;
+        }
+        streamCsv(response, filename, writer -> {
+            List<String> headers = List.copyOf(data.get(0).keySet());
+            writeRow(writer, headers);
+            for (Map<String, Object> row : data) {
+                for (int i = 0; i < headers.size(); i++) {
+                    if (i > 0) writer.write(',');
+                    writeField(writer, row.get(headers.get(i)));
+                }
+                writer.write(LINE_END);
+            }
+        });
+    }
+
+    /**
+     * Writes typed record rows as CSV. The header is the record components in snake_case,
+     * which matches the column names the map based exports used.
+     */
+    public static void writeRecords(HttpServletResponse response, List<?> rows, String filename) {
+        if (rows.isEmpty()) {
+            writeCsv(response, List.of("No Data"), List.of(), filename);
+            return;
         }
+        RecordComponent[] components = rows.get(0).getClass().getRecordComponents();
+        streamCsv(response, filename, writer -> {
+            for (int i = 0; i < components.length; i++) {
+                if (i > 0) writer.write(',');
+                writeField(writer, toSnakeCase(components[i].getName()));
+            }
+            writer.write(LINE_END);
+            for (Object row : rows) {
+                for (int i = 0; i < components.length; i++) {
+                    if (i > 0) writer.write(',');
+                    writeField(writer, components[i].getAccessor().invoke(row));
+                }
+                writer.write(LINE_END);
+            }
+        });
+    }
+
+    /**
+     * Sets the CSV response headers and returns a buffered UTF-8 writer on the servlet output stream.
+     */
+    public static Writer openCsv(HttpServletResponse response, String filename) throws IOException {
+        response.setContentType("text/csv");
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+        return new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static void writeRow(Writer writer, List<?> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) writer.write(',');
+            writeField(writer, values.get(i));
+        }
+        writer.write(LINE_END);
+    }
+
+    /**
+     * Row handler that writes every column of each JDBC row straight to the writer.
+     * Used together with a forward-only, fetch-size limited statement to stream large exports.
+     */
+    public static RowCallbackHandler rowWriter(Writer writer) {
+        return rs -> {
+            ResultSetMetaData meta = rs.getMetaData();
+            int columns = meta.getColumnCount();
+            try {
+                for (int i = 1; i <= columns; i++) {
+                    if (i > 1) writer.write(',');
+                    writeField(writer, rs.getObject(i));
+                }
+                writer.write(LINE_END);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Quotes a field according to RFC 4180 when it contains a comma, quote or line break.
+     */
+    public static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                needsQuotes = true;
+                break;
+            }
+        }
+        if (!needsQuotes) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String toSnakeCase(String name) {
+        StringBuilder out = new StringBuilder(name.length() + 4);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c)) {
+                out.append('_').append(Character.toLowerCase(c));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static void writeField(Writer writer, Object value) throws IOException {
+        writer.write(escape(value == null ? null : String.valueOf(value)));
     }
 }
@@ -0,0 +1,21 @@
+package pizzaworld.util;
+
+/**
+ * A distinct count with the relative error bound it is reported with: 0 for a count taken
+ * exactly, HyperLogLog.errorBound() for one read from merged sketches. Endpoints that may
+ * answer from sketches put the bound next to the counts, so clients can tell the two apart.
+ */
+public record DistinctCount(long value, double errorBound) {
+
+    public static DistinctCount exact(long value) {
+        return new DistinctCount(value, 0.0);
+    }
+
+    public static DistinctCount estimate(long value) {
+        return new DistinctCount(value, HyperLogLog.errorBound());
+    }
+
+    public boolean isExact() {
+        return errorBound == 0.0;
+    }
+}
@@ -7,17 +7,22 @@ import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
 
 @Component
 public class JwtUtil {
 
-    @Value("${JWT_SECRET}")
-    private String secret;
-    
     private static final long EXPIRATION_MS = 86400000; // 24h
-    
-    private Key getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+
+    // Key and parser are immutable and thread-safe, so they are built once instead of per token
+    private final Key signingKey;
+    private final JwtParser parser;
+
+    public JwtUtil(@Value("${JWT_SECRET}") String secret) {
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
     public String generateToken(String username, String role) {
@@ -26,7 +31,7 @@ public class JwtUtil {
                 .claim("role", role)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + EXPIRATION_MS))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
@@ -39,19 +44,22 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token) {
+        return parseClaims(token).isPresent();
+    }
+
+    /**
+     * Verifies the token and returns its claims, or empty when the signature, format or
+     * expiry is invalid. Lets callers read subject and expiry from a single parse.
+     */
+    public Optional<Claims> parseClaims(String token) {
         try {
-            getClaims(token); // Parse reicht, um Validität zu prüfen
-            return true;
+            return Optional.of(getClaims(token));
         } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            return Optional.empty();
         }
     }
 
     private Claims getClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 }
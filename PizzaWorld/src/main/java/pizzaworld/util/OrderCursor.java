@@ -0,0 +1,50 @@
+package pizzaworld.util;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Opaque continuation token for keyset pagination over dashboard_recent_orders.
+ * Holds the sort column, direction and the (sortValue, orderid) of the last row sent.
+ */
+public record OrderCursor(String sortColumn, boolean ascending, String sortValue, int orderId) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = sortColumn + SEPARATOR + (ascending ? "a" : "d") + SEPARATOR + orderId + SEPARATOR + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static OrderCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // sortValue goes last so it may contain the separator
+            String[] parts = raw.split("\\|", 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new OrderCursor(parts[0], "a".equals(parts[1]), parts[3], Integer.parseInt(parts[2]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /** Builds the cursor pointing after the given row. */
+    public static OrderCursor after(String sortColumn, boolean ascending, Object sortValue, Object orderId) {
+        String value = sortValue instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(sortValue);
+        return new OrderCursor(sortColumn, ascending, value, ((Number) orderId).intValue());
+    }
+
+    /** Sort value converted back to the JDBC type of its column. */
+    public Object typedSortValue() {
+        return switch (sortColumn) {
+            case "orderdate" -> Timestamp.valueOf(sortValue.length() == 10 ? sortValue + " 00:00:00" : sortValue);
+            case "order_value" -> new BigDecimal(sortValue);
+            case "nitems", "orderid" -> Integer.valueOf(sortValue);
+            default -> throw new IllegalArgumentException("Invalid cursor");
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package pizzaworld.util;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Half-open date range [start, end) for filtering orders by period.
+ * Comparing orderdate against two bounds keeps the predicate index friendly,
+ * unlike EXTRACT(YEAR/MONTH FROM orderdate).
+ */
+public record PeriodRange(LocalDate start, LocalDate end) {
+
+    // Bounds used when no year is given ("all time")
+    private static final LocalDate MIN = LocalDate.of(1900, 1, 1);
+    private static final LocalDate MAX = LocalDate.of(2200, 1, 1);
+
+    public static PeriodRange allTime() {
+        return new PeriodRange(MIN, MAX);
+    }
+
+    /**
+     * Range for a year, optionally narrowed to a quarter and/or a month of that year.
+     * Without a year the range covers all time. Month and quarter together give their
+     * intersection, which may be empty (start == end). A month outside 1-12 or a quarter
+     * outside 1-4 matches no day, like EXTRACT(MONTH FROM orderdate) = 13, and gives an empty
+     * range. A month or quarter without a year (that month in every year) is not a single
+     * range and is rejected.
+     */
+    public static PeriodRange of(Integer year, Integer month, Integer quarter) {
+        if (year == null) {
+            if (month != null || quarter != null) {
+                throw new IllegalArgumentException("A month or quarter needs a year to form a date range");
+            }
+            return allTime();
+        }
+        LocalDate start = LocalDate.of(year, 1, 1);
+        if ((month != null && !isMonth(month)) || (quarter != null && (quarter < 1 || quarter > 4))) {
+            return new PeriodRange(start, start);
+        }
+        LocalDate end = start.plusYears(1);
+        if (quarter != null) {
+            LocalDate quarterStart = LocalDate.of(year, (quarter - 1) * 3 + 1, 1);
+            start = max(start, quarterStart);
+            end = min(end, quarterStart.plusMonths(3));
+        }
+        if (month != null) {
+            LocalDate monthStart = LocalDate.of(year, month, 1);
+            start = max(start, monthStart);
+            end = min(end, monthStart.plusMonths(1));
+        }
+        return new PeriodRange(start, end.isBefore(start) ? start : end);
+    }
+
+    /**
+     * Range covering whole months from startYear-startMonth through endYear-endMonth inclusive.
+     * An inverted span or a month outside 1-12 yields an empty range.
+     */
+    public static PeriodRange monthSpan(int startYear, int startMonth, int endYear, int endMonth) {
+        if (!isMonth(startMonth) || !isMonth(endMonth)) {
+            LocalDate empty = LocalDate.of(startYear, 1, 1);
+            return new PeriodRange(empty, empty);
+        }
+        LocalDate start = LocalDate.of(startYear, startMonth, 1);
+        LocalDate end = LocalDate.of(endYear, endMonth, 1).plusMonths(1);
+        return new PeriodRange(start, end.isBefore(start) ? start : end);
+    }
+
+    /** SQL predicate on the given column; bind the parameters with {@link #bind(List)}. */
+    public static String predicate(String column) {
+        return column + " >= ? AND " + column + " < ?";
+    }
+
+    public void bind(List<Object> params) {
+        params.add(start);
+        params.add(end);
+    }
+
+    public boolean isEmpty() {
+        return !end.isAfter(start);
+    }
+
+    private static boolean isMonth(int month) {
+        return month >= 1 && month <= 12;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,161 @@
+package pizzaworld.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.security.access.AccessDeniedException;
+
+import pizzaworld.model.User;
+
+/**
+ * Small builder for role scoped, filtered SQL.
+ *
+ * Every value is bound as a parameter, and IN-lists are padded to the next power of two,
+ * so the statement text depends only on which filters are present and never on their values.
+ * Column names and clauses passed in must be constants from the calling code, not user input.
+ */
+public final class ScopedQuery {
+
+    private final StringBuilder sql;
+    private final List<Object> params;
+    private boolean hasWhere;
+
+    private ScopedQuery(StringBuilder sql, List<Object> params, boolean hasWhere) {
+        this.sql = sql;
+        this.params = params;
+        this.hasWhere = hasWhere;
+    }
+
+    /** Starts from a "SELECT ... FROM ..." head that has no WHERE clause yet. */
+    public static ScopedQuery from(String head) {
+        return new ScopedQuery(new StringBuilder(head.length() + 128).append(head), new ArrayList<>(8), false);
+    }
+
+    /** Continues an existing statement that has no WHERE clause yet. */
+    public static ScopedQuery wrap(StringBuilder sql, List<Object> params) {
+        return new ScopedQuery(sql, params, false);
+    }
+
+    /** Continues an existing statement whose text already contains a WHERE clause. */
+    public static ScopedQuery extend(StringBuilder sql, List<Object> params) {
+        return new ScopedQuery(sql, params, true);
+    }
+
+    public ScopedQuery where(String predicate) {
+        sql.append(hasWhere ? " AND " : " WHERE ").append(predicate);
+        hasWhere = true;
+        return this;
+    }
+
+    public ScopedQuery where(String predicate, Object value) {
+        where(predicate);
+        params.add(value);
+        return this;
+    }
+
+    public ScopedQuery where(String predicate, Object... values) {
+        where(predicate);
+        for (Object value : values) {
+            params.add(value);
+        }
+        return this;
+    }
+
+    /** Adds "column = ?" unless the value is null or a blank string. */
+    public ScopedQuery eq(String column, Object value) {
+        if (isPresent(value)) {
+            where(column).sql.append(" = ?");
+            params.add(value);
+        }
+        return this;
+    }
+
+    /** Adds "column IN (...)" unless the collection is null or empty. */
+    public ScopedQuery in(String column, Collection<?> values) {
+        if (values != null && !values.isEmpty()) {
+            where(column).sql.append(" IN (");
+            bindList(values);
+            sql.append(')');
+        }
+        return this;
+    }
+
+    /**
+     * Adds "column IN (select IN (...))" unless the collection is null or empty,
+     * e.g. inSelect("o.storeid", "SELECT storeid FROM stores WHERE state_abbr", states).
+     */
+    public ScopedQuery inSelect(String column, String select, Collection<?> values) {
+        if (values != null && !values.isEmpty()) {
+            where(column).sql.append(" IN (").append(select).append(" IN (");
+            bindList(values);
+            sql.append("))");
+        }
+        return this;
+    }
+
+    /** Adds a half-open range predicate on the column. */
+    public ScopedQuery range(String column, PeriodRange range) {
+        where(PeriodRange.predicate(column));
+        range.bind(params);
+        return this;
+    }
+
+    /**
+     * Restricts rows to what the user may see: everything for HQ_ADMIN, their state for
+     * STATE_MANAGER and their store for STORE_MANAGER.
+     */
+    public ScopedQuery scope(User user, String stateColumn, String storeColumn) {
+        switch (user.getRole()) {
+            case "HQ_ADMIN":
+                break;
+            case "STATE_MANAGER":
+                where(stateColumn + " = ?", user.getStateAbbr());
+                break;
+            case "STORE_MANAGER":
+                where(storeColumn + " = ?", user.getStoreId());
+                break;
+            default:
+                throw new AccessDeniedException("Unknown role: " + user.getRole());
+        }
+        return this;
+    }
+
+    /** Appends a trailing clause such as GROUP BY, ORDER BY or LIMIT. */
+    public ScopedQuery append(String clause) {
+        sql.append(' ').append(clause);
+        return this;
+    }
+
+    public String sql() {
+        return sql.toString();
+    }
+
+    public Object[] params() {
+        return params.toArray();
+    }
+
+    // Pads the placeholder list to a power of two by repeating the last value
+    private void bindList(Collection<?> values) {
+        int slots = Integer.highestOneBit(values.size());
+        if (slots < values.size()) {
+            slots <<= 1;
+        }
+        sql.append('?');
+        for (int i = 1; i < slots; i++) {
+            sql.append(",?");
+        }
+        Object last = null;
+        for (Object value : values) {
+            params.add(value);
+            last = value;
+        }
+        for (int i = values.size(); i < slots; i++) {
+            params.add(last);
+        }
+    }
+
+    private static boolean isPresent(Object value) {
+        return value != null && !(value instanceof String s && s.trim().isEmpty());
+    }
+}
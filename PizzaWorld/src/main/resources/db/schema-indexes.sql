@@ -0,0 +1,6 @@
+-- Indexes Hibernate (ddl-auto=update) cannot express. Runs on every start after the
+-- JPA schema update, so every statement must be idempotent.
+
+-- Case-insensitive unique usernames; serves UserRepo.findByNormalizedUsername.
+-- Fails (and is skipped, see continue-on-error) while two users differ only in case.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_users_username_lower ON users (lower(username));
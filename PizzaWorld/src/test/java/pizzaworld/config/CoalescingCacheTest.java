@@ -0,0 +1,130 @@
+package pizzaworld.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+class CoalescingCacheTest {
+
+	@Test
+	void concurrentMissesShareOneLoad() throws Exception {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofSeconds(10));
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> cache.get("hq", () -> {
+					calls.incrementAndGet();
+					release.await();
+					return "kpis";
+				})));
+			}
+			while (cache.inFlightCount() == 0) {
+				Thread.onSpinWait();
+			}
+			Thread.sleep(100);
+			release.countDown();
+			for (Future<String> result : results) {
+				assertEquals("kpis", result.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(1, calls.get());
+		assertEquals(1, cache.loadCount());
+		// Callers that started after the load finished read the cached value instead
+		assertTrue(cache.coalescedCount() > 0 && cache.coalescedCount() <= 7);
+		assertEquals("kpis", cache.get("hq", () -> "again"));
+	}
+
+	@Test
+	void waiterLoadsItselfAfterTimeout() throws Exception {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofMillis(50));
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread leader = new Thread(() -> cache.get("hq", () -> {
+			started.countDown();
+			release.await();
+			return "slow";
+		}));
+		leader.start();
+		started.await();
+
+		assertEquals("fast", cache.get("hq", () -> "fast"));
+		assertEquals(1, cache.timeoutCount());
+		release.countDown();
+		leader.join();
+	}
+
+	@Test
+	void clearDuringLoadDropsTheStaleValue() {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofSeconds(10));
+
+		assertEquals("old", cache.get("hq", () -> {
+			cache.clear();
+			return "old";
+		}));
+		assertNull(cache.get("hq"));
+	}
+
+	@Test
+	void clearedStaleWhileRevalidateRegionServesOldValueWhileReloading() {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofSeconds(10),
+				Duration.ofHours(1), Runnable::run);
+		assertEquals("v1", cache.get("hq", () -> "v1"));
+		assertEquals("v1", cache.get("hq", () -> "unused"));
+
+		cache.clear();
+
+		// Answered from the stale entry; the refresh ran on the (direct) executor
+		assertEquals("v1", cache.get("hq", () -> "v2"));
+		assertEquals("v2", cache.get("hq").get());
+		assertEquals(1, cache.staleHitCount());
+		assertEquals(2, cache.loadCount());
+	}
+
+	@Test
+	void rejectedRefreshServesTheStaleValueWithoutLoading() {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofSeconds(10),
+				Duration.ZERO, task -> {
+					throw new RejectedExecutionException("saturated");
+				});
+		cache.put("hq", "v1");
+
+		assertEquals("v1", cache.get("hq", () -> {
+			throw new AssertionError("refresh must not run on the caller");
+		}));
+		assertEquals(1, cache.refreshRejectedCount());
+		assertEquals(0, cache.inFlightCount());
+	}
+
+	@Test
+	void failedRefreshKeepsTheStaleValue() {
+		CoalescingCache cache = new CoalescingCache(new ConcurrentMapCache("kpis"), Duration.ofSeconds(10),
+				Duration.ZERO, Runnable::run);
+		cache.get("hq", () -> "v1");
+
+		assertEquals("v1", cache.get("hq", () -> {
+			throw new IllegalStateException("database down");
+		}));
+		assertEquals("v1", cache.get("hq", String.class));
+		assertEquals(1, cache.refreshFailureCount());
+	}
+}
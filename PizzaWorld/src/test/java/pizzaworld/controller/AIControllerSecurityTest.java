@@ -0,0 +1,113 @@
+package pizzaworld.controller;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import pizzaworld.config.CorsConfig;
+import pizzaworld.config.SecurityConfig;
+import pizzaworld.model.AIInsight;
+import pizzaworld.model.ChatMessage;
+import pizzaworld.model.User;
+import pizzaworld.repository.UserRepo;
+import pizzaworld.security.AuthTokenCache;
+import pizzaworld.service.AIService;
+import pizzaworld.service.UserService;
+import pizzaworld.util.JwtUtil;
+import reactor.core.publisher.Mono;
+
+/**
+ * The Mono endpoints write their result on an ASYNC re-dispatch, which JwtAuthFilter does
+ * not run on; the authentication of the first dispatch has to carry over to it.
+ */
+@WebMvcTest(controllers = AIController.class, properties = "JWT_SECRET=test-secret-with-at-least-256-bits-of-key!!")
+@Import({SecurityConfig.class, CorsConfig.class, JwtUtil.class, AuthTokenCache.class})
+class AIControllerSecurityTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@MockitoBean
+	private AIService aiService;
+
+	@MockitoBean
+	private UserService userService;
+
+	@MockitoBean
+	private UserRepo userRepo;
+
+	private final User hq = new User(1L, "hq.admin", "", "HQ_ADMIN", null, null);
+
+	@BeforeEach
+	void setUp() {
+		when(userService.find("hq.admin")).thenReturn(hq);
+	}
+
+	private RequestPostProcessor jwt() {
+		String token = jwtUtil.generateToken("hq.admin", "HQ_ADMIN");
+		return request -> {
+			request.addHeader(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+			return request;
+		};
+	}
+
+	@Test
+	void chatAnswerIsDeliveredOnTheAsyncDispatch() throws Exception {
+		ChatMessage answer = new ChatMessage();
+		answer.setMessage("Revenue is up.");
+		when(aiService.processChatMessageAsync(anyString(), anyString(), any())).thenReturn(Mono.just(answer));
+
+		MvcResult started = mvc.perform(post("/api/ai/chat").with(jwt())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"sessionId\":\"s1\",\"message\":\"How is revenue?\"}"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.sessionId").value("s1"))
+				.andExpect(jsonPath("$.success").value(true));
+	}
+
+	@Test
+	void insightsAreDeliveredOnTheAsyncDispatch() throws Exception {
+		when(aiService.generateBusinessInsightsAsync(any())).thenReturn(Mono.just(List.<AIInsight>of()));
+
+		MvcResult started = mvc.perform(get("/api/ai/insights").with(jwt()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mvc.perform(asyncDispatch(started))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.userRole").value("HQ_ADMIN"));
+	}
+
+	@Test
+	void requestWithoutTokenIsStillRejected() throws Exception {
+		mvc.perform(get("/api/ai/insights"))
+				.andExpect(status().isForbidden());
+	}
+}
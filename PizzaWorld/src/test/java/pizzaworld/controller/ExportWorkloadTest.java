@@ -0,0 +1,38 @@
+package pizzaworld.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import pizzaworld.config.RunsOn;
+import pizzaworld.config.Workload;
+
+/**
+ * Exports read whole result sets; they must take their connections from the heavy pool.
+ */
+class ExportWorkloadTest {
+
+	@Test
+	void everyExportEndpointRunsOnTheHeavyPool() {
+		List<String> exports = new ArrayList<>();
+		for (Method method : OptimizedPizzaController.class.getDeclaredMethods()) {
+			RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(method, RequestMapping.class);
+			if (mapping == null || Stream.of(mapping.path()).noneMatch(path -> path.endsWith("/export"))) {
+				continue;
+			}
+			exports.add(method.getName());
+			RunsOn runsOn = method.getAnnotation(RunsOn.class);
+			assertTrue(runsOn != null, method.getName() + " has no @RunsOn");
+			assertEquals(Workload.HEAVY, runsOn.value(), method.getName());
+		}
+		assertTrue(exports.size() > 10, "found exports " + exports);
+	}
+}
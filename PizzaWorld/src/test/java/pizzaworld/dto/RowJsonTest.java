@@ -0,0 +1,34 @@
+package pizzaworld.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The typed rows must serialize with the same keys the map rows had.
+ */
+class RowJsonTest {
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	void monthRowUsesColumnNames() throws Exception {
+		var row = new StoreRevenueChartRow.Month("S1", "Phoenix", "Arizona", "AZ", 2022, 3, "2022-03", "March 2022",
+				100.5, 4, 25.125, 3);
+
+		assertEquals("{\"storeid\":\"S1\",\"city\":\"Phoenix\",\"state_name\":\"Arizona\",\"state_abbr\":\"AZ\","
+				+ "\"year\":2022,\"month\":3,\"month_label\":\"2022-03\",\"month_name_label\":\"March 2022\","
+				+ "\"monthly_revenue\":100.5,\"monthly_orders\":4,\"monthly_avg_order_value\":25.125,"
+				+ "\"monthly_unique_customers\":3}", mapper.writeValueAsString(row));
+	}
+
+	@Test
+	void hourlyRowOmitsMissingScope() throws Exception {
+		assertEquals("{\"hour\":11,\"revenue\":10.0,\"orders\":2}",
+				mapper.writeValueAsString(new HourlyPerformanceRow(11, 10.0, 2, null, null)));
+		assertEquals("{\"hour\":11,\"revenue\":10.0,\"orders\":2,\"state\":\"AZ\",\"store_id\":\"S1\"}",
+				mapper.writeValueAsString(new HourlyPerformanceRow(11, 10.0, 2, "AZ", "S1")));
+	}
+}
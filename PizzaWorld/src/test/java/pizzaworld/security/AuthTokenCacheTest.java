@@ -0,0 +1,52 @@
+package pizzaworld.security;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.Test;
+
+import pizzaworld.model.CustomUserDetails;
+import pizzaworld.model.User;
+
+class AuthTokenCacheTest {
+
+	private final AuthTokenCache cache = new AuthTokenCache();
+
+	private static CustomUserDetails principal(String username) {
+		return new CustomUserDetails(new User(1L, username, "", "STORE_MANAGER", "S1", "CA"));
+	}
+
+	private static Date inMinutes(int minutes) {
+		return new Date(System.currentTimeMillis() + minutes * 60_000L);
+	}
+
+	@Test
+	void returnsPrincipalUntilInvalidated() {
+		CustomUserDetails alice = principal("alice");
+		cache.put("t1", alice, inMinutes(5), cache.generation());
+		cache.put("t2", principal("bob"), inMinutes(5), cache.generation());
+
+		assertSame(alice, cache.get("t1"));
+
+		cache.invalidateUser("ALICE");
+		assertNull(cache.get("t1"));
+		assertNotNull(cache.get("t2"));
+	}
+
+	@Test
+	void expiredTokenIsNotReturned() {
+		cache.put("t1", principal("alice"), inMinutes(-1), cache.generation());
+		assertNull(cache.get("t1"));
+	}
+
+	@Test
+	void lookupOverlappingAnInvalidationIsNotCached() {
+		long generation = cache.generation();
+		cache.invalidateUser("alice");
+		cache.put("t1", principal("alice"), inMinutes(5), generation);
+		assertNull(cache.get("t1"));
+	}
+}
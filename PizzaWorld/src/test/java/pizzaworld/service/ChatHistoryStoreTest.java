@@ -0,0 +1,87 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import pizzaworld.model.ChatMessage;
+
+class ChatHistoryStoreTest {
+
+	@TempDir
+	Path storeDir;
+
+	private static ChatHistoryStore store(int maxMessages, DataSize maxMemory, String storeDir) {
+		return new ChatHistoryStore(maxMessages, maxMemory, Duration.ofHours(1), storeDir, Duration.ofDays(1),
+				new ObjectMapper().findAndRegisterModules());
+	}
+
+	private static ChatMessage message(String text) {
+		return new ChatMessage("s", "u", text, "user");
+	}
+
+	private static List<String> texts(List<ChatMessage> messages) {
+		return messages.stream().map(ChatMessage::getMessage).toList();
+	}
+
+	@Test
+	void keepsTheLastMessagesOfASession() {
+		ChatHistoryStore store = store(4, DataSize.ofMegabytes(1), "");
+		for (int i = 0; i < 3; i++) {
+			store.append("s", message("q" + i), message("a" + i));
+		}
+
+		assertEquals(List.of("q1", "a1", "q2", "a2"), texts(store.history("s")));
+		assertTrue(store.history("unknown").isEmpty());
+	}
+
+	@Test
+	void concurrentAppendsLoseNoMessage() throws InterruptedException {
+		ChatHistoryStore store = store(1000, DataSize.ofMegabytes(1), "");
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 400; i++) {
+			int n = i;
+			pool.execute(() -> store.append("s", message("m" + n)));
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(400, store.history("s").size());
+	}
+
+	@Test
+	void memoryCapEvictsSessions() {
+		// 266 bytes per session: 11 of them fit
+		ChatHistoryStore store = store(20, DataSize.ofBytes(3000), "");
+		for (int i = 0; i < 50; i++) {
+			store.append("s" + i, message("hello"));
+		}
+
+		long kept = 0;
+		for (int i = 0; i < 50; i++) {
+			kept += store.history("s" + i).size();
+		}
+		assertTrue(kept <= 11, "kept " + kept);
+	}
+
+	@Test
+	void flushedSessionsAreRestored() {
+		ChatHistoryStore store = store(20, DataSize.ofMegabytes(1), storeDir.toString());
+		store.append("../s", message("q"), message("a"));
+		store.flush();
+
+		assertEquals(List.of("q", "a"), texts(store(20, DataSize.ofMegabytes(1), storeDir.toString()).history("../s")));
+	}
+}
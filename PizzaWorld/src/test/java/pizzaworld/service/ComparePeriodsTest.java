@@ -0,0 +1,37 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import pizzaworld.model.User;
+
+/**
+ * Without periods the compare queries would get an empty VALUES list, which is invalid
+ * SQL; they must answer before touching the database.
+ */
+class ComparePeriodsTest {
+
+	private final OptimizedPizzaService service = new OptimizedPizzaService();
+
+	@Test
+	void storeCompareWithoutPeriodsIsEmpty() {
+		assertTrue(service.getStoreComparePeriods("S1", null, true).isEmpty());
+		assertTrue(service.getStoreComparePeriods("S1", List.of(), true).isEmpty());
+	}
+
+	@Test
+	void productCompareWithoutPeriodsIsEmpty() {
+		User user = new User();
+		user.setRole("HQ_ADMIN");
+
+		assertTrue(service.getProductComparePeriods(user, "P1", null).isEmpty());
+		assertTrue(service.getProductComparePeriods(user, "P1", List.of()).isEmpty());
+		Map<String, Object> overview = service.getProductsComparePeriodsOverview(user, List.of());
+		assertEquals(0, overview.get("totalPeriods"));
+	}
+}
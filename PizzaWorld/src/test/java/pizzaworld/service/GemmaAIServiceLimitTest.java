@@ -0,0 +1,49 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Calls beyond max-in-flight fail at once, and a slot comes back when its call is
+ * cancelled (client gone) rather than only when it completes.
+ */
+class GemmaAIServiceLimitTest {
+
+	private final GemmaAIService gemma = new GemmaAIService(1);
+
+	@Test
+	void callBeyondLimitIsRejected() {
+		Disposable pending = gemma.limit(Mono.never()).subscribe();
+
+		IllegalStateException e = assertThrows(IllegalStateException.class,
+				() -> gemma.limit(Mono.just("answer")).block());
+		assertEquals("More than 1 Google AI calls in flight", e.getMessage());
+		assertEquals(1L, gemma.getConfigInfo().get("rejected"));
+		assertEquals(1, gemma.getConfigInfo().get("inFlight"));
+
+		pending.dispose();
+	}
+
+	@Test
+	void cancelledCallReleasesItsSlot() {
+		Disposable pending = gemma.limit(Mono.never()).subscribe();
+		pending.dispose();
+
+		assertEquals(0, gemma.getConfigInfo().get("inFlight"));
+		assertEquals("answer", gemma.limit(Mono.just("answer")).block());
+	}
+
+	@Test
+	void cancelledStreamReleasesItsSlot() {
+		assertEquals("first", gemma.limit(Flux.just("first", "second").concatWith(Flux.never())).blockFirst());
+
+		assertEquals(0, gemma.getConfigInfo().get("inFlight"));
+		assertEquals(0L, gemma.getConfigInfo().get("rejected"));
+	}
+}
@@ -0,0 +1,58 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class NumberGuardTest {
+
+	private final NumberGuard guard = NumberGuard.of(Map.of(
+			"total_revenue", "$1,234,567.00",
+			"total_orders", "12,345",
+			"revenue_by_year_raw", "$9,999.99"));
+
+	@Test
+	void acceptsOnlyNumbersFromTheContext() {
+		assertTrue(guard.accepts("Revenue was $1,234,567 from 12,345 orders."));
+		assertFalse(guard.accepts("Revenue was $9,999.99."));
+		assertFalse(guard.accepts("Revenue was $11.527,85."));
+	}
+
+	@Test
+	void streamReleasesWholeCheckedWords() {
+		NumberGuard.Stream stream = guard.stream(1000);
+
+		// Held back until the start can be told apart from a "RESPONSE:" prefix
+		assertEquals("", stream.offer("RESPONSE: "));
+		assertEquals("Revenue was $1,234,567.00 in ",
+				stream.offer("Revenue was $1,234,") + stream.offer("567.00 in total"));
+		assertEquals("", stream.offer(","));
+		assertEquals("Revenue was $1,234,567.00 in total,", stream.releasedText() + stream.finish());
+		assertFalse(stream.isRejected());
+	}
+
+	@Test
+	void streamStopsAtTheFirstUnknownNumber() {
+		NumberGuard.Stream stream = guard.stream(1000);
+
+		assertEquals("Orders grew to a ", stream.offer("Orders grew to a "));
+		assertEquals("", stream.offer("13,000 this year "));
+		assertTrue(stream.isRejected());
+		assertTrue(stream.isClosed());
+		assertEquals("", stream.offer("and more "));
+		assertEquals("Orders grew to a ", stream.releasedText());
+	}
+
+	@Test
+	void streamIsCutAtMaxLength() {
+		NumberGuard.Stream stream = guard.stream(10);
+
+		assertEquals("abcde fghi...", stream.offer("abcde fghijk lmn "));
+		assertTrue(stream.isClosed());
+		assertFalse(stream.isRejected());
+	}
+}
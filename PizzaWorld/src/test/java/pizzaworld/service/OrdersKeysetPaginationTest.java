@@ -0,0 +1,23 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import pizzaworld.model.User;
+
+class OrdersKeysetPaginationTest {
+
+	private final OptimizedPizzaService service = new OptimizedPizzaService();
+
+	@Test
+	void rejectsLimitBelowOne() {
+		User user = new User();
+		user.setRole("HQ_ADMIN");
+
+		assertThrows(IllegalArgumentException.class, () -> service.getOrdersWithKeysetPagination(
+				0, null, null, null, null, null, null, null, "orderdate", "desc", "none", user));
+		assertThrows(IllegalArgumentException.class, () -> service.getOrdersWithKeysetPagination(
+				-5, null, null, null, null, null, null, null, "orderdate", "desc", "none", user));
+	}
+}
@@ -0,0 +1,66 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+class ParallelQueryExecutorTest {
+
+	private final List<TransactionDefinition> transactions = new CopyOnWriteArrayList<>();
+
+	private ParallelQueryExecutor executor(Executor pool) {
+		ParallelQueryExecutor executor = new ParallelQueryExecutor();
+		ReflectionTestUtils.setField(executor, "analyticsExecutor", pool);
+		ReflectionTestUtils.setField(executor, "transactionManager", new PlatformTransactionManager() {
+			@Override
+			public TransactionStatus getTransaction(TransactionDefinition definition) {
+				transactions.add(definition);
+				return new SimpleTransactionStatus();
+			}
+
+			@Override
+			public void commit(TransactionStatus status) {
+			}
+
+			@Override
+			public void rollback(TransactionStatus status) {
+			}
+		});
+		return executor;
+	}
+
+	@Test
+	void slicesRunInReadOnlyTransactionsBoundedByTheDeadline() {
+		ParallelQueryExecutor.FanOut fanOut = executor(Runnable::run).fanOut(Duration.ofSeconds(15))
+				.fork("a", () -> "value");
+
+		assertEquals("value", fanOut.join("a", "fallback"));
+		assertEquals(1, transactions.size());
+		assertTrue(transactions.get(0).isReadOnly());
+		int timeout = transactions.get(0).getTimeout();
+		assertTrue(timeout >= 1 && timeout <= 15, "timeout " + timeout);
+	}
+
+	@Test
+	void sliceStartedAfterTheDeadlineFailsWithoutQuerying() {
+		List<Runnable> queued = new CopyOnWriteArrayList<>();
+		ParallelQueryExecutor.FanOut fanOut = executor(queued::add).fanOut(Duration.ZERO)
+				.fork("late", () -> "value");
+		queued.forEach(Runnable::run);
+
+		assertEquals("fallback", fanOut.join("late", "fallback"));
+		assertTrue(fanOut.isPartial());
+		assertTrue(transactions.isEmpty());
+	}
+}
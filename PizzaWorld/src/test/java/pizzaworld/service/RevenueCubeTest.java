@@ -0,0 +1,112 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import pizzaworld.util.DistinctCount;
+import pizzaworld.util.HyperLogLog;
+import pizzaworld.util.PeriodRange;
+
+class RevenueCubeTest {
+
+	private static final List<RevenueCube.Store> STORES = List.of(
+			new RevenueCube.Store("S1", "Los Angeles", "California", "CA"),
+			new RevenueCube.Store("S2", "Phoenix", "Arizona", "AZ"));
+
+	private static final List<RevenueCube.Product> PRODUCTS = List.of(
+			new RevenueCube.Product("P1", "Margherita", "Classic", "Small", 9.99),
+			new RevenueCube.Product("P2", "Veggie", "Vegetarian", "Large", 14.99));
+
+	// Orders from November 2021 through February 2022
+	private static RevenueCube cube() {
+		RevenueCube.Builder builder = new RevenueCube.Builder(STORES, PRODUCTS,
+				LocalDate.of(2021, 11, 3), LocalDate.of(2022, 2, 20));
+		builder.addOrders("S1", 2021, 11, 100.0, 4, 3);
+		builder.addOrders("S1", 2022, 1, 50.0, 2, 2);
+		builder.addOrders("S2", 2022, 2, 30.0, 1, 1);
+		builder.addOrders("S9", 2022, 2, 999.0, 9, 9);
+		builder.addStoreCustomers("S1", 4);
+		builder.addCategory("S1", 2021, 11, "Classic", 60.0, 5, 3, 4);
+		builder.addCategory("S1", 2021, 11, "Vegetarian", 40.0, 2, 2, 2);
+		builder.addCategory("S1", 2022, 1, "Classic", 50.0, 3, 2, 2);
+		for (long customer = 1; customer <= 3; customer++) {
+			builder.addCustomer("S1", 2021, 11, "Classic", customer);
+		}
+		builder.addCustomer("S1", 2022, 1, "Classic", 3);
+		builder.addCustomer("S1", 2022, 1, "Classic", 4);
+		builder.addProduct("P1", 2022, 1, 50.0, 3, 2, 2);
+		builder.addProductLines("P1", "S1", 2022, 1, 2);
+		builder.addProductLines("P1", "S2", 2022, 2, 1);
+		return builder.build();
+	}
+
+	@Test
+	void monthsFollowTheCalendarAcrossYears() {
+		RevenueCube cube = cube();
+
+		assertEquals(4, cube.months());
+		assertEquals(2022, cube.year(2));
+		assertEquals(1, cube.monthOfYear(2));
+		assertArrayEquals(new boolean[] {false, false, true, true}, cube.months(PeriodRange.of(2022, null, null)));
+		assertArrayEquals(new boolean[] {false, false, false, false}, cube.months(PeriodRange.of(2020, null, null)));
+		assertArrayEquals(new boolean[] {true, false, false, false}, cube.monthsOfYear(11));
+	}
+
+	@Test
+	void sumsOrderLevelAndCategorySlots() {
+		RevenueCube cube = cube();
+		boolean[] both = {true, true};
+
+		RevenueCube.Totals all = cube.sum(both, cube.allMonths(), cube.allCategories());
+		assertEquals(180.0, all.revenue(), 1e-9);
+		assertEquals(7, all.orders());
+		assertEquals(10, all.units());
+
+		RevenueCube.Totals classic = cube.sum(both, cube.allMonths(), cube.categories().indexOf("Classic"));
+		assertEquals(110.0, classic.revenue(), 1e-9);
+		assertEquals(5, classic.orders());
+		assertEquals(6, classic.lines());
+	}
+
+	@Test
+	void customersAreExactForOneStoreAndEstimatedOtherwise() {
+		RevenueCube cube = cube();
+		boolean[] first = {true, false};
+
+		assertEquals(DistinctCount.exact(4), cube.customers(first, cube.allMonths(), cube.allCategories()));
+		assertEquals(DistinctCount.exact(2), cube.customers(first, cube.months(PeriodRange.of(2022, 1, null)), cube.allCategories()));
+		assertEquals(5, cube.monthlyCustomers(0, cube.allMonths()));
+		// Sketch union over both months counts customer 3 once
+		DistinctCount classic = cube.customers(first, cube.allMonths(), cube.categories().indexOf("Classic"));
+		assertEquals(4, classic.value());
+		assertFalse(classic.isExact());
+		assertEquals(HyperLogLog.errorBound(), classic.errorBound(), 1e-12);
+		assertEquals(DistinctCount.exact(0), cube.customers(new boolean[2], cube.allMonths(), cube.allCategories()));
+	}
+
+	@Test
+	void productLinesFollowStoreAndMonthMasks() {
+		RevenueCube cube = cube();
+
+		assertEquals(3, cube.productLines(0, new boolean[] {true, true}, cube.allMonths()));
+		assertEquals(2, cube.productLines(0, new boolean[] {true, false}, cube.allMonths()));
+		assertEquals(0, cube.productLines(0, new boolean[] {true, true}, cube.monthsOfYear(11)));
+		assertEquals(0, cube.productLines(1, new boolean[] {true, true}, cube.allMonths()));
+	}
+
+	@Test
+	void productSliceSumsMonths() {
+		RevenueCube.Totals totals = cube().productSum(0, cube().allMonths());
+
+		assertEquals(50.0, totals.revenue(), 1e-9);
+		assertEquals(2, totals.orders());
+		assertTrue(cube().sizeInBytes() > 0);
+	}
+}
@@ -0,0 +1,38 @@
+package pizzaworld.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class ViewRefreshServiceTest {
+
+	// orders <- sales_facts (m) <- monthly (v) <- kpis (m); stores <- store_list (m)
+	private static final Map<String, Set<String>> UPSTREAM = Map.of(
+			"sales_facts", Set.of("orders", "order_items"),
+			"monthly", Set.of("sales_facts"),
+			"kpis", Set.of("monthly", "stores"),
+			"store_list", Set.of("stores"));
+
+	private static final Set<String> MATVIEWS = Set.of("kpis", "sales_facts", "store_list");
+
+	@Test
+	void refreshOrderPutsInputsFirstAcrossPlainViews() {
+		List<String> order = ViewRefreshService.refreshOrder(MATVIEWS, UPSTREAM);
+
+		assertEquals(3, order.size());
+		assertTrue(order.indexOf("sales_facts") < order.indexOf("kpis"));
+	}
+
+	@Test
+	void dependentsFollowTheGraphTransitively() {
+		assertEquals(Set.of("sales_facts", "monthly", "kpis"),
+				ViewRefreshService.dependentsOf(Set.of("orders"), UPSTREAM));
+		assertEquals(Set.of("kpis", "store_list"),
+				ViewRefreshService.dependentsOf(Set.of("stores"), UPSTREAM));
+	}
+}
@@ -0,0 +1,41 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class AnalyticsCacheKeyTest {
+
+	@Test
+	void ignoresMapOrderNullsAndNumberTypes() {
+		Map<String, Object> first = new LinkedHashMap<>();
+		first.put("timePeriod", "year");
+		first.put("year", 2022);
+		first.put("month", null);
+		Map<String, Object> second = new LinkedHashMap<>();
+		second.put("year", "2022");
+		second.put("timePeriod", "year");
+
+		assertSame(AnalyticsCacheKey.of("S1", "HQ_ADMIN", first), AnalyticsCacheKey.of("S1", "HQ_ADMIN", second));
+		assertNotEquals(AnalyticsCacheKey.of("S1", "HQ_ADMIN", first), AnalyticsCacheKey.of("S1", "STORE_MANAGER", second));
+		assertNotEquals(AnalyticsCacheKey.of("S1", "HQ_ADMIN", first), AnalyticsCacheKey.of("S1", "HQ_ADMIN", Map.of("year", 2023)));
+	}
+
+	@Test
+	void periodsKeepTheirOrder() {
+		Map<String, Object> q1 = new HashMap<>(Map.of("year", 2022, "quarter", 1L));
+		Map<String, Object> q2 = Map.of("year", "2022", "quarter", 2.0);
+
+		assertEquals(AnalyticsCacheKey.of("S1", List.of(q1, q2), false),
+				AnalyticsCacheKey.of("S1", List.of(Map.of("quarter", "1", "year", 2022), Map.of("year", 2022, "quarter", 2)), false));
+		assertNotEquals(AnalyticsCacheKey.of("S1", List.of(q1, q2), false), AnalyticsCacheKey.of("S1", List.of(q2, q1), false));
+		assertNotEquals(AnalyticsCacheKey.of("S1", List.of(q1, q2), false), AnalyticsCacheKey.of("S1", List.of(q1, q2), true));
+	}
+}
@@ -0,0 +1,81 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class CsvExportUtilTest {
+
+	@Test
+	void writesQuotedRowsWithCrlf() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		CsvExportUtil.writeCsv(response, List.of("id", "name"), List.of(List.of("1", "a,b")), "x.csv");
+
+		assertEquals("id,name\r\n1,\"a,b\"\r\n", response.getContentAsString());
+		assertEquals("text/csv;charset=UTF-8", response.getContentType());
+	}
+
+	record Row(String storeId, double totalRevenue) {
+	}
+
+	record BrokenRow(String storeId) {
+		public String storeId() {
+			throw new IllegalStateException("broken accessor");
+		}
+	}
+
+	@Test
+	void writesRecordComponentsInSnakeCase() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		CsvExportUtil.writeRecords(response, List.of(new Row("S1", 12.5)), "x.csv");
+
+		assertEquals("store_id,total_revenue\r\nS1,12.5\r\n", response.getContentAsString());
+	}
+
+	@Test
+	void recordAccessorFailureIsPropagated() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThrows(IllegalStateException.class,
+				() -> CsvExportUtil.writeRecords(response, List.of(new BrokenRow("S1")), "x.csv"));
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	void failureBeforeCommitResetsTheResponse() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		assertThrows(IllegalStateException.class, () -> CsvExportUtil.streamCsv(response, "x.csv", writer -> {
+			CsvExportUtil.writeRow(writer, List.of("id"));
+			throw new IllegalStateException("boom");
+		}));
+
+		assertFalse(response.isCommitted());
+		assertNull(response.getHeader("Content-Disposition"));
+		assertEquals(0, response.getContentAsByteArray().length);
+	}
+
+	@Test
+	void failureAfterCommitIsRethrown() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setBufferSize(16);
+
+		assertThrows(IllegalStateException.class, () -> CsvExportUtil.streamCsv(response, "x.csv", writer -> {
+			for (int i = 0; i < 10_000; i++) {
+				CsvExportUtil.writeRow(writer, List.of(i, "row"));
+			}
+			throw new IllegalStateException("connection lost");
+		}));
+
+		assertTrue(response.isCommitted());
+	}
+}
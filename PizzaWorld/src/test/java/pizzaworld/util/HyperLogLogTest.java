@@ -0,0 +1,34 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+	@Test
+	void estimatesWithinThreeStandardErrors() {
+		for (int n : new int[] {100, 5_000, 200_000}) {
+			HyperLogLog sketch = new HyperLogLog();
+			for (long id = 0; id < n; id++) {
+				sketch.add(id);
+				sketch.add(id);
+			}
+			assertEquals(n, sketch.estimate(), n * 3 * HyperLogLog.standardError(), "n=" + n);
+		}
+	}
+
+	@Test
+	void mergeCountsTheUnion() {
+		byte[] blocks = new byte[2 * HyperLogLog.REGISTERS];
+		for (long id = 0; id < 30_000; id++) {
+			HyperLogLog.add(blocks, 0, id);
+			HyperLogLog.add(blocks, HyperLogLog.REGISTERS, id + 10_000);
+		}
+		HyperLogLog union = new HyperLogLog();
+		union.merge(blocks, 0);
+		union.merge(blocks, HyperLogLog.REGISTERS);
+
+		assertEquals(40_000, union.estimate(), 40_000 * 3 * HyperLogLog.standardError());
+	}
+}
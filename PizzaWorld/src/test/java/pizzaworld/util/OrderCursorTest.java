@@ -0,0 +1,43 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import org.junit.jupiter.api.Test;
+
+class OrderCursorTest {
+
+	@Test
+	void roundTripsThroughTheToken() {
+		OrderCursor cursor = OrderCursor.after("order_value", false, new BigDecimal("12.50"), 42);
+
+		OrderCursor decoded = OrderCursor.decode(cursor.encode());
+
+		assertEquals(cursor, decoded);
+		assertEquals(new BigDecimal("12.50"), decoded.typedSortValue());
+	}
+
+	@Test
+	void sortValueMayContainTheSeparator() {
+		OrderCursor cursor = new OrderCursor("orderdate", true, "2022-01-05 10:15:00|x", 7);
+
+		assertEquals(cursor, OrderCursor.decode(cursor.encode()));
+	}
+
+	@Test
+	void dateOnlySortValueBecomesMidnight() {
+		OrderCursor cursor = new OrderCursor("orderdate", true, "2022-01-05", 7);
+
+		assertEquals(Timestamp.valueOf("2022-01-05 00:00:00"), cursor.typedSortValue());
+	}
+
+	@Test
+	void rejectsGarbageTokens() {
+		assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode("not a cursor"));
+		assertThrows(IllegalArgumentException.class, () -> OrderCursor.decode(
+				new OrderCursor("storeid", true, "S1", 1).encode()).typedSortValue());
+	}
+}
@@ -0,0 +1,105 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the range predicates select exactly the days the old
+ * EXTRACT(YEAR/MONTH FROM orderdate) filters selected.
+ */
+class PeriodRangeTest {
+
+	private static final LocalDate FIRST_DAY = LocalDate.of(2019, 12, 1);
+	private static final LocalDate LAST_DAY = LocalDate.of(2024, 2, 1);
+
+	@Test
+	void yearMatchesExtractYear() {
+		for (int year = 2020; year <= 2023; year++) {
+			int y = year;
+			assertSameDays(PeriodRange.of(year, null, null), d -> d.getYear() == y);
+		}
+	}
+
+	@Test
+	void yearAndMonthMatchesExtractYearAndMonth() {
+		for (int month = 1; month <= 12; month++) {
+			int m = month;
+			assertSameDays(PeriodRange.of(2020, month, null), d -> d.getYear() == 2020 && d.getMonthValue() == m);
+		}
+	}
+
+	@Test
+	void yearAndQuarterMatchesMonthBetween() {
+		for (int quarter = 1; quarter <= 4; quarter++) {
+			int startMonth = (quarter - 1) * 3 + 1;
+			int endMonth = quarter * 3;
+			assertSameDays(PeriodRange.of(2022, null, quarter),
+					d -> d.getYear() == 2022 && d.getMonthValue() >= startMonth && d.getMonthValue() <= endMonth);
+		}
+	}
+
+	@Test
+	void sameYearMonthSpanMatchesMonthBetween() {
+		for (int startMonth = 1; startMonth <= 12; startMonth++) {
+			for (int endMonth = startMonth; endMonth <= 12; endMonth++) {
+				int sm = startMonth;
+				int em = endMonth;
+				assertSameDays(PeriodRange.monthSpan(2021, startMonth, 2021, endMonth),
+						d -> d.getYear() == 2021 && d.getMonthValue() >= sm && d.getMonthValue() <= em);
+			}
+		}
+	}
+
+	@Test
+	void multiYearMonthSpanMatchesOldYearMonthClauses() {
+		for (int startMonth = 1; startMonth <= 12; startMonth++) {
+			for (int endMonth = 1; endMonth <= 12; endMonth++) {
+				int sm = startMonth;
+				int em = endMonth;
+				// (year = sy AND month >= sm) OR (year > sy AND year < ey) OR (year = ey AND month <= em)
+				assertSameDays(PeriodRange.monthSpan(2020, startMonth, 2023, endMonth),
+						d -> (d.getYear() == 2020 && d.getMonthValue() >= sm)
+								|| (d.getYear() > 2020 && d.getYear() < 2023)
+								|| (d.getYear() == 2023 && d.getMonthValue() <= em));
+			}
+		}
+	}
+
+	@Test
+	void monthOrQuarterWithoutYearIsRejected() {
+		assertEquals(PeriodRange.allTime(), PeriodRange.of(null, null, null));
+		assertThrows(IllegalArgumentException.class, () -> PeriodRange.of(null, 3, null));
+		assertThrows(IllegalArgumentException.class, () -> PeriodRange.of(null, null, 2));
+	}
+
+	@Test
+	void monthOrQuarterOutOfRangeIsEmpty() {
+		assertTrue(PeriodRange.of(2022, 13, null).isEmpty());
+		assertTrue(PeriodRange.of(2022, 0, null).isEmpty());
+		assertTrue(PeriodRange.of(2022, null, 5).isEmpty());
+		assertTrue(PeriodRange.of(2022, null, 0).isEmpty());
+		assertTrue(PeriodRange.of(2022, 3, 5).isEmpty());
+		assertTrue(PeriodRange.monthSpan(2022, 13, 2023, 2).isEmpty());
+		assertTrue(PeriodRange.monthSpan(2022, 1, 2023, 13).isEmpty());
+		assertTrue(PeriodRange.monthSpan(2022, 0, 2022, 0).isEmpty());
+	}
+
+	@Test
+	void invertedSpanIsEmpty() {
+		assertTrue(PeriodRange.monthSpan(2022, 5, 2021, 3).isEmpty());
+		assertTrue(PeriodRange.monthSpan(2022, 5, 2022, 4).isEmpty());
+	}
+
+	private static void assertSameDays(PeriodRange range, Predicate<LocalDate> extractFilter) {
+		for (LocalDate day = FIRST_DAY; day.isBefore(LAST_DAY); day = day.plusDays(1)) {
+			boolean inRange = !day.isBefore(range.start()) && day.isBefore(range.end());
+			assertEquals(extractFilter.test(day), inRange, range + " on " + day);
+		}
+	}
+}
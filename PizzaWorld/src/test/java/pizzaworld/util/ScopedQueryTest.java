@@ -0,0 +1,43 @@
+package pizzaworld.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import pizzaworld.model.User;
+
+class ScopedQueryTest {
+
+	@Test
+	void statementTextDoesNotDependOnValues() {
+		ScopedQuery a = ScopedQuery.from("SELECT * FROM orders").eq("storeid", "S1").in("state", List.of("AZ", "CA", "NV"));
+		ScopedQuery b = ScopedQuery.from("SELECT * FROM orders").eq("storeid", "S2").in("state", List.of("UT", "AZ", "CA", "NV"));
+
+		assertEquals("SELECT * FROM orders WHERE storeid = ? AND state IN (?,?,?,?)", a.sql());
+		assertEquals(a.sql(), b.sql());
+		assertArrayEquals(new Object[] {"S1", "AZ", "CA", "NV", "NV"}, a.params());
+	}
+
+	@Test
+	void blankAndEmptyFiltersAreSkipped() {
+		ScopedQuery query = ScopedQuery.from("SELECT 1 FROM orders").eq("storeid", " ").eq("year", null).in("state", List.of());
+
+		assertEquals("SELECT 1 FROM orders", query.sql());
+		assertEquals(0, query.params().length);
+	}
+
+	@Test
+	void scopeRestrictsManagers() {
+		User manager = new User();
+		manager.setRole("STATE_MANAGER");
+		manager.setStateAbbr("CA");
+
+		ScopedQuery query = ScopedQuery.from("SELECT 1 FROM orders o").scope(manager, "o.state", "o.storeid").append("LIMIT 1");
+
+		assertEquals("SELECT 1 FROM orders o WHERE o.state = ? LIMIT 1", query.sql());
+		assertArrayEquals(new Object[] {"CA"}, query.params());
+	}
+}